@@ -21,7 +21,9 @@ import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNotEquals;
 import static org.junit.Assert.assertTrue;
 import static org.junit.Assert.fail;
+import static org.junit.Assume.assumeFalse;
 
+import android.support.test.filters.LargeTest;
 import android.support.test.filters.SmallTest;
 import android.support.test.runner.AndroidJUnit4;
 import android.text.Spannable;
@@ -30,13 +32,22 @@ import android.text.style.URLSpan;
 import android.text.util.Linkify;
 import android.text.util.Linkify.MatchFilter;
 import android.text.util.Linkify.TransformFilter;
+import android.util.Log;
 
+import androidx.annotation.Nullable;
+import androidx.core.os.BuildCompat;
 import androidx.core.util.PatternsCompat;
 
+import org.junit.Ignore;
 import org.junit.Test;
 import org.junit.runner.RunWith;
 
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
 import java.util.Locale;
+import java.util.Random;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
@@ -46,6 +57,15 @@ import java.util.regex.Pattern;
 @SmallTest
 @RunWith(AndroidJUnit4.class)
 public class LinkifyCompatTest {
+    private static final String TAG = "LinkifyCompatTest";
+    private static final String CHAT_MESSAGE = "Hey, are you coming tonight? See "
+            + "https://example.com/party?id=42 for the details, e.g. the address.\n";
+    private static final String EMAIL_MESSAGE = "Send the photos to party.photos@example.com, "
+            + "thanks. The slides are at drive.google.com/file/d/abc. Talk at 3pm :)\n";
+    private static final String[] MESSAGE_URLS = new String[] {
+            "https://example.com/party?id=42",
+            "mailto:party.photos@example.com",
+            "http://drive.google.com/file/d/abc"};
     private static final Pattern LINKIFY_TEST_PATTERN = Pattern.compile(
             "(test:)?[a-zA-Z0-9]+(\\.pattern)?");
 
@@ -252,6 +272,186 @@ public class LinkifyCompatTest {
         }
     }
 
+    @Test
+    public void testAddLinks_longText() {
+        int messageCount = 50;
+        Spannable spannable = new SpannableString(repeatMessages(messageCount));
+
+        assertTrue(LinkifyCompat.addLinks(spannable,
+                Linkify.WEB_URLS | Linkify.EMAIL_ADDRESSES));
+        URLSpan[] spans = getSortedUrlSpans(spannable);
+        assertEquals(messageCount * MESSAGE_URLS.length, spans.length);
+        int messageLength = CHAT_MESSAGE.length() + EMAIL_MESSAGE.length();
+        for (int i = 0; i < spans.length; i++) {
+            URLSpan span = spans[i];
+            String url = MESSAGE_URLS[i % MESSAGE_URLS.length];
+            assertEquals(url, span.getURL());
+            assertEquals(url.replaceFirst("^(mailto:|http://)", ""),
+                    spannable.subSequence(spannable.getSpanStart(span),
+                            spannable.getSpanEnd(span)).toString());
+            assertEquals(i / MESSAGE_URLS.length, spannable.getSpanStart(span) / messageLength);
+        }
+    }
+
+    @Test
+    public void testAddLinks_sameLinksAsWholeTextScan() {
+        // addLinks uses the framework on P and above
+        assumeFalse(BuildCompat.isAtLeastP());
+        String[] pieces = new String[] {
+                "\"http://example.com/a\"", "\"www.example.com\"",
+                "<http://example.com/path>", "<a@example.com>", "\"a@example.com\"",
+                "x://example.com/path", "ftp://example.com", "see x://example.com.",
+                "a@example.com http://example.com/b", "http://example.com/a@example.com",
+                "a@example.com,www.example.com", "a@example.comhttp://example.com",
+                "http://192.168.0.1:8080/path", "10.0.0.1", "user@192.168.0.1", "1.2.3.4.5",
+                CHAT_MESSAGE, EMAIL_MESSAGE};
+        String[] separators = new String[] {" ", "\n", "", "\"", "<>", ",", "@", "."};
+        for (String separator : separators) {
+            StringBuilder builder = new StringBuilder();
+            for (String piece : pieces) {
+                assertSameLinksAsWholeTextScan(piece);
+                builder.append(piece).append(separator);
+            }
+            assertSameLinksAsWholeTextScan(builder.toString());
+        }
+    }
+
+    @Ignore("benchmark")
+    @Test
+    @LargeTest
+    public void benchmark_addLinksToLongText() {
+        // addLinks uses the framework on P and above
+        assumeFalse(BuildCompat.isAtLeastP());
+        String[] names = new String[] {"messages", "email body", "email thread"};
+        String[] texts = new String[] {
+                repeatMessages(1000), createEmailBody(1, 400), createEmailBody(50, 40)};
+        for (int i = 0; i < texts.length; i++) {
+            String text = texts[i];
+            // Both paths must find the same links for the timings to be comparable
+            assertSameLinksAsWholeTextScan(text);
+            // Warm up both paths before timing them
+            addLinksPerPattern(new SpannableString(text));
+            LinkifyCompat.addLinks(new SpannableString(text),
+                    Linkify.WEB_URLS | Linkify.EMAIL_ADDRESSES);
+
+            Spannable perPattern = new SpannableString(text);
+            long start = System.nanoTime();
+            addLinksPerPattern(perPattern);
+            long perPatternNanos = System.nanoTime() - start;
+
+            Spannable singlePass = new SpannableString(text);
+            start = System.nanoTime();
+            LinkifyCompat.addLinks(singlePass, Linkify.WEB_URLS | Linkify.EMAIL_ADDRESSES);
+            long singlePassNanos = System.nanoTime() - start;
+
+            Log.d(TAG, String.format("%s, %d chars: per pattern %d ms (%d links), "
+                            + "single pass %d ms (%d links)",
+                    names[i], text.length(), perPatternNanos / 1000000,
+                    perPattern.getSpans(0, perPattern.length(), URLSpan.class).length,
+                    singlePassNanos / 1000000,
+                    singlePass.getSpans(0, singlePass.length(), URLSpan.class).length));
+        }
+    }
+
+    /**
+     * Adds the web URLs and the email addresses of the spannable the way addLinks used to, by
+     * scanning the whole text once with each pattern.
+     */
+    private static void addLinksPerPattern(Spannable spannable) {
+        LinkifyCompat.addLinks(spannable, PatternsCompat.AUTOLINK_WEB_URL, "http://",
+                new String[] {"https://", "rtsp://"}, Linkify.sUrlMatchFilter, null);
+        LinkifyCompat.addLinks(spannable, PatternsCompat.AUTOLINK_EMAIL_ADDRESS, "mailto:",
+                null, null, null);
+    }
+
+    /**
+     * Checks that the web URLs and the email addresses addLinks finds in the text are the ones
+     * their patterns find when run over the whole text.
+     */
+    private static void assertSameLinksAsWholeTextScan(String text) {
+        assertEquals(text, getMatchRanges(text, PatternsCompat.AUTOLINK_WEB_URL,
+                Linkify.sUrlMatchFilter), getLinkRanges(text, Linkify.WEB_URLS));
+        assertEquals(text, getMatchRanges(text, PatternsCompat.AUTOLINK_EMAIL_ADDRESS, null),
+                getLinkRanges(text, Linkify.EMAIL_ADDRESSES));
+    }
+
+    private static List<String> getMatchRanges(String text, Pattern pattern,
+            @Nullable MatchFilter matchFilter) {
+        List<String> links = new ArrayList<>();
+        Matcher m = pattern.matcher(text);
+        while (m.find()) {
+            if (matchFilter == null || matchFilter.acceptMatch(text, m.start(), m.end())) {
+                links.add(m.start() + "-" + m.end());
+            }
+        }
+        return links;
+    }
+
+    private static List<String> getLinkRanges(String text, int mask) {
+        Spannable spannable = new SpannableString(text);
+        LinkifyCompat.addLinks(spannable, mask);
+        List<String> links = new ArrayList<>();
+        for (URLSpan span : getSortedUrlSpans(spannable)) {
+            links.add(spannable.getSpanStart(span) + "-" + spannable.getSpanEnd(span));
+        }
+        return links;
+    }
+
+    private static String repeatMessages(int count) {
+        StringBuilder builder = new StringBuilder();
+        for (int i = 0; i < count; i++) {
+            builder.append(CHAT_MESSAGE).append(EMAIL_MESSAGE);
+        }
+        return builder.toString();
+    }
+
+    /**
+     * Creates the body of an email thread, made of the given number of messages with the given
+     * number of lines each. Most lines are plain prose, the way they are in long emails, with an
+     * occasional URL or email address, and each message is quoted one level deeper than the
+     * one before it.
+     */
+    private static String createEmailBody(int messageCount, int lineCount) {
+        String[] words = new String[] {"the", "review", "of", "our", "budget", "is", "due", "on",
+                "Friday,", "so", "please", "send", "comments", "before", "then.", "We", "moved",
+                "e.g.", "Q3", "numbers", "to", "v2.1", "of", "the", "draft", "(see", "notes)."};
+        Random random = new Random(0);
+        StringBuilder builder = new StringBuilder();
+        String quote = "";
+        for (int message = 0; message < messageCount; message++) {
+            builder.append(quote).append("On Monday, Alex <alex").append(message)
+                    .append("@example.com> wrote:\n");
+            for (int line = 0; line < lineCount; line++) {
+                builder.append(quote);
+                for (int word = 0; word < 12; word++) {
+                    builder.append(words[random.nextInt(words.length)]).append(' ');
+                }
+                if (line % 25 == 24) {
+                    builder.append("https://docs.example.com/d/").append(message).append('/')
+                            .append(line).append("/edit?usp=sharing");
+                } else if (line % 40 == 39) {
+                    builder.append("cc team.").append(line).append("@example.com");
+                }
+                builder.append('\n');
+            }
+            builder.append(quote).append("--\n").append(quote)
+                    .append("Alex | www.example.com | +1 650 555 0100\n\n");
+            quote += "> ";
+        }
+        return builder.toString();
+    }
+
+    private static URLSpan[] getSortedUrlSpans(final Spannable spannable) {
+        URLSpan[] spans = spannable.getSpans(0, spannable.length(), URLSpan.class);
+        Arrays.sort(spans, new Comparator<URLSpan>() {
+            @Override
+            public int compare(URLSpan a, URLSpan b) {
+                return spannable.getSpanStart(a) - spannable.getSpanStart(b);
+            }
+        });
+        return spans;
+    }
+
     private boolean containsUrl(URLSpan[] spans, String expectedValue) {
         for (URLSpan span : spans) {
             if (span.getURL().equals(expectedValue)) {
@@ -118,16 +118,9 @@ public final class LinkifyCompat {
 
         final ArrayList<LinkSpec> links = new ArrayList<>();
 
-        if ((mask & Linkify.WEB_URLS) != 0) {
-            gatherLinks(links, text, PatternsCompat.AUTOLINK_WEB_URL,
-                    new String[] { "http://", "https://", "rtsp://" },
-                    Linkify.sUrlMatchFilter, null);
-        }
-
-        if ((mask & Linkify.EMAIL_ADDRESSES) != 0) {
-            gatherLinks(links, text, PatternsCompat.AUTOLINK_EMAIL_ADDRESS,
-                    new String[] { "mailto:" },
-                    null, null);
+        if ((mask & (Linkify.WEB_URLS | Linkify.EMAIL_ADDRESSES)) != 0) {
+            gatherWebAndEmailLinks(links, text, (mask & Linkify.WEB_URLS) != 0,
+                    (mask & Linkify.EMAIL_ADDRESSES) != 0);
         }
 
         if ((mask & Linkify.MAP_ADDRESSES) != 0) {
@@ -414,11 +407,93 @@ public final class LinkifyCompat {
         return url;
     }
 
+    /**
+     * Gathers web URLs and email addresses in a single pass over the text. Neither pattern can
+     * match across a character which is never part of a link, such as a whitespace, so the text
+     * is split at those characters, and each pattern only runs over the pieces which contain the
+     * characters every one of its matches does. Running the patterns with transparent bounds
+     * keeps their lookarounds and word boundaries seeing the whole text, so the links are the
+     * same as when scanning the whole text with each pattern.
+     */
+    private static void gatherWebAndEmailLinks(ArrayList<LinkSpec> links, Spannable s,
+            boolean webUrls, boolean emailAddresses) {
+        String string = s.toString();
+        Matcher webUrlMatcher = webUrls ? newRegionMatcher(PatternsCompat.AUTOLINK_WEB_URL,
+                string) : null;
+        Matcher emailMatcher = emailAddresses ? newRegionMatcher(
+                PatternsCompat.AUTOLINK_EMAIL_ADDRESS, string) : null;
+        // Keep the web URLs ahead of the email addresses, so that pruning keeps the same links.
+        ArrayList<LinkSpec> emailLinks = new ArrayList<>();
+        int length = string.length();
+        int end = 0;
+
+        while (end < length) {
+            int start = end;
+            // Every URL without a scheme and every email address has a domain name, which has a
+            // label after a dot. URLs may have a scheme instead.
+            boolean hasDomainName = false;
+            boolean hasScheme = false;
+            boolean hasAt = false;
+
+            for (; end < length; end++) {
+                char c = string.charAt(end);
+                if (isLinkBreak(c)) {
+                    break;
+                }
+                if (c == '.') {
+                    hasDomainName |= end + 1 < length && isLabelStart(string.charAt(end + 1));
+                } else if (c == ':') {
+                    hasScheme |= string.startsWith("//", end + 1);
+                } else if (c == '@') {
+                    hasAt = true;
+                }
+            }
+
+            if (webUrlMatcher != null && (hasDomainName || hasScheme)) {
+                webUrlMatcher.region(start, end);
+                gatherLinks(links, s, webUrlMatcher,
+                        new String[] { "http://", "https://", "rtsp://" },
+                        Linkify.sUrlMatchFilter, null);
+            }
+            if (emailMatcher != null && hasDomainName && hasAt) {
+                emailMatcher.region(start, end);
+                gatherLinks(emailLinks, s, emailMatcher,
+                        new String[] { "mailto:" },
+                        null, null);
+            }
+
+            // Skip the character the piece ended at.
+            end++;
+        }
+
+        links.addAll(emailLinks);
+    }
+
+    private static Matcher newRegionMatcher(Pattern pattern, String string) {
+        Matcher m = pattern.matcher(string);
+        m.useTransparentBounds(true);
+        m.useAnchoringBounds(false);
+        return m;
+    }
+
+    /**
+     * Returns whether the character can't be part of a web URL nor an email address.
+     */
+    private static boolean isLinkBreak(char c) {
+        return c <= ' ' || c == '"' || c == '<' || c == '>';
+    }
+
+    /**
+     * Returns whether the character can start a label of a domain name.
+     */
+    private static boolean isLabelStart(char c) {
+        return (c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z') || (c >= '0' && c <= '9')
+                || c >= '\u00A0';
+    }
+
     private static void gatherLinks(ArrayList<LinkSpec> links,
-            Spannable s, Pattern pattern, String[] schemes,
+            Spannable s, Matcher m, String[] schemes,
             Linkify.MatchFilter matchFilter, Linkify.TransformFilter transformFilter) {
-        Matcher m = pattern.matcher(s);
-
         while (m.find()) {
             int start = m.start();
             int end = m.end();
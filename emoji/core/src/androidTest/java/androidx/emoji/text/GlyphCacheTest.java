@@ -0,0 +1,148 @@
+/*
+ * Copyright 2018 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package androidx.emoji.text;
+
+import static org.junit.Assert.assertEquals;
+
+import android.content.Context;
+import android.os.SystemClock;
+import android.support.test.InstrumentationRegistry;
+import android.support.test.filters.LargeTest;
+import android.support.test.filters.SdkSuppress;
+import android.support.test.filters.SmallTest;
+import android.support.test.runner.AndroidJUnit4;
+import android.util.Log;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Ignore;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+
+@SmallTest
+@RunWith(AndroidJUnit4.class)
+@SdkSuppress(minSdkVersion = 19)
+public class GlyphCacheTest {
+    private static final String TAG = "GlyphCacheTest";
+
+    private File mFile;
+
+    @Before
+    public void setup() {
+        final Context context = InstrumentationRegistry.getTargetContext();
+        mFile = new File(context.getCacheDir(), "emoji_glyph_cache_test");
+        mFile.delete();
+    }
+
+    @After
+    public void teardown() {
+        mFile.delete();
+    }
+
+    @Test
+    public void testSaveAndRestore() throws IOException {
+        final MetadataRepo metadataRepo = createMetadataRepo();
+        metadataRepo.getMetadata(0).setHasGlyph(true);
+        metadataRepo.getMetadata(1).setHasGlyph(false);
+        new GlyphCache(mFile, metadataRepo).save();
+
+        final MetadataRepo restoredRepo = createMetadataRepo();
+        assertEquals(2, new GlyphCache(mFile, restoredRepo).restore());
+        assertEquals(EmojiMetadata.HAS_GLYPH_EXISTS, restoredRepo.getMetadata(0).getHasGlyph());
+        assertEquals(EmojiMetadata.HAS_GLYPH_ABSENT, restoredRepo.getMetadata(1).getHasGlyph());
+        assertEquals(EmojiMetadata.HAS_GLYPH_UNKNOWN, restoredRepo.getMetadata(2).getHasGlyph());
+    }
+
+    @Test
+    public void testRestore_withoutFile() throws IOException {
+        assertEquals(0, new GlyphCache(mFile, createMetadataRepo()).restore());
+    }
+
+    @Test
+    public void testRestore_ignoresInvalidFile() throws IOException {
+        final FileOutputStream out = new FileOutputStream(mFile);
+        out.write(new byte[]{1, 2, 3});
+        out.close();
+
+        final MetadataRepo metadataRepo = createMetadataRepo();
+        assertEquals(0, new GlyphCache(mFile, metadataRepo).restore());
+        assertEquals(EmojiMetadata.HAS_GLYPH_UNKNOWN, metadataRepo.getMetadata(0).getHasGlyph());
+    }
+
+    @Test
+    public void testOnGlyphChecked_savesInBackground() throws Exception {
+        final MetadataRepo metadataRepo = createMetadataRepo();
+        final GlyphCache glyphCache = new GlyphCache(mFile, metadataRepo);
+        metadataRepo.getMetadata(0).setHasGlyph(true);
+        glyphCache.onGlyphChecked();
+
+        final long deadline = SystemClock.uptimeMillis() + GlyphCache.SAVE_DELAY_MS * 5;
+        while (!mFile.exists() && SystemClock.uptimeMillis() < deadline) {
+            Thread.sleep(50);
+        }
+        assertEquals(1, new GlyphCache(mFile, createMetadataRepo()).restore());
+    }
+
+    @Ignore("benchmark")
+    @Test
+    @LargeTest
+    public void benchmark_processEmojiDenseText() throws IOException {
+        final StringBuilder builder = new StringBuilder();
+        for (int i = 0; i < 2000; i++) {
+            builder.append("ok ");
+            builder.appendCodePoint(0x1F600 + i % 80);
+            builder.appendCodePoint(0x1F300 + i % 200);
+        }
+        final String text = builder.toString();
+
+        final MetadataRepo metadataRepo = createMetadataRepo();
+        final GlyphCache glyphCache = new GlyphCache(mFile, metadataRepo);
+        final long coldNanos = measureProcess(metadataRepo, glyphCache, text);
+        final long warmNanos = measureProcess(metadataRepo, glyphCache, text);
+        glyphCache.save();
+
+        final MetadataRepo restoredRepo = createMetadataRepo();
+        final GlyphCache restoredCache = new GlyphCache(mFile, restoredRepo);
+        long start = SystemClock.elapsedRealtimeNanos();
+        final int restored = restoredCache.restore();
+        final long restoreNanos = SystemClock.elapsedRealtimeNanos() - start;
+        final long restoredNanos = measureProcess(restoredRepo, restoredCache, text);
+
+        Log.d(TAG, String.format("process %d chars: cold %d us, warm %d us, "
+                        + "after restoring %d emojis in %d us: %d us",
+                text.length(), coldNanos / 1000, warmNanos / 1000, restored,
+                restoreNanos / 1000, restoredNanos / 1000));
+    }
+
+    private static long measureProcess(MetadataRepo metadataRepo, GlyphCache glyphCache,
+            String text) {
+        final EmojiProcessor processor = new EmojiProcessor(metadataRepo,
+                new EmojiCompat.SpanFactory(), false, null, glyphCache);
+        final long start = SystemClock.elapsedRealtimeNanos();
+        processor.process(text, 0, text.length(), Integer.MAX_VALUE, false);
+        return SystemClock.elapsedRealtimeNanos() - start;
+    }
+
+    private static MetadataRepo createMetadataRepo() throws IOException {
+        return MetadataRepo.create(InstrumentationRegistry.getContext().getAssets(),
+                "NotoColorEmojiCompat.ttf");
+    }
+}
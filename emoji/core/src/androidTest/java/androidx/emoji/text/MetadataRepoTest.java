@@ -17,19 +17,28 @@ package androidx.emoji.text;
 
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
 
+import android.content.res.AssetManager;
+import android.os.SystemClock;
+import android.support.test.InstrumentationRegistry;
+import android.support.test.filters.LargeTest;
 import android.support.test.filters.SdkSuppress;
 import android.support.test.filters.SmallTest;
 import android.support.test.runner.AndroidJUnit4;
+import android.util.Log;
 
 import org.junit.Before;
+import org.junit.Ignore;
 import org.junit.Test;
 import org.junit.runner.RunWith;
 
-@SmallTest
+import java.io.IOException;
+
 @RunWith(AndroidJUnit4.class)
 @SdkSuppress(minSdkVersion = 19)
 public class MetadataRepoTest {
+    private static final String TAG = "MetadataRepoTest";
 
     MetadataRepo mMetadataRepo;
 
@@ -38,16 +47,19 @@ public class MetadataRepoTest {
         mMetadataRepo = new MetadataRepo();
     }
 
+    @SmallTest
     @Test(expected = NullPointerException.class)
     public void testPut_withNullMetadata() {
         mMetadataRepo.put(null);
     }
 
+    @SmallTest
     @Test(expected = IllegalArgumentException.class)
     public void testPut_withEmptyKeys() {
         mMetadataRepo.put(new TestEmojiMetadata(new int[0]));
     }
 
+    @SmallTest
     @Test
     public void testPut_withSingleCodePointMapping() {
         final int[] codePoint = new int[]{1};
@@ -56,6 +68,7 @@ public class MetadataRepoTest {
         assertSame(metadata, getNode(codePoint));
     }
 
+    @SmallTest
     @Test
     public void testPut_withMultiCodePointsMapping() {
         final int[] codePoint = new int[]{1, 2, 3, 4};
@@ -69,6 +82,7 @@ public class MetadataRepoTest {
         assertEquals(null, getNode(new int[]{1, 2, 3, 5}));
     }
 
+    @SmallTest
     @Test
     public void testPut_sequentialCodePoints() {
         final int[] codePoint1 = new int[]{1, 2, 3, 4};
@@ -92,16 +106,94 @@ public class MetadataRepoTest {
         assertEquals(null, getNode(new int[]{1, 2, 3, 4, 5}));
     }
 
-    final EmojiMetadata getNode(final int[] codepoints) {
-        return getNode(mMetadataRepo.getRootNode(), codepoints, 0);
+    @SmallTest
+    @Test
+    public void testPut_sameCodePointsReplacesMetadata() {
+        final int[] codePoint = new int[]{1, 2};
+        final EmojiMetadata metadata1 = new TestEmojiMetadata(codePoint);
+        final EmojiMetadata metadata2 = new TestEmojiMetadata(codePoint);
+
+        mMetadataRepo.put(metadata1);
+        mMetadataRepo.put(metadata2);
+
+        assertSame(metadata2, getNode(codePoint));
     }
 
-    final EmojiMetadata getNode(MetadataRepo.Node node, final int[] codepoints, int start) {
-        if (codepoints.length < start) return null;
-        if (codepoints.length == start) return node.getData();
+    @SmallTest
+    @Test
+    public void testPut_manyCodePoints() {
+        final int[][] codePoints = new int[100][];
+        final EmojiMetadata[] metadata = new EmojiMetadata[codePoints.length];
+        for (int i = 0; i < metadata.length; i++) {
+            // Mix single and multiple codepoints, inside and outside of the BMP.
+            final int codePoint = (i % 2 == 0 ? 0x1F600 : 0x2600) + i / 2;
+            codePoints[i] = i % 3 == 0
+                    ? new int[]{codePoint}
+                    : new int[]{codePoint, 0x200D, codePoint};
+            metadata[i] = new TestEmojiMetadata(codePoints[i]);
+            mMetadataRepo.put(metadata[i]);
+        }
+
+        for (int i = 0; i < metadata.length; i++) {
+            assertSame(metadata[i], getNode(codePoints[i]));
+        }
+        assertEquals(null, getNode(new int[]{0x1F600, 0x200D}));
+        assertEquals(null, getNode(new int[]{'a'}));
+    }
+
+    @Ignore("benchmark")
+    @LargeTest
+    @Test
+    public void benchmark_scanTranscript() throws IOException {
+        final AssetManager assetManager = InstrumentationRegistry.getContext().getAssets();
+        long start = SystemClock.elapsedRealtimeNanos();
+        final MetadataRepo metadataRepo =
+                MetadataRepo.create(assetManager, "NotoColorEmojiCompat.ttf");
+        final long createNanos = SystemClock.elapsedRealtimeNanos() - start;
+
+        // A chat transcript: mostly text, with an emoji every few words.
+        final StringBuilder transcript = new StringBuilder();
+        final char[] emoji = metadataRepo.getEmojiCharArray();
+        for (int i = 0; transcript.length() < 1000000; i++) {
+            transcript.append("see you at the usual place around 7 ");
+            transcript.appendCodePoint(0x1F600 + i % 64);
+            transcript.append(' ');
+        }
+        final String text = transcript.toString();
+
+        final MetadataRepo.Trie trie = metadataRepo.getTrie();
+        start = SystemClock.elapsedRealtimeNanos();
+        int found = 0;
+        int node = MetadataRepo.Trie.ROOT;
+        for (int offset = 0; offset < text.length(); ) {
+            final int codePoint = text.codePointAt(offset);
+            final int child = trie.getChild(node, codePoint);
+            if (child != MetadataRepo.Trie.NO_NODE) {
+                node = child;
+                offset += Character.charCount(codePoint);
+            } else {
+                if (node != MetadataRepo.Trie.ROOT) {
+                    found += trie.getData(node) != null ? 1 : 0;
+                    node = MetadataRepo.Trie.ROOT;
+                } else {
+                    offset += Character.charCount(codePoint);
+                }
+            }
+        }
+        final long scanNanos = SystemClock.elapsedRealtimeNanos() - start;
+
+        assertTrue(found > 0);
+        Log.d(TAG, String.format("%d emojis: create %d us, scan of %d chars %d us (%d found)",
+                emoji.length / 2, createNanos / 1000, text.length(), scanNanos / 1000, found));
+    }
 
-        final MetadataRepo.Node childNode = node.get(codepoints[start]);
-        if (childNode == null) return null;
-        return getNode(childNode, codepoints, start + 1);
+    final EmojiMetadata getNode(final int[] codepoints) {
+        final MetadataRepo.Trie trie = mMetadataRepo.getTrie();
+        int node = MetadataRepo.Trie.ROOT;
+        for (int codepoint : codepoints) {
+            node = trie.getChild(node, codepoint);
+            if (node == MetadataRepo.Trie.NO_NODE) return null;
+        }
+        return trie.getData(node);
     }
 }
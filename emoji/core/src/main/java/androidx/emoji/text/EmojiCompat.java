@@ -41,6 +41,7 @@ import androidx.annotation.VisibleForTesting;
 import androidx.collection.ArraySet;
 import androidx.core.util.Preconditions;
 
+import java.io.File;
 import java.lang.annotation.Retention;
 import java.lang.annotation.RetentionPolicy;
 import java.util.ArrayList;
@@ -236,6 +237,12 @@ public class EmojiCompat {
      */
     @LoadStrategy private final int mMetadataLoadStrategy;
 
+    /**
+     * @see Config#setGlyphCacheFile(File)
+     */
+    @Nullable
+    private final File mGlyphCacheFile;
+
     /**
      * Private constructor for singleton instance.
      *
@@ -251,6 +258,7 @@ public class EmojiCompat {
         mEmojiSpanIndicatorColor = config.mEmojiSpanIndicatorColor;
         mMetadataLoader = config.mMetadataLoader;
         mMetadataLoadStrategy = config.mMetadataLoadStrategy;
+        mGlyphCacheFile = config.mGlyphCacheFile;
         mMainHandler = new Handler(Looper.getMainLooper());
         mInitCallbacks = new ArraySet<>();
         if (config.mInitCallbacks != null && !config.mInitCallbacks.isEmpty()) {
@@ -878,6 +886,7 @@ public class EmojiCompat {
         private boolean mEmojiSpanIndicatorEnabled;
         private int mEmojiSpanIndicatorColor = Color.GREEN;
         @LoadStrategy private int mMetadataLoadStrategy = LOAD_STRATEGY_DEFAULT;
+        private File mGlyphCacheFile;
 
         /**
          * Default constructor.
@@ -1025,6 +1034,22 @@ public class EmojiCompat {
             return this;
         }
 
+        /**
+         * Sets a file to remember, across process restarts, whether the system can render each
+         * emoji. Only used when emojis that the system can render are not replaced, see
+         * {@link #setReplaceAll(boolean)}. The file is ignored if the system image or the emoji
+         * font has changed since it was written. By default nothing is persisted.
+         *
+         * @param file file in app private storage, such as in
+         *             {@link android.content.Context#getNoBackupFilesDir()}, or {@code null}
+         *
+         * @return EmojiCompat.Config instance
+         */
+        public Config setGlyphCacheFile(@Nullable File file) {
+            mGlyphCacheFile = file;
+            return this;
+        }
+
         /**
          * Returns the {@link MetadataRepoLoader}.
          */
@@ -1173,9 +1198,14 @@ public class EmojiCompat {
             }
 
             mMetadataRepo = metadataRepo;
+            GlyphCache glyphCache = null;
+            if (mEmojiCompat.mGlyphCacheFile != null) {
+                glyphCache = new GlyphCache(mEmojiCompat.mGlyphCacheFile, metadataRepo);
+                glyphCache.restore();
+            }
             mProcessor = new EmojiProcessor(mMetadataRepo, new SpanFactory(),
                     mEmojiCompat.mUseEmojiAsDefaultStyle,
-                    mEmojiCompat.mEmojiAsDefaultStyleExceptions);
+                    mEmojiCompat.mEmojiAsDefaultStyleExceptions, glyphCache);
 
             mEmojiCompat.onMetadataLoadSuccess();
         }
@@ -0,0 +1,195 @@
+/*
+ * Copyright 2018 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package androidx.emoji.text;
+
+import android.os.Build;
+import android.os.Handler;
+import android.os.HandlerThread;
+import android.os.Process;
+import android.util.Log;
+
+import androidx.annotation.AnyThread;
+import androidx.annotation.GuardedBy;
+import androidx.annotation.NonNull;
+import androidx.annotation.RequiresApi;
+import androidx.annotation.VisibleForTesting;
+import androidx.core.util.AtomicFile;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileNotFoundException;
+import java.io.FileOutputStream;
+import java.io.IOException;
+
+/**
+ * Persists whether the system can render each emoji of a {@link MetadataRepo}, so that the
+ * {@link EmojiProcessor.GlyphChecker} does not have to measure the same emojis again after the
+ * process restarts.
+ * <p>
+ * The file records the system build fingerprint and the signature of the emoji font. A file
+ * written on a different system image, where the system fonts may differ, or for a different
+ * emoji font is ignored.
+ */
+@AnyThread
+@RequiresApi(19)
+final class GlyphCache {
+    private static final String TAG = "EmojiCompat";
+
+    private static final int FORMAT_VERSION = 1;
+
+    /**
+     * Delay before writing new results, so that a screen full of emojis is written at once.
+     */
+    @VisibleForTesting
+    static final long SAVE_DELAY_MS = 1000;
+
+    private final AtomicFile mFile;
+    private final MetadataRepo mMetadataRepo;
+
+    private final Object mLock = new Object();
+    @GuardedBy("mLock")
+    private HandlerThread mThread;
+    @GuardedBy("mLock")
+    private Handler mHandler;
+    @GuardedBy("mLock")
+    private boolean mSaveScheduled;
+
+    private final Runnable mSaveRunnable = new Runnable() {
+        @Override
+        public void run() {
+            synchronized (mLock) {
+                mSaveScheduled = false;
+            }
+            save();
+            synchronized (mLock) {
+                // Results checked while saving scheduled another save on this thread.
+                if (!mSaveScheduled) {
+                    mThread.quit();
+                    mThread = null;
+                    mHandler = null;
+                }
+            }
+        }
+    };
+
+    GlyphCache(@NonNull final File file, @NonNull final MetadataRepo metadataRepo) {
+        mFile = new AtomicFile(file);
+        mMetadataRepo = metadataRepo;
+    }
+
+    /**
+     * Applies the results in the file to the emojis whose glyph existence is not known yet.
+     *
+     * @return the number of emojis updated
+     */
+    int restore() {
+        final FileInputStream stream;
+        try {
+            stream = mFile.openRead();
+        } catch (FileNotFoundException e) {
+            return 0;
+        }
+        final DataInputStream in = new DataInputStream(stream);
+        try {
+            if (in.readInt() != FORMAT_VERSION
+                    || !in.readUTF().equals(getSignature())
+                    || in.readInt() != mMetadataRepo.getMetadataCount()) {
+                return 0;
+            }
+            final int count = mMetadataRepo.getMetadataCount();
+            final byte[] states = new byte[count];
+            in.readFully(states);
+            int restored = 0;
+            for (int i = 0; i < count; i++) {
+                final EmojiMetadata metadata = mMetadataRepo.getMetadata(i);
+                if (states[i] != EmojiMetadata.HAS_GLYPH_UNKNOWN
+                        && metadata.getHasGlyph() == EmojiMetadata.HAS_GLYPH_UNKNOWN) {
+                    metadata.setHasGlyph(states[i] == EmojiMetadata.HAS_GLYPH_EXISTS);
+                    restored++;
+                }
+            }
+            return restored;
+        } catch (IOException e) {
+            Log.w(TAG, "Cannot read glyph cache", e);
+            return 0;
+        } finally {
+            closeQuietly(in);
+        }
+    }
+
+    /**
+     * Writes the current results to the file.
+     */
+    void save() {
+        FileOutputStream stream = null;
+        try {
+            stream = mFile.startWrite();
+            final DataOutputStream out = new DataOutputStream(stream);
+            out.writeInt(FORMAT_VERSION);
+            out.writeUTF(getSignature());
+            final int count = mMetadataRepo.getMetadataCount();
+            out.writeInt(count);
+            final byte[] states = new byte[count];
+            for (int i = 0; i < count; i++) {
+                states[i] = (byte) mMetadataRepo.getMetadata(i).getHasGlyph();
+            }
+            out.write(states);
+            out.flush();
+            mFile.finishWrite(stream);
+        } catch (IOException e) {
+            Log.w(TAG, "Cannot write glyph cache", e);
+            if (stream != null) {
+                mFile.failWrite(stream);
+            }
+        }
+    }
+
+    /**
+     * Called when the glyph existence of an emoji was checked, to write the results to the file
+     * on a background thread after a short delay.
+     */
+    void onGlyphChecked() {
+        synchronized (mLock) {
+            if (mSaveScheduled) {
+                return;
+            }
+            mSaveScheduled = true;
+            if (mThread == null) {
+                mThread = new HandlerThread("emojiCompatGlyphCache",
+                        Process.THREAD_PRIORITY_BACKGROUND);
+                mThread.start();
+                mHandler = new Handler(mThread.getLooper());
+            }
+            mHandler.postDelayed(mSaveRunnable, SAVE_DELAY_MS);
+        }
+    }
+
+    private String getSignature() {
+        final String sha = mMetadataRepo.getMetadataList().sourceSha();
+        return Build.FINGERPRINT + '|' + (sha == null ? "" : sha) + '|'
+                + mMetadataRepo.getMetadataVersion();
+    }
+
+    private static void closeQuietly(DataInputStream in) {
+        try {
+            in.close();
+        } catch (IOException e) {
+            // ignore
+        }
+    }
+}
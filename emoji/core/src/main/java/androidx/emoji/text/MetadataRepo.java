@@ -19,7 +19,6 @@ import static androidx.annotation.RestrictTo.Scope.LIBRARY_GROUP;
 
 import android.content.res.AssetManager;
 import android.graphics.Typeface;
-import android.util.SparseArray;
 
 import androidx.annotation.AnyThread;
 import androidx.annotation.NonNull;
@@ -32,6 +31,10 @@ import androidx.text.emoji.flatbuffer.MetadataList;
 import java.io.IOException;
 import java.io.InputStream;
 import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
 
 /**
  * Class to hold the emoji metadata required to process and draw emojis.
@@ -39,11 +42,6 @@ import java.nio.ByteBuffer;
 @AnyThread
 @RequiresApi(19)
 public final class MetadataRepo {
-    /**
-     * The default children size of the root node.
-     */
-    private static final int DEFAULT_ROOT_SIZE = 1024;
-
     /**
      * MetadataList that contains the emoji metadata.
      */
@@ -56,9 +54,15 @@ public final class MetadataRepo {
     private final char[] mEmojiCharArray;
 
     /**
-     * Empty root node of the trie.
+     * EmojiMetadata for each item in {@link #mMetadataList}, by index.
      */
-    private final Node mRootNode;
+    private final EmojiMetadata[] mMetadata;
+
+    /**
+     * Trie of the emoji codepoints. Only replaced by {@link #put(EmojiMetadata)}, which is used
+     * by tests.
+     */
+    private Trie mTrie;
 
     /**
      * Typeface to be used to render emojis.
@@ -74,7 +78,8 @@ public final class MetadataRepo {
     MetadataRepo() {
         mTypeface = null;
         mMetadataList = null;
-        mRootNode = new Node(DEFAULT_ROOT_SIZE);
+        mMetadata = new EmojiMetadata[0];
+        mTrie = Trie.build(mMetadata);
         mEmojiCharArray = new char[0];
     }
 
@@ -88,9 +93,9 @@ public final class MetadataRepo {
             @NonNull final MetadataList metadataList) {
         mTypeface = typeface;
         mMetadataList = metadataList;
-        mRootNode = new Node(DEFAULT_ROOT_SIZE);
         mEmojiCharArray = new char[mMetadataList.listLength() * 2];
-        constructIndex(mMetadataList);
+        mMetadata = new EmojiMetadata[mMetadataList.listLength()];
+        mTrie = constructIndex(mMetadataList);
     }
 
     /**
@@ -133,7 +138,7 @@ public final class MetadataRepo {
     /**
      * Read emoji metadata list and construct the trie.
      */
-    private void constructIndex(final MetadataList metadataList) {
+    private Trie constructIndex(final MetadataList metadataList) {
         int length = metadataList.listLength();
         for (int i = 0; i < length; i++) {
             final EmojiMetadata metadata = new EmojiMetadata(this, i);
@@ -141,8 +146,11 @@ public final class MetadataRepo {
             //chars wide
             //noinspection ResultOfMethodCallIgnored
             Character.toChars(metadata.getId(), mEmojiCharArray, i * 2);
-            put(metadata);
+            Preconditions.checkArgument(metadata.getCodepointsLength() > 0,
+                    "invalid metadata codepoint length");
+            mMetadata[i] = metadata;
         }
+        return Trie.build(mMetadata);
     }
 
     /**
@@ -161,12 +169,26 @@ public final class MetadataRepo {
         return mMetadataList.version();
     }
 
+    /**
+     * @return the number of emojis in the metadata list
+     */
+    int getMetadataCount() {
+        return mMetadata.length;
+    }
+
+    /**
+     * @param index index of the emoji in the metadata list
+     */
+    EmojiMetadata getMetadata(final int index) {
+        return mMetadata[index];
+    }
+
     /**
      * @hide
      */
     @RestrictTo(LIBRARY_GROUP)
-    Node getRootNode() {
-        return mRootNode;
+    Trie getTrie() {
+        return mTrie;
     }
 
     /**
@@ -197,47 +219,224 @@ public final class MetadataRepo {
         Preconditions.checkArgument(data.getCodepointsLength() > 0,
                 "invalid metadata codepoint length");
 
-        mRootNode.put(data, 0, data.getCodepointsLength() - 1);
+        mTrie = mTrie.plus(data);
     }
 
     /**
-     * Trie node that holds mapping from emoji codepoint(s) to EmojiMetadata. A single codepoint
-     * emoji is represented by a child of the root node.
+     * Trie that holds mapping from emoji codepoint(s) to EmojiMetadata, stored in flat primitive
+     * arrays instead of a node object per codepoint. Nodes are identified by their index, and
+     * the root is {@link #ROOT}. A single codepoint emoji is represented by a child of the root.
+     * <p>
+     * The edges of each node are stored consecutively in {@link #mEdgeKeys} and
+     * {@link #mEdgeTargets}, sorted by codepoint, starting at {@link #mEdgeOffsets}[node] and
+     * ending before {@link #mEdgeOffsets}[node + 1]. Children of the root in the Basic
+     * Multilingual Plane are also recorded in a bit mask, so that the common case of a codepoint
+     * that does not start any emoji is rejected without a search.
      *
      * @hide
      */
     @RestrictTo(LIBRARY_GROUP)
-    static class Node {
-        private final SparseArray<Node> mChildren;
-        private EmojiMetadata mData;
+    static final class Trie {
+        static final int ROOT = 0;
+        static final int NO_NODE = -1;
+
+        private static final int BMP_SIZE = 0x10000;
+
+        private final int[] mEdgeOffsets;
+        private final int[] mEdgeKeys;
+        private final int[] mEdgeTargets;
+        private final EmojiMetadata[] mData;
+        private final long[] mRootBmpMask;
+
+        private Trie(int[] edgeOffsets, int[] edgeKeys, int[] edgeTargets, EmojiMetadata[] data) {
+            mEdgeOffsets = edgeOffsets;
+            mEdgeKeys = edgeKeys;
+            mEdgeTargets = edgeTargets;
+            mData = data;
+            mRootBmpMask = new long[BMP_SIZE / 64];
+            for (int i = edgeOffsets[ROOT]; i < edgeOffsets[ROOT + 1]; i++) {
+                final int key = edgeKeys[i];
+                if (key >= 0 && key < BMP_SIZE) {
+                    mRootBmpMask[key >>> 6] |= 1L << key;
+                }
+            }
+        }
 
-        private Node() {
-            this(1);
+        /**
+         * @return the child of the node for the given codepoint, or {@link #NO_NODE}
+         */
+        int getChild(final int node, final int codePoint) {
+            if (node == ROOT && codePoint >= 0 && codePoint < BMP_SIZE
+                    && (mRootBmpMask[codePoint >>> 6] & (1L << codePoint)) == 0) {
+                return NO_NODE;
+            }
+            int low = mEdgeOffsets[node];
+            int high = mEdgeOffsets[node + 1] - 1;
+            while (low <= high) {
+                final int mid = (low + high) >>> 1;
+                final int key = mEdgeKeys[mid];
+                if (key < codePoint) {
+                    low = mid + 1;
+                } else if (key > codePoint) {
+                    high = mid - 1;
+                } else {
+                    return mEdgeTargets[mid];
+                }
+            }
+            return NO_NODE;
         }
 
-        private Node(final int defaultChildrenSize) {
-            mChildren = new SparseArray<>(defaultChildrenSize);
+        /**
+         * @return the metadata of the emoji ending at the node, or {@code null}
+         */
+        EmojiMetadata getData(final int node) {
+            return mData[node];
         }
 
-        Node get(final int key) {
-            return mChildren == null ? null : mChildren.get(key);
+        /**
+         * @return a trie holding the metadata of this trie and the given metadata, which replaces
+         * any existing metadata with the same codepoints
+         */
+        Trie plus(@NonNull final EmojiMetadata data) {
+            final List<EmojiMetadata> entries = new ArrayList<>();
+            for (EmojiMetadata existing : mData) {
+                if (existing != null) {
+                    entries.add(existing);
+                }
+            }
+            entries.add(data);
+            return build(entries.toArray(new EmojiMetadata[entries.size()]));
+        }
+
+        /**
+         * Builds the trie for the given metadata. When several entries have the same codepoints,
+         * the last one is kept.
+         */
+        static Trie build(@NonNull final EmojiMetadata[] entries) {
+            final int[][] codepoints = new int[entries.length][];
+            final Integer[] order = new Integer[entries.length];
+            for (int i = 0; i < entries.length; i++) {
+                final int length = entries[i].getCodepointsLength();
+                codepoints[i] = new int[length];
+                for (int j = 0; j < length; j++) {
+                    codepoints[i][j] = entries[i].getCodepointAt(j);
+                }
+                order[i] = i;
+            }
+            // Stable sort, so that entries with the same codepoints stay in insertion order.
+            Arrays.sort(order, new Comparator<Integer>() {
+                @Override
+                public int compare(Integer lhs, Integer rhs) {
+                    return compareCodepoints(codepoints[lhs], codepoints[rhs]);
+                }
+            });
+            final int[][] sortedCodepoints = new int[entries.length][];
+            final EmojiMetadata[] sortedEntries = new EmojiMetadata[entries.length];
+            for (int i = 0; i < entries.length; i++) {
+                sortedCodepoints[i] = codepoints[order[i]];
+                sortedEntries[i] = entries[order[i]];
+            }
+
+            final Builder builder = new Builder(sortedCodepoints, sortedEntries);
+            builder.buildNode(0, entries.length, 0);
+            return builder.toTrie();
         }
 
-        final EmojiMetadata getData() {
-            return mData;
+        static int compareCodepoints(int[] lhs, int[] rhs) {
+            final int length = Math.min(lhs.length, rhs.length);
+            for (int i = 0; i < length; i++) {
+                if (lhs[i] != rhs[i]) {
+                    return lhs[i] < rhs[i] ? -1 : 1;
+                }
+            }
+            return lhs.length - rhs.length;
         }
 
-        private void put(@NonNull final EmojiMetadata data, final int start, final int end) {
-            Node node = get(data.getCodepointAt(start));
-            if (node == null) {
-                node = new Node();
-                mChildren.put(data.getCodepointAt(start), node);
+        /**
+         * Lays out the trie depth first from codepoint sequences sorted in lexicographic order.
+         * The edges of a node are allocated when the node is created, before any of its
+         * descendants, so the edge blocks of consecutive nodes are adjacent.
+         */
+        private static final class Builder {
+            private final int[][] mCodepoints;
+            private final EmojiMetadata[] mEntries;
+
+            private int mNodeCount;
+            private int[] mEdgeOffsets;
+            private EmojiMetadata[] mData;
+
+            private int mEdgeCount;
+            private int[] mEdgeKeys;
+            private int[] mEdgeTargets;
+
+            Builder(int[][] codepoints, EmojiMetadata[] entries) {
+                mCodepoints = codepoints;
+                mEntries = entries;
+                // Every entry adds at least one node, and every node but the root one edge.
+                final int capacity = entries.length + 1;
+                mEdgeOffsets = new int[capacity + 1];
+                mData = new EmojiMetadata[capacity];
+                mEdgeKeys = new int[capacity];
+                mEdgeTargets = new int[capacity];
+            }
+
+            /**
+             * Builds the node for the entries in [start, end), which share their first depth
+             * codepoints.
+             */
+            int buildNode(final int start, final int end, final int depth) {
+                final int node = mNodeCount++;
+                if (node >= mData.length) {
+                    mData = Arrays.copyOf(mData, mData.length * 2);
+                    mEdgeOffsets = Arrays.copyOf(mEdgeOffsets, mData.length + 1);
+                }
+                mEdgeOffsets[node] = mEdgeCount;
+
+                // Entries ending at this node sort before the longer ones.
+                int first = start;
+                while (first < end && mCodepoints[first].length == depth) {
+                    mData[node] = mEntries[first];
+                    first++;
+                }
+
+                int childCount = 0;
+                for (int i = first; i < end; i++) {
+                    if (i == first || mCodepoints[i][depth] != mCodepoints[i - 1][depth]) {
+                        childCount++;
+                    }
+                }
+                int edge = mEdgeCount;
+                mEdgeCount += childCount;
+                if (mEdgeCount > mEdgeKeys.length) {
+                    final int capacity = Math.max(mEdgeCount, mEdgeKeys.length * 2);
+                    mEdgeKeys = Arrays.copyOf(mEdgeKeys, capacity);
+                    mEdgeTargets = Arrays.copyOf(mEdgeTargets, capacity);
+                }
+
+                int childStart = first;
+                while (childStart < end) {
+                    final int key = mCodepoints[childStart][depth];
+                    int childEnd = childStart + 1;
+                    while (childEnd < end && mCodepoints[childEnd][depth] == key) {
+                        childEnd++;
+                    }
+                    // Build the child first, as it may reallocate the edge arrays.
+                    final int child = buildNode(childStart, childEnd, depth + 1);
+                    mEdgeKeys[edge] = key;
+                    mEdgeTargets[edge] = child;
+                    edge++;
+                    childStart = childEnd;
+                }
+                return node;
             }
 
-            if (end > start) {
-                node.put(data, start + 1, end);
-            } else {
-                node.mData = data;
+            Trie toTrie() {
+                final int[] edgeOffsets = Arrays.copyOf(mEdgeOffsets, mNodeCount + 1);
+                edgeOffsets[mNodeCount] = mEdgeCount;
+                return new Trie(edgeOffsets,
+                        Arrays.copyOf(mEdgeKeys, mEdgeCount),
+                        Arrays.copyOf(mEdgeTargets, mEdgeCount),
+                        Arrays.copyOf(mData, mNodeCount));
             }
         }
     }
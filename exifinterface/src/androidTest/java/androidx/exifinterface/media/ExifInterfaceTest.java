@@ -19,8 +19,10 @@ package androidx.exifinterface.media;
 import static android.support.test.InstrumentationRegistry.getContext;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
 import static org.junit.Assert.fail;
 
 import android.content.res.TypedArray;
@@ -37,6 +39,7 @@ import androidx.exifinterface.test.R;
 
 import org.junit.After;
 import org.junit.Before;
+import org.junit.Ignore;
 import org.junit.Test;
 import org.junit.runner.RunWith;
 
@@ -50,8 +53,11 @@ import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
 import java.nio.ByteBuffer;
+import java.util.Arrays;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.Random;
+import java.util.Set;
 import java.util.concurrent.TimeUnit;
 
 /**
@@ -77,6 +83,11 @@ public class ExifInterfaceTest {
     private static final double RATIONAL_DELTA = 0.0001;
     private static final int TEST_LAT_LONG_VALUES_ARRAY_LENGTH = 8;
     private static final int TEST_NUMBER_OF_CORRUPTED_IMAGE_STREAMS = 30;
+    private static final int BENCHMARK_ITERATIONS = 200;
+    private static final Set<String> INDEXED_TAGS = new HashSet<>(Arrays.asList(
+            ExifInterface.TAG_ORIENTATION, ExifInterface.TAG_DATETIME,
+            ExifInterface.TAG_GPS_LATITUDE, ExifInterface.TAG_GPS_LATITUDE_REF,
+            ExifInterface.TAG_GPS_LONGITUDE, ExifInterface.TAG_GPS_LONGITUDE_REF));
     private static final double[] TEST_LATITUDE_VALID_VALUES = new double[]
             {0, 45, 90, -60, 0.00000001, -89.999999999, 14.2465923626, -68.3434534737};
     private static final double[] TEST_LONGITUDE_VALID_VALUES = new double[]
@@ -648,6 +659,117 @@ public class ExifInterfaceTest {
         assertEquals(isoValue, exif.getAttribute(newTag));
     }
 
+    @Test
+    @LargeTest
+    public void testSaveAttributes_inPlace() throws IOException {
+        File imageFile = new File(Environment.getExternalStorageDirectory(),
+                EXIF_BYTE_ORDER_II_JPEG);
+        String path = imageFile.getAbsolutePath();
+
+        // Changing the orientation does not grow the EXIF data, so only the EXIF segment is
+        // rewritten.
+        ExifInterface exif = new ExifInterface(path);
+        long length = imageFile.length();
+        exif.setAttribute(ExifInterface.TAG_ORIENTATION,
+                Integer.toString(ExifInterface.ORIENTATION_ROTATE_90));
+        exif.saveAttributes();
+        long rotateBytesWritten = exif.getLastSaveBytesWritten();
+        assertTrue(rotateBytesWritten < length);
+        assertEquals(length, imageFile.length());
+        exif = new ExifInterface(path);
+        assertIntTag(exif, ExifInterface.TAG_ORIENTATION, ExifInterface.ORIENTATION_ROTATE_90);
+
+        // A value which does not fit in the EXIF segment falls back to rewriting the whole file.
+        char[] description = new char[4096];
+        Arrays.fill(description, 'a');
+        exif.setAttribute(ExifInterface.TAG_IMAGE_DESCRIPTION, new String(description));
+        exif.saveAttributes();
+        long describeBytesWritten = exif.getLastSaveBytesWritten();
+        assertEquals(imageFile.length(), describeBytesWritten);
+
+        // The rewritten EXIF segment has room for later edits which grow it a little.
+        exif = new ExifInterface(path);
+        length = imageFile.length();
+        exif.setLatLong(TEST_LATITUDE_VALID_VALUES[0], TEST_LONGITUDE_VALID_VALUES[0]);
+        exif.saveAttributes();
+        long tagBytesWritten = exif.getLastSaveBytesWritten();
+        assertTrue(tagBytesWritten < length);
+        assertEquals(length, imageFile.length());
+        exif = new ExifInterface(path);
+        assertStringTag(exif, ExifInterface.TAG_IMAGE_DESCRIPTION, new String(description));
+        assertIntTag(exif, ExifInterface.TAG_ORIENTATION, ExifInterface.ORIENTATION_ROTATE_90);
+        double[] latLong = exif.getLatLong();
+        assertNotNull(latLong);
+        assertEquals(TEST_LATITUDE_VALID_VALUES[0], latLong[0], DELTA);
+        assertEquals(TEST_LONGITUDE_VALID_VALUES[0], latLong[1], DELTA);
+
+        Log.d(TAG, String.format("Bytes written per edit of a %d byte image: rotate %d, "
+                + "describe %d, tag %d", length, rotateBytesWritten, describeBytesWritten,
+                tagBytesWritten));
+    }
+
+    @Test
+    @LargeTest
+    public void testReadSelectedTags() throws IOException {
+        for (String fileName : IMAGE_FILENAMES) {
+            File imageFile = new File(Environment.getExternalStorageDirectory(), fileName);
+            ExifInterface fullExif = new ExifInterface(imageFile.getAbsolutePath());
+            FileInputStream in = null;
+            try {
+                in = new FileInputStream(imageFile);
+                ExifInterface selectiveExif = new ExifInterface(in.getFD(), INDEXED_TAGS);
+                for (String tag : INDEXED_TAGS) {
+                    assertEquals(fileName + " " + tag, fullExif.getAttribute(tag),
+                            selectiveExif.getAttribute(tag));
+                }
+                assertFalse(selectiveExif.hasThumbnail());
+                // Reading through the file descriptor does not move its offset.
+                assertEquals(0, in.getChannel().position());
+            } finally {
+                closeQuietly(in);
+            }
+        }
+    }
+
+    @Ignore("benchmark")
+    @Test
+    @LargeTest
+    public void benchmark_indexSelectedTags() throws IOException {
+        for (String fileName : IMAGE_FILENAMES) {
+            File imageFile = new File(Environment.getExternalStorageDirectory(), fileName);
+
+            long start = System.nanoTime();
+            for (int i = 0; i < BENCHMARK_ITERATIONS; ++i) {
+                InputStream in = null;
+                try {
+                    in = new FileInputStream(imageFile);
+                    new ExifInterface(in).getAttribute(ExifInterface.TAG_ORIENTATION);
+                } finally {
+                    closeQuietly(in);
+                }
+            }
+            long fullParseNanos = System.nanoTime() - start;
+
+            start = System.nanoTime();
+            for (int i = 0; i < BENCHMARK_ITERATIONS; ++i) {
+                FileInputStream in = null;
+                try {
+                    in = new FileInputStream(imageFile);
+                    new ExifInterface(in.getFD(), INDEXED_TAGS)
+                            .getAttribute(ExifInterface.TAG_ORIENTATION);
+                } finally {
+                    closeQuietly(in);
+                }
+            }
+            long selectiveParseNanos = System.nanoTime() - start;
+
+            Log.d(TAG, String.format("%s: full parse %d images/s, selective parse %d images/s",
+                    fileName,
+                    BENCHMARK_ITERATIONS * TimeUnit.SECONDS.toNanos(1) / fullParseNanos,
+                    BENCHMARK_ITERATIONS * TimeUnit.SECONDS.toNanos(1) / selectiveParseNanos));
+        }
+    }
+
     private void printExifTagsAndValues(String fileName, ExifInterface exifInterface) {
         // Prints thumbnail information.
         if (exifInterface.hasThumbnail()) {
@@ -734,8 +856,8 @@ public class ExifInterfaceTest {
         double[] latLong = exifInterface.getLatLong();
         assertEquals(expectedValue.hasLatLong, latLong != null);
         if (expectedValue.hasLatLong) {
-            assertEquals(expectedValue.latitude, latLong[0], DIFFERENCE_TOLERANCE);
-            assertEquals(expectedValue.longitude, latLong[1], DIFFERENCE_TOLERANCE);
+            assertEquals(expectedValue.latitude, latLong[0], DELTA);
+            assertEquals(expectedValue.longitude, latLong[1], DELTA);
         }
         assertEquals(expectedValue.altitude, exifInterface.getAltitude(.0), DIFFERENCE_TOLERANCE);
 
@@ -788,6 +910,16 @@ public class ExifInterfaceTest {
         } finally {
             closeQuietly(in);
         }
+
+        // Creates via FileDescriptor.
+        FileInputStream fileInputStream = null;
+        try {
+            fileInputStream = new FileInputStream(imageFile);
+            exifInterface = new ExifInterface(fileInputStream.getFD());
+            compareWithExpectedValue(exifInterface, expectedValue, verboseTag);
+        } finally {
+            closeQuietly(fileInputStream);
+        }
     }
 
     private void testSaveAttributes_withFileName(String fileName, ExpectedValue expectedValue)
@@ -0,0 +1,239 @@
+/*
+ * Copyright 2018 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package androidx.exifinterface.media;
+
+import static android.support.test.InstrumentationRegistry.getContext;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+import android.support.test.filters.LargeTest;
+import android.support.test.filters.SmallTest;
+import android.support.test.runner.AndroidJUnit4;
+import android.util.Log;
+
+import androidx.annotation.NonNull;
+import androidx.exifinterface.test.R;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Ignore;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+@RunWith(AndroidJUnit4.class)
+public class ExifScannerTest {
+    private static final String TAG = ExifScannerTest.class.getSimpleName();
+    private static final int[] IMAGE_RESOURCES = new int[] {
+            R.raw.image_exif_byte_order_ii, R.raw.image_exif_byte_order_mm, R.raw.lg_g4_iso_800};
+    private static final String[] IMAGE_EXTENSIONS = new String[] {".jpg", ".jpg", ".dng"};
+    private static final int CORPUS_COPIES = 100;
+    private static final int THREAD_COUNT = 4;
+    private static final double DELTA = 1e-8;
+
+    private File mCorpusDir;
+    private ExecutorService mExecutor;
+
+    @Before
+    public void setUp() {
+        mCorpusDir = new File(getContext().getCacheDir(), TAG);
+        mCorpusDir.mkdirs();
+        mExecutor = Executors.newFixedThreadPool(THREAD_COUNT);
+    }
+
+    @After
+    public void tearDown() {
+        mExecutor.shutdownNow();
+        File[] files = mCorpusDir.listFiles();
+        if (files != null) {
+            for (File file : files) {
+                file.delete();
+            }
+        }
+        mCorpusDir.delete();
+    }
+
+    @Test
+    @SmallTest
+    public void testScan_matchesExifInterface() throws Exception {
+        List<String> paths = generateCorpus(1);
+        RecordingCallback callback = scan(new ExifScanner(mExecutor, THREAD_COUNT), paths);
+
+        assertEquals(paths.size(), callback.mImageInfos.size());
+        assertTrue(callback.mFailedPaths.isEmpty());
+        for (String path : paths) {
+            ExifScanner.ImageInfo imageInfo = callback.mImageInfos.get(path);
+            assertNotNull(path, imageInfo);
+            ExifInterface exif = new ExifInterface(path);
+            assertEquals(path, exif.getAttributeInt(ExifInterface.TAG_ORIENTATION,
+                    ExifInterface.ORIENTATION_UNDEFINED), imageInfo.getOrientation());
+            assertEquals(path, exif.getDateTime(), imageInfo.getDateTime());
+            assertEquals(path, exif.getAttributeInt(ExifInterface.TAG_IMAGE_WIDTH, 0),
+                    imageInfo.getImageWidth());
+            assertEquals(path, exif.getAttributeInt(ExifInterface.TAG_IMAGE_LENGTH, 0),
+                    imageInfo.getImageLength());
+            double[] latLong = exif.getLatLong();
+            assertEquals(path, latLong != null, imageInfo.hasLatLong());
+            if (latLong != null) {
+                assertEquals(path, latLong[0], imageInfo.getLatitude(), DELTA);
+                assertEquals(path, latLong[1], imageInfo.getLongitude(), DELTA);
+            }
+        }
+    }
+
+    @Test
+    @SmallTest
+    public void testScan_reportsMissingFile() throws Exception {
+        List<String> paths = generateCorpus(1);
+        String missingPath = new File(mCorpusDir, "missing.jpg").getAbsolutePath();
+        paths.add(missingPath);
+        RecordingCallback callback = scan(new ExifScanner(mExecutor, THREAD_COUNT), paths);
+
+        assertEquals(paths.size() - 1, callback.mImageInfos.size());
+        assertEquals(Collections.singletonList(missingPath), callback.mFailedPaths);
+    }
+
+    @Test
+    @SmallTest
+    public void testScan_emptyList() throws Exception {
+        RecordingCallback callback =
+                scan(new ExifScanner(mExecutor, THREAD_COUNT), new ArrayList<String>());
+
+        assertTrue(callback.mImageInfos.isEmpty());
+        assertTrue(callback.mFailedPaths.isEmpty());
+    }
+
+    @Test
+    @SmallTest
+    public void testScan_completesWhenCallbackThrows() throws Exception {
+        List<String> paths = generateCorpus(1);
+        RecordingCallback callback = new RecordingCallback() {
+            @Override
+            public void onImageScanned(@NonNull ExifScanner.ImageInfo imageInfo) {
+                throw new IllegalStateException();
+            }
+        };
+        new ExifScanner(mExecutor, 1).scan(paths, callback);
+
+        assertTrue(callback.mCompleted.await(60, TimeUnit.SECONDS));
+    }
+
+    @Ignore("benchmark")
+    @Test
+    @LargeTest
+    public void benchmark_scanCorpus() throws Exception {
+        List<String> paths = generateCorpus(CORPUS_COPIES);
+
+        long start = System.nanoTime();
+        for (String path : paths) {
+            ExifInterface exif = new ExifInterface(path);
+            exif.getAttributeInt(ExifInterface.TAG_ORIENTATION,
+                    ExifInterface.ORIENTATION_UNDEFINED);
+            exif.getDateTime();
+            exif.getLatLong();
+            exif.getAttributeInt(ExifInterface.TAG_IMAGE_WIDTH, 0);
+            exif.getAttributeInt(ExifInterface.TAG_IMAGE_LENGTH, 0);
+        }
+        long instanceNanos = System.nanoTime() - start;
+
+        start = System.nanoTime();
+        scan(new ExifScanner(mExecutor, 1), paths);
+        long serialScanNanos = System.nanoTime() - start;
+
+        start = System.nanoTime();
+        scan(new ExifScanner(mExecutor, THREAD_COUNT), paths);
+        long parallelScanNanos = System.nanoTime() - start;
+
+        Log.d(TAG, String.format("%d files: ExifInterface %d files/s, ExifScanner %d files/s, "
+                        + "ExifScanner on %d threads %d files/s",
+                paths.size(), filesPerSecond(paths.size(), instanceNanos),
+                filesPerSecond(paths.size(), serialScanNanos), THREAD_COUNT,
+                filesPerSecond(paths.size(), parallelScanNanos)));
+    }
+
+    private RecordingCallback scan(ExifScanner scanner, List<String> paths)
+            throws InterruptedException {
+        RecordingCallback callback = new RecordingCallback();
+        scanner.scan(paths, callback);
+        assertTrue(callback.mCompleted.await(60, TimeUnit.SECONDS));
+        return callback;
+    }
+
+    private List<String> generateCorpus(int copies) throws IOException {
+        List<String> paths = new ArrayList<>();
+        for (int i = 0; i < IMAGE_RESOURCES.length; ++i) {
+            for (int copy = 0; copy < copies; ++copy) {
+                File file = new File(mCorpusDir, i + "_" + copy + IMAGE_EXTENSIONS[i]);
+                InputStream in = getContext().getResources().openRawResource(IMAGE_RESOURCES[i]);
+                OutputStream out = new FileOutputStream(file);
+                try {
+                    byte[] buffer = new byte[8192];
+                    int count;
+                    while ((count = in.read(buffer)) != -1) {
+                        out.write(buffer, 0, count);
+                    }
+                } finally {
+                    in.close();
+                    out.close();
+                }
+                paths.add(file.getAbsolutePath());
+            }
+        }
+        return paths;
+    }
+
+    private static long filesPerSecond(int files, long nanos) {
+        return files * TimeUnit.SECONDS.toNanos(1) / nanos;
+    }
+
+    private static class RecordingCallback implements ExifScanner.Callback {
+        final Map<String, ExifScanner.ImageInfo> mImageInfos = new ConcurrentHashMap<>();
+        final List<String> mFailedPaths = Collections.synchronizedList(new ArrayList<String>());
+        final CountDownLatch mCompleted = new CountDownLatch(1);
+
+        @Override
+        public void onImageScanned(@NonNull ExifScanner.ImageInfo imageInfo) {
+            mImageInfos.put(imageInfo.getPath(), imageInfo);
+        }
+
+        @Override
+        public void onImageFailed(@NonNull String path, @NonNull IOException e) {
+            mFailedPaths.add(path);
+        }
+
+        @Override
+        public void onScanCompleted() {
+            mCompleted.countDown();
+        }
+    }
+}
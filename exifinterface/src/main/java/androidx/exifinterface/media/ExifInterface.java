@@ -30,11 +30,13 @@ import androidx.annotation.RestrictTo;
 
 import java.io.BufferedInputStream;
 import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
 import java.io.Closeable;
 import java.io.DataInput;
 import java.io.DataInputStream;
 import java.io.EOFException;
 import java.io.File;
+import java.io.FileDescriptor;
 import java.io.FileInputStream;
 import java.io.FileNotFoundException;
 import java.io.FileOutputStream;
@@ -42,10 +44,12 @@ import java.io.FilterOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
+import java.io.RandomAccessFile;
 import java.lang.annotation.Retention;
 import java.lang.annotation.RetentionPolicy;
 import java.nio.ByteBuffer;
 import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
 import java.nio.charset.Charset;
 import java.text.ParsePosition;
 import java.text.SimpleDateFormat;
@@ -55,6 +59,7 @@ import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.TimeZone;
 import java.util.concurrent.TimeUnit;
 import java.util.regex.Matcher;
@@ -3615,6 +3620,11 @@ public class ExifInterface {
     private static final Charset ASCII = Charset.forName("US-ASCII");
     // Identifier for EXIF APP1 segment in JPEG
     static final byte[] IDENTIFIER_EXIF_APP1 = "Exif\0\0".getBytes(ASCII);
+    // The maximum length of a JPEG segment, including its two length bytes.
+    private static final int MAX_SEGMENT_LENGTH = 0xffff;
+    // Free space reserved in a rewritten EXIF APP1 segment, so that later edits which grow the
+    // EXIF data a little can still be saved in place. See saveJpegAttributesInPlace().
+    private static final int EXIF_SEGMENT_PADDING_SIZE = 1024;
     // JPEG segment markers, that each marker consumes two bytes beginning with 0xff and ending with
     // the indicator. There is no SOF4, SOF8, SOF16 markers in JPEG and SOFx markers indicates start
     // of frame(baseline DCT) and the image size info exists in its beginning part.
@@ -3653,8 +3663,7 @@ public class ExifInterface {
     private static final int IMAGE_TYPE_SRW = 11;
 
     static {
-        sFormatter = new SimpleDateFormat("yyyy:MM:dd HH:mm:ss");
-        sFormatter.setTimeZone(TimeZone.getTimeZone("UTC"));
+        sFormatter = createDateTimeFormatter();
 
         // Build up the hash tables to look up Exif tags for reading Exif tags.
         for (int ifdType = 0; ifdType < EXIF_TAGS.length; ++ifdType) {
@@ -3688,11 +3697,23 @@ public class ExifInterface {
     private byte[] mThumbnailBytes;
     private int mThumbnailCompression;
     private int mExifOffset;
+    // The size of the EXIF data area in the EXIF APP1 segment, or 0 if it can't be rewritten.
+    private int mExifLength;
+    // The number of bytes written to the file by the last call to saveAttributes().
+    private long mLastSaveBytesWritten;
     private int mOrfMakerNoteOffset;
     private int mOrfThumbnailOffset;
     private int mOrfThumbnailLength;
     private int mRw2JpgFromRawOffset;
     private boolean mIsSupportedFile;
+    // The tags a selective parse reads, or null if every tag is read.
+    private final Set<String> mRequestedTags;
+    // Whether a selective parse needs to visit each IFD type.
+    private final boolean[] mRequestedIfdTypes;
+    // The channel being parsed, if the input is a seekable file.
+    private FileChannel mSeekableChannel;
+    // The recycled parse state, if this instance is used by an ExifScanner.
+    private final ParseContext mParseContext;
 
     // Pattern to check non zero timestamp
     private static final Pattern sNonZeroTimePattern = Pattern.compile(".*[1-9].*");
@@ -3710,14 +3731,60 @@ public class ExifInterface {
         FileInputStream in = null;
         mAssetInputStream = null;
         mFilename = filename;
+        mRequestedTags = null;
+        mRequestedIfdTypes = null;
+        mParseContext = null;
         try {
             in = new FileInputStream(filename);
-            loadAttributes(in);
+            loadAttributes(new SeekableFileInputStream(in.getChannel(), 0));
         } finally {
             closeQuietly(in);
         }
     }
 
+    /**
+     * Reads Exif tags from the specified image file descriptor. Attribute mutation is not
+     * supported for file descriptors. The file descriptor is read from the beginning of the file
+     * without changing its offset, and developers should close it after use.
+     */
+    public ExifInterface(@NonNull FileDescriptor fileDescriptor) throws IOException {
+        this(fileDescriptor, null);
+    }
+
+    /**
+     * Reads only the given Exif tags from the specified image file descriptor. Attribute mutation
+     * is not supported for file descriptors. The file descriptor is read from the beginning of the
+     * file without changing its offset, and developers should close it after use.
+     * <p>
+     * Only the image file directories holding the requested tags are visited, and the values of
+     * other tags are skipped without being read. Thumbnails and maker notes are not read unless
+     * {@link #TAG_MAKER_NOTE} is requested, so {@link #hasThumbnail()} returns {@code false}.
+     * Tags which were not requested may or may not be available.
+     * </p>
+     *
+     * @param fileDescriptor the file descriptor of the image.
+     * @param tags the names of the tags to read, or {@code null} to read every tag.
+     */
+    public ExifInterface(@NonNull FileDescriptor fileDescriptor, @Nullable Set<String> tags)
+            throws IOException {
+        if (fileDescriptor == null) {
+            throw new IllegalArgumentException("fileDescriptor cannot be null");
+        }
+        mFilename = null;
+        mAssetInputStream = null;
+        if (tags != null) {
+            mRequestedTags = getRequestedTags(tags);
+            mRequestedIfdTypes = getRequestedIfdTypes(mRequestedTags);
+        } else {
+            mRequestedTags = null;
+            mRequestedIfdTypes = null;
+        }
+        mParseContext = null;
+        // The file input stream is not closed, since that would close the given file descriptor.
+        FileChannel channel = new FileInputStream(fileDescriptor).getChannel();
+        loadAttributes(new SeekableFileInputStream(channel, 0));
+    }
+
     /**
      * Reads Exif tags from the specified image input stream. Attribute mutation is not supported
      * for input streams. The given input stream will proceed its current position. Developers
@@ -3729,6 +3796,9 @@ public class ExifInterface {
             throw new IllegalArgumentException("inputStream cannot be null");
         }
         mFilename = null;
+        mRequestedTags = null;
+        mRequestedIfdTypes = null;
+        mParseContext = null;
         if (inputStream instanceof AssetManager.AssetInputStream) {
             mAssetInputStream = (AssetManager.AssetInputStream) inputStream;
         } else {
@@ -3737,6 +3807,22 @@ public class ExifInterface {
         loadAttributes(inputStream);
     }
 
+    /**
+     * Reads the tags requested by the given context from the specified file channel, recycling
+     * the buffers and tag maps of the context. The attributes of this instance are only valid
+     * until the context is used again, so the context must not be shared between threads.
+     */
+    ExifInterface(@NonNull FileChannel channel, @NonNull ParseContext parseContext)
+            throws IOException {
+        mFilename = null;
+        mAssetInputStream = null;
+        mRequestedTags = parseContext.mRequestedTags;
+        mRequestedIfdTypes = parseContext.mRequestedIfdTypes;
+        mParseContext = parseContext;
+        loadAttributes(new SeekableFileInputStream(
+                channel, 0, channel.size(), parseContext.mFileBuffer));
+    }
+
     /**
      * Returns the EXIF attribute of the specified tag or {@code null} if there is no such tag in
      * the image file.
@@ -4194,12 +4280,22 @@ public class ExifInterface {
         try {
             // Initialize mAttributes.
             for (int i = 0; i < EXIF_TAGS.length; ++i) {
-                mAttributes[i] = new HashMap<>();
+                if (mParseContext != null) {
+                    mAttributes[i] = mParseContext.mAttributes[i];
+                    mAttributes[i].clear();
+                } else {
+                    mAttributes[i] = new HashMap<>();
+                }
             }
 
             // Check file type
-            in = new BufferedInputStream(in, SIGNATURE_CHECK_SIZE);
-            mMimeType = getMimeType((BufferedInputStream) in);
+            if (in instanceof SeekableFileInputStream) {
+                // Seekable files are read in place instead of being buffered for seeking back.
+                mSeekableChannel = ((SeekableFileInputStream) in).mChannel;
+            } else {
+                in = new BufferedInputStream(in, SIGNATURE_CHECK_SIZE);
+            }
+            mMimeType = getMimeType(in);
 
             // Create byte-ordered input stream
             ByteOrderedDataInputStream inputStream = new ByteOrderedDataInputStream(in);
@@ -4237,7 +4333,9 @@ public class ExifInterface {
                 }
             }
             // Set thumbnail image offset and length
-            setThumbnailData(inputStream);
+            if (mRequestedTags == null) {
+                setThumbnailData(inputStream);
+            }
             mIsSupportedFile = true;
         } catch (IOException e) {
             // Ignore exceptions in order to keep the compatibility with the old versions of
@@ -4270,10 +4368,11 @@ public class ExifInterface {
     }
 
     /**
-     * Save the tag data into the original image file. This is expensive because it involves
-     * copying all the data from one file to another and deleting the old file and renaming the
-     * other. It's best to use {@link #setAttribute(String,String)} to set all attributes to write
-     * and make a single call rather than multiple calls for each attribute.
+     * Save the tag data into the original image file. If the new EXIF data fits in the space of
+     * the existing EXIF segment, only that segment is rewritten in place. Otherwise this is
+     * expensive because it involves copying all the data from one file to another and deleting the
+     * old file and renaming the other. It's best to use {@link #setAttribute(String,String)} to set
+     * all attributes to write and make a single call rather than multiple calls for each attribute.
      * <p>
      * This method is only supported for JPEG files.
      * </p>
@@ -4290,29 +4389,80 @@ public class ExifInterface {
         // Keep the thumbnail in memory
         mThumbnailBytes = getThumbnail();
 
-        File tempFile = new File(mFilename + ".tmp");
-        File originalFile = new File(mFilename);
-        if (!originalFile.renameTo(tempFile)) {
-            throw new IOException("Could not rename to " + tempFile.getAbsolutePath());
-        }
+        if (!saveJpegAttributesInPlace()) {
+            File tempFile = new File(mFilename + ".tmp");
+            File originalFile = new File(mFilename);
+            if (!originalFile.renameTo(tempFile)) {
+                throw new IOException("Could not rename to " + tempFile.getAbsolutePath());
+            }
 
-        FileInputStream in = null;
-        FileOutputStream out = null;
-        try {
-            // Save the new file.
-            in = new FileInputStream(tempFile);
-            out = new FileOutputStream(mFilename);
-            saveJpegAttributes(in, out);
-        } finally {
-            closeQuietly(in);
-            closeQuietly(out);
-            tempFile.delete();
+            FileInputStream in = null;
+            FileOutputStream out = null;
+            try {
+                // Save the new file.
+                in = new FileInputStream(tempFile);
+                out = new FileOutputStream(mFilename);
+                saveJpegAttributes(in, out);
+            } finally {
+                closeQuietly(in);
+                closeQuietly(out);
+                tempFile.delete();
+            }
+            mLastSaveBytesWritten = originalFile.length();
         }
 
         // Discard the thumbnail in memory
         mThumbnailBytes = null;
     }
 
+    /**
+     * Returns the number of bytes written to the file by the last call to
+     * {@link #saveAttributes()}.
+     */
+    long getLastSaveBytesWritten() {
+        return mLastSaveBytesWritten;
+    }
+
+    // Overwrites the EXIF data area of the existing EXIF APP1 segment if the new EXIF data fits in
+    // it, padding the rest of the segment with zeros, and returns whether it did. The length of the
+    // segment and the rest of the file are left untouched.
+    private boolean saveJpegAttributesInPlace() throws IOException {
+        if (mExifOffset <= 0 || mExifLength <= 0) {
+            return false;
+        }
+        ByteArrayOutputStream exifSegment = new ByteArrayOutputStream(mExifLength);
+        writeExifSegment(new ByteOrderedDataOutputStream(exifSegment, ByteOrder.BIG_ENDIAN),
+                mExifOffset, 0);
+        // Skip the segment length and the identifier, which stay as they are.
+        int headerLength = 2 + IDENTIFIER_EXIF_APP1.length;
+        int exifLength = exifSegment.size() - headerLength;
+        if (exifLength > mExifLength) {
+            return false;
+        }
+
+        RandomAccessFile file = null;
+        try {
+            file = new RandomAccessFile(mFilename, "rw");
+            // Make sure the file still has the EXIF APP1 segment which was read.
+            byte[] header = new byte[2 + headerLength];
+            file.seek(mExifOffset - header.length);
+            file.readFully(header);
+            ByteBuffer expectedHeader = ByteBuffer.allocate(header.length)
+                    .put(MARKER).put(MARKER_APP1)
+                    .putShort((short) (headerLength + mExifLength))
+                    .put(IDENTIFIER_EXIF_APP1);
+            if (!Arrays.equals(header, expectedHeader.array())) {
+                return false;
+            }
+            file.write(exifSegment.toByteArray(), headerLength, exifLength);
+            file.write(new byte[mExifLength - exifLength]);
+        } finally {
+            closeQuietly(file);
+        }
+        mLastSaveBytesWritten = mExifLength;
+        return true;
+    }
+
     /**
      * Returns true if the image file has a thumbnail.
      */
@@ -4584,6 +4734,11 @@ public class ExifInterface {
      */
     @RestrictTo(RestrictTo.Scope.LIBRARY)
     public long getDateTime() {
+        return getDateTime(sFormatter);
+    }
+
+    // Parses the date time with the given formatter, which must not be used concurrently.
+    long getDateTime(SimpleDateFormat formatter) {
         String dateTimeString = getAttribute(TAG_DATETIME);
         if (dateTimeString == null
                 || !sNonZeroTimePattern.matcher(dateTimeString).matches()) return -1;
@@ -4592,7 +4747,7 @@ public class ExifInterface {
         try {
             // The exif field is in local time. Parsing it as if it is UTC will yield time
             // since 1/1/1970 local time
-            Date datetime = sFormatter.parse(dateTimeString, pos);
+            Date datetime = formatter.parse(dateTimeString, pos);
             if (datetime == null) return -1;
             long msecs = datetime.getTime();
 
@@ -4681,9 +4836,15 @@ public class ExifInterface {
     }
 
     // Checks the type of image file
-    private int getMimeType(BufferedInputStream in) throws IOException {
+    private int getMimeType(InputStream in) throws IOException {
         in.mark(SIGNATURE_CHECK_SIZE);
-        byte[] signatureCheckBytes = new byte[SIGNATURE_CHECK_SIZE];
+        byte[] signatureCheckBytes;
+        if (mParseContext != null) {
+            signatureCheckBytes = mParseContext.mSignatureCheckBytes;
+            Arrays.fill(signatureCheckBytes, (byte) 0);
+        } else {
+            signatureCheckBytes = new byte[SIGNATURE_CHECK_SIZE];
+        }
         in.read(signatureCheckBytes);
         in.reset();
         if (isJpegFormat(signatureCheckBytes)) {
@@ -4850,9 +5011,24 @@ public class ExifInterface {
                     if (DEBUG) {
                         Log.d(TAG, "readExifSegment with a byte array (length: " + length + ")");
                     }
+                    // Only a single EXIF APP1 segment of a JPEG file can be rewritten in place.
+                    mExifLength = mExifOffset == 0 && mMimeType == IMAGE_TYPE_JPEG ? length : 0;
                     // Save offset values for createJpegThumbnailBitmap() function
                     mExifOffset = bytesRead;
 
+                    if (mRequestedTags != null && mSeekableChannel != null) {
+                        // Read the requested entries straight from the file, without copying
+                        // the thumbnail and the values of the other tags in this segment.
+                        ByteBuffer segmentBuffer = mParseContext != null
+                                ? mParseContext.mSegmentBuffer
+                                : ByteBuffer.allocate(SeekableFileInputStream.BUFFER_SIZE);
+                        ByteOrderedDataInputStream exifInputStream = new ByteOrderedDataInputStream(
+                                new SeekableFileInputStream(
+                                        mSeekableChannel, in.peek(), length, segmentBuffer));
+                        readExifSegment(exifInputStream, length, imageType);
+                        break;
+                    }
+
                     byte[] bytes = new byte[length];
                     if (in.read(bytes) != length) {
                         throw new IOException("Invalid exif");
@@ -4865,6 +5041,9 @@ public class ExifInterface {
                 }
 
                 case MARKER_COM: {
+                    if (!shouldReadTag(IFD_TYPE_EXIF, TAG_USER_COMMENT)) {
+                        break;
+                    }
                     byte[] bytes = new byte[length];
                     if (in.read(bytes) != length) {
                         throw new IOException("Invalid exif");
@@ -5154,7 +5333,14 @@ public class ExifInterface {
         // Write EXIF APP1 segment
         dataOutputStream.writeByte(MARKER);
         dataOutputStream.writeByte(MARKER_APP1);
-        writeExifSegment(dataOutputStream, 6);
+        // The EXIF data area follows the SOI and APP1 markers, the segment length and the
+        // identifier. Remember where it is, so that later edits can rewrite it in place.
+        int exifOffset = 2 + 2 + 2 + IDENTIFIER_EXIF_APP1.length;
+        int exifSegmentLength =
+                writeExifSegment(dataOutputStream, exifOffset, EXIF_SEGMENT_PADDING_SIZE);
+        mExifOffset = exifOffset;
+        mExifLength = exifSegmentLength <= MAX_SEGMENT_LENGTH
+                ? exifSegmentLength - 2 - IDENTIFIER_EXIF_APP1.length : 0;
 
         byte[] bytes = new byte[4096];
 
@@ -5231,16 +5417,82 @@ public class ExifInterface {
 
     // Reads the given EXIF byte area and save its tag data into attributes.
     private void readExifSegment(byte[] exifBytes, int imageType) throws IOException {
-        ByteOrderedDataInputStream dataInputStream =
-                new ByteOrderedDataInputStream(exifBytes);
+        readExifSegment(new ByteOrderedDataInputStream(exifBytes), exifBytes.length, imageType);
+    }
 
+    // Reads the EXIF data area of the given length from the given stream.
+    private void readExifSegment(ByteOrderedDataInputStream dataInputStream, int exifLength,
+            int imageType) throws IOException {
         // Parse TIFF Headers. See JEITA CP-3451C Section 4.5.2. Table 1.
-        parseTiffHeaders(dataInputStream, exifBytes.length);
+        parseTiffHeaders(dataInputStream, exifLength);
 
         // Read TIFF image file directories. See JEITA CP-3451C Section 4.5.2. Figure 6.
         readImageFileDirectory(dataInputStream, imageType);
     }
 
+    private static SimpleDateFormat createDateTimeFormatter() {
+        SimpleDateFormat formatter = new SimpleDateFormat("yyyy:MM:dd HH:mm:ss");
+        formatter.setTimeZone(TimeZone.getTimeZone("UTC"));
+        return formatter;
+    }
+
+    // Returns the tags a selective parse needs to read to serve the given tags.
+    private static Set<String> getRequestedTags(Set<String> tags) {
+        Set<String> requestedTags = new HashSet<>(tags);
+        if (tags.contains(TAG_ISO_SPEED_RATINGS)) {
+            // getAttribute() reads TAG_ISO_SPEED_RATINGS from TAG_PHOTOGRAPHIC_SENSITIVITY.
+            requestedTags.add(TAG_PHOTOGRAPHIC_SENSITIVITY);
+        }
+        if (tags.contains(TAG_DATETIME)) {
+            // See addDefaultValuesForCompatibility().
+            requestedTags.add(TAG_DATETIME_ORIGINAL);
+        }
+        if (tags.contains(TAG_IMAGE_WIDTH) || tags.contains(TAG_IMAGE_LENGTH)) {
+            // See validateImages().
+            requestedTags.add(TAG_PIXEL_X_DIMENSION);
+            requestedTags.add(TAG_PIXEL_Y_DIMENSION);
+        }
+        return requestedTags;
+    }
+
+    // Returns whether a selective parse needs to visit each IFD type to read the given tags.
+    private static boolean[] getRequestedIfdTypes(Set<String> requestedTags) {
+        boolean[] requestedIfdTypes = new boolean[EXIF_TAGS.length];
+        for (int ifdType = 0; ifdType < EXIF_TAGS.length; ++ifdType) {
+            for (String tag : requestedTags) {
+                if (sExifTagMapsForWriting[ifdType].containsKey(tag)) {
+                    requestedIfdTypes[ifdType] = true;
+                    break;
+                }
+            }
+        }
+        requestedIfdTypes[IFD_TYPE_PRIMARY] = true;
+        // The preview and thumbnail IFDs share their tags with the primary IFD, and are only read
+        // for the image structure of RAW images. See shouldReadIfd().
+        requestedIfdTypes[IFD_TYPE_PREVIEW] = false;
+        requestedIfdTypes[IFD_TYPE_THUMBNAIL] = false;
+        // The interoperability IFD can only be reached through the EXIF IFD.
+        requestedIfdTypes[IFD_TYPE_EXIF] |= requestedIfdTypes[IFD_TYPE_INTEROPERABILITY];
+        return requestedIfdTypes;
+    }
+
+    // Returns whether the given IFD type needs to be visited.
+    private boolean shouldReadIfd(@IfdType int ifdType) {
+        return mRequestedIfdTypes == null || mRequestedIfdTypes[ifdType]
+                || isRawImageIfd(ifdType);
+    }
+
+    // Returns whether the value of the given tag needs to be read from the given IFD type.
+    private boolean shouldReadTag(@IfdType int ifdType, String tag) {
+        return mRequestedTags == null || mRequestedTags.contains(tag) || isRawImageIfd(ifdType);
+    }
+
+    // RAW images are located through their image IFDs, which are therefore always read in full.
+    private boolean isRawImageIfd(@IfdType int ifdType) {
+        return mMimeType != IMAGE_TYPE_JPEG && (ifdType == IFD_TYPE_PRIMARY
+                || ifdType == IFD_TYPE_PREVIEW || ifdType == IFD_TYPE_THUMBNAIL);
+    }
+
     private void addDefaultValuesForCompatibility() {
         // If DATETIME tag has no value, then set the value to DATETIME_ORIGINAL tag's.
         String valueOfDateTimeOriginal = getAttribute(TAG_DATETIME_ORIGINAL);
@@ -5369,7 +5621,8 @@ public class ExifInterface {
                     valid = true;
                 }
             }
-            if (!valid) {
+            if (!valid || (!shouldReadTag(ifdType, tag.name)
+                    && !sExifPointerTagMap.containsKey(tagNumber))) {
                 dataInputStream.seek(nextEntryOffset);
                 continue;
             }
@@ -5454,7 +5707,11 @@ public class ExifInterface {
                 if (DEBUG) {
                     Log.d(TAG, String.format("Offset: %d, tagName: %s", offset, tag.name));
                 }
-                if (offset > 0L && offset < dataInputStream.mLength) {
+                if (!shouldReadIfd(nextIfdType)) {
+                    if (DEBUG) {
+                        Log.d(TAG, "Skip jump into the IFD since none of its tags were requested");
+                    }
+                } else if (offset > 0L && offset < dataInputStream.mLength) {
                     dataInputStream.seek(offset);
                     readImageFileDirectory(dataInputStream, nextIfdType);
                 } else {
@@ -5500,7 +5757,8 @@ public class ExifInterface {
             }
             // The next IFD offset needs to be bigger than 8
             // since the first IFD offset is at least 8.
-            if (nextIfdOffset > 8 && nextIfdOffset < dataInputStream.mLength) {
+            if (nextIfdOffset > 8 && nextIfdOffset < dataInputStream.mLength
+                    && shouldReadIfd(IFD_TYPE_THUMBNAIL)) {
                 dataInputStream.seek(nextIfdOffset);
                 if (mAttributes[IFD_TYPE_THUMBNAIL].isEmpty()) {
                     // Do not overwrite thumbnail IFD data if it alreay exists.
@@ -5835,7 +6093,7 @@ public class ExifInterface {
 
     // Writes an Exif segment into the given output stream.
     private int writeExifSegment(ByteOrderedDataOutputStream dataOutputStream,
-            int exifOffsetFromBeginning) throws IOException {
+            int exifOffsetFromBeginning, int paddingSize) throws IOException {
         // The following variables are for calculating each IFD tag group size in bytes.
         int[] ifdOffsets = new int[EXIF_TAGS.length];
         int[] ifdDataSizes = new int[EXIF_TAGS.length];
@@ -5911,6 +6169,9 @@ public class ExifInterface {
 
         // Calculate the total size
         int totalSize = position + 8;  // eight bytes is for header part.
+        // Reserve free space at the end of the segment, as far as the segment length allows.
+        paddingSize = Math.max(0, Math.min(paddingSize, MAX_SEGMENT_LENGTH - totalSize));
+        totalSize += paddingSize;
         if (DEBUG) {
             Log.d(TAG, "totalSize length: " + totalSize);
             for (int i = 0; i < EXIF_TAGS.length; ++i) {
@@ -6000,6 +6261,9 @@ public class ExifInterface {
             dataOutputStream.write(getThumbnailBytes());
         }
 
+        // Write padding
+        dataOutputStream.write(new byte[paddingSize]);
+
         // Reset the byte order to big endian in order to write remaining parts of the JPEG file.
         dataOutputStream.setByteOrder(ByteOrder.BIG_ENDIAN);
 
@@ -6329,6 +6593,142 @@ public class ExifInterface {
         }
     }
 
+    // The state recycled by consecutive selective parses on a single thread. See ExifScanner.
+    static final class ParseContext {
+        final Set<String> mRequestedTags;
+        final boolean[] mRequestedIfdTypes;
+        @SuppressWarnings("unchecked")
+        final HashMap<String, ExifAttribute>[] mAttributes = new HashMap[EXIF_TAGS.length];
+        final byte[] mSignatureCheckBytes = new byte[SIGNATURE_CHECK_SIZE];
+        final ByteBuffer mFileBuffer = ByteBuffer.allocate(SeekableFileInputStream.BUFFER_SIZE);
+        final ByteBuffer mSegmentBuffer =
+                ByteBuffer.allocate(SeekableFileInputStream.BUFFER_SIZE);
+        final SimpleDateFormat mDateTimeFormatter = createDateTimeFormatter();
+
+        ParseContext(@NonNull Set<String> tags) {
+            mRequestedTags = getRequestedTags(tags);
+            mRequestedIfdTypes = getRequestedIfdTypes(mRequestedTags);
+            for (int i = 0; i < EXIF_TAGS.length; ++i) {
+                mAttributes[i] = new HashMap<>();
+            }
+        }
+    }
+
+    // An input stream over a region of a file channel. Marks are free, and resetting or skipping
+    // only moves the read position, so seeking back and forth never buffers or reads the bytes in
+    // between. The channel is read at explicit positions and is not closed by this stream.
+    private static class SeekableFileInputStream extends InputStream {
+        private static final int BUFFER_SIZE = 8192;
+
+        final FileChannel mChannel;
+        private final long mEnd;
+        private final ByteBuffer mBuffer;
+        // The file position of the first byte in mBuffer.
+        private long mBufferPosition;
+        private long mPosition;
+        private long mMarkPosition;
+
+        SeekableFileInputStream(FileChannel channel, long start) throws IOException {
+            this(channel, start, channel.size() - start, ByteBuffer.allocate(BUFFER_SIZE));
+        }
+
+        SeekableFileInputStream(FileChannel channel, long start, long length, ByteBuffer buffer) {
+            mChannel = channel;
+            mEnd = start + length;
+            mPosition = start;
+            mMarkPosition = start;
+            mBuffer = buffer;
+            mBuffer.clear();
+            mBuffer.limit(0);
+        }
+
+        @Override
+        public int available() {
+            return (int) Math.min(Integer.MAX_VALUE, Math.max(0, mEnd - mPosition));
+        }
+
+        @Override
+        public int read() throws IOException {
+            if (!isBuffered(mPosition) && fillBuffer() <= 0) {
+                return -1;
+            }
+            return mBuffer.get((int) (mPosition++ - mBufferPosition)) & 0xff;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            if (len == 0) {
+                return 0;
+            }
+            int bytesRead = 0;
+            while (bytesRead < len && mPosition < mEnd) {
+                if (!isBuffered(mPosition)) {
+                    if (len - bytesRead >= BUFFER_SIZE) {
+                        // Large reads go straight into the destination.
+                        int count = (int) Math.min(len - bytesRead, mEnd - mPosition);
+                        int read = mChannel.read(
+                                ByteBuffer.wrap(b, off + bytesRead, count), mPosition);
+                        if (read <= 0) {
+                            break;
+                        }
+                        mPosition += read;
+                        bytesRead += read;
+                        continue;
+                    }
+                    if (fillBuffer() <= 0) {
+                        break;
+                    }
+                }
+                int index = (int) (mPosition - mBufferPosition);
+                int count = Math.min(len - bytesRead, mBuffer.limit() - index);
+                System.arraycopy(mBuffer.array(), index, b, off + bytesRead, count);
+                mPosition += count;
+                bytesRead += count;
+            }
+            return bytesRead == 0 ? -1 : bytesRead;
+        }
+
+        @Override
+        public long skip(long n) {
+            long skipped = Math.max(0, Math.min(n, mEnd - mPosition));
+            mPosition += skipped;
+            return skipped;
+        }
+
+        @Override
+        public boolean markSupported() {
+            return true;
+        }
+
+        @Override
+        public void mark(int readLimit) {
+            mMarkPosition = mPosition;
+        }
+
+        @Override
+        public void reset() {
+            mPosition = mMarkPosition;
+        }
+
+        private boolean isBuffered(long position) {
+            return position >= mBufferPosition && position < mBufferPosition + mBuffer.limit();
+        }
+
+        // Fills the buffer from the current position, and returns the number of buffered bytes.
+        private int fillBuffer() throws IOException {
+            mBuffer.clear();
+            mBuffer.limit((int) Math.min(BUFFER_SIZE, Math.max(0, mEnd - mPosition)));
+            mBufferPosition = mPosition;
+            while (mBuffer.hasRemaining()) {
+                if (mChannel.read(mBuffer, mBufferPosition + mBuffer.position()) < 0) {
+                    break;
+                }
+            }
+            mBuffer.flip();
+            return mBuffer.limit();
+        }
+    }
+
     // An output stream to write EXIF data area, which can be written in either little or big endian
     // order.
     private static class ByteOrderedDataOutputStream extends FilterOutputStream {
@@ -0,0 +1,271 @@
+/*
+ * Copyright 2018 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package androidx.exifinterface.media;
+
+import androidx.annotation.NonNull;
+
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Extracts commonly used Exif metadata from many image files.
+ * <p>
+ * Each file is read with a selective {@link ExifInterface} parse which only visits the tags
+ * reported in {@link ImageInfo}. The parse buffers and tag maps are recycled from one file to the
+ * next, instead of being allocated for every image. Files are scanned in parallel on the given
+ * {@link Executor}, and the result of each file is streamed to the {@link Callback} as soon as it
+ * has been read.
+ * </p>
+ */
+public final class ExifScanner {
+    // The tags read from every file.
+    static final Set<String> SCANNED_TAGS = Collections.unmodifiableSet(new HashSet<>(
+            Arrays.asList(
+                    ExifInterface.TAG_ORIENTATION,
+                    ExifInterface.TAG_DATETIME,
+                    ExifInterface.TAG_SUBSEC_TIME,
+                    ExifInterface.TAG_GPS_LATITUDE,
+                    ExifInterface.TAG_GPS_LATITUDE_REF,
+                    ExifInterface.TAG_GPS_LONGITUDE,
+                    ExifInterface.TAG_GPS_LONGITUDE_REF,
+                    ExifInterface.TAG_IMAGE_WIDTH,
+                    ExifInterface.TAG_IMAGE_LENGTH)));
+
+    private final Executor mExecutor;
+    private final int mParallelism;
+
+    /**
+     * Creates a scanner which reads files on the given executor.
+     *
+     * @param executor the executor to read files on.
+     * @param parallelism the maximum number of files read at the same time. Each of them recycles
+     *                    its own buffers, so this should not exceed the number of threads of the
+     *                    executor.
+     */
+    public ExifScanner(@NonNull Executor executor, int parallelism) {
+        if (executor == null) {
+            throw new IllegalArgumentException("executor cannot be null");
+        }
+        if (parallelism < 1) {
+            throw new IllegalArgumentException("parallelism must be positive");
+        }
+        mExecutor = executor;
+        mParallelism = parallelism;
+    }
+
+    /**
+     * Scans the given image files. The callback is called on the executor threads, once for each
+     * file in no particular order, and then once more when every file has been reported.
+     *
+     * @param paths the paths of the image files.
+     * @param callback the callback receiving the results.
+     */
+    public void scan(@NonNull List<String> paths, @NonNull Callback callback) {
+        if (paths == null) {
+            throw new IllegalArgumentException("paths cannot be null");
+        }
+        if (callback == null) {
+            throw new IllegalArgumentException("callback cannot be null");
+        }
+        Scan scan = new Scan(new ArrayList<>(paths), callback);
+        int taskCount = Math.max(1, Math.min(mParallelism, paths.size()));
+        scan.mRemainingTasks.set(taskCount);
+        for (int i = 0; i < taskCount; ++i) {
+            mExecutor.execute(scan);
+        }
+    }
+
+    /**
+     * Receives the results of {@link #scan(List, Callback)}.
+     */
+    public interface Callback {
+        /**
+         * Called when the metadata of an image file has been read.
+         */
+        void onImageScanned(@NonNull ImageInfo imageInfo);
+
+        /**
+         * Called when an image file could not be opened or read. Unexpected errors of the parser
+         * are reported wrapped in an {@link IOException}.
+         */
+        void onImageFailed(@NonNull String path, @NonNull IOException e);
+
+        /**
+         * Called once every image file has been reported.
+         */
+        void onScanCompleted();
+    }
+
+    /**
+     * The metadata of an image file. Values which are missing from the file are reported as they
+     * are by {@link ExifInterface}.
+     */
+    public static final class ImageInfo {
+        private final String mPath;
+        private final int mOrientation;
+        private final long mDateTime;
+        private final boolean mHasLatLong;
+        private final double mLatitude;
+        private final double mLongitude;
+        private final int mImageWidth;
+        private final int mImageLength;
+
+        ImageInfo(String path, int orientation, long dateTime, double[] latLong, int imageWidth,
+                int imageLength) {
+            mPath = path;
+            mOrientation = orientation;
+            mDateTime = dateTime;
+            mHasLatLong = latLong != null;
+            mLatitude = latLong != null ? latLong[0] : 0;
+            mLongitude = latLong != null ? latLong[1] : 0;
+            mImageWidth = imageWidth;
+            mImageLength = imageLength;
+        }
+
+        /**
+         * Returns the path of the image file.
+         */
+        @NonNull
+        public String getPath() {
+            return mPath;
+        }
+
+        /**
+         * Returns the value of {@link ExifInterface#TAG_ORIENTATION}, or
+         * {@link ExifInterface#ORIENTATION_UNDEFINED} if there is none.
+         */
+        public int getOrientation() {
+            return mOrientation;
+        }
+
+        /**
+         * Returns the date time in milliseconds since Jan. 1, 1970, midnight local time, or -1 if
+         * there is none.
+         */
+        public long getDateTime() {
+            return mDateTime;
+        }
+
+        /**
+         * Returns whether the image has a latitude and a longitude.
+         */
+        public boolean hasLatLong() {
+            return mHasLatLong;
+        }
+
+        /**
+         * Returns the latitude, or 0 if {@link #hasLatLong()} is {@code false}.
+         */
+        public double getLatitude() {
+            return mLatitude;
+        }
+
+        /**
+         * Returns the longitude, or 0 if {@link #hasLatLong()} is {@code false}.
+         */
+        public double getLongitude() {
+            return mLongitude;
+        }
+
+        /**
+         * Returns the value of {@link ExifInterface#TAG_IMAGE_WIDTH}.
+         */
+        public int getImageWidth() {
+            return mImageWidth;
+        }
+
+        /**
+         * Returns the value of {@link ExifInterface#TAG_IMAGE_LENGTH}.
+         */
+        public int getImageLength() {
+            return mImageLength;
+        }
+    }
+
+    // A scan of a list of files. Each task running it reads files with its own parse context until
+    // there are none left.
+    private static final class Scan implements Runnable {
+        final List<String> mPaths;
+        final Callback mCallback;
+        final AtomicInteger mNextIndex = new AtomicInteger();
+        final AtomicInteger mRemainingTasks = new AtomicInteger();
+
+        Scan(List<String> paths, Callback callback) {
+            mPaths = paths;
+            mCallback = callback;
+        }
+
+        @Override
+        public void run() {
+            try {
+                ExifInterface.ParseContext parseContext = null;
+                int index;
+                while ((index = mNextIndex.getAndIncrement()) < mPaths.size()) {
+                    if (parseContext == null) {
+                        parseContext = new ExifInterface.ParseContext(SCANNED_TAGS);
+                    }
+                    scanFile(mPaths.get(index), parseContext);
+                }
+            } finally {
+                if (mRemainingTasks.decrementAndGet() == 0) {
+                    mCallback.onScanCompleted();
+                }
+            }
+        }
+
+        private void scanFile(String path, ExifInterface.ParseContext parseContext) {
+            ImageInfo imageInfo;
+            FileInputStream in = null;
+            try {
+                in = new FileInputStream(path);
+                ExifInterface exif = new ExifInterface(in.getChannel(), parseContext);
+                imageInfo = new ImageInfo(path,
+                        exif.getAttributeInt(ExifInterface.TAG_ORIENTATION,
+                                ExifInterface.ORIENTATION_UNDEFINED),
+                        exif.getDateTime(parseContext.mDateTimeFormatter),
+                        exif.getLatLong(),
+                        exif.getAttributeInt(ExifInterface.TAG_IMAGE_WIDTH, 0),
+                        exif.getAttributeInt(ExifInterface.TAG_IMAGE_LENGTH, 0));
+            } catch (IOException e) {
+                mCallback.onImageFailed(path, e);
+                return;
+            } catch (RuntimeException e) {
+                // A malformed file can make the parser fail in unexpected ways, which must not
+                // stop the scan of the remaining files.
+                mCallback.onImageFailed(path, new IOException(e));
+                return;
+            } finally {
+                if (in != null) {
+                    try {
+                        in.close();
+                    } catch (IOException e) {
+                        // Ignored
+                    }
+                }
+            }
+            mCallback.onImageScanned(imageInfo);
+        }
+    }
+}
@@ -0,0 +1,199 @@
+/*
+ * Copyright 2018 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.tools.build.jetifier.core.rule
+
+import com.android.tools.build.jetifier.core.proguard.ProGuardType
+import com.android.tools.build.jetifier.core.type.JavaType
+import com.google.gson.annotations.SerializedName
+import java.util.regex.Pattern
+
+/**
+ * Rule that rewrites a Java type based on the given arguments.
+ *
+ * Used in the preprocessor when generating [TypesMap].
+ *
+ * @param from Regular expression where packages are separated via '/' and inner class separator
+ * is "$". Used to match the input type.
+ * @param to A string to be used as a replacement if the 'from' pattern is matched. It can also
+ * apply groups matched from the original pattern using {x} annotation, e.g. {0}.
+ */
+class RewriteRule(private val from: String, private val to: String) {
+
+    companion object {
+        const val IGNORE_RUNTIME = "ignore"
+        const val IGNORE_PREPROCESSOR_ONLY = "ignoreInPreprocessorOnly"
+
+        private const val ANY_SUFFIX_GROUP = "(.*)"
+
+        /** Characters that [from] can contain which are not regular expression constructs. */
+        private fun isLiteral(c: Char) = c.isLetterOrDigit() || c == '/' || c == '_' || c == '$'
+            || c == '-'
+
+        private fun findLiteralPrefix(from: String): String {
+            // An alternative of a top level '|' can start with anything.
+            if (from.contains('|')) {
+                return ""
+            }
+            val prefix = from.takeWhile { isLiteral(it) }
+            // A quantifier which allows zero repetitions makes the last character optional.
+            return when (from.getOrNull(prefix.length)) {
+                '?', '*', '{' -> prefix.dropLast(1)
+                else -> prefix
+            }
+        }
+
+        /** Characters not matched by '.' in regular expressions compiled without flags. */
+        private fun isLineTerminator(c: Char) = c == '\n' || c == '\r' || c == '\u0085'
+            || c == '\u2028' || c == '\u2029'
+    }
+
+    // We escape '$' so we don't conflict with regular expression symbols.
+    private val inputPattern = Pattern.compile("^${from.replace("$", "\\$")}$")
+    private val outputPattern = to.replace("$", "\$")
+
+    /**
+     * The literal part of [from] up to its first regular expression construct. Types that don't
+     * start with this prefix are never matched by this rule.
+     */
+    internal val literalPrefix: String = findLiteralPrefix(from)
+
+    /**
+     * Whether [from] is just [literalPrefix] followed by a single "(.*)" group, which is the case
+     * for nearly all the rules, and can be applied without the regular expression.
+     */
+    private val isPrefixRule = from.length == literalPrefix.length + ANY_SUFFIX_GROUP.length
+        && from.endsWith(ANY_SUFFIX_GROUP)
+
+    /*
+     * Whether this is any type of an ignore rule.
+     */
+    fun isIgnoreRule() = isRuntimeIgnoreRule() || isPreprocessorOnlyIgnoreRule()
+
+    /*
+     * Whether this rules is an ignore rule.
+     *
+     * Any type matched to [from] will be in such case ignored by the preprocessor (thus missing
+     * from the map) but it will be also ignored during rewriting.
+     */
+    fun isRuntimeIgnoreRule() = to == IGNORE_RUNTIME
+
+    /*
+     * Whether this rule is an ignore rule that should be used only in the preprocessor.
+     *
+     * That means that error is still thrown if [from] is found in a library that is being
+     * rewritten. Use this for types that are internal to support library. This is weaker version of
+     * [isRuntimeIgnoreRule].
+     */
+    fun isPreprocessorOnlyIgnoreRule() = to == IGNORE_PREPROCESSOR_ONLY
+
+    /**
+     * Rewrites the given java type. Returns null if this rule is not applicable for the given type.
+     */
+    fun apply(input: JavaType): TypeRewriteResult {
+        if (!input.fullName.startsWith(literalPrefix)) {
+            return TypeRewriteResult.NOT_APPLIED
+        }
+
+        if (isPrefixRule) {
+            return applyPrefixRule(input.fullName)
+        }
+
+        val matcher = inputPattern.matcher(input.fullName)
+        if (!matcher.matches()) {
+            return TypeRewriteResult.NOT_APPLIED
+        }
+
+        if (isIgnoreRule()) {
+            return TypeRewriteResult.IGNORED
+        }
+
+        var result = outputPattern
+        for (i in 0 until matcher.groupCount()) {
+            result = result.replace("{$i}", matcher.group(i + 1))
+        }
+
+        return TypeRewriteResult(JavaType(result))
+    }
+
+    private fun applyPrefixRule(fullName: String): TypeRewriteResult {
+        val suffix = fullName.substring(literalPrefix.length)
+        if (suffix.any { isLineTerminator(it) }) {
+            return TypeRewriteResult.NOT_APPLIED
+        }
+
+        if (isIgnoreRule()) {
+            return TypeRewriteResult.IGNORED
+        }
+
+        return TypeRewriteResult(JavaType(outputPattern.replace("{0}", suffix)))
+    }
+
+    fun reverse(): RewriteRule {
+        val newFrom = to.replace("{0}", "(.*)")
+        val newTo = from.replace("(.*)", "{0}")
+        return RewriteRule(newFrom, newTo)
+    }
+
+    /*
+     * Returns whether this rule is an ignore rule and applies to the given proGuard type.
+     */
+    fun doesThisIgnoreProGuard(type: ProGuardType): Boolean {
+        if (!isIgnoreRule()) {
+            return false
+        }
+
+        val matcher = inputPattern.matcher(type.value)
+        return matcher.matches()
+    }
+
+    override fun toString(): String {
+        return "$inputPattern -> $outputPattern "
+    }
+
+    /** Returns JSON data model of this class */
+    fun toJson(): JsonData {
+        return JsonData(from, to)
+    }
+
+    /**
+     * JSON data model for [RewriteRule].
+     */
+    data class JsonData(
+        @SerializedName("from")
+        val from: String,
+
+        @SerializedName("to")
+        val to: String) {
+
+        /** Creates instance of [RewriteRule] */
+        fun toRule(): RewriteRule {
+            return RewriteRule(from, to)
+        }
+    }
+
+    /**
+     * Result of java type rewrite using [RewriteRule]
+     */
+    data class TypeRewriteResult(val result: JavaType?, val isIgnored: Boolean = false) {
+
+        companion object {
+            val NOT_APPLIED = TypeRewriteResult(result = null, isIgnored = false)
+
+            val IGNORED = TypeRewriteResult(result = null, isIgnored = true)
+        }
+    }
+}
\ No newline at end of file
@@ -0,0 +1,100 @@
+/*
+ * Copyright 2018 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.tools.build.jetifier.core.rule
+
+import com.android.tools.build.jetifier.core.type.JavaType
+import java.util.concurrent.ConcurrentHashMap
+
+/**
+ * Contains all [RewriteRule]s.
+ *
+ * Rules are looked up through a [RulePrefixTrie] and the results are memoized per [JavaType], as
+ * the same types are referenced over and over again during a rewrite. Results are identical to
+ * trying the rules one by one in their order.
+ */
+class RewriteRulesMap(val rewriteRules: List<RewriteRule>) {
+
+    companion object {
+        private const val TAG = "RewriteRulesMap"
+
+        val EMPTY = RewriteRulesMap(emptyList())
+    }
+
+    constructor(vararg rules: RewriteRule) : this(rules.toList())
+
+    val runtimeIgnoreRules = rewriteRules.filter { it.isRuntimeIgnoreRule() }.toSet()
+
+    private val rewriteTrie = RulePrefixTrie(rewriteRules.filter { !it.isIgnoreRule() })
+
+    private val runtimeIgnoreTrie = RulePrefixTrie(runtimeIgnoreRules.toList())
+
+    // ConcurrentHashMap does not support null values so we keep the type itself for misses.
+    private val rewriteCache = ConcurrentHashMap<JavaType, JavaType>()
+
+    private val runtimeIgnoreCache = ConcurrentHashMap<JavaType, Boolean>()
+
+    /**
+     * Tries to rewrite the given given type using the rules. Returns null if no rule applies.
+     */
+    fun rewriteType(type: JavaType): JavaType? {
+        val cached = rewriteCache[type]
+        if (cached != null) {
+            return if (cached === type) null else cached
+        }
+
+        var result: JavaType? = null
+        for (rule in rewriteTrie.findCandidates(type.fullName)) {
+            result = rule.apply(type).result
+            if (result != null) {
+                break
+            }
+        }
+
+        rewriteCache[type] = result ?: type
+        return result
+    }
+
+    /**
+     * Returns whether the given type is ignored by any of the [runtimeIgnoreRules].
+     */
+    fun isRuntimeIgnored(type: JavaType): Boolean {
+        return runtimeIgnoreCache.getOrPut(type) {
+            runtimeIgnoreTrie.findCandidates(type.fullName)
+                .any { it.apply(type) == RewriteRule.TypeRewriteResult.IGNORED }
+        }
+    }
+
+    fun reverse(): RewriteRulesMap {
+        return RewriteRulesMap(rewriteRules
+            .filter { !it.isIgnoreRule() }
+            .map { it.reverse() }
+            .toList())
+    }
+
+    fun appendRules(rules: List<RewriteRule>): RewriteRulesMap {
+        return RewriteRulesMap(rewriteRules + rules)
+    }
+
+    fun toJson(): JsonData {
+        return JsonData(rewriteRules.map { it.toJson() }.toSet())
+    }
+
+    /**
+     * JSON data model for [RewriteRulesMap].
+     */
+    data class JsonData(val rules: Set<RewriteRule.JsonData>)
+}
\ No newline at end of file
@@ -0,0 +1,65 @@
+/*
+ * Copyright 2018 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.tools.build.jetifier.core.rule
+
+/**
+ * Indexes [RewriteRule]s by their [RewriteRule.literalPrefix] so that only the rules that can
+ * possibly match a type have to be tried, instead of running every rule's regular expression.
+ *
+ * Immutable once created, so it can be shared between threads.
+ */
+internal class RulePrefixTrie(private val rules: List<RewriteRule>) {
+
+    private class Node {
+        val children = HashMap<Char, Node>()
+        val ruleIndices = mutableListOf<Int>()
+    }
+
+    private val root = Node()
+
+    init {
+        rules.forEachIndexed { i, rule ->
+            var node = root
+            for (c in rule.literalPrefix) {
+                node = node.children.getOrPut(c) { Node() }
+            }
+            node.ruleIndices.add(i)
+        }
+    }
+
+    /**
+     * Returns the rules whose literal prefix is a prefix of the given [name], in the order in which
+     * they were given. Rules that are not returned are guaranteed not to match [name].
+     */
+    fun findCandidates(name: String): List<RewriteRule> {
+        val indices = mutableListOf<Int>()
+        var node: Node? = root
+        var i = 0
+        while (node != null) {
+            indices.addAll(node.ruleIndices)
+            if (i == name.length) {
+                break
+            }
+            node = node.children[name[i++]]
+        }
+
+        if (indices.size > 1) {
+            indices.sort()
+        }
+        return indices.map { rules[it] }
+    }
+}
@@ -0,0 +1,182 @@
+/*
+ * Copyright 2018 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.tools.build.jetifier.core.rule
+
+import com.android.tools.build.jetifier.core.config.ConfigParser
+import com.android.tools.build.jetifier.core.type.JavaType
+import com.google.common.truth.Truth
+import org.junit.Ignore
+import org.junit.Test
+import java.util.regex.Pattern
+
+class RulePrefixTrieTest {
+
+    private val config = ConfigParser.loadDefaultConfig()!!
+
+    private val rules = config.rulesMap.rewriteRules
+
+    private val sampleTypes = listOf(
+        "android/support/v4/app/Fragment",
+        "android/support/v4/app/Fragment\$SavedState",
+        "android/support/v7/widget/RecyclerView\$ViewHolder",
+        "android/support/design/widget/FloatingActionButton",
+        "android/support/annotation/NonNull",
+        "android/support/test/runner/AndroidJUnit4",
+        "android/support/test/espresso/internal/inject/TargetContext",
+        "android/support/v4/BuildConfig",
+        "android/support/v4/app/package-info",
+        "android/arch/lifecycle/LiveData",
+        "android/arch/persistence/room/Room",
+        "android/support/",
+        "android/support",
+        "android/app/Activity",
+        "java/lang/String",
+        "com/example/BuildConfig",
+        "android/support/v4/app/Frag\nment",
+        ""
+    )
+
+    @Test fun candidates_preserveRuleOrder() {
+        val a = RewriteRule("a/b/(.*)", "x/{0}")
+        val ab = RewriteRule("a/(.*)", "y/{0}")
+        val any = RewriteRule("(.*)/c", "z/{0}")
+        val other = RewriteRule("b/(.*)", "w/{0}")
+        val trie = RulePrefixTrie(listOf(a, other, any, ab))
+
+        Truth.assertThat(trie.findCandidates("a/b/c")).containsExactly(a, any, ab).inOrder()
+        Truth.assertThat(trie.findCandidates("b/c")).containsExactly(other, any).inOrder()
+        Truth.assertThat(trie.findCandidates("c")).containsExactly(any)
+    }
+
+    @Test fun literalPrefix_excludesCharacterBeforeQuantifier() {
+        val optional = RewriteRule("foo/ab?c", "x")
+        val repeated = RewriteRule("foo/ab*c", "x")
+        val counted = RewriteRule("foo/ab{0,2}c", "x")
+        val trie = RulePrefixTrie(listOf(optional, repeated, counted))
+
+        Truth.assertThat(optional.literalPrefix).isEqualTo("foo/a")
+        Truth.assertThat(repeated.literalPrefix).isEqualTo("foo/a")
+        Truth.assertThat(counted.literalPrefix).isEqualTo("foo/a")
+        Truth.assertThat(trie.findCandidates("foo/ac"))
+            .containsExactly(optional, repeated, counted).inOrder()
+        Truth.assertThat(optional.apply(JavaType("foo/ac")).result).isEqualTo(JavaType("x"))
+    }
+
+    @Test fun literalPrefix_isEmptyForAlternation() {
+        val rule = RewriteRule("foo/a|bar/b", "x")
+        val trie = RulePrefixTrie(listOf(rule))
+
+        Truth.assertThat(rule.literalPrefix).isEmpty()
+        Truth.assertThat(trie.findCandidates("bar/b")).containsExactly(rule)
+        Truth.assertThat(rule.apply(JavaType("bar/b")).result).isEqualTo(JavaType("x"))
+    }
+
+    @Test fun defaultConfig_rewriteType_sameAsLinearScan() {
+        for (name in sampleTypes + ruleDerivedTypes()) {
+            val type = JavaType(name)
+            Truth.assertWithMessage(name)
+                .that(config.rulesMap.rewriteType(type))
+                .isEqualTo(linearRewrite(type))
+            // Second lookup is served from the cache
+            Truth.assertWithMessage(name)
+                .that(config.rulesMap.rewriteType(type))
+                .isEqualTo(linearRewrite(type))
+        }
+    }
+
+    @Test fun defaultConfig_apply_sameAsRegEx() {
+        for (name in sampleTypes + ruleDerivedTypes()) {
+            val type = JavaType(name)
+            rules.forEach {
+                Truth.assertWithMessage("$it on $name")
+                    .that(it.apply(type))
+                    .isEqualTo(regExApply(it, type))
+            }
+        }
+    }
+
+    @Test fun defaultConfig_isRuntimeIgnored_sameAsLinearScan() {
+        for (name in sampleTypes + ruleDerivedTypes()) {
+            val type = JavaType(name)
+            val expected = config.rulesMap.runtimeIgnoreRules
+                .any { regExApply(it, type) == RewriteRule.TypeRewriteResult.IGNORED }
+            Truth.assertWithMessage(name)
+                .that(config.rulesMap.isRuntimeIgnored(type))
+                .isEqualTo(expected)
+        }
+    }
+
+    @Ignore("Benchmark, run manually")
+    @Test fun benchmark_rewriteType() {
+        val types = (sampleTypes + ruleDerivedTypes()).map { JavaType(it) }
+        val iterations = 200
+
+        var start = System.nanoTime()
+        repeat(iterations) { types.forEach { linearRewrite(it) } }
+        val linearNanos = System.nanoTime() - start
+
+        start = System.nanoTime()
+        repeat(iterations) {
+            val rulesMap = RewriteRulesMap(rules)
+            types.forEach { rulesMap.rewriteType(it) }
+        }
+        val coldNanos = System.nanoTime() - start
+
+        start = System.nanoTime()
+        repeat(iterations) { types.forEach { config.rulesMap.rewriteType(it) } }
+        val warmNanos = System.nanoTime() - start
+
+        Truth.assertThat(coldNanos).isLessThan(linearNanos)
+        Truth.assertThat(warmNanos).isLessThan(coldNanos)
+    }
+
+    /** Creates types that hit every rule, including a few that only just miss them. */
+    private fun ruleDerivedTypes(): List<String> {
+        return rules.flatMap {
+            val prefix = it.literalPrefix
+            listOf(prefix + "Sample", prefix + "inner/Sample\$Inner", prefix,
+                prefix.dropLast(1) + "Sample", prefix + "BuildConfig", prefix + "internal/A")
+        }
+    }
+
+    private fun linearRewrite(type: JavaType): JavaType? {
+        return rules
+            .filter { !it.isIgnoreRule() }
+            .asSequence()
+            .map { regExApply(it, type).result }
+            .firstOrNull { it != null }
+    }
+
+    /** Reference implementation of [RewriteRule.apply] that always uses the regular expression. */
+    private fun regExApply(rule: RewriteRule, type: JavaType): RewriteRule.TypeRewriteResult {
+        val json = rule.toJson()
+        val matcher = Pattern.compile("^${json.from.replace("$", "\\$")}$").matcher(type.fullName)
+        if (!matcher.matches()) {
+            return RewriteRule.TypeRewriteResult.NOT_APPLIED
+        }
+
+        if (rule.isIgnoreRule()) {
+            return RewriteRule.TypeRewriteResult.IGNORED
+        }
+
+        var result = json.to
+        for (i in 0 until matcher.groupCount()) {
+            result = result.replace("{$i}", matcher.group(i + 1))
+        }
+        return RewriteRule.TypeRewriteResult(JavaType(result))
+    }
+}
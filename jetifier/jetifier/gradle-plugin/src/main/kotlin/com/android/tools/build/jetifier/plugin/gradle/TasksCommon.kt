@@ -0,0 +1,85 @@
+/*
+ * Copyright 2018 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.tools.build.jetifier.plugin.gradle
+
+import com.android.tools.build.jetifier.core.config.Config
+import com.android.tools.build.jetifier.core.utils.Log
+import com.android.tools.build.jetifier.processor.FileMapping
+import com.android.tools.build.jetifier.processor.Processor
+import com.android.tools.build.jetifier.processor.TransformationCache
+import org.gradle.api.Project
+import org.gradle.api.logging.LogLevel
+import org.gradle.api.logging.Logger
+import java.io.File
+import java.nio.file.Path
+
+class TasksCommon {
+
+    companion object {
+
+        const val CACHE_DIR_APPENDIX = "caches/jetifier"
+
+        var configFilePath: Path? = null
+
+        /** Directory of the [TransformationCache], by default in the Gradle user home. */
+        var cacheDir: File? = null
+
+        var cacheEnabled = true
+
+        /**
+         * Returns the cache to be shared by the Jetifier tasks of the given project or null if the
+         * caching is disabled.
+         */
+        fun getCache(project: Project): TransformationCache? {
+            if (!cacheEnabled) {
+                return null
+            }
+            return TransformationCache(
+                cacheDir ?: File(project.gradle.gradleUserHomeDir, CACHE_DIR_APPENDIX))
+        }
+
+        fun processFiles(
+                config: Config,
+                filesToProcess: Set<FileMapping>,
+                logger: Logger,
+                cache: TransformationCache? = null
+        ): Set<File> {
+            logger.log(LogLevel.DEBUG, "Jetifier will now process the following files:")
+            filesToProcess.forEach {
+                logger.log(LogLevel.DEBUG, it.from.absolutePath)
+            }
+
+            // Hook to the gradle logger
+            Log.logConsumer = JetifierLoggerAdapter(logger)
+
+            // Dependencies can be numerous and large so stream them instead of loading them all
+            // into memory.
+            val processor = Processor.createProcessor(config)
+            return processor.transform(
+                filesToProcess,
+                streamingMode = true,
+                parallelism = Runtime.getRuntime().availableProcessors(),
+                cache = cache)
+        }
+
+        fun shouldSkipArtifact(artifactId: String, groupId: String?, config: Config): Boolean {
+            return config.pomRewriteRules.any {
+                it.from.artifactId == artifactId && it.from.groupId == groupId
+            }
+        }
+    }
+}
\ No newline at end of file
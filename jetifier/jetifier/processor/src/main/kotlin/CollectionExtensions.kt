@@ -16,6 +16,10 @@
 
 package com.android.tools.build.jetifier.processor
 
+import java.util.concurrent.Callable
+import java.util.concurrent.ExecutionException
+import java.util.concurrent.ForkJoinPool
+
 /**
  * Creates a cartesian product from the given lists.
  *
@@ -39,4 +43,30 @@ private fun <T> cartesianProductInternal(index: Int, lists: List<List<T>>): List
         }
     }
     return result
-}
\ No newline at end of file
+}
+
+/**
+ * Maps the given list on a [ForkJoinPool] with the given [parallelism] while keeping the order of
+ * the results. Runs on the calling thread if [parallelism] is 1 or lower.
+ *
+ * Exceptions thrown by [transform] are rethrown unwrapped.
+ */
+fun <T, R> List<T>.mapInParallel(parallelism: Int, transform: (T) -> R): List<R> {
+    if (parallelism <= 1 || size <= 1) {
+        return map(transform)
+    }
+
+    val pool = ForkJoinPool(parallelism)
+    try {
+        val futures = pool.invokeAll(map { item -> Callable { transform(item) } })
+        return futures.map {
+            try {
+                it.get()
+            } catch (e: ExecutionException) {
+                throw e.cause ?: e
+            }
+        }
+    } finally {
+        pool.shutdown()
+    }
+}
@@ -0,0 +1,323 @@
+/*
+ * Copyright 2018 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.tools.build.jetifier.processor
+
+import com.android.tools.build.jetifier.core.rule.RewriteRule
+import com.android.tools.build.jetifier.core.utils.Log
+import com.android.tools.build.jetifier.processor.archive.ArchiveStreamer
+import java.io.File
+import java.io.FileInputStream
+import java.io.IOException
+import java.nio.file.AtomicMoveNotSupportedException
+import java.nio.file.FileAlreadyExistsException
+import java.nio.file.Files
+import java.nio.file.Path
+import java.nio.file.StandardCopyOption
+import java.nio.file.attribute.FileTime
+import java.security.MessageDigest
+import java.util.UUID
+import java.util.concurrent.ConcurrentLinkedQueue
+import java.util.concurrent.atomic.AtomicInteger
+
+/**
+ * Persistent on-disk cache of libraries transformed by the [Processor].
+ *
+ * The cache is content addressed: outputs are keyed by the hash of the input bytes together with a
+ * fingerprint of the processor's config and settings, and of the Jetifier classes themselves. A
+ * cached output is therefore reused only if neither the input, the config nor the Jetifier version
+ * changed, and the cache never has to be invalidated by hand. It can also be shared by multiple
+ * processes.
+ *
+ * Once a transformation stores new outputs, the least recently used entries are deleted until the
+ * cache fits into [maxSizeBytes].
+ *
+ * Besides whole libraries, the outputs of the archives nested in them (e.g. classes.jar in an AAR)
+ * are cached too when the libraries are streamed, so unchanged nested archives are skipped even in
+ * a library that has to be processed again.
+ *
+ * New outputs only make it into the cache once the whole transformation succeeded, see
+ * [Transaction].
+ *
+ * @param cacheDir Directory where the cached outputs are stored.
+ * @param maxSizeBytes Maximum size of all the cached outputs.
+ */
+class TransformationCache(
+    val cacheDir: File,
+    val maxSizeBytes: Long = DEFAULT_MAX_SIZE_BYTES
+) {
+
+    companion object {
+        private const val TAG = "TransformationCache"
+
+        /**
+         * Version of the format of the cache entries. Changes to the output of the [Processor] are
+         * covered by [toolVersion].
+         */
+        private const val CACHE_VERSION = 1
+
+        /** Default of [maxSizeBytes]. */
+        const val DEFAULT_MAX_SIZE_BYTES = 1024L * 1024 * 1024
+
+        private const val CHANGED_SUFFIX = ".changed"
+        private const val UNCHANGED_SUFFIX = ".unchanged"
+        private const val TEMP_SUFFIX = ".tmp"
+
+        /** Returns a hex encoded SHA-256 hash of the given bytes. */
+        fun hash(bytes: ByteArray): String {
+            return toHex(MessageDigest.getInstance("SHA-256").digest(bytes))
+        }
+
+        /** Returns a hex encoded SHA-256 hash of the content of the given file. */
+        @Throws(IOException::class)
+        fun hash(file: File): String {
+            val digest = MessageDigest.getInstance("SHA-256")
+            FileInputStream(file).use {
+                val buffer = ByteArray(64 * 1024)
+                var read = it.read(buffer)
+                while (read >= 0) {
+                    digest.update(buffer, 0, read)
+                    read = it.read(buffer)
+                }
+            }
+            return toHex(digest.digest())
+        }
+
+        /**
+         * Hash of the code of the processor and of the rules it applies, so that the outputs of
+         * one Jetifier version are never reused by another one.
+         */
+        private val toolVersion: String by lazy {
+            val digest = MessageDigest.getInstance("SHA-256")
+            listOf(TransformationCache::class.java, RewriteRule::class.java)
+                .mapNotNull { it.protectionDomain?.codeSource?.location?.toURI() }
+                .distinct()
+                .forEach { hashLocation(File(it), digest) }
+            toHex(digest.digest())
+        }
+
+        /** Adds the content of the given jar or of the classes in the given directory. */
+        private fun hashLocation(location: File, digest: MessageDigest) {
+            val files = if (location.isDirectory) {
+                location.walk().filter { it.isFile }.sortedBy { it.path }.toList()
+            } else {
+                listOf(location)
+            }
+            files.forEach {
+                digest.update(it.relativeTo(location).path.toByteArray())
+                digest.update(it.readBytes())
+            }
+        }
+
+        private fun toHex(bytes: ByteArray): String {
+            return bytes.joinToString(separator = "") { String.format("%02x", it) }
+        }
+    }
+
+    /**
+     * Statistics of the cache lookups made since the cache was created.
+     */
+    data class Stats(
+        val hits: Int,
+        val misses: Int,
+        val nestedHits: Int,
+        val nestedMisses: Int
+    ) {
+        override fun toString(): String {
+            return "libraries: $hits hits, $misses misses; " +
+                "nested archives: $nestedHits hits, $nestedMisses misses"
+        }
+    }
+
+    /**
+     * Output of a library stored in the cache.
+     *
+     * @param output The transformed library.
+     * @param wasChanged Whether the library was changed by the transformation.
+     */
+    class Entry(val output: File, val wasChanged: Boolean)
+
+    private val hits = AtomicInteger()
+    private val misses = AtomicInteger()
+    private val nestedHits = AtomicInteger()
+    private val nestedMisses = AtomicInteger()
+
+    /** Returns statistics of the cache lookups made since the cache was created. */
+    fun getStats(): Stats {
+        return Stats(hits.get(), misses.get(), nestedHits.get(), nestedMisses.get())
+    }
+
+    /**
+     * Starts a new transaction for a processor with the given [fingerprint] of its config and
+     * settings.
+     */
+    internal fun beginTransaction(fingerprint: String) = Transaction(fingerprint)
+
+    private fun getEntryPath(key: String, wasChanged: Boolean): Path {
+        val suffix = if (wasChanged) CHANGED_SUFFIX else UNCHANGED_SUFFIX
+        return cacheDir.toPath().resolve(key.substring(0, 2)).resolve(key + suffix)
+    }
+
+    private fun find(key: String): Pair<Path, Boolean>? {
+        val changed = getEntryPath(key, wasChanged = true)
+        if (Files.isRegularFile(changed)) {
+            touch(changed)
+            return changed to true
+        }
+        val unchanged = getEntryPath(key, wasChanged = false)
+        if (Files.isRegularFile(unchanged)) {
+            touch(unchanged)
+            return unchanged to false
+        }
+        return null
+    }
+
+    /** Marks the given entry as used, see [trim]. */
+    private fun touch(entry: Path) {
+        try {
+            Files.setLastModifiedTime(entry, FileTime.fromMillis(System.currentTimeMillis()))
+        } catch (e: IOException) {
+            Log.w(TAG, "Failed to touch '%s': %s", entry, e.message)
+        }
+    }
+
+    /**
+     * Deletes the least recently used entries until the cache fits into [maxSizeBytes].
+     */
+    fun trim() {
+        val entries = cacheDir.walk()
+            .filter {
+                it.isFile && (it.name.endsWith(CHANGED_SUFFIX) ||
+                    it.name.endsWith(UNCHANGED_SUFFIX))
+            }
+            .map { Triple(it.toPath(), it.lastModified(), it.length()) }
+            .sortedBy { it.second }
+            .toList()
+        var size = entries.fold(0L) { sum, entry -> sum + entry.third }
+        for ((path, _, length) in entries) {
+            if (size <= maxSizeBytes) {
+                break
+            }
+            try {
+                Files.deleteIfExists(path)
+                size -= length
+            } catch (e: IOException) {
+                Log.w(TAG, "Failed to delete '%s': %s", path, e.message)
+            }
+        }
+    }
+
+    /**
+     * Set of lookups and new outputs of a single transformation.
+     *
+     * Outputs are put into temporary files first and only moved into the cache by [commit], so a
+     * transformation that failed half way (e.g. because of missing mappings) never leaves its
+     * outputs behind to be reused by the next run.
+     */
+    inner class Transaction internal constructor(
+        private val fingerprint: String
+    ) : ArchiveStreamer.NestedArchiveCache {
+
+        private val pending = ConcurrentLinkedQueue<Pair<Path, Path>>()
+
+        /** Creates a key for a library with the content of the given file. */
+        @Throws(IOException::class)
+        fun createKey(input: File) = createKeyForHash(hash(input))
+
+        override fun createKey(inputDigest: ByteArray) = createKeyForHash(toHex(inputDigest))
+
+        private fun createKeyForHash(inputHash: String): String {
+            return hash("$CACHE_VERSION:$toolVersion:$fingerprint:$inputHash".toByteArray())
+        }
+
+        /** Returns the cached output of a library or null if there is none. */
+        fun getLibrary(key: String): Entry? {
+            val found = find(key)
+            if (found == null) {
+                misses.incrementAndGet()
+                return null
+            }
+            hits.incrementAndGet()
+            return Entry(found.first.toFile(), found.second)
+        }
+
+        /** Stores the output of a library, see [commit]. */
+        @Throws(IOException::class)
+        fun putLibrary(key: String, output: File, wasChanged: Boolean) {
+            val temp = createTempFile(key)
+            Files.copy(output.toPath(), temp, StandardCopyOption.REPLACE_EXISTING)
+            pending.add(temp to getEntryPath(key, wasChanged))
+        }
+
+        override fun get(key: String): ArchiveStreamer.CachedArchive? {
+            val found = find(key)
+            if (found == null) {
+                nestedMisses.incrementAndGet()
+                return null
+            }
+            nestedHits.incrementAndGet()
+            return ArchiveStreamer.CachedArchive(found.first.toFile(), found.second)
+        }
+
+        override fun put(key: String, output: File, wasChanged: Boolean) {
+            putLibrary(key, output, wasChanged)
+        }
+
+        /**
+         * Moves all the outputs stored by this transaction into the cache, then [trim]s the cache
+         * if there were any.
+         */
+        @Throws(IOException::class)
+        fun commit() {
+            var entry = pending.poll()
+            val trim = entry != null
+            while (entry != null) {
+                val (temp, target) = entry
+                try {
+                    Files.move(temp, target, StandardCopyOption.ATOMIC_MOVE)
+                } catch (e: AtomicMoveNotSupportedException) {
+                    Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING)
+                } catch (e: FileAlreadyExistsException) {
+                    // Stored by another process in the meantime, the content is the same.
+                    Files.deleteIfExists(temp)
+                }
+                entry = pending.poll()
+            }
+            if (trim) {
+                trim()
+            }
+        }
+
+        /** Discards all the outputs stored by this transaction. */
+        fun abort() {
+            var entry = pending.poll()
+            while (entry != null) {
+                try {
+                    Files.deleteIfExists(entry.first)
+                } catch (e: IOException) {
+                    Log.w(TAG, "Failed to delete '%s': %s", entry.first, e.message)
+                }
+                entry = pending.poll()
+            }
+        }
+
+        private fun createTempFile(key: String): Path {
+            val dir = getEntryPath(key, wasChanged = true).parent
+            Files.createDirectories(dir)
+            return dir.resolve("$key-${UUID.randomUUID()}$TEMP_SUFFIX")
+        }
+    }
+}
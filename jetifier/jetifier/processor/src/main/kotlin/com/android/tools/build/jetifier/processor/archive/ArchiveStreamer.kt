@@ -0,0 +1,223 @@
+/*
+ * Copyright 2018 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.tools.build.jetifier.processor.archive
+
+import com.android.tools.build.jetifier.core.utils.Log
+import java.io.BufferedInputStream
+import java.io.BufferedOutputStream
+import java.io.File
+import java.io.FileInputStream
+import java.io.FileOutputStream
+import java.io.IOException
+import java.nio.file.Files
+import java.nio.file.Path
+import java.nio.file.Paths
+import java.nio.file.attribute.FileTime
+import java.security.DigestOutputStream
+import java.security.MessageDigest
+import java.util.zip.ZipInputStream
+import java.util.zip.ZipOutputStream
+
+/**
+ * Rewrites an archive entry by entry instead of extracting it into memory first.
+ *
+ * Every file is read into an [ArchiveFile], handed to [transform] and written to the output before
+ * the next entry is read, so only a single file is kept in memory at a time. Nested archives are
+ * streamed the same way. The result is byte-identical to extracting the archive via
+ * [Archive.Builder] and writing it back with the same timestamp.
+ *
+ * If a [nestedArchiveCache] is given, nested archives are copied into temporary files instead so
+ * that their output can be looked up in and stored to the cache. Cached outputs are keyed by
+ * content only, so their entries get the current timestamp when they are copied.
+ */
+class ArchiveStreamer(
+    private val transform: (ArchiveFile) -> Unit,
+    private val nestedArchiveCache: NestedArchiveCache? = null
+) {
+
+    companion object {
+        const val TAG = "ArchiveStreamer"
+    }
+
+    /**
+     * Cache of outputs of nested archives, keyed by their content.
+     */
+    interface NestedArchiveCache {
+
+        /** Creates a key for a nested archive with the given SHA-256 digest of its content. */
+        fun createKey(inputDigest: ByteArray): String
+
+        /** Returns the output previously stored under the given key or null if there is none. */
+        fun get(key: String): CachedArchive?
+
+        /**
+         * Stores a copy of the output of a nested archive under the given key. The [output] file
+         * is deleted by the caller afterwards.
+         */
+        fun put(key: String, output: File, wasChanged: Boolean)
+    }
+
+    /**
+     * Output of a nested archive stored in a [NestedArchiveCache].
+     */
+    class CachedArchive(val file: File, val wasChanged: Boolean)
+
+    /**
+     * Streams [input] into [outputPath], which gets overwritten if it exists.
+     *
+     * @param timestamp Last modified time to set on all the entries.
+     * @return whether any of the files was changed by [transform].
+     */
+    @Throws(IOException::class)
+    fun stream(input: File, outputPath: Path, timestamp: FileTime): Boolean {
+        Log.i(TAG, "Streaming: %s -> %s", input.absolutePath, outputPath.toUri())
+
+        if (outputPath.parent != null) {
+            Files.createDirectories(outputPath.parent)
+        }
+
+        ZipInputStream(BufferedInputStream(FileInputStream(input))).use { zipIn ->
+            BufferedOutputStream(FileOutputStream(outputPath.toFile())).use { outputStream ->
+                val zipOut = ZipOutputStream(outputStream)
+                val wasChanged = streamArchive(zipIn, zipOut, timestamp)
+                zipOut.finish()
+                return wasChanged
+            }
+        }
+    }
+
+    @Throws(IOException::class)
+    private fun streamArchive(
+        zipIn: ZipInputStream,
+        zipOut: ZipOutputStream,
+        timestamp: FileTime
+    ): Boolean {
+        var wasChanged = false
+
+        var entry = zipIn.nextEntry
+        while (entry != null) {
+            if (!entry.isDirectory) {
+                val entryPath = Paths.get(entry.name)
+                if (Archive.isArchive(entry)) {
+                    Log.i(TAG, "Streaming nested: %s", entryPath)
+                    zipOut.putNextEntry(Archive.createZipEntry(entryPath, timestamp))
+                    val nestedChanged = if (nestedArchiveCache != null) {
+                        streamNestedCached(zipIn, zipOut, timestamp, nestedArchiveCache)
+                    } else {
+                        // Neither of the nested streams can be closed as that would also close
+                        // the parent streams.
+                        val nestedOut = ZipOutputStream(zipOut)
+                        val result = streamArchive(ZipInputStream(zipIn), nestedOut, timestamp)
+                        nestedOut.finish()
+                        result
+                    }
+                    if (nestedChanged) {
+                        wasChanged = true
+                    }
+                } else {
+                    val file = ArchiveFile(entryPath, zipIn.readBytes())
+                    transform(file)
+                    Log.v(TAG, "Writing file: %s", file.relativePath)
+                    zipOut.putNextEntry(Archive.createZipEntry(file.relativePath, timestamp))
+                    file.writeSelfTo(zipOut)
+                    if (file.wasChanged) {
+                        wasChanged = true
+                    }
+                }
+                zipOut.closeEntry()
+            }
+            zipIn.closeEntry()
+            entry = zipIn.nextEntry
+        }
+
+        return wasChanged
+    }
+
+    @Throws(IOException::class)
+    private fun streamNestedCached(
+        zipIn: ZipInputStream,
+        zipOut: ZipOutputStream,
+        timestamp: FileTime,
+        cache: NestedArchiveCache
+    ): Boolean {
+        val input = Files.createTempFile("jetifierNested", ".in")
+        val output = Files.createTempFile("jetifierNested", ".out")
+        try {
+            // The input is hashed while it is copied so that it is read only once.
+            val digest = MessageDigest.getInstance("SHA-256")
+            DigestOutputStream(BufferedOutputStream(FileOutputStream(input.toFile())), digest)
+                .use { zipIn.copyTo(it) }
+            val key = cache.createKey(digest.digest())
+
+            val cached = cache.get(key)
+            if (cached != null) {
+                Log.v(TAG, "Reusing cached output of nested archive")
+                // The cached output could have been written with another timestamp.
+                ZipInputStream(BufferedInputStream(FileInputStream(cached.file))).use {
+                    val nestedOut = ZipOutputStream(zipOut)
+                    restampArchive(it, nestedOut, timestamp)
+                    nestedOut.finish()
+                }
+                return cached.wasChanged
+            }
+
+            val wasChanged = ZipInputStream(BufferedInputStream(FileInputStream(input.toFile())))
+                .use { nestedIn ->
+                    BufferedOutputStream(FileOutputStream(output.toFile())).use {
+                        val nestedOut = ZipOutputStream(it)
+                        val result = streamArchive(nestedIn, nestedOut, timestamp)
+                        nestedOut.finish()
+                        result
+                    }
+                }
+
+            cache.put(key, output.toFile(), wasChanged)
+            Files.copy(output, zipOut)
+            return wasChanged
+        } finally {
+            Files.deleteIfExists(input)
+            Files.deleteIfExists(output)
+        }
+    }
+
+    /**
+     * Copies the already transformed archive from [zipIn] to [zipOut] and sets [timestamp] as the
+     * last modified time of all its entries, including those of nested archives.
+     */
+    @Throws(IOException::class)
+    private fun restampArchive(
+        zipIn: ZipInputStream,
+        zipOut: ZipOutputStream,
+        timestamp: FileTime
+    ) {
+        var entry = zipIn.nextEntry
+        while (entry != null) {
+            val entryPath = Paths.get(entry.name)
+            zipOut.putNextEntry(Archive.createZipEntry(entryPath, timestamp))
+            if (Archive.isArchive(entry)) {
+                val nestedOut = ZipOutputStream(zipOut)
+                restampArchive(ZipInputStream(zipIn), nestedOut, timestamp)
+                nestedOut.finish()
+            } else {
+                zipIn.copyTo(zipOut)
+            }
+            zipOut.closeEntry()
+            zipIn.closeEntry()
+            entry = zipIn.nextEntry
+        }
+    }
+}
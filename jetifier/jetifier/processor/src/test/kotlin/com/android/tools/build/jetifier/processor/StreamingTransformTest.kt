@@ -0,0 +1,171 @@
+/*
+ * Copyright 2018 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.tools.build.jetifier.processor
+
+import com.android.tools.build.jetifier.core.config.Config
+import com.android.tools.build.jetifier.core.rule.RewriteRule
+import com.android.tools.build.jetifier.core.rule.RewriteRulesMap
+import com.android.tools.build.jetifier.core.type.JavaType
+import com.android.tools.build.jetifier.core.type.TypesMap
+import com.android.tools.build.jetifier.processor.archive.Archive
+import com.android.tools.build.jetifier.processor.archive.ArchiveFile
+import com.android.tools.build.jetifier.processor.archive.ArchiveItem
+import com.google.common.truth.Truth
+import org.junit.Ignore
+import org.junit.Test
+import java.io.File
+import java.nio.file.Files
+import java.nio.file.Path
+import java.nio.file.Paths
+import java.nio.file.attribute.FileTime
+
+/**
+ * Tests that the streaming and parallel modes of [Processor.transform] produce the same output as
+ * the default one.
+ */
+class StreamingTransformTest {
+
+    private val config = Config.fromOptional(
+        restrictToPackagePrefixes = setOf("android/support/v7/preference"),
+        rulesMap =
+            RewriteRulesMap(
+                RewriteRule(from = "android/support/v7/preference/Preference(.+)", to = "ignore"),
+                RewriteRule(from = "(.*)/R(.*)", to = "ignore")
+            ),
+        typesMap = TypesMap(
+            JavaType("android/support/v7/preference/Preference")
+                to JavaType("android/test/pref/Preference")
+        )
+    )
+
+    private val timestamp = FileTime.fromMillis(1500000000000L)
+
+    private val classData = File(javaClass.getResource(
+        "/changeDetectionTest/testPreference.class").file).readBytes()
+
+    @Test
+    fun streaming_sameOutputAsDefault() {
+        val corpus = createCorpus(librariesCount = 8)
+
+        val expected = transform(corpus, streamingMode = false, parallelism = 1)
+        val streamed = transform(corpus, streamingMode = true, parallelism = 1)
+
+        assertSameOutput(expected, streamed)
+    }
+
+    @Test
+    fun parallel_sameOutputAsDefault() {
+        val corpus = createCorpus(librariesCount = 8)
+
+        val expected = transform(corpus, streamingMode = false, parallelism = 1)
+        val parallel = transform(corpus, streamingMode = false, parallelism = 4)
+        val streamedParallel = transform(corpus, streamingMode = true, parallelism = 4)
+
+        assertSameOutput(expected, parallel)
+        assertSameOutput(expected, streamedParallel)
+    }
+
+    @Test
+    fun streaming_unmodifiedLibrariesNotCopied() {
+        val corpus = createCorpus(librariesCount = 2) + createLibrary("unmodified", listOf(
+            ArchiveFile(Paths.get("res/values.xml"), "<resources/>".toByteArray())))
+        val outputDir = Files.createTempDirectory("streamingOutput")
+        val mappings = corpus.map { FileMapping(it, outputDir.resolve(it.name).toFile()) }
+
+        val result = Processor.createProcessor(config).transform(
+            mappings.toSet(), copyUnmodifiedLibsAlso = false, streamingMode = true)
+
+        val unmodified = corpus.last()
+        Truth.assertThat(result).containsExactlyElementsIn(
+            mappings.dropLast(1).map { it.to } + unmodified)
+        Truth.assertThat(outputDir.resolve(unmodified.name).toFile().exists()).isFalse()
+        Truth.assertThat(outputDir.toFile().list().filter { it.endsWith(".tmp") }).isEmpty()
+    }
+
+    /**
+     * Compares the default mode with the streaming one over a synthetic corpus. Not run by default,
+     * use it to check the time and memory impact of changes to the processing pipeline.
+     */
+    @Ignore
+    @Test
+    fun benchmark_syntheticCorpus() {
+        val corpus = createCorpus(librariesCount = 200, filesPerLibrary = 100)
+        val parallelism = Runtime.getRuntime().availableProcessors()
+
+        listOf(false, true).forEach { streamingMode ->
+            val (serialMillis, parallelMillis) = listOf(1, parallelism).map { threads ->
+                val start = System.nanoTime()
+                transform(corpus, streamingMode, threads)
+                (System.nanoTime() - start) / 1000000
+            }
+            Truth.assertWithMessage("streaming: $streamingMode")
+                .that(parallelMillis).isLessThan(serialMillis)
+        }
+    }
+
+    private fun transform(
+        corpus: List<File>,
+        streamingMode: Boolean,
+        parallelism: Int
+    ): List<File> {
+        val outputDir = Files.createTempDirectory("transformOutput")
+        val mappings = corpus.map { FileMapping(it, outputDir.resolve(it.name).toFile()) }
+        Processor.createProcessor(config).transform(
+            input = mappings.toSet(),
+            copyUnmodifiedLibsAlso = true,
+            streamingMode = streamingMode,
+            parallelism = parallelism,
+            timestamp = timestamp)
+        return mappings.map { it.to }
+    }
+
+    private fun assertSameOutput(expected: List<File>, actual: List<File>) {
+        Truth.assertThat(actual.map { it.name }).isEqualTo(expected.map { it.name })
+        expected.zip(actual).forEach { (expectedFile, actualFile) ->
+            Truth.assertThat(actualFile.readBytes()).isEqualTo(expectedFile.readBytes())
+        }
+    }
+
+    private fun createCorpus(librariesCount: Int, filesPerLibrary: Int = 4): List<File> {
+        return (0 until librariesCount).map { i ->
+            val files = mutableListOf<ArchiveItem>()
+            for (j in 0 until filesPerLibrary) {
+                files.add(createFile(j))
+            }
+            files.add(Archive(Paths.get("libs/nested$i.jar"), listOf(createFile(i))))
+            createLibrary("lib$i", files)
+        }
+    }
+
+    private fun createFile(index: Int): ArchiveFile {
+        return when (index % 3) {
+            0 -> ArchiveFile(Paths.get("a/Preference$index.class"), classData)
+            1 -> ArchiveFile(Paths.get("res/layout/layout$index.xml"),
+                ("<?xml version=\"1.0\" encoding=\"utf-8\"?>\n" +
+                    "<android.support.v7.preference.Preference/>").toByteArray())
+            else -> ArchiveFile(Paths.get("proguard$index/proguard.txt"),
+                ("-keep public class * extends android.support.v7.preference.Preference { \n" +
+                    "  <fields>; \n" +
+                    "}").toByteArray())
+        }
+    }
+
+    private fun createLibrary(name: String, files: List<ArchiveItem>): File {
+        val path: Path = Files.createTempDirectory("corpus").resolve("$name.jar")
+        return Archive(Paths.get("$name.jar"), files).writeSelfToFile(path, timestamp)
+    }
+}
@@ -0,0 +1,312 @@
+/*
+ * Copyright 2018 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.tools.build.jetifier.processor
+
+import com.android.tools.build.jetifier.core.config.Config
+import com.android.tools.build.jetifier.core.rule.RewriteRule
+import com.android.tools.build.jetifier.core.rule.RewriteRulesMap
+import com.android.tools.build.jetifier.core.type.JavaType
+import com.android.tools.build.jetifier.core.type.TypesMap
+import com.android.tools.build.jetifier.processor.archive.Archive
+import com.android.tools.build.jetifier.processor.archive.ArchiveFile
+import com.android.tools.build.jetifier.processor.archive.ArchiveItem
+import com.google.common.truth.Truth
+import org.junit.Assert
+import org.junit.Ignore
+import org.junit.Test
+import java.io.File
+import java.nio.file.Files
+import java.nio.file.Paths
+import java.nio.file.attribute.FileTime
+
+/**
+ * Tests that [Processor.transform] reuses the outputs stored in a [TransformationCache].
+ */
+class TransformationCacheTest {
+
+    private val config = createConfig("android/test/pref/Preference")
+
+    private val timestamp = FileTime.fromMillis(1500000000000L)
+
+    private val classData = File(javaClass.getResource(
+        "/changeDetectionTest/testPreference.class").file).readBytes()
+
+    @Test
+    fun warmRun_sameOutputAsColdRun() {
+        val corpus = createCorpus(librariesCount = 4)
+        val cache = createCache()
+
+        val cold = transform(corpus, config, cache, streamingMode = false)
+        Truth.assertThat(cache.getStats())
+            .isEqualTo(TransformationCache.Stats(hits = 0, misses = 4, nestedHits = 0,
+                nestedMisses = 0))
+
+        val warm = transform(corpus, config, cache, streamingMode = false)
+        Truth.assertThat(cache.getStats().hits).isEqualTo(4)
+        Truth.assertThat(cache.getStats().misses).isEqualTo(4)
+
+        assertSameOutput(cold, warm)
+    }
+
+    @Test
+    fun streaming_sameOutputAsUncached() {
+        val corpus = createCorpus(librariesCount = 4)
+        val cache = createCache()
+
+        val expected = transform(corpus, config, cache = null, streamingMode = true)
+        val cold = transform(corpus, config, cache, streamingMode = true)
+        val warm = transform(corpus, config, cache, streamingMode = true)
+
+        assertSameOutput(expected, cold)
+        assertSameOutput(expected, warm)
+        Truth.assertThat(cache.getStats())
+            .isEqualTo(TransformationCache.Stats(hits = 4, misses = 4, nestedHits = 0,
+                nestedMisses = 4))
+    }
+
+    @Test
+    fun changedConfig_notReused() {
+        val corpus = createCorpus(librariesCount = 2)
+        val cache = createCache()
+
+        transform(corpus, config, cache, streamingMode = true)
+        val otherConfig = createConfig("android/test/pref2/Preference")
+        val expected = transform(corpus, otherConfig, cache = null, streamingMode = true)
+        val actual = transform(corpus, otherConfig, cache, streamingMode = true)
+
+        Truth.assertThat(cache.getStats().hits).isEqualTo(0)
+        assertSameOutput(expected, actual)
+    }
+
+    @Test
+    fun changedLibrary_unchangedNestedArchiveReused() {
+        val cache = createCache()
+        val nested = Archive(Paths.get("libs/nested.jar"), listOf(createFile(0)))
+
+        val original = createLibrary("lib", listOf(createFile(1), nested))
+        transform(listOf(original), config, cache, streamingMode = true)
+
+        val modified = createLibrary("lib", listOf(createFile(2), nested))
+        val expected = transform(listOf(modified), config, cache = null, streamingMode = true)
+        val actual = transform(listOf(modified), config, cache, streamingMode = true)
+
+        Truth.assertThat(cache.getStats())
+            .isEqualTo(TransformationCache.Stats(hits = 0, misses = 2, nestedHits = 1,
+                nestedMisses = 1))
+        assertSameOutput(expected, actual)
+    }
+
+    @Test
+    fun changedTimestamp_reusedNestedArchiveRestamped() {
+        val cache = createCache()
+        val nested = Archive(Paths.get("libs/nested.jar"), listOf(createFile(0)))
+
+        val original = createLibrary("lib", listOf(createFile(1), nested))
+        transform(listOf(original), config, cache, streamingMode = true)
+
+        val modified = createLibrary("lib", listOf(createFile(2), nested))
+        val otherTimestamp = FileTime.fromMillis(1600000000000L)
+        val expected = transform(listOf(modified), config, cache = null, streamingMode = true,
+            timestamp = otherTimestamp)
+        val actual = transform(listOf(modified), config, cache, streamingMode = true,
+            timestamp = otherTimestamp)
+
+        Truth.assertThat(cache.getStats().nestedHits).isEqualTo(1)
+        assertSameOutput(expected, actual)
+    }
+
+    @Test
+    fun failedTransformation_reusedLibrariesNotWritten() {
+        val corpus = createCorpus(librariesCount = 2)
+        val cache = createCache()
+        transform(corpus, config, cache, streamingMode = true)
+
+        // There is no mapping for the type in the layout, which fails the transformation.
+        val broken = createLibrary("broken", listOf(
+            ArchiveFile(Paths.get("res/layout/layout.xml"),
+                ("<?xml version=\"1.0\" encoding=\"utf-8\"?>\n" +
+                    "<android.support.v7.preference.Unknown/>").toByteArray())))
+        val outputDir = Files.createTempDirectory("transformOutput")
+        val mappings = (corpus + broken)
+            .map { FileMapping(it, outputDir.resolve(it.name).toFile()) }
+        try {
+            Processor.createProcessor(config).transform(
+                input = mappings.toSet(),
+                copyUnmodifiedLibsAlso = true,
+                streamingMode = true,
+                parallelism = 1,
+                timestamp = timestamp,
+                cache = cache)
+            Assert.fail("The transformation should have failed")
+        } catch (e: IllegalArgumentException) {
+            // expected
+        }
+
+        Truth.assertThat(cache.getStats().hits).isEqualTo(2)
+        Truth.assertThat(outputDir.toFile().list()).isEmpty()
+    }
+
+    @Test
+    fun unmodifiedLibrariesNotCopied_resultSameAsUncached() {
+        val corpus = createCorpus(librariesCount = 2) + createLibrary("unmodified", listOf(
+            ArchiveFile(Paths.get("res/values.xml"), "<resources/>".toByteArray())))
+        val cache = createCache()
+
+        val expected = transformWithResult(corpus, null, copyUnmodifiedLibsAlso = false)
+        val cold = transformWithResult(corpus, cache, copyUnmodifiedLibsAlso = false)
+        val warm = transformWithResult(corpus, cache, copyUnmodifiedLibsAlso = false)
+
+        Truth.assertThat(cold.map { it.name }).containsExactlyElementsIn(expected.map { it.name })
+        Truth.assertThat(warm.map { it.name }).containsExactlyElementsIn(expected.map { it.name })
+        Truth.assertThat(warm).contains(corpus.last())
+        // The unmodified library was not written so there was nothing to cache.
+        Truth.assertThat(cache.getStats().hits).isEqualTo(2)
+    }
+
+    @Test
+    fun exceedingMaxSize_leastRecentlyUsedEvicted() {
+        val corpus = createCorpus(librariesCount = 2)
+        val cacheDir = Files.createTempDirectory("jetifierCache").toFile()
+        transform(corpus, config, TransformationCache(cacheDir), streamingMode = false)
+        val entries = cacheDir.walk().filter { it.isFile }.toList()
+        Truth.assertThat(entries).hasSize(2)
+        entries.forEach { it.setLastModified(timestamp.toMillis()) }
+
+        // Reusing the first library makes the second one the least recently used.
+        val cache = TransformationCache(cacheDir, maxSizeBytes = entries.map { it.length() }.sum())
+        transform(corpus.take(1), config, cache, streamingMode = false)
+        transform(listOf(createLibrary("other", listOf(createFile(0)))), config, cache,
+            streamingMode = false)
+        transform(corpus, config, cache, streamingMode = false)
+
+        Truth.assertThat(cache.getStats())
+            .isEqualTo(TransformationCache.Stats(hits = 2, misses = 2, nestedHits = 0,
+                nestedMisses = 0))
+    }
+
+    /**
+     * Compares cold and warm runs over a synthetic corpus. Not run by default, use it to check the
+     * impact of changes to the cache.
+     */
+    @Ignore
+    @Test
+    fun benchmark_coldVsWarm() {
+        val corpus = createCorpus(librariesCount = 200, filesPerLibrary = 100)
+        val cache = createCache()
+
+        val millis = listOf(null, cache, cache).map {
+            val start = System.nanoTime()
+            transform(corpus, config, it, streamingMode = true)
+            (System.nanoTime() - start) / 1000000
+        }
+
+        val (uncachedMillis, _, warmMillis) = millis
+        Truth.assertThat(warmMillis).isLessThan(uncachedMillis)
+        Truth.assertThat(cache.getStats().hits).isEqualTo(200)
+    }
+
+    private fun createConfig(newPreferenceType: String): Config {
+        return Config.fromOptional(
+            restrictToPackagePrefixes = setOf("android/support/v7/preference"),
+            rulesMap =
+                RewriteRulesMap(
+                    RewriteRule(from = "android/support/v7/preference/Preference(.+)",
+                        to = "ignore"),
+                    RewriteRule(from = "(.*)/R(.*)", to = "ignore")
+                ),
+            typesMap = TypesMap(
+                JavaType("android/support/v7/preference/Preference")
+                    to JavaType(newPreferenceType)
+            )
+        )
+    }
+
+    private fun createCache(): TransformationCache {
+        return TransformationCache(Files.createTempDirectory("jetifierCache").toFile())
+    }
+
+    private fun transform(
+        corpus: List<File>,
+        config: Config,
+        cache: TransformationCache?,
+        streamingMode: Boolean,
+        timestamp: FileTime = this.timestamp
+    ): List<File> {
+        val outputDir = Files.createTempDirectory("transformOutput")
+        val mappings = corpus.map { FileMapping(it, outputDir.resolve(it.name).toFile()) }
+        Processor.createProcessor(config).transform(
+            input = mappings.toSet(),
+            copyUnmodifiedLibsAlso = true,
+            streamingMode = streamingMode,
+            parallelism = 2,
+            timestamp = timestamp,
+            cache = cache)
+        return mappings.map { it.to }
+    }
+
+    private fun transformWithResult(
+        corpus: List<File>,
+        cache: TransformationCache?,
+        copyUnmodifiedLibsAlso: Boolean
+    ): Set<File> {
+        val outputDir = Files.createTempDirectory("transformOutput")
+        val mappings = corpus.map { FileMapping(it, outputDir.resolve(it.name).toFile()) }
+        return Processor.createProcessor(config).transform(
+            input = mappings.toSet(),
+            copyUnmodifiedLibsAlso = copyUnmodifiedLibsAlso,
+            streamingMode = true,
+            parallelism = 1,
+            timestamp = timestamp,
+            cache = cache)
+    }
+
+    private fun assertSameOutput(expected: List<File>, actual: List<File>) {
+        Truth.assertThat(actual.map { it.name }).isEqualTo(expected.map { it.name })
+        expected.zip(actual).forEach { (expectedFile, actualFile) ->
+            Truth.assertThat(actualFile.readBytes()).isEqualTo(expectedFile.readBytes())
+        }
+    }
+
+    private fun createCorpus(librariesCount: Int, filesPerLibrary: Int = 4): List<File> {
+        return (0 until librariesCount).map { i ->
+            val files = mutableListOf<ArchiveItem>()
+            for (j in 0 until filesPerLibrary) {
+                files.add(createFile(j))
+            }
+            files.add(Archive(Paths.get("libs/nested$i.jar"), listOf(createFile(i))))
+            createLibrary("lib$i", files)
+        }
+    }
+
+    private fun createFile(index: Int): ArchiveFile {
+        return when (index % 3) {
+            0 -> ArchiveFile(Paths.get("a/Preference$index.class"), classData)
+            1 -> ArchiveFile(Paths.get("res/layout/layout$index.xml"),
+                ("<?xml version=\"1.0\" encoding=\"utf-8\"?>\n" +
+                    "<android.support.v7.preference.Preference/>").toByteArray())
+            else -> ArchiveFile(Paths.get("proguard$index/proguard.txt"),
+                ("-keep public class * extends android.support.v7.preference.Preference { \n" +
+                    "  <fields>; \n" +
+                    "}").toByteArray())
+        }
+    }
+
+    private fun createLibrary(name: String, files: List<ArchiveItem>): File {
+        val path = Files.createTempDirectory("corpus").resolve("$name.jar")
+        return Archive(Paths.get("$name.jar"), files).writeSelfToFile(path, timestamp)
+    }
+}
@@ -24,6 +24,7 @@ import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * Reflection is expensive, so we cache information about methods
@@ -38,12 +39,13 @@ class ClassesInfoCache {
     private static final int CALL_TYPE_PROVIDER = 1;
     private static final int CALL_TYPE_PROVIDER_WITH_EVENT = 2;
 
-    private final Map<Class, CallbackInfo> mCallbackMap = new HashMap<>();
-    private final Map<Class, Boolean> mHasLifecycleMethods = new HashMap<>();
+    private final Map<Class, CallbackInfo> mCallbackMap = new ConcurrentHashMap<>();
+    private final Map<Class, Boolean> mHasLifecycleMethods = new ConcurrentHashMap<>();
 
     boolean hasLifecycleMethods(Class klass) {
-        if (mHasLifecycleMethods.containsKey(klass)) {
-            return mHasLifecycleMethods.get(klass);
+        Boolean hasLifecycleMethods = mHasLifecycleMethods.get(klass);
+        if (hasLifecycleMethods != null) {
+            return hasLifecycleMethods;
         }
 
         Method[] methods = getDeclaredMethods(klass);
@@ -0,0 +1,48 @@
+/*
+ * Copyright 2018 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package androidx.lifecycle;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.RestrictTo;
+
+/**
+ * An index of {@link GeneratedAdapter}s emitted by the lifecycle annotation processor for the
+ * observers of a single package. Once registered with {@link Lifecycling}, observers listed in
+ * the index are resolved with a table lookup instead of reflection.
+ *
+ * @hide
+ */
+@RestrictTo(RestrictTo.Scope.LIBRARY_GROUP)
+public interface GeneratedAdapterIndex {
+
+    /**
+     * @return The observer classes which have a {@link GeneratedAdapter}; the position of a class
+     * in this array is the index passed to {@link #createAdapter(int, Object)}
+     */
+    @NonNull
+    Class<?>[] getObserverClasses();
+
+    /**
+     * Creates the {@link GeneratedAdapter} for an observer.
+     *
+     * @param index    The position of the observer class in {@link #getObserverClasses()}
+     * @param receiver The observer, an instance of the class at {@code index}
+     * @return A new {@link GeneratedAdapter} wrapping {@code receiver}
+     */
+    @NonNull
+    GeneratedAdapter createAdapter(int index, @NonNull Object receiver);
+}
@@ -19,14 +19,15 @@ package androidx.lifecycle;
 import androidx.annotation.NonNull;
 import androidx.annotation.Nullable;
 import androidx.annotation.RestrictTo;
+import androidx.annotation.VisibleForTesting;
 
 import java.lang.reflect.Constructor;
 import java.lang.reflect.InvocationTargetException;
 import java.util.ArrayList;
 import java.util.Collections;
-import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * Internal class to handle lifecycle conversion etc.
@@ -37,11 +38,27 @@ import java.util.Map;
 public class Lifecycling {
 
     private static final int REFLECTIVE_CALLBACK = 1;
-    private static final int GENERATED_CALLBACK = 2;
+    @VisibleForTesting
+    static final int GENERATED_CALLBACK = 2;
 
-    private static Map<Class, Integer> sCallbackCache = new HashMap<>();
-    private static Map<Class, List<Constructor<? extends GeneratedAdapter>>> sClassToAdapters =
-            new HashMap<>();
+    private static final Map<Class, Integer> sCallbackCache = new ConcurrentHashMap<>();
+    private static final Map<Class, List<AdapterFactory>> sClassToAdapters =
+            new ConcurrentHashMap<>();
+    private static final Map<Class, AdapterFactory> sIndexedAdapters = new ConcurrentHashMap<>();
+
+    /**
+     * Registers a {@link GeneratedAdapterIndex} so that the observers it lists are resolved
+     * without reflection. Indexes should be registered before any of their observers are added
+     * to a {@link Lifecycle}, as already resolved classes are not looked up again.
+     *
+     * @param index The index to register
+     */
+    public static void registerGeneratedAdapterIndex(@NonNull GeneratedAdapterIndex index) {
+        Class<?>[] observerClasses = index.getObserverClasses();
+        for (int i = 0; i < observerClasses.length; i++) {
+            sIndexedAdapters.put(observerClasses[i], new IndexedAdapterFactory(index, i));
+        }
+    }
 
     @NonNull
     static GenericLifecycleObserver getCallback(Object object) {
@@ -56,36 +73,20 @@ public class Lifecycling {
         final Class<?> klass = object.getClass();
         int type = getObserverConstructorType(klass);
         if (type == GENERATED_CALLBACK) {
-            List<Constructor<? extends GeneratedAdapter>> constructors =
-                    sClassToAdapters.get(klass);
-            if (constructors.size() == 1) {
-                GeneratedAdapter generatedAdapter = createGeneratedAdapter(
-                        constructors.get(0), object);
+            List<AdapterFactory> factories = sClassToAdapters.get(klass);
+            if (factories.size() == 1) {
+                GeneratedAdapter generatedAdapter = factories.get(0).create(object);
                 return new SingleGeneratedAdapterObserver(generatedAdapter);
             }
-            GeneratedAdapter[] adapters = new GeneratedAdapter[constructors.size()];
-            for (int i = 0; i < constructors.size(); i++) {
-                adapters[i] = createGeneratedAdapter(constructors.get(i), object);
+            GeneratedAdapter[] adapters = new GeneratedAdapter[factories.size()];
+            for (int i = 0; i < factories.size(); i++) {
+                adapters[i] = factories.get(i).create(object);
             }
             return new CompositeGeneratedAdaptersObserver(adapters);
         }
         return new ReflectiveGenericLifecycleObserver(object);
     }
 
-    private static GeneratedAdapter createGeneratedAdapter(
-            Constructor<? extends GeneratedAdapter> constructor, Object object) {
-        //noinspection TryWithIdenticalCatches
-        try {
-            return constructor.newInstance(object);
-        } catch (IllegalAccessException e) {
-            throw new RuntimeException(e);
-        } catch (InstantiationException e) {
-            throw new RuntimeException(e);
-        } catch (InvocationTargetException e) {
-            throw new RuntimeException(e);
-        }
-    }
-
     @Nullable
     private static Constructor<? extends GeneratedAdapter> generatedConstructor(Class<?> klass) {
         try {
@@ -113,24 +114,32 @@ public class Lifecycling {
     }
 
     private static int getObserverConstructorType(Class<?> klass) {
-        if (sCallbackCache.containsKey(klass)) {
-            return sCallbackCache.get(klass);
+        Integer cachedType = sCallbackCache.get(klass);
+        if (cachedType != null) {
+            return cachedType;
         }
         int type = resolveObserverCallbackType(klass);
         sCallbackCache.put(klass, type);
         return type;
     }
 
-    private static int resolveObserverCallbackType(Class<?> klass) {
+    @VisibleForTesting
+    static int resolveObserverCallbackType(Class<?> klass) {
         // anonymous class bug:35073837
         if (klass.getCanonicalName() == null) {
             return REFLECTIVE_CALLBACK;
         }
 
+        AdapterFactory indexedFactory = sIndexedAdapters.get(klass);
+        if (indexedFactory != null) {
+            sClassToAdapters.put(klass, Collections.singletonList(indexedFactory));
+            return GENERATED_CALLBACK;
+        }
+
         Constructor<? extends GeneratedAdapter> constructor = generatedConstructor(klass);
         if (constructor != null) {
             sClassToAdapters.put(klass, Collections
-                    .<Constructor<? extends GeneratedAdapter>>singletonList(constructor));
+                    .<AdapterFactory>singletonList(new ConstructorAdapterFactory(constructor)));
             return GENERATED_CALLBACK;
         }
 
@@ -140,7 +149,7 @@ public class Lifecycling {
         }
 
         Class<?> superclass = klass.getSuperclass();
-        List<Constructor<? extends GeneratedAdapter>> adapterConstructors = null;
+        List<AdapterFactory> adapterConstructors = null;
         if (isLifecycleParent(superclass)) {
             if (getObserverConstructorType(superclass) == REFLECTIVE_CALLBACK) {
                 return REFLECTIVE_CALLBACK;
@@ -172,6 +181,50 @@ public class Lifecycling {
         return klass != null && LifecycleObserver.class.isAssignableFrom(klass);
     }
 
+    /**
+     * Creates the {@link GeneratedAdapter} for an observer.
+     */
+    private abstract static class AdapterFactory {
+        abstract GeneratedAdapter create(Object object);
+    }
+
+    private static class ConstructorAdapterFactory extends AdapterFactory {
+        private final Constructor<? extends GeneratedAdapter> mConstructor;
+
+        ConstructorAdapterFactory(Constructor<? extends GeneratedAdapter> constructor) {
+            mConstructor = constructor;
+        }
+
+        @Override
+        GeneratedAdapter create(Object object) {
+            //noinspection TryWithIdenticalCatches
+            try {
+                return mConstructor.newInstance(object);
+            } catch (IllegalAccessException e) {
+                throw new RuntimeException(e);
+            } catch (InstantiationException e) {
+                throw new RuntimeException(e);
+            } catch (InvocationTargetException e) {
+                throw new RuntimeException(e);
+            }
+        }
+    }
+
+    private static class IndexedAdapterFactory extends AdapterFactory {
+        private final GeneratedAdapterIndex mIndex;
+        private final int mPosition;
+
+        IndexedAdapterFactory(GeneratedAdapterIndex index, int position) {
+            mIndex = index;
+            mPosition = position;
+        }
+
+        @Override
+        GeneratedAdapter create(Object object) {
+            return mIndex.createAdapter(mPosition, object);
+        }
+    }
+
     /**
      * Create a name for an adapter class.
      */
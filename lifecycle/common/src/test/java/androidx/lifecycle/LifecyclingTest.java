@@ -17,17 +17,22 @@
 package androidx.lifecycle;
 
 import static org.hamcrest.CoreMatchers.instanceOf;
+import static org.hamcrest.CoreMatchers.is;
 import static org.hamcrest.MatcherAssert.assertThat;
+import static org.mockito.Mockito.mock;
 
+import androidx.lifecycle.observers.Base;
 import androidx.lifecycle.observers.DerivedSequence1;
 import androidx.lifecycle.observers.DerivedSequence2;
 import androidx.lifecycle.observers.DerivedWithNewMethods;
 import androidx.lifecycle.observers.DerivedWithNoNewMethods;
 import androidx.lifecycle.observers.DerivedWithOverridenMethodsWithLfAnnotation;
+import androidx.lifecycle.observers.IndexedObserver;
 import androidx.lifecycle.observers.InterfaceImpl1;
 import androidx.lifecycle.observers.InterfaceImpl2;
 import androidx.lifecycle.observers.InterfaceImpl3;
 
+import org.junit.Ignore;
 import org.junit.Test;
 import org.junit.runner.RunWith;
 import org.junit.runners.JUnit4;
@@ -35,6 +40,8 @@ import org.junit.runners.JUnit4;
 @RunWith(JUnit4.class)
 public class LifecyclingTest {
 
+    private static final int LOOKUP_COUNT = 100000;
+
     @Test
     public void testDerivedWithNewLfMethodsNoGeneratedAdapter() {
         GenericLifecycleObserver callback = Lifecycling.getCallback(new DerivedWithNewMethods());
@@ -80,4 +87,59 @@ public class LifecyclingTest {
         GenericLifecycleObserver callback1 = Lifecycling.getCallback(new DerivedSequence1());
         assertThat(callback1, instanceOf(SingleGeneratedAdapterObserver.class));
     }
+
+    @Test
+    public void testIndexedAdapter() {
+        registerIndexedObserver();
+        IndexedObserver observer = new IndexedObserver();
+        GenericLifecycleObserver callback = Lifecycling.getCallback(observer);
+        assertThat(callback, instanceOf(SingleGeneratedAdapterObserver.class));
+        callback.onStateChanged(mock(LifecycleOwner.class), Lifecycle.Event.ON_CREATE);
+        assertThat(observer.mCreateCount, is(1));
+    }
+
+    @Ignore("benchmark")
+    @Test
+    public void benchmark_indexedLookup() {
+        registerIndexedObserver();
+        // warm up both paths, Base_LifecycleAdapter is found through Class.forName
+        timeLookups(IndexedObserver.class, 1000);
+        timeLookups(Base.class, 1000);
+
+        long indexedNanos = timeLookups(IndexedObserver.class, LOOKUP_COUNT);
+        long reflectiveNanos = timeLookups(Base.class, LOOKUP_COUNT);
+        assertThat(indexedNanos < reflectiveNanos, is(true));
+    }
+
+    private static long timeLookups(Class<?> klass, int count) {
+        long start = System.nanoTime();
+        for (int i = 0; i < count; i++) {
+            assertThat(Lifecycling.resolveObserverCallbackType(klass),
+                    is(Lifecycling.GENERATED_CALLBACK));
+        }
+        return System.nanoTime() - start;
+    }
+
+    private static void registerIndexedObserver() {
+        Lifecycling.registerGeneratedAdapterIndex(new GeneratedAdapterIndex() {
+            @Override
+            public Class<?>[] getObserverClasses() {
+                return new Class<?>[]{IndexedObserver.class};
+            }
+
+            @Override
+            public GeneratedAdapter createAdapter(int index, Object receiver) {
+                final IndexedObserver observer = (IndexedObserver) receiver;
+                return new GeneratedAdapter() {
+                    @Override
+                    public void callMethods(LifecycleOwner source, Lifecycle.Event event,
+                            boolean onAny, MethodCallsLogger logger) {
+                        if (!onAny && event == Lifecycle.Event.ON_CREATE) {
+                            observer.onCreate();
+                        }
+                    }
+                };
+            }
+        });
+    }
 }
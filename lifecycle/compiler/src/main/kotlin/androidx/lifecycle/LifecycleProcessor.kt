@@ -16,18 +16,44 @@
 
 package androidx.lifecycle
 
+import androidx.lifecycle.model.AdapterClass
 import javax.annotation.processing.AbstractProcessor
 import javax.annotation.processing.RoundEnvironment
 import javax.annotation.processing.SupportedAnnotationTypes
+import javax.annotation.processing.SupportedOptions
 import javax.lang.model.SourceVersion
 import javax.lang.model.element.TypeElement
 
+/**
+ * Fully qualified name of the adapter index to generate. When set, the processor also writes a
+ * class with a static `install()` method which registers every generated adapter with
+ * [Lifecycling], so that they are resolved without reflection.
+ */
+const val ADAPTER_INDEX_OPTION = "lifecycle.adapterIndex"
+
 @SupportedAnnotationTypes("androidx.lifecycle.OnLifecycleEvent")
+@SupportedOptions(ADAPTER_INDEX_OPTION)
 class LifecycleProcessor : AbstractProcessor() {
+    private val indexedAdapters = mutableListOf<AdapterClass>()
+    private var indexWritten = false
+
     override fun process(annotations: MutableSet<out TypeElement>,
                          roundEnv: RoundEnvironment): Boolean {
         val input = collectAndVerifyInput(processingEnv, roundEnv)
-        writeModels(transformToOutput(processingEnv, input), processingEnv)
+        val adapters = transformToOutput(processingEnv, input)
+        writeModels(adapters, processingEnv)
+        val indexName = processingEnv.options[ADAPTER_INDEX_OPTION]
+        if (indexName != null && !indexWritten) {
+            indexedAdapters.addAll(adapters)
+            // The adapters are written in the round which finds their observers, so there is
+            // always a round after it. The index is written in the first such round which finds no
+            // more observers, since sources created in the last round are not processed by javac.
+            // Observers generated by other processors after that keep the reflective lookup.
+            if (adapters.isEmpty() && indexedAdapters.isNotEmpty()) {
+                writeAdapterIndex(indexName, indexedAdapters, processingEnv)
+                indexWritten = true
+            }
+        }
         return true
     }
 
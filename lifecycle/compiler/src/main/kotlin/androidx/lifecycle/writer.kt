@@ -20,13 +20,17 @@ import androidx.lifecycle.model.AdapterClass
 import androidx.lifecycle.model.EventMethodCall
 import androidx.lifecycle.model.getAdapterName
 import com.squareup.javapoet.AnnotationSpec
+import com.squareup.javapoet.ArrayTypeName
 import com.squareup.javapoet.ClassName
+import com.squareup.javapoet.CodeBlock
 import com.squareup.javapoet.FieldSpec
 import com.squareup.javapoet.JavaFile
 import com.squareup.javapoet.MethodSpec
 import com.squareup.javapoet.ParameterSpec
+import com.squareup.javapoet.ParameterizedTypeName
 import com.squareup.javapoet.TypeName
 import com.squareup.javapoet.TypeSpec
+import com.squareup.javapoet.WildcardTypeName
 import javax.annotation.processing.ProcessingEnvironment
 import javax.lang.model.element.Modifier
 import javax.lang.model.element.TypeElement
@@ -129,6 +133,99 @@ private fun writeAdapter(adapter: AdapterClass, processingEnv: ProcessingEnviron
     generateKeepRule(adapter.type, processingEnv)
 }
 
+/**
+ * Writes one [GeneratedAdapterIndex] per package, which can invoke the package private adapter
+ * constructors, and a public class named [indexName] whose static `install()` method registers
+ * all of them. Observers in the unnamed package are left out and keep using reflection.
+ */
+fun writeAdapterIndex(indexName: String, adapters: List<AdapterClass>,
+                      processingEnv: ProcessingEnvironment) {
+    val indexClassName = ClassName.bestGuess(indexName)
+    val packageIndexName = "${indexClassName.simpleName()}_PackageIndex"
+    val installMethod = MethodSpec.methodBuilder("install")
+            .addModifiers(Modifier.PUBLIC, Modifier.STATIC)
+            .returns(TypeName.VOID)
+    adapters.filterNot { it.type.getPackage().isUnnamed }
+            .sortedBy { it.type.qualifiedName.toString() }
+            .groupBy { it.type.getPackageQName() }
+            .toSortedMap()
+            .forEach { (packageName, packageAdapters) ->
+                writePackageIndex(packageName, packageIndexName, packageAdapters, processingEnv)
+                installMethod.addStatement("$T.registerGeneratedAdapterIndex(new $T())",
+                        Lifecycling::class.java, ClassName.get(packageName, packageIndexName))
+            }
+
+    val indexTypeSpecBuilder = TypeSpec.classBuilder(indexClassName)
+            .addModifiers(Modifier.PUBLIC, Modifier.FINAL)
+            .addMethod(MethodSpec.constructorBuilder().addModifiers(Modifier.PRIVATE).build())
+            .addMethod(installMethod.build())
+
+    addGeneratedAnnotationIfAvailable(indexTypeSpecBuilder, processingEnv)
+
+    JavaFile.builder(indexClassName.packageName(), indexTypeSpecBuilder.build())
+            .build().writeTo(processingEnv.filer)
+}
+
+private fun writePackageIndex(packageName: String, name: String, adapters: List<AdapterClass>,
+                              processingEnv: ProcessingEnvironment) {
+    val classArrayType = ArrayTypeName.of(
+            ParameterizedTypeName.get(ClassName.get(Class::class.java),
+                    WildcardTypeName.subtypeOf(TypeName.OBJECT)))
+    val observerClasses = FieldSpec.builder(classArrayType, "OBSERVER_CLASSES",
+            Modifier.PRIVATE, Modifier.STATIC, Modifier.FINAL)
+            .initializer(CodeBlock.builder().apply {
+                add("{\n").indent()
+                adapters.forEachIndexed { index, adapter ->
+                    add("$T.class", ClassName.get(adapter.type))
+                    add(if (index < adapters.size - 1) ",\n" else "\n")
+                }
+                unindent().add("}")
+            }.build())
+            .build()
+
+    val getObserverClasses = MethodSpec.methodBuilder("getObserverClasses")
+            .addModifiers(Modifier.PUBLIC)
+            .addAnnotation(Override::class.java)
+            .returns(classArrayType)
+            .addStatement("return $N", observerClasses)
+            .build()
+
+    val indexParam = ParameterSpec.builder(TypeName.INT, "index").build()
+    val receiverParam = ParameterSpec.builder(TypeName.OBJECT, "receiver").build()
+    val createAdapter = MethodSpec.methodBuilder("createAdapter")
+            .addModifiers(Modifier.PUBLIC)
+            .addAnnotation(Override::class.java)
+            .returns(ClassName.get(GeneratedAdapter::class.java))
+            .addParameter(indexParam)
+            .addParameter(receiverParam)
+            .apply {
+                beginControlFlow("switch ($N)", indexParam)
+                adapters.forEachIndexed { index, adapter ->
+                    val observerType = ClassName.get(adapter.type)
+                    val adapterType = ClassName.get(packageName, getAdapterName(adapter.type))
+                    addStatement("case $L: return new $T(($T) $N)", index, adapterType,
+                            observerType, receiverParam)
+                }
+                addStatement("default: throw new $T($S + $N)",
+                        IllegalArgumentException::class.java, "Unknown observer index ",
+                        indexParam)
+                endControlFlow()
+            }
+            .build()
+
+    val packageIndexTypeSpecBuilder = TypeSpec.classBuilder(name)
+            .addModifiers(Modifier.PUBLIC, Modifier.FINAL)
+            .addSuperinterface(ClassName.get(GeneratedAdapterIndex::class.java))
+            .addField(observerClasses)
+            .addMethod(getObserverClasses)
+            .addMethod(createAdapter)
+
+    addGeneratedAnnotationIfAvailable(packageIndexTypeSpecBuilder, processingEnv)
+
+    JavaFile.builder(packageName, packageIndexTypeSpecBuilder.build())
+            .build().writeTo(processingEnv.filer)
+}
+
 private fun addGeneratedAnnotationIfAvailable(adapterTypeSpecBuilder: TypeSpec.Builder,
                                               processingEnv: ProcessingEnvironment) {
     val generatedAnnotationAvailable = processingEnv
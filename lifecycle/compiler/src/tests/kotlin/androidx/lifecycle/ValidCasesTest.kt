@@ -112,6 +112,20 @@ class ValidCasesTest {
                 .and().generatesProGuardRule("bar.DifferentPackagesDerived2.pro")
     }
 
+    @Test
+    fun testAdapterIndex() {
+        JavaSourcesSubject.assertThat(load("foo.InheritanceOk2", ""))
+                .withCompilerOptions("-A$ADAPTER_INDEX_OPTION=foo.LifecycleAdapters")
+                .processedWith(LifecycleProcessor())
+                // the index must not be created in the last round, which javac warns about
+                .compilesWithoutWarnings().and().generatesSources(
+                load("foo.InheritanceOk2Base_LifecycleAdapter", "expected"),
+                load("foo.InheritanceOk2Derived_LifecycleAdapter", "expected"),
+                load("foo.LifecycleAdapters_PackageIndex", "expected"),
+                load("foo.LifecycleAdapters", "expected")
+        )
+    }
+
     private fun <T> CompileTester.GeneratedPredicateClause<T>.generatesProGuardRule(name: String):
             CompileTester.SuccessfulFileClause<T> {
         return generatesFileNamed(StandardLocation.CLASS_OUTPUT, "", "META-INF/proguard/$name")
@@ -0,0 +1,77 @@
+/*
+ * Copyright 2018 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package androidx.lifecycle;
+
+/**
+ * A {@link MutableLiveData} which dispatches at most one value per display frame.
+ * <p>
+ * Both {@link #setValue(Object)} and {@link #postValue(Object)} may be called from any thread and
+ * only record the new value; right before the next frame is drawn, the most recent value is
+ * dispatched to the observers and all of the values set in between are dropped. This makes it
+ * suitable for producers which update much faster than the UI can render, such as sensor readings
+ * or download progress.
+ * <p>
+ * Since values are dispatched asynchronously, {@link #getValue()} keeps returning the previously
+ * dispatched value until the next frame.
+ *
+ * @param <T> The type of data hold by this instance
+ */
+@SuppressWarnings("WeakerAccess")
+public class ConflatedLiveData<T> extends MutableLiveData<T> {
+
+    private static final Object NOT_SET = new Object();
+
+    private final Object mLock = new Object();
+    // Guarded by mLock.
+    private Object mPendingValue = NOT_SET;
+
+    private final Runnable mDispatchRunnable = new Runnable() {
+        @SuppressWarnings("unchecked")
+        @Override
+        public void run() {
+            Object value;
+            synchronized (mLock) {
+                value = mPendingValue;
+                mPendingValue = NOT_SET;
+            }
+            ConflatedLiveData.super.setValue((T) value);
+        }
+    };
+
+    @Override
+    public void postValue(T value) {
+        boolean scheduleDispatch;
+        synchronized (mLock) {
+            scheduleDispatch = mPendingValue == NOT_SET;
+            mPendingValue = value;
+        }
+        if (scheduleDispatch) {
+            DispatchScheduler.getInstance().postFrameCallback(mDispatchRunnable);
+        }
+    }
+
+    /**
+     * Sets the value to be dispatched on the next frame. Unlike {@link MutableLiveData}, this
+     * method does not need to be called on the main thread and does not dispatch synchronously.
+     *
+     * @param value The new value
+     */
+    @Override
+    public void setValue(T value) {
+        postValue(value);
+    }
+}
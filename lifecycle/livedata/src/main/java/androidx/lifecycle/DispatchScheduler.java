@@ -0,0 +1,125 @@
+/*
+ * Copyright 2018 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package androidx.lifecycle;
+
+import android.os.Build;
+import android.os.Handler;
+import android.os.Looper;
+import android.os.SystemClock;
+import android.view.Choreographer;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.VisibleForTesting;
+
+/**
+ * Schedules the main thread callbacks of the conflating and rate limiting {@link LiveData}s.
+ */
+abstract class DispatchScheduler {
+
+    private static volatile DispatchScheduler sInstance;
+
+    static DispatchScheduler getInstance() {
+        DispatchScheduler instance = sInstance;
+        if (instance == null) {
+            synchronized (DispatchScheduler.class) {
+                instance = sInstance;
+                if (instance == null) {
+                    instance = new MainThreadScheduler();
+                    sInstance = instance;
+                }
+            }
+        }
+        return instance;
+    }
+
+    @VisibleForTesting
+    static void setInstance(DispatchScheduler instance) {
+        sInstance = instance;
+    }
+
+    /**
+     * @return The current time in milliseconds, on the same clock as {@link #postDelayed}
+     */
+    abstract long uptimeMillis();
+
+    /**
+     * Runs the given runnable on the main thread, right before the next frame is drawn. May be
+     * called from any thread.
+     */
+    abstract void postFrameCallback(@NonNull Runnable runnable);
+
+    /**
+     * Runs the given runnable on the main thread after the given delay. May be called from any
+     * thread.
+     */
+    abstract void postDelayed(@NonNull Runnable runnable, long delayMillis);
+
+    /**
+     * Cancels a runnable posted with {@link #postDelayed}.
+     */
+    abstract void removeCallbacks(@NonNull Runnable runnable);
+
+    private static class MainThreadScheduler extends DispatchScheduler {
+        // Used before Choreographer is available.
+        private static final long FALLBACK_FRAME_DELAY_MS = 16;
+
+        private final Handler mHandler = new Handler(Looper.getMainLooper());
+
+        @Override
+        long uptimeMillis() {
+            return SystemClock.uptimeMillis();
+        }
+
+        @Override
+        void postFrameCallback(@NonNull final Runnable runnable) {
+            if (Looper.myLooper() == Looper.getMainLooper()) {
+                postFrameCallbackOnMainThread(runnable);
+            } else {
+                mHandler.post(new Runnable() {
+                    @Override
+                    public void run() {
+                        postFrameCallbackOnMainThread(runnable);
+                    }
+                });
+            }
+        }
+
+        private void postFrameCallbackOnMainThread(final Runnable runnable) {
+            if (Build.VERSION.SDK_INT < 16) {
+                mHandler.postDelayed(runnable, FALLBACK_FRAME_DELAY_MS);
+                return;
+            }
+            // Choreographer instances are per looper, so this has to run on the main thread.
+            Choreographer.getInstance().postFrameCallback(new Choreographer.FrameCallback() {
+                @Override
+                public void doFrame(long frameTimeNanos) {
+                    runnable.run();
+                }
+            });
+        }
+
+        @Override
+        void postDelayed(@NonNull Runnable runnable, long delayMillis) {
+            mHandler.postDelayed(runnable, delayMillis);
+        }
+
+        @Override
+        void removeCallbacks(@NonNull Runnable runnable) {
+            mHandler.removeCallbacks(runnable);
+        }
+    }
+}
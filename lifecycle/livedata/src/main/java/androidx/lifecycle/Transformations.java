@@ -32,6 +32,8 @@ import androidx.arch.core.util.Function;
 @SuppressWarnings("WeakerAccess")
 public class Transformations {
 
+    private static final Object NOT_SET = new Object();
+
     private Transformations() {
     }
 
@@ -158,4 +160,136 @@ public class Transformations {
         });
         return result;
     }
+
+    /**
+     * Returns a {@code LiveData} which only emits the values of the input {@code source}
+     * {@code LiveData} that differ from the previously emitted one, as determined by
+     * {@link Object#equals(Object)}. The first value set on {@code source} is always emitted.
+     * <p>
+     * This is useful for sources which are refreshed often without their content changing, such as
+     * the result of a database query, to avoid redundant work in the observers.
+     *
+     * @param source the {@code LiveData} to filter
+     * @param <X>    the generic type parameter of {@code source}
+     * @return a LiveData which emits the distinct consecutive values of {@code source}
+     */
+    @MainThread
+    public static <X> LiveData<X> distinctUntilChanged(@NonNull LiveData<X> source) {
+        final MediatorLiveData<X> result = new MediatorLiveData<>();
+        result.addSource(source, new Observer<X>() {
+            boolean mFirstTime = true;
+
+            @Override
+            public void onChanged(@Nullable X x) {
+                X previous = result.getValue();
+                if (mFirstTime || (previous == null ? x != null : !previous.equals(x))) {
+                    mFirstTime = false;
+                    result.setValue(x);
+                }
+            }
+        });
+        return result;
+    }
+
+    /**
+     * Returns a {@code LiveData} which emits the values of the input {@code source}
+     * {@code LiveData} at most once per {@code intervalMillis}.
+     * <p>
+     * A value set on {@code source} after a quiet period is emitted right away. Values set while
+     * the interval since the last emission has not elapsed yet are conflated, and only the most
+     * recent of them is emitted once it does, so the final value of a burst is never lost.
+     * <p>
+     * This method is analogous to {@link io.reactivex.Observable#throttleLatest}.
+     *
+     * @param source         the {@code LiveData} to rate limit
+     * @param intervalMillis the minimum time between two emissions, in milliseconds
+     * @param <X>            the generic type parameter of {@code source}
+     * @return a LiveData which emits the values of {@code source} at most once per interval
+     */
+    @MainThread
+    public static <X> LiveData<X> throttle(@NonNull LiveData<X> source, long intervalMillis) {
+        return rateLimit(source, intervalMillis, true);
+    }
+
+    /**
+     * Returns a {@code LiveData} which emits the most recent value of the input {@code source}
+     * {@code LiveData} at the end of every {@code intervalMillis} period in which it changed.
+     * <p>
+     * Unlike {@link #throttle(LiveData, long)}, the first value of a burst is not emitted
+     * immediately; emissions are aligned to multiples of {@code intervalMillis}, and no timer is
+     * kept running while {@code source} does not change.
+     * <p>
+     * This method is analogous to {@link io.reactivex.Observable#sample}.
+     *
+     * @param source         the {@code LiveData} to sample
+     * @param intervalMillis the sampling period, in milliseconds
+     * @param <X>            the generic type parameter of {@code source}
+     * @return a LiveData which emits the latest value of {@code source} once per period
+     */
+    @MainThread
+    public static <X> LiveData<X> sample(@NonNull LiveData<X> source, long intervalMillis) {
+        return rateLimit(source, intervalMillis, false);
+    }
+
+    private static <X> LiveData<X> rateLimit(LiveData<X> source, long intervalMillis,
+            boolean emitLeading) {
+        if (intervalMillis <= 0) {
+            throw new IllegalArgumentException("intervalMillis must be positive");
+        }
+        MediatorLiveData<X> result = new MediatorLiveData<>();
+        result.addSource(source, new RateLimitingObserver<>(result, intervalMillis, emitLeading));
+        return result;
+    }
+
+    private static class RateLimitingObserver<X> implements Observer<X>, Runnable {
+        private final MediatorLiveData<X> mResult;
+        private final long mIntervalMillis;
+        private final boolean mEmitLeading;
+
+        // All of these are only accessed on the main thread.
+        private Object mPendingValue = NOT_SET;
+        private boolean mScheduled;
+        private long mNextEmissionMillis;
+
+        RateLimitingObserver(MediatorLiveData<X> result, long intervalMillis,
+                boolean emitLeading) {
+            mResult = result;
+            mIntervalMillis = intervalMillis;
+            mEmitLeading = emitLeading;
+        }
+
+        @Override
+        public void onChanged(@Nullable X x) {
+            DispatchScheduler scheduler = DispatchScheduler.getInstance();
+            long now = scheduler.uptimeMillis();
+            if (mEmitLeading && !mScheduled && now >= mNextEmissionMillis) {
+                emit(x, now);
+                return;
+            }
+            mPendingValue = x;
+            if (!mScheduled) {
+                mScheduled = true;
+                long delay = mEmitLeading
+                        ? mNextEmissionMillis - now
+                        : mIntervalMillis - now % mIntervalMillis;
+                scheduler.postDelayed(this, delay);
+            }
+        }
+
+        @SuppressWarnings("unchecked")
+        @Override
+        public void run() {
+            mScheduled = false;
+            if (mPendingValue != NOT_SET) {
+                X value = (X) mPendingValue;
+                mPendingValue = NOT_SET;
+                emit(value, DispatchScheduler.getInstance().uptimeMillis());
+            }
+        }
+
+        private void emit(X value, long now) {
+            mNextEmissionMillis = now + mIntervalMillis;
+            mResult.setValue(value);
+        }
+    }
 }
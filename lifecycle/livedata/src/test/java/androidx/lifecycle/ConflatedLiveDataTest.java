@@ -0,0 +1,128 @@
+/*
+ * Copyright 2018 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package androidx.lifecycle;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import androidx.annotation.Nullable;
+import androidx.arch.core.executor.ArchTaskExecutor;
+import androidx.lifecycle.util.InstantTaskExecutor;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+@RunWith(JUnit4.class)
+public class ConflatedLiveDataTest {
+
+    private LifecycleOwner mOwner;
+    private TestDispatchScheduler mScheduler;
+
+    @Before
+    public void setup() {
+        ArchTaskExecutor.getInstance().setDelegate(new InstantTaskExecutor());
+        mScheduler = new TestDispatchScheduler();
+        DispatchScheduler.setInstance(mScheduler);
+        mOwner = mock(LifecycleOwner.class);
+        LifecycleRegistry registry = new LifecycleRegistry(mOwner);
+        when(mOwner.getLifecycle()).thenReturn(registry);
+        registry.handleLifecycleEvent(Lifecycle.Event.ON_CREATE);
+        registry.handleLifecycleEvent(Lifecycle.Event.ON_START);
+    }
+
+    @After
+    public void tearDown() {
+        DispatchScheduler.setInstance(null);
+        ArchTaskExecutor.getInstance().setDelegate(null);
+    }
+
+    @Test
+    public void testDispatchesOnFrame() {
+        ConflatedLiveData<String> liveData = new ConflatedLiveData<>();
+        RecordingObserver<String> observer = new RecordingObserver<>();
+        liveData.observe(mOwner, observer);
+        liveData.setValue("a");
+        assertThat(observer.mValues.isEmpty(), is(true));
+        assertThat(liveData.getValue(), nullValue());
+        mScheduler.doFrame();
+        assertThat(observer.mValues, is(Arrays.asList("a")));
+        assertThat(liveData.getValue(), is("a"));
+    }
+
+    @Test
+    public void testConflatesValuesWithinFrame() {
+        ConflatedLiveData<String> liveData = new ConflatedLiveData<>();
+        RecordingObserver<String> observer = new RecordingObserver<>();
+        liveData.observe(mOwner, observer);
+        liveData.setValue("a");
+        liveData.postValue("b");
+        liveData.setValue("c");
+        mScheduler.doFrame();
+        liveData.postValue("d");
+        mScheduler.doFrame();
+        mScheduler.doFrame();
+        assertThat(observer.mValues, is(Arrays.asList("c", "d")));
+    }
+
+    @Test
+    public void testNullValue() {
+        ConflatedLiveData<String> liveData = new ConflatedLiveData<>();
+        RecordingObserver<String> observer = new RecordingObserver<>();
+        liveData.observe(mOwner, observer);
+        liveData.setValue("a");
+        mScheduler.doFrame();
+        liveData.setValue(null);
+        mScheduler.doFrame();
+        assertThat(observer.mValues, is(Arrays.asList("a", null)));
+    }
+
+    @Test
+    public void testHighFrequencyProducer() {
+        // One second of a 500Hz producer, rendered at 60 frames per second.
+        ConflatedLiveData<Integer> liveData = new ConflatedLiveData<>();
+        RecordingObserver<Integer> observer = new RecordingObserver<>();
+        liveData.observe(mOwner, observer);
+        int updates = 0;
+        for (int frame = 0; frame < 60; frame++) {
+            for (int i = 0; i < 500 / 60; i++) {
+                liveData.postValue(updates++);
+            }
+            mScheduler.doFrame();
+        }
+        assertThat(observer.mValues.size(), is(60));
+        assertThat(observer.mValues.get(59), is(updates - 1));
+    }
+
+    static class RecordingObserver<T> implements Observer<T> {
+        final List<T> mValues = new ArrayList<>();
+
+        @Override
+        public void onChanged(@Nullable T value) {
+            mValues.add(value);
+        }
+    }
+}
@@ -0,0 +1,101 @@
+/*
+ * Copyright 2018 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package androidx.lifecycle;
+
+import androidx.annotation.NonNull;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+
+/**
+ * A {@link DispatchScheduler} driven by a manually advanced clock.
+ */
+class TestDispatchScheduler extends DispatchScheduler {
+    private long mNowMillis;
+    private final List<Runnable> mFrameCallbacks = new ArrayList<>();
+    private final List<DelayedRunnable> mDelayedRunnables = new ArrayList<>();
+
+    @Override
+    long uptimeMillis() {
+        return mNowMillis;
+    }
+
+    @Override
+    void postFrameCallback(@NonNull Runnable runnable) {
+        mFrameCallbacks.add(runnable);
+    }
+
+    @Override
+    void postDelayed(@NonNull Runnable runnable, long delayMillis) {
+        mDelayedRunnables.add(new DelayedRunnable(runnable, mNowMillis + delayMillis));
+    }
+
+    @Override
+    void removeCallbacks(@NonNull Runnable runnable) {
+        Iterator<DelayedRunnable> iterator = mDelayedRunnables.iterator();
+        while (iterator.hasNext()) {
+            if (iterator.next().mRunnable == runnable) {
+                iterator.remove();
+            }
+        }
+    }
+
+    /**
+     * Runs the callbacks posted for the next frame.
+     */
+    void doFrame() {
+        List<Runnable> callbacks = new ArrayList<>(mFrameCallbacks);
+        mFrameCallbacks.clear();
+        for (Runnable callback : callbacks) {
+            callback.run();
+        }
+    }
+
+    /**
+     * Advances the clock, running the delayed runnables which become due in order.
+     */
+    void advanceBy(long millis) {
+        long target = mNowMillis + millis;
+        while (true) {
+            DelayedRunnable next = null;
+            for (DelayedRunnable delayed : mDelayedRunnables) {
+                if (delayed.mAtMillis <= target
+                        && (next == null || delayed.mAtMillis < next.mAtMillis)) {
+                    next = delayed;
+                }
+            }
+            if (next == null) {
+                break;
+            }
+            mDelayedRunnables.remove(next);
+            mNowMillis = Math.max(mNowMillis, next.mAtMillis);
+            next.mRunnable.run();
+        }
+        mNowMillis = target;
+    }
+
+    private static class DelayedRunnable {
+        final Runnable mRunnable;
+        final long mAtMillis;
+
+        DelayedRunnable(Runnable runnable, long atMillis) {
+            mRunnable = runnable;
+            mAtMillis = atMillis;
+        }
+    }
+}
@@ -30,20 +30,31 @@ import androidx.arch.core.util.Function;
 import androidx.arch.core.executor.ArchTaskExecutor;
 import androidx.lifecycle.util.InstantTaskExecutor;
 
+import org.junit.After;
 import org.junit.Before;
 import org.junit.Test;
 import org.junit.runner.RunWith;
 import org.junit.runners.JUnit4;
 
+import java.util.Arrays;
+
 @SuppressWarnings("unchecked")
 @RunWith(JUnit4.class)
 public class TransformationsTest {
 
     private LifecycleOwner mOwner;
+    private TestDispatchScheduler mScheduler;
 
     @Before
     public void swapExecutorDelegate() {
         ArchTaskExecutor.getInstance().setDelegate(new InstantTaskExecutor());
+        mScheduler = new TestDispatchScheduler();
+        DispatchScheduler.setInstance(mScheduler);
+    }
+
+    @After
+    public void resetScheduler() {
+        DispatchScheduler.setInstance(null);
     }
 
     @Before
@@ -213,4 +224,92 @@ public class TransformationsTest {
         squared.observeForever(observer);
         verify(observer, only()).onChanged(4);
     }
+
+    @Test
+    public void testDistinctUntilChanged() {
+        MutableLiveData<String> source = new MutableLiveData<>();
+        LiveData<String> distinct = Transformations.distinctUntilChanged(source);
+        ConflatedLiveDataTest.RecordingObserver<String> observer =
+                new ConflatedLiveDataTest.RecordingObserver<>();
+        distinct.observe(mOwner, observer);
+        source.setValue(null);
+        source.setValue(null);
+        source.setValue("a");
+        source.setValue("a");
+        source.setValue(new String("a"));
+        source.setValue("b");
+        source.setValue(null);
+        assertThat(observer.mValues, is(Arrays.asList(null, "a", "b", null)));
+    }
+
+    @Test
+    public void testThrottle() {
+        MutableLiveData<Integer> source = new MutableLiveData<>();
+        LiveData<Integer> throttled = Transformations.throttle(source, 100);
+        ConflatedLiveDataTest.RecordingObserver<Integer> observer =
+                new ConflatedLiveDataTest.RecordingObserver<>();
+        throttled.observe(mOwner, observer);
+        // The first value is emitted right away.
+        source.setValue(1);
+        assertThat(observer.mValues, is(Arrays.asList(1)));
+        // The rest of the burst is conflated until the end of the interval.
+        mScheduler.advanceBy(10);
+        source.setValue(2);
+        source.setValue(3);
+        mScheduler.advanceBy(89);
+        assertThat(observer.mValues, is(Arrays.asList(1)));
+        mScheduler.advanceBy(1);
+        assertThat(observer.mValues, is(Arrays.asList(1, 3)));
+        // Another value within the next interval waits for it to elapse.
+        source.setValue(4);
+        mScheduler.advanceBy(100);
+        assertThat(observer.mValues, is(Arrays.asList(1, 3, 4)));
+        // After a quiet period, values are emitted right away again.
+        mScheduler.advanceBy(500);
+        source.setValue(5);
+        assertThat(observer.mValues, is(Arrays.asList(1, 3, 4, 5)));
+    }
+
+    @Test
+    public void testSample() {
+        MutableLiveData<Integer> source = new MutableLiveData<>();
+        LiveData<Integer> sampled = Transformations.sample(source, 100);
+        ConflatedLiveDataTest.RecordingObserver<Integer> observer =
+                new ConflatedLiveDataTest.RecordingObserver<>();
+        sampled.observe(mOwner, observer);
+        mScheduler.advanceBy(30);
+        source.setValue(1);
+        source.setValue(2);
+        assertThat(observer.mValues.isEmpty(), is(true));
+        mScheduler.advanceBy(70);
+        assertThat(observer.mValues, is(Arrays.asList(2)));
+        // Nothing is emitted for periods without changes.
+        mScheduler.advanceBy(300);
+        assertThat(observer.mValues, is(Arrays.asList(2)));
+        source.setValue(3);
+        mScheduler.advanceBy(100);
+        assertThat(observer.mValues, is(Arrays.asList(2, 3)));
+    }
+
+    @Test
+    public void testHighFrequencyThrottle() {
+        // One second of a 1kHz producer throttled to 50ms.
+        MutableLiveData<Integer> source = new MutableLiveData<>();
+        LiveData<Integer> throttled = Transformations.throttle(source, 50);
+        ConflatedLiveDataTest.RecordingObserver<Integer> observer =
+                new ConflatedLiveDataTest.RecordingObserver<>();
+        throttled.observe(mOwner, observer);
+        for (int i = 0; i < 1000; i++) {
+            source.setValue(i);
+            mScheduler.advanceBy(1);
+        }
+        mScheduler.advanceBy(50);
+        assertThat(observer.mValues.size() <= 21, is(true));
+        assertThat(observer.mValues.get(observer.mValues.size() - 1), is(999));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testThrottle_invalidInterval() {
+        Transformations.throttle(new MutableLiveData<Integer>(), 0);
+    }
 }
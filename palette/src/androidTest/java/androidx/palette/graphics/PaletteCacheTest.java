@@ -0,0 +1,226 @@
+/*
+ * Copyright 2018 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package androidx.palette.graphics;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import android.graphics.Bitmap;
+import android.support.test.filters.LargeTest;
+import android.support.test.filters.SmallTest;
+import android.support.test.runner.AndroidJUnit4;
+import android.util.Log;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import org.junit.Before;
+import org.junit.Ignore;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+@RunWith(AndroidJUnit4.class)
+public class PaletteCacheTest {
+
+    private static final String TAG = "PaletteCacheTest";
+    private static final int BENCHMARK_IMAGE_COUNT = 20;
+    private static final int BENCHMARK_BINDS = 500;
+
+    private Bitmap mBitmap;
+    private QueueExecutor mExecutor;
+
+    @Before
+    public void setUp() {
+        mBitmap = TestUtils.loadSampleBitmap();
+        mExecutor = new QueueExecutor();
+    }
+
+    @Test
+    @SmallTest
+    public void testGenerate_isCached() {
+        final PaletteCache cache = new PaletteCache(4, mExecutor);
+        assertNull(cache.get("image", Palette.from(mBitmap)));
+
+        final Palette palette = cache.generate("image", Palette.from(mBitmap));
+        assertSame(palette, cache.generate("image", Palette.from(mBitmap)));
+        assertSame(palette, cache.get("image", Palette.from(mBitmap)));
+        assertEquals(1, cache.generateCount());
+        assertEquals(2, cache.hitCount());
+        assertEquals(2, cache.missCount());
+    }
+
+    @Test
+    @SmallTest
+    public void testKey_includesRegionAndTargets() {
+        final PaletteCache cache = new PaletteCache(4, mExecutor);
+        final Palette palette = cache.generate("image", Palette.from(mBitmap));
+
+        assertNull(cache.get("other", Palette.from(mBitmap)));
+        assertNull(cache.get("image", Palette.from(mBitmap).setRegion(0, 0, 10, 10)));
+        assertNull(cache.get("image", Palette.from(mBitmap).clearTargets()));
+        assertNull(cache.get("image",
+                Palette.from(mBitmap).clearTargets().addTarget(Target.VIBRANT)));
+        assertSame(palette, cache.get("image", Palette.from(mBitmap)));
+    }
+
+    @Test
+    @SmallTest
+    public void testEvictsLeastRecentlyUsed() {
+        final PaletteCache cache = new PaletteCache(2, mExecutor);
+        final Palette palette0 = cache.generate(0, Palette.from(mBitmap));
+        cache.generate(1, Palette.from(mBitmap));
+        // Use the first palette, so that the second one is evicted
+        assertSame(palette0, cache.get(0, Palette.from(mBitmap)));
+        cache.generate(2, Palette.from(mBitmap));
+
+        assertEquals(2, cache.size());
+        assertNotNull(cache.get(0, Palette.from(mBitmap)));
+        assertNull(cache.get(1, Palette.from(mBitmap)));
+        assertNotNull(cache.get(2, Palette.from(mBitmap)));
+
+        cache.evictAll();
+        assertEquals(0, cache.size());
+    }
+
+    @Test
+    @SmallTest
+    public void testGenerateAsync_deduplicatesInFlightRequests() throws InterruptedException {
+        final PaletteCache cache = new PaletteCache(4, mExecutor);
+        final RecordingListener listener = new RecordingListener(3);
+        cache.generateAsync("image", Palette.from(mBitmap), listener);
+        cache.generateAsync("image", Palette.from(mBitmap), listener);
+        cache.generateAsync("image", Palette.from(mBitmap), listener);
+        assertEquals(1, mExecutor.mTasks.size());
+
+        mExecutor.runAll();
+        assertTrue(listener.mLatch.await(5, TimeUnit.SECONDS));
+        assertEquals(3, listener.mPalettes.size());
+        assertNotNull(listener.mPalettes.get(0));
+        assertSame(listener.mPalettes.get(0), listener.mPalettes.get(1));
+        assertSame(listener.mPalettes.get(0), listener.mPalettes.get(2));
+        assertEquals(1, cache.generateCount());
+        assertEquals(3, cache.missCount());
+
+        // Once cached, the listener is called right away
+        final RecordingListener cachedListener = new RecordingListener(1);
+        cache.generateAsync("image", Palette.from(mBitmap), cachedListener);
+        assertEquals(0, mExecutor.mTasks.size());
+        assertEquals(0, cachedListener.mLatch.getCount());
+        assertSame(listener.mPalettes.get(0), cachedListener.mPalettes.get(0));
+        assertEquals(1, cache.hitCount());
+    }
+
+    @Test
+    @SmallTest
+    public void testGenerateAsync_rejectedByExecutor() throws InterruptedException {
+        final PaletteCache cache = new PaletteCache(4, new Executor() {
+            @Override
+            public void execute(@NonNull Runnable runnable) {
+                throw new RejectedExecutionException();
+            }
+        });
+        final RecordingListener listener = new RecordingListener(1);
+        cache.generateAsync("image", Palette.from(mBitmap), listener);
+        assertTrue(listener.mLatch.await(5, TimeUnit.SECONDS));
+        assertNull(listener.mPalettes.get(0));
+
+        // The request is no longer in flight, so it is tried again
+        final RecordingListener retryListener = new RecordingListener(1);
+        cache.generateAsync("image", Palette.from(mBitmap), retryListener);
+        assertTrue(retryListener.mLatch.await(5, TimeUnit.SECONDS));
+        assertEquals(0, cache.generateCount());
+    }
+
+    @Ignore("benchmark")
+    @Test
+    @LargeTest
+    public void benchmark_repeatedBinds() {
+        final Bitmap[] covers = new Bitmap[BENCHMARK_IMAGE_COUNT];
+        for (int i = 0; i < covers.length; i++) {
+            covers[i] = Bitmap.createScaledBitmap(mBitmap, 256 + i, 256 + i, true);
+        }
+
+        long start = System.nanoTime();
+        for (int i = 0; i < BENCHMARK_BINDS; i++) {
+            Palette.from(covers[i % covers.length]).generate();
+        }
+        final long uncachedNanos = System.nanoTime() - start;
+
+        final PaletteCache cache = new PaletteCache(BENCHMARK_IMAGE_COUNT, mExecutor);
+        start = System.nanoTime();
+        for (int i = 0; i < BENCHMARK_BINDS; i++) {
+            final int image = i % covers.length;
+            cache.generate(image, Palette.from(covers[image]));
+        }
+        final long cachedNanos = System.nanoTime() - start;
+
+        assertEquals(BENCHMARK_IMAGE_COUNT, cache.generateCount());
+        Log.d(TAG, String.format("%d binds of %d images: uncached %d us/bind, cached %d us/bind, "
+                        + "%d hits, %d misses",
+                BENCHMARK_BINDS, BENCHMARK_IMAGE_COUNT, uncachedNanos / BENCHMARK_BINDS / 1000,
+                cachedNanos / BENCHMARK_BINDS / 1000, cache.hitCount(), cache.missCount()));
+
+        for (Bitmap cover : covers) {
+            cover.recycle();
+        }
+    }
+
+    /**
+     * An {@link Executor} which runs its tasks when asked to.
+     */
+    private static class QueueExecutor implements Executor {
+        final List<Runnable> mTasks = new ArrayList<>();
+
+        @Override
+        public void execute(@NonNull Runnable runnable) {
+            mTasks.add(runnable);
+        }
+
+        void runAll() {
+            while (!mTasks.isEmpty()) {
+                mTasks.remove(0).run();
+            }
+        }
+    }
+
+    private static class RecordingListener implements Palette.PaletteAsyncListener {
+        final List<Palette> mPalettes = new ArrayList<>();
+        final CountDownLatch mLatch;
+
+        RecordingListener(int count) {
+            mLatch = new CountDownLatch(count);
+        }
+
+        @Override
+        public void onGenerated(@Nullable Palette palette) {
+            synchronized (mPalettes) {
+                mPalettes.add(palette);
+            }
+            mLatch.countDown();
+        }
+    }
+}
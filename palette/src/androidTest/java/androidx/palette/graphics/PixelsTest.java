@@ -0,0 +1,141 @@
+/*
+ * Copyright 2018 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package androidx.palette.graphics;
+
+import static org.junit.Assert.assertEquals;
+
+import android.graphics.Bitmap;
+import android.support.test.filters.LargeTest;
+import android.support.test.filters.SmallTest;
+import android.support.test.runner.AndroidJUnit4;
+import android.util.Log;
+
+import org.junit.Ignore;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+@RunWith(AndroidJUnit4.class)
+public class PixelsTest {
+
+    private static final String TAG = "PixelsTest";
+    private static final int[] BENCHMARK_SIZES = new int[] {256, 1024, 2048};
+    private static final int BENCHMARK_ITERATIONS = 20;
+
+    @Test
+    @SmallTest
+    public void testPixelsMatchBitmap() {
+        final Bitmap bitmap = TestUtils.loadSampleBitmap();
+        final int[] pixels = getPixels(bitmap);
+
+        // Without resizing both paths quantize exactly the same pixels
+        assertPalettesEqual(
+                Palette.from(bitmap).resizeBitmapArea(0).generate(),
+                Palette.from(pixels, bitmap.getWidth(), bitmap.getHeight())
+                        .resizeBitmapArea(0).generate());
+    }
+
+    @Test
+    @SmallTest
+    public void testPixelsRegionMatchesBitmap() {
+        final Bitmap bitmap = TestUtils.loadSampleBitmap();
+        final int[] pixels = getPixels(bitmap);
+        final int width = bitmap.getWidth();
+        final int height = bitmap.getHeight();
+
+        assertPalettesEqual(
+                Palette.from(bitmap).resizeBitmapArea(0)
+                        .setRegion(0, 0, width / 2, height / 2).generate(),
+                Palette.from(pixels, width, height).resizeBitmapArea(0)
+                        .setRegion(0, 0, width / 2, height / 2).generate());
+    }
+
+    @Test
+    @SmallTest
+    public void testPixelsAreNotModified() {
+        final Bitmap bitmap = TestUtils.loadSampleBitmap();
+        final int[] pixels = getPixels(bitmap);
+        final int[] copy = pixels.clone();
+
+        Palette.from(pixels, bitmap.getWidth(), bitmap.getHeight()).generate();
+        assertEquals(copy.length, pixels.length);
+        for (int i = 0; i < copy.length; i++) {
+            assertEquals(copy[i], pixels[i]);
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    @SmallTest
+    public void testPixelsTooSmall() {
+        Palette.from(new int[15], 4, 4);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    @SmallTest
+    public void testRegionOutsidePixels() {
+        Palette.from(new int[16], 4, 4).setRegion(8, 8, 12, 12);
+    }
+
+    @Ignore("benchmark")
+    @Test
+    @LargeTest
+    public void benchmark_generate() {
+        final Bitmap sample = TestUtils.loadSampleBitmap();
+
+        for (int size : BENCHMARK_SIZES) {
+            final Bitmap bitmap = Bitmap.createScaledBitmap(sample, size, size, true);
+            final int[] pixels = getPixels(bitmap);
+
+            // Warm up both paths before timing them
+            Palette.from(bitmap).generate();
+            Palette.from(pixels, size, size).generate();
+
+            long start = System.nanoTime();
+            for (int i = 0; i < BENCHMARK_ITERATIONS; i++) {
+                Palette.from(bitmap).generate();
+            }
+            final long bitmapNanos = (System.nanoTime() - start) / BENCHMARK_ITERATIONS;
+
+            start = System.nanoTime();
+            for (int i = 0; i < BENCHMARK_ITERATIONS; i++) {
+                Palette.from(pixels, size, size).generate();
+            }
+            final long pixelsNanos = (System.nanoTime() - start) / BENCHMARK_ITERATIONS;
+
+            Log.d(TAG, String.format("%dx%d: Bitmap %d us/palette, pixels %d us/palette",
+                    size, size, bitmapNanos / 1000, pixelsNanos / 1000));
+            bitmap.recycle();
+        }
+    }
+
+    private static int[] getPixels(Bitmap bitmap) {
+        final int width = bitmap.getWidth();
+        final int height = bitmap.getHeight();
+        final int[] pixels = new int[width * height];
+        bitmap.getPixels(pixels, 0, width, 0, 0, width, height);
+        return pixels;
+    }
+
+    private static void assertPalettesEqual(Palette p1, Palette p2) {
+        assertEquals(p1.getSwatches(), p2.getSwatches());
+        assertEquals(p1.getVibrantSwatch(), p2.getVibrantSwatch());
+        assertEquals(p1.getLightVibrantSwatch(), p2.getLightVibrantSwatch());
+        assertEquals(p1.getDarkVibrantSwatch(), p2.getDarkVibrantSwatch());
+        assertEquals(p1.getMutedSwatch(), p2.getMutedSwatch());
+        assertEquals(p1.getLightMutedSwatch(), p2.getLightMutedSwatch());
+        assertEquals(p1.getDarkMutedSwatch(), p2.getDarkMutedSwatch());
+    }
+}
@@ -0,0 +1,532 @@
+/*
+ * Copyright 2018 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package androidx.palette.graphics;
+
+import androidx.annotation.Nullable;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * A histogram of the colors of an image, quantized to {@value #QUANTIZE_WORD_WIDTH} bits per
+ * component, together with the median-cut which divides its colors into boxes.
+ *
+ * This is the part of {@link ColorCutQuantizer} which doesn't depend on the Android framework.
+ */
+final class ColorHistogram {
+
+    static final int COMPONENT_RED = -3;
+    static final int COMPONENT_GREEN = -2;
+    static final int COMPONENT_BLUE = -1;
+
+    private static final int QUANTIZE_WORD_WIDTH = 5;
+    private static final int QUANTIZE_WORD_MASK = (1 << QUANTIZE_WORD_WIDTH) - 1;
+    private static final int HISTOGRAM_SIZE = 1 << (QUANTIZE_WORD_WIDTH * 3);
+
+    /**
+     * A histogram recycled by consecutive quantizations, so that they don't each allocate a new
+     * one. Concurrent quantizations which find it taken allocate their own.
+     */
+    private static final AtomicReference<int[]> sRecycledHistogram = new AtomicReference<>();
+
+    /**
+     * Decides which colors of a histogram are quantized.
+     */
+    interface ColorFilter {
+        /**
+         * @param rgb a color of the histogram, approximated to RGB888
+         * @return true if the color should be quantized, false if it should be ignored
+         */
+        boolean isAllowed(int rgb);
+    }
+
+    /**
+     * A quantized color together with the number of pixels it represents.
+     */
+    static final class QuantizedColor {
+        final int mRgb;
+        final int mPopulation;
+
+        QuantizedColor(int rgb, int population) {
+            mRgb = rgb;
+            mPopulation = population;
+        }
+    }
+
+    private final int[] mHistogram;
+
+    private ColorHistogram(int[] histogram) {
+        mHistogram = histogram;
+    }
+
+    /**
+     * Creates a histogram of the pixels of an image.
+     *
+     * @param pixels an image's pixel data, which is quantized in place
+     */
+    static ColorHistogram fromPixels(final int[] pixels) {
+        final int[] hist = obtainHistogram();
+        for (int i = 0; i < pixels.length; i++) {
+            final int quantizedColor = quantizeFromRgb888(pixels[i]);
+            // Now update the pixel value to the quantized value
+            pixels[i] = quantizedColor;
+            // And update the histogram
+            hist[quantizedColor]++;
+        }
+        return new ColorHistogram(hist);
+    }
+
+    /**
+     * Creates a histogram of the pixels of an image, which are sampled down on the fly without
+     * creating an intermediate scaled copy of the image. The region to use is given in scaled
+     * coordinates, with exclusive right and bottom bounds.
+     *
+     * @param argb the ARGB pixels of the image, in row-major order
+     * @param width the width of the image
+     * @param height the height of the image
+     * @param scaledWidth the width the image is sampled down to
+     * @param scaledHeight the height the image is sampled down to
+     */
+    static ColorHistogram fromSampledPixels(final int[] argb, final int width, final int height,
+            final int scaledWidth, final int scaledHeight, final int left, final int top,
+            final int right, final int bottom) {
+        final int[] hist = obtainHistogram();
+        for (int y = top; y < bottom; y++) {
+            // Sample the source pixel which is nearest to the center of each scaled pixel
+            final int rowOffset = (int) ((2L * y + 1) * height / (2L * scaledHeight)) * width;
+            for (int x = left; x < right; x++) {
+                final int sourceX = (int) ((2L * x + 1) * width / (2L * scaledWidth));
+                hist[quantizeFromRgb888(argb[rowOffset + sourceX])]++;
+            }
+        }
+        return new ColorHistogram(hist);
+    }
+
+    private static int[] obtainHistogram() {
+        final int[] hist = sRecycledHistogram.getAndSet(null);
+        return hist != null ? hist : new int[HISTOGRAM_SIZE];
+    }
+
+    private static void recycleHistogram(final int[] hist) {
+        Arrays.fill(hist, 0);
+        sRecycledHistogram.set(hist);
+    }
+
+    /**
+     * Reduces the colors of the histogram to at most {@code maxColors} colors. The histogram is
+     * recycled afterwards, so this can only be called once.
+     *
+     * @param maxColors The maximum number of colors that should be in the result.
+     * @param filter the filter deciding which colors of the histogram are used, or null to use
+     *               all of them
+     * @return the quantized colors, approximated to RGB888
+     */
+    List<QuantizedColor> quantize(final int maxColors, @Nullable final ColorFilter filter) {
+        final int[] hist = mHistogram;
+
+        // Now let's count the number of distinct colors
+        int distinctColorCount = 0;
+        for (int color = 0; color < hist.length; color++) {
+            if (hist[color] > 0 && filter != null
+                    && !filter.isAllowed(approximateToRgb888(color))) {
+                // If we should ignore the color, set the population to 0
+                hist[color] = 0;
+            }
+            if (hist[color] > 0) {
+                // If the color has population, increase the distinct color count
+                distinctColorCount++;
+            }
+        }
+
+        // Now lets go through create an array consisting of only distinct colors
+        final int[] colors = new int[distinctColorCount];
+        int distinctColorIndex = 0;
+        for (int color = 0; color < hist.length; color++) {
+            if (hist[color] > 0) {
+                colors[distinctColorIndex++] = color;
+            }
+        }
+
+        final List<QuantizedColor> quantizedColors;
+        if (distinctColorCount <= maxColors) {
+            // The image has fewer colors than the maximum requested, so just return the colors
+            quantizedColors = new ArrayList<>(distinctColorCount);
+            for (int color : colors) {
+                quantizedColors.add(new QuantizedColor(approximateToRgb888(color), hist[color]));
+            }
+        } else {
+            // We need use quantization to reduce the number of colors
+            quantizedColors = splitColors(colors, hist, maxColors);
+        }
+
+        // The histogram is not used once the quantized colors have been computed
+        recycleHistogram(hist);
+        return quantizedColors;
+    }
+
+    private static List<QuantizedColor> splitColors(int[] colors, int[] hist, int maxColors) {
+        // Create the priority queue which is sorted by volume descending. This means we always
+        // split the largest box in the queue
+        final PriorityQueue<Vbox> pq = new PriorityQueue<>(maxColors, VBOX_COMPARATOR_VOLUME);
+
+        // To start, offer a box which contains all of the colors
+        pq.offer(new Vbox(colors, hist, 0, colors.length - 1));
+
+        // Now go through the boxes, splitting them until we have reached maxColors or there are no
+        // more boxes to split
+        splitBoxes(pq, maxColors);
+
+        // Finally, return the average colors of the color boxes
+        return generateAverageColors(pq);
+    }
+
+    /**
+     * Iterate through the {@link java.util.Queue}, popping
+     * {@link ColorHistogram.Vbox} objects from the queue
+     * and splitting them. Once split, the new box and the remaining box are offered back to the
+     * queue.
+     *
+     * @param queue {@link java.util.PriorityQueue} to poll for boxes
+     * @param maxSize Maximum amount of boxes to split
+     */
+    private static void splitBoxes(final PriorityQueue<Vbox> queue, final int maxSize) {
+        while (queue.size() < maxSize) {
+            final Vbox vbox = queue.poll();
+
+            if (vbox != null && vbox.canSplit()) {
+                // First split the box, and offer the result
+                queue.offer(vbox.splitBox());
+                // Then offer the box back
+                queue.offer(vbox);
+            } else {
+                // If we get here then there are no more boxes to split, so return
+                return;
+            }
+        }
+    }
+
+    private static List<QuantizedColor> generateAverageColors(Collection<Vbox> vboxes) {
+        ArrayList<QuantizedColor> colors = new ArrayList<>(vboxes.size());
+        for (Vbox vbox : vboxes) {
+            colors.add(vbox.getAverageColor());
+        }
+        return colors;
+    }
+
+    /**
+     * Represents a tightly fitting box around a color space.
+     */
+    private static class Vbox {
+        // The distinct colors of the histogram, which the boxes sort in place
+        private final int[] mColors;
+        // The histogram of the quantization, which is recycled once the boxes are averaged
+        private final int[] mHistogram;
+        // lower and upper index are inclusive
+        private int mLowerIndex;
+        private int mUpperIndex;
+        // Population of colors within this box
+        private int mPopulation;
+
+        private int mMinRed, mMaxRed;
+        private int mMinGreen, mMaxGreen;
+        private int mMinBlue, mMaxBlue;
+
+        Vbox(int[] colors, int[] histogram, int lowerIndex, int upperIndex) {
+            mColors = colors;
+            mHistogram = histogram;
+            mLowerIndex = lowerIndex;
+            mUpperIndex = upperIndex;
+            fitBox();
+        }
+
+        final int getVolume() {
+            return (mMaxRed - mMinRed + 1) * (mMaxGreen - mMinGreen + 1) *
+                    (mMaxBlue - mMinBlue + 1);
+        }
+
+        final boolean canSplit() {
+            return getColorCount() > 1;
+        }
+
+        final int getColorCount() {
+            return 1 + mUpperIndex - mLowerIndex;
+        }
+
+        /**
+         * Recomputes the boundaries of this box to tightly fit the colors within the box.
+         */
+        final void fitBox() {
+            final int[] colors = mColors;
+            final int[] hist = mHistogram;
+
+            // Reset the min and max to opposite values
+            int minRed, minGreen, minBlue;
+            minRed = minGreen = minBlue = Integer.MAX_VALUE;
+            int maxRed, maxGreen, maxBlue;
+            maxRed = maxGreen = maxBlue = Integer.MIN_VALUE;
+            int count = 0;
+
+            for (int i = mLowerIndex; i <= mUpperIndex; i++) {
+                final int color = colors[i];
+                count += hist[color];
+
+                final int r = quantizedRed(color);
+                final int g = quantizedGreen(color);
+                final int b = quantizedBlue(color);
+                if (r > maxRed) {
+                    maxRed = r;
+                }
+                if (r < minRed) {
+                    minRed = r;
+                }
+                if (g > maxGreen) {
+                    maxGreen = g;
+                }
+                if (g < minGreen) {
+                    minGreen = g;
+                }
+                if (b > maxBlue) {
+                    maxBlue = b;
+                }
+                if (b < minBlue) {
+                    minBlue = b;
+                }
+            }
+
+            mMinRed = minRed;
+            mMaxRed = maxRed;
+            mMinGreen = minGreen;
+            mMaxGreen = maxGreen;
+            mMinBlue = minBlue;
+            mMaxBlue = maxBlue;
+            mPopulation = count;
+        }
+
+        /**
+         * Split this color box at the mid-point along its longest dimension
+         *
+         * @return the new ColorBox
+         */
+        final Vbox splitBox() {
+            if (!canSplit()) {
+                throw new IllegalStateException("Can not split a box with only 1 color");
+            }
+
+            // find median along the longest dimension
+            final int splitPoint = findSplitPoint();
+
+            Vbox newBox = new Vbox(mColors, mHistogram, splitPoint + 1, mUpperIndex);
+
+            // Now change this box's upperIndex and recompute the color boundaries
+            mUpperIndex = splitPoint;
+            fitBox();
+
+            return newBox;
+        }
+
+        /**
+         * @return the dimension which this box is largest in
+         */
+        final int getLongestColorDimension() {
+            final int redLength = mMaxRed - mMinRed;
+            final int greenLength = mMaxGreen - mMinGreen;
+            final int blueLength = mMaxBlue - mMinBlue;
+
+            if (redLength >= greenLength && redLength >= blueLength) {
+                return COMPONENT_RED;
+            } else if (greenLength >= redLength && greenLength >= blueLength) {
+                return COMPONENT_GREEN;
+            } else {
+                return COMPONENT_BLUE;
+            }
+        }
+
+        /**
+         * Finds the point within this box's lowerIndex and upperIndex index of where to split.
+         *
+         * This is calculated by finding the longest color dimension, and then sorting the
+         * sub-array based on that dimension value in each color. The colors are then iterated over
+         * until a color is found with at least the midpoint of the whole box's dimension midpoint.
+         *
+         * @return the index of the colors array to split from
+         */
+        final int findSplitPoint() {
+            final int longestDimension = getLongestColorDimension();
+            final int[] colors = mColors;
+            final int[] hist = mHistogram;
+
+            // We need to sort the colors in this box based on the longest color dimension.
+            // As we can't use a Comparator to define the sort logic, we modify each color so that
+            // its most significant is the desired dimension
+            modifySignificantOctet(colors, longestDimension, mLowerIndex, mUpperIndex);
+
+            // Now sort... Arrays.sort uses a exclusive toIndex so we need to add 1
+            Arrays.sort(colors, mLowerIndex, mUpperIndex + 1);
+
+            // Now revert all of the colors so that they are packed as RGB again
+            modifySignificantOctet(colors, longestDimension, mLowerIndex, mUpperIndex);
+
+            final int midPoint = mPopulation / 2;
+            for (int i = mLowerIndex, count = 0; i <= mUpperIndex; i++)  {
+                count += hist[colors[i]];
+                if (count >= midPoint) {
+                    // we never want to split on the upperIndex, as this will result in the same
+                    // box
+                    return Math.min(mUpperIndex - 1, i);
+                }
+            }
+
+            return mLowerIndex;
+        }
+
+        /**
+         * @return the average color of this box.
+         */
+        final QuantizedColor getAverageColor() {
+            final int[] colors = mColors;
+            final int[] hist = mHistogram;
+            int redSum = 0;
+            int greenSum = 0;
+            int blueSum = 0;
+            int totalPopulation = 0;
+
+            for (int i = mLowerIndex; i <= mUpperIndex; i++) {
+                final int color = colors[i];
+                final int colorPopulation = hist[color];
+
+                totalPopulation += colorPopulation;
+                redSum += colorPopulation * quantizedRed(color);
+                greenSum += colorPopulation * quantizedGreen(color);
+                blueSum += colorPopulation * quantizedBlue(color);
+            }
+
+            final int redMean = Math.round(redSum / (float) totalPopulation);
+            final int greenMean = Math.round(greenSum / (float) totalPopulation);
+            final int blueMean = Math.round(blueSum / (float) totalPopulation);
+
+            return new QuantizedColor(approximateToRgb888(redMean, greenMean, blueMean),
+                    totalPopulation);
+        }
+    }
+
+    /**
+     * Modify the significant octet in a packed color int. Allows sorting based on the value of a
+     * single color component. This relies on all components being the same word size.
+     *
+     * @see Vbox#findSplitPoint()
+     */
+    static void modifySignificantOctet(final int[] a, final int dimension,
+            final int lower, final int upper) {
+        switch (dimension) {
+            case COMPONENT_RED:
+                // Already in RGB, no need to do anything
+                break;
+            case COMPONENT_GREEN:
+                // We need to do a RGB to GRB swap, or vice-versa
+                for (int i = lower; i <= upper; i++) {
+                    final int color = a[i];
+                    a[i] = quantizedGreen(color) << (QUANTIZE_WORD_WIDTH + QUANTIZE_WORD_WIDTH)
+                            | quantizedRed(color) << QUANTIZE_WORD_WIDTH
+                            | quantizedBlue(color);
+                }
+                break;
+            case COMPONENT_BLUE:
+                // We need to do a RGB to BGR swap, or vice-versa
+                for (int i = lower; i <= upper; i++) {
+                    final int color = a[i];
+                    a[i] = quantizedBlue(color) << (QUANTIZE_WORD_WIDTH + QUANTIZE_WORD_WIDTH)
+                            | quantizedGreen(color) << QUANTIZE_WORD_WIDTH
+                            | quantizedRed(color);
+                }
+                break;
+        }
+    }
+
+    /**
+     * Comparator which sorts {@link Vbox} instances based on their volume, in descending order
+     */
+    private static final Comparator<Vbox> VBOX_COMPARATOR_VOLUME = new Comparator<Vbox>() {
+        @Override
+        public int compare(Vbox lhs, Vbox rhs) {
+            return rhs.getVolume() - lhs.getVolume();
+        }
+    };
+
+    /**
+     * Quantized a RGB888 value to have a word width of {@value #QUANTIZE_WORD_WIDTH}.
+     */
+    private static int quantizeFromRgb888(int color) {
+        // The components are extracted like Color.red(), Color.green() and Color.blue() do
+        int r = modifyWordWidth((color >> 16) & 0xFF, 8, QUANTIZE_WORD_WIDTH);
+        int g = modifyWordWidth((color >> 8) & 0xFF, 8, QUANTIZE_WORD_WIDTH);
+        int b = modifyWordWidth(color & 0xFF, 8, QUANTIZE_WORD_WIDTH);
+        return r << (QUANTIZE_WORD_WIDTH + QUANTIZE_WORD_WIDTH) | g << QUANTIZE_WORD_WIDTH | b;
+    }
+
+    /**
+     * Quantized RGB888 values to have a word width of {@value #QUANTIZE_WORD_WIDTH}.
+     */
+    static int approximateToRgb888(int r, int g, int b) {
+        // An opaque color, the same as Color.rgb() creates
+        return 0xFF000000
+                | modifyWordWidth(r, QUANTIZE_WORD_WIDTH, 8) << 16
+                | modifyWordWidth(g, QUANTIZE_WORD_WIDTH, 8) << 8
+                | modifyWordWidth(b, QUANTIZE_WORD_WIDTH, 8);
+    }
+
+    private static int approximateToRgb888(int color) {
+        return approximateToRgb888(quantizedRed(color), quantizedGreen(color), quantizedBlue(color));
+    }
+
+    /**
+     * @return red component of the quantized color
+     */
+    static int quantizedRed(int color) {
+        return (color >> (QUANTIZE_WORD_WIDTH + QUANTIZE_WORD_WIDTH)) & QUANTIZE_WORD_MASK;
+    }
+
+    /**
+     * @return green component of a quantized color
+     */
+    static int quantizedGreen(int color) {
+        return (color >> QUANTIZE_WORD_WIDTH) & QUANTIZE_WORD_MASK;
+    }
+
+    /**
+     * @return blue component of a quantized color
+     */
+    static int quantizedBlue(int color) {
+        return color & QUANTIZE_WORD_MASK;
+    }
+
+    private static int modifyWordWidth(int value, int currentWidth, int targetWidth) {
+        final int newValue;
+        if (targetWidth > currentWidth) {
+            // If we're approximating up in word width, we'll shift up
+            newValue = value << (targetWidth - currentWidth);
+        } else {
+            // Else, we will just shift and keep the MSB
+            newValue = value >> (currentWidth - targetWidth);
+        }
+        return newValue & ((1 << targetWidth) - 1);
+    }
+}
@@ -103,6 +103,15 @@ public final class Palette {
         return new Builder(bitmap);
     }
 
+    /**
+     * Start generating a {@link Palette} from an array of ARGB pixels with the returned
+     * {@link Builder} instance.
+     */
+    @NonNull
+    public static Builder from(@NonNull int[] argb, int width, int height) {
+        return new Builder(argb, width, height);
+    }
+
     /**
      * Generate a {@link Palette} from the pre-generated list of {@link Palette.Swatch} swatches.
      * This is useful for testing, or if you want to resurrect a {@link Palette} instance from a
@@ -600,6 +609,9 @@ public final class Palette {
     public static final class Builder {
         @Nullable private final List<Swatch> mSwatches;
         @Nullable private final Bitmap mBitmap;
+        @Nullable private final int[] mPixels;
+        private final int mPixelsWidth;
+        private final int mPixelsHeight;
 
         private final List<Target> mTargets = new ArrayList<>();
 
@@ -619,6 +631,43 @@ public final class Palette {
             }
             mFilters.add(DEFAULT_FILTER);
             mBitmap = bitmap;
+            mPixels = null;
+            mPixelsWidth = 0;
+            mPixelsHeight = 0;
+            mSwatches = null;
+
+            // Add the default targets
+            mTargets.add(Target.LIGHT_VIBRANT);
+            mTargets.add(Target.VIBRANT);
+            mTargets.add(Target.DARK_VIBRANT);
+            mTargets.add(Target.LIGHT_MUTED);
+            mTargets.add(Target.MUTED);
+            mTargets.add(Target.DARK_MUTED);
+        }
+
+        /**
+         * Construct a new {@link Builder} using an array of ARGB pixels, such as the one returned
+         * by {@link Bitmap#getPixels(int[], int, int, int, int, int, int)}.
+         * <p>The pixels are sampled down while the palette is generated, without creating a
+         * scaled copy of the image, so this doesn't need a {@link Bitmap}. The array is not
+         * modified.</p>
+         *
+         * @param argb The pixels of the image, in row-major order.
+         * @param width The width of the image.
+         * @param height The height of the image.
+         */
+        public Builder(@NonNull int[] argb, int width, int height) {
+            if (argb == null || width <= 0 || height <= 0) {
+                throw new IllegalArgumentException("Pixels are not valid");
+            }
+            if (argb.length < (long) width * height) {
+                throw new IllegalArgumentException("Pixel array is smaller than width * height");
+            }
+            mFilters.add(DEFAULT_FILTER);
+            mBitmap = null;
+            mPixels = argb;
+            mPixelsWidth = width;
+            mPixelsHeight = height;
             mSwatches = null;
 
             // Add the default targets
@@ -641,6 +690,9 @@ public final class Palette {
             mFilters.add(DEFAULT_FILTER);
             mSwatches = swatches;
             mBitmap = null;
+            mPixels = null;
+            mPixelsWidth = 0;
+            mPixelsHeight = 0;
         }
 
         /**
@@ -723,7 +775,8 @@ public final class Palette {
 
         /**
          * Set a region of the bitmap to be used exclusively when calculating the palette.
-         * <p>This only works when the original input is a {@link Bitmap}.</p>
+         * <p>This only works when the original input is a {@link Bitmap} or an array of
+         * pixels.</p>
          *
          * @param left The left side of the rectangle used for the region.
          * @param top The top of the rectangle used for the region.
@@ -741,6 +794,13 @@ public final class Palette {
                     throw new IllegalArgumentException("The given region must intersect with "
                             + "the Bitmap's dimensions.");
                 }
+            } else if (mPixels != null) {
+                if (mRegion == null) mRegion = new Rect();
+                mRegion.set(0, 0, mPixelsWidth, mPixelsHeight);
+                if (!mRegion.intersect(left, top, right, bottom)) {
+                    throw new IllegalArgumentException("The given region must intersect with "
+                            + "the image's dimensions.");
+                }
             }
             return this;
         }
@@ -779,6 +839,23 @@ public final class Palette {
             return this;
         }
 
+        /**
+         * Returns the region set via {@link #setRegion(int, int, int, int)}, or {@code null} if
+         * the whole image is used.
+         */
+        @Nullable
+        Rect getRegion() {
+            return mRegion;
+        }
+
+        /**
+         * Returns the targets which will be generated in the palette.
+         */
+        @NonNull
+        List<Target> getTargets() {
+            return mTargets;
+        }
+
         /**
          * Generate and return the {@link Palette} synchronously.
          */
@@ -814,7 +891,7 @@ public final class Palette {
                 }
 
                 // Now generate a quantizer from the Bitmap
-                final ColorCutQuantizer quantizer = new ColorCutQuantizer(
+                final ColorCutQuantizer quantizer = ColorCutQuantizer.fromPixels(
                         getPixelsFromBitmap(bitmap),
                         mMaxColors,
                         mFilters.isEmpty() ? null : mFilters.toArray(new Filter[mFilters.size()]));
@@ -826,6 +903,37 @@ public final class Palette {
 
                 swatches = quantizer.getQuantizedColors();
 
+                if (logger != null) {
+                    logger.addSplit("Color quantization completed");
+                }
+            } else if (mPixels != null) {
+                // We have pixels, which are sampled down while building the color histogram
+                final double scaleRatio = getScaleRatio(mPixelsWidth, mPixelsHeight);
+                final int scaledWidth = scaleRatio > 0
+                        ? (int) Math.ceil(mPixelsWidth * scaleRatio) : mPixelsWidth;
+                final int scaledHeight = scaleRatio > 0
+                        ? (int) Math.ceil(mPixelsHeight * scaleRatio) : mPixelsHeight;
+
+                int left = 0;
+                int top = 0;
+                int right = scaledWidth;
+                int bottom = scaledHeight;
+                if (mRegion != null) {
+                    // Scale the selected region to match the sampled image
+                    final double scale = scaledWidth / (double) mPixelsWidth;
+                    left = (int) Math.floor(mRegion.left * scale);
+                    top = (int) Math.floor(mRegion.top * scale);
+                    right = Math.min((int) Math.ceil(mRegion.right * scale), scaledWidth);
+                    bottom = Math.min((int) Math.ceil(mRegion.bottom * scale), scaledHeight);
+                }
+
+                final ColorCutQuantizer quantizer = ColorCutQuantizer.fromSampledPixels(
+                        mPixels, mPixelsWidth, mPixelsHeight, scaledWidth, scaledHeight,
+                        left, top, right, bottom, mMaxColors,
+                        mFilters.isEmpty() ? null : mFilters.toArray(new Filter[mFilters.size()]));
+
+                swatches = quantizer.getQuantizedColors();
+
                 if (logger != null) {
                     logger.addSplit("Color quantization completed");
                 }
@@ -833,7 +941,7 @@ public final class Palette {
                 // Else we're using the provided swatches
                 swatches = mSwatches;
             } else {
-                // The constructors enforce either a bitmap or swatches are present.
+                // The constructors enforce either a bitmap, pixels or swatches are present.
                 throw new AssertionError();
             }
 
@@ -910,19 +1018,7 @@ public final class Palette {
          * Scale the bitmap down as needed.
          */
         private Bitmap scaleBitmapDown(final Bitmap bitmap) {
-            double scaleRatio = -1;
-
-            if (mResizeArea > 0) {
-                final int bitmapArea = bitmap.getWidth() * bitmap.getHeight();
-                if (bitmapArea > mResizeArea) {
-                    scaleRatio = Math.sqrt(mResizeArea / (double) bitmapArea);
-                }
-            } else if (mResizeMaxDimension > 0) {
-                final int maxDimension = Math.max(bitmap.getWidth(), bitmap.getHeight());
-                if (maxDimension > mResizeMaxDimension) {
-                    scaleRatio = mResizeMaxDimension / (double) maxDimension;
-                }
-            }
+            final double scaleRatio = getScaleRatio(bitmap.getWidth(), bitmap.getHeight());
 
             if (scaleRatio <= 0) {
                 // Scaling has been disabled or not needed so just return the Bitmap
@@ -934,6 +1030,27 @@ public final class Palette {
                     (int) Math.ceil(bitmap.getHeight() * scaleRatio),
                     false);
         }
+
+        /**
+         * Returns the ratio an image of the given dimensions should be scaled down by, or a
+         * negative value if it doesn't need to be.
+         */
+        private double getScaleRatio(final int width, final int height) {
+            double scaleRatio = -1;
+
+            if (mResizeArea > 0) {
+                final int area = width * height;
+                if (area > mResizeArea) {
+                    scaleRatio = Math.sqrt(mResizeArea / (double) area);
+                }
+            } else if (mResizeMaxDimension > 0) {
+                final int maxDimension = Math.max(width, height);
+                if (maxDimension > mResizeMaxDimension) {
+                    scaleRatio = mResizeMaxDimension / (double) maxDimension;
+                }
+            }
+            return scaleRatio;
+        }
     }
 
     /**
@@ -0,0 +1,290 @@
+/*
+ * Copyright 2018 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package androidx.palette.graphics;
+
+import android.graphics.Rect;
+import android.os.Handler;
+import android.os.Looper;
+import android.util.Log;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import androidx.collection.LruCache;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+
+/**
+ * A cache of the {@link Palette}s generated for images, such as album covers which are bound
+ * again every time a list item is recycled.
+ * <p>
+ * Palettes are keyed by an image key provided by the caller, along with the region and the
+ * targets of the {@link Palette.Builder} generating them. Any other setting of the builders, such
+ * as the maximum color count or the filters, should be the same for every palette of a given
+ * cache. The least recently used palettes are evicted once the cache holds more than its maximum
+ * size.
+ * </p>
+ * <p>
+ * Targets are compared by identity, as a palette only returns the swatches of the very
+ * {@link Target} instances it was generated for. Custom targets must therefore be shared
+ * instances, such as constants, rather than built again for every request, which would never
+ * hit the cache.
+ * </p>
+ * <p>
+ * Palettes can be generated asynchronously on an {@link Executor}. Requests for a palette which
+ * is still being generated do not start another generation, but receive the same result.
+ * </p>
+ */
+public final class PaletteCache {
+    private final LruCache<Key, Palette> mCache;
+    private final Executor mExecutor;
+    private final Handler mMainHandler = new Handler(Looper.getMainLooper());
+
+    private final Object mLock = new Object();
+    // All of the following are guarded by mLock.
+    private final Map<Key, List<Palette.PaletteAsyncListener>> mInFlight = new HashMap<>();
+    private int mGenerateCount;
+
+    /**
+     * Creates a cache which generates palettes asynchronously on the given executor.
+     *
+     * @param maxSize the maximum number of palettes held by the cache.
+     * @param executor the executor to generate palettes on.
+     */
+    public PaletteCache(int maxSize, @NonNull Executor executor) {
+        if (maxSize <= 0) {
+            throw new IllegalArgumentException("maxSize must be positive");
+        }
+        if (executor == null) {
+            throw new IllegalArgumentException("executor can not be null");
+        }
+        mCache = new LruCache<>(maxSize);
+        mExecutor = executor;
+    }
+
+    /**
+     * Returns the cached palette for the given image and builder, or {@code null} if it hasn't
+     * been generated yet.
+     *
+     * @param imageKey a key identifying the image of the builder, such as its URI.
+     * @param builder the builder which would generate the palette.
+     */
+    @Nullable
+    public Palette get(@NonNull Object imageKey, @NonNull Palette.Builder builder) {
+        return mCache.get(new Key(imageKey, builder));
+    }
+
+    /**
+     * Returns the cached palette for the given image and builder, generating and caching it
+     * synchronously if needed.
+     *
+     * @param imageKey a key identifying the image of the builder, such as its URI.
+     * @param builder the builder generating the palette.
+     */
+    @NonNull
+    public Palette generate(@NonNull Object imageKey, @NonNull Palette.Builder builder) {
+        final Key key = new Key(imageKey, builder);
+        Palette palette = mCache.get(key);
+        if (palette == null) {
+            palette = builder.generate();
+            synchronized (mLock) {
+                mGenerateCount++;
+            }
+            mCache.put(key, palette);
+        }
+        return palette;
+    }
+
+    /**
+     * Returns the cached palette for the given image and builder, generating and caching it
+     * asynchronously if needed.
+     * <p>If the palette is cached, the listener is called before this method returns. Otherwise
+     * it is called on the main thread once the palette has been generated. {@code null} will be
+     * passed when an error occurred during generation.</p>
+     *
+     * @param imageKey a key identifying the image of the builder, such as its URI.
+     * @param builder the builder generating the palette.
+     * @param listener the listener receiving the palette.
+     */
+    public void generateAsync(@NonNull Object imageKey, @NonNull final Palette.Builder builder,
+            @NonNull Palette.PaletteAsyncListener listener) {
+        if (listener == null) {
+            throw new IllegalArgumentException("listener can not be null");
+        }
+        final Key key = new Key(imageKey, builder);
+        final Palette palette;
+        synchronized (mLock) {
+            palette = mCache.get(key);
+            if (palette == null) {
+                List<Palette.PaletteAsyncListener> listeners = mInFlight.get(key);
+                if (listeners != null) {
+                    // The palette is already being generated
+                    listeners.add(listener);
+                    return;
+                }
+                listeners = new ArrayList<>();
+                listeners.add(listener);
+                mInFlight.put(key, listeners);
+            }
+        }
+        if (palette != null) {
+            listener.onGenerated(palette);
+            return;
+        }
+
+        try {
+            mExecutor.execute(new Runnable() {
+                @Override
+                public void run() {
+                    Palette palette;
+                    try {
+                        palette = builder.generate();
+                    } catch (Exception e) {
+                        Log.e(Palette.LOG_TAG, "Exception thrown during async generate", e);
+                        palette = null;
+                    }
+                    deliver(key, palette);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            // Otherwise the key would stay in flight, and its listeners would never be called
+            Log.e(Palette.LOG_TAG, "Executor rejected async generate", e);
+            deliver(key, null);
+        }
+    }
+
+    /**
+     * Caches the palette generated for the given key, if any, and passes it to the listeners
+     * waiting for it on the main thread.
+     */
+    void deliver(Key key, @Nullable final Palette palette) {
+        final List<Palette.PaletteAsyncListener> listeners;
+        synchronized (mLock) {
+            if (palette != null) {
+                mGenerateCount++;
+                mCache.put(key, palette);
+            }
+            listeners = mInFlight.remove(key);
+        }
+        mMainHandler.post(new Runnable() {
+            @Override
+            public void run() {
+                for (Palette.PaletteAsyncListener listener : listeners) {
+                    listener.onGenerated(palette);
+                }
+            }
+        });
+    }
+
+    /**
+     * Removes all of the cached palettes.
+     */
+    public void evictAll() {
+        mCache.evictAll();
+    }
+
+    /**
+     * Returns the number of palettes in the cache.
+     */
+    public int size() {
+        return mCache.size();
+    }
+
+    /**
+     * Returns the maximum number of palettes in the cache.
+     */
+    public int maxSize() {
+        return mCache.maxSize();
+    }
+
+    /**
+     * Returns the number of times a requested palette was found in the cache.
+     */
+    public int hitCount() {
+        return mCache.hitCount();
+    }
+
+    /**
+     * Returns the number of times a requested palette was not found in the cache. This includes
+     * the requests which received a palette that was already being generated.
+     */
+    public int missCount() {
+        return mCache.missCount();
+    }
+
+    /**
+     * Returns the number of palettes generated by the cache.
+     */
+    public int generateCount() {
+        synchronized (mLock) {
+            return mGenerateCount;
+        }
+    }
+
+    /**
+     * Identifies the palette generated for an image by a {@link Palette.Builder}. The targets are
+     * compared by identity, like {@link Palette#getSwatchForTarget(Target)} looks them up.
+     */
+    private static final class Key {
+        private final Object mImageKey;
+        @Nullable private final Rect mRegion;
+        private final List<Target> mTargets;
+        private final int mHashCode;
+
+        Key(Object imageKey, Palette.Builder builder) {
+            if (imageKey == null) {
+                throw new IllegalArgumentException("imageKey can not be null");
+            }
+            if (builder == null) {
+                throw new IllegalArgumentException("builder can not be null");
+            }
+            mImageKey = imageKey;
+            // The builder may change its region and targets later on, so take copies of them
+            final Rect region = builder.getRegion();
+            mRegion = region != null ? new Rect(region) : null;
+            mTargets = new ArrayList<>(builder.getTargets());
+
+            int hashCode = mImageKey.hashCode();
+            hashCode = 31 * hashCode + (mRegion != null ? mRegion.hashCode() : 0);
+            hashCode = 31 * hashCode + mTargets.hashCode();
+            mHashCode = hashCode;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (o == null || getClass() != o.getClass()) {
+                return false;
+            }
+            final Key key = (Key) o;
+            return mImageKey.equals(key.mImageKey)
+                    && (mRegion != null ? mRegion.equals(key.mRegion) : key.mRegion == null)
+                    && mTargets.equals(key.mTargets);
+        }
+
+        @Override
+        public int hashCode() {
+            return mHashCode;
+        }
+    }
+}
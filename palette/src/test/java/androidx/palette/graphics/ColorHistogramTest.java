@@ -0,0 +1,167 @@
+/*
+ * Copyright 2018 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package androidx.palette.graphics;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import android.support.test.filters.SmallTest;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+import java.util.List;
+import java.util.Random;
+
+@RunWith(JUnit4.class)
+@SmallTest
+public class ColorHistogramTest {
+
+    private static final int RED = 0xFFF80000;
+    private static final int GREEN = 0xFF00F800;
+    private static final int BLUE = 0xFF0000F8;
+    private static final int WHITE = 0xFFF8F8F8;
+    private static final int BLACK = 0xFF000000;
+
+    @Test
+    public void testFewColorsNotQuantized() {
+        final int[] pixels = new int[] {RED, RED, RED, GREEN, GREEN, BLUE};
+
+        final List<ColorHistogram.QuantizedColor> colors =
+                ColorHistogram.fromPixels(pixels).quantize(16, null);
+
+        assertColors(colors, RED, 3, GREEN, 2, BLUE, 1);
+    }
+
+    @Test
+    public void testColorsReducedToMaxColors() {
+        final int[] pixels = createRandomPixels(64 * 64);
+
+        final List<ColorHistogram.QuantizedColor> colors =
+                ColorHistogram.fromPixels(pixels).quantize(8, null);
+
+        assertEquals(8, colors.size());
+        int population = 0;
+        for (ColorHistogram.QuantizedColor color : colors) {
+            population += color.mPopulation;
+        }
+        assertEquals(pixels.length, population);
+    }
+
+    @Test
+    public void testFilteredColorsIgnored() {
+        final int[] pixels = new int[] {RED, GREEN, WHITE, WHITE};
+
+        final List<ColorHistogram.QuantizedColor> colors = ColorHistogram.fromPixels(pixels)
+                .quantize(16, new ColorHistogram.ColorFilter() {
+                    @Override
+                    public boolean isAllowed(int rgb) {
+                        return rgb != WHITE;
+                    }
+                });
+
+        assertColors(colors, RED, 1, GREEN, 1);
+    }
+
+    @Test
+    public void testSampledPixelsWithoutScalingMatchPixels() {
+        final int[] pixels = createRandomPixels(40 * 30);
+
+        final List<ColorHistogram.QuantizedColor> sampled = ColorHistogram.fromSampledPixels(
+                pixels, 40, 30, 40, 30, 0, 0, 40, 30).quantize(16, null);
+        final List<ColorHistogram.QuantizedColor> expected =
+                ColorHistogram.fromPixels(pixels.clone()).quantize(16, null);
+
+        assertEquals(expected.size(), sampled.size());
+        for (int i = 0; i < expected.size(); i++) {
+            assertEquals(expected.get(i).mRgb, sampled.get(i).mRgb);
+            assertEquals(expected.get(i).mPopulation, sampled.get(i).mPopulation);
+        }
+    }
+
+    @Test
+    public void testSampledPixelsNearestToCenter() {
+        // Each 2x2 block of a 4x4 image is sampled down to a single pixel, which is the bottom
+        // right pixel of the block as it is the nearest to the center of the scaled pixel
+        final int[] pixels = new int[] {
+                BLACK, BLACK, BLACK, BLACK,
+                BLACK, RED, BLACK, GREEN,
+                BLACK, BLACK, BLACK, BLACK,
+                BLACK, BLUE, BLACK, WHITE,
+        };
+
+        final List<ColorHistogram.QuantizedColor> colors = ColorHistogram.fromSampledPixels(
+                pixels, 4, 4, 2, 2, 0, 0, 2, 2).quantize(16, null);
+
+        assertColors(colors, RED, 1, GREEN, 1, BLUE, 1, WHITE, 1);
+    }
+
+    @Test
+    public void testSampledPixelsRegion() {
+        final int[] pixels = new int[8 * 8];
+        for (int y = 0; y < 8; y++) {
+            for (int x = 0; x < 8; x++) {
+                pixels[y * 8 + x] = x < 4 ? RED : BLUE;
+            }
+        }
+
+        final List<ColorHistogram.QuantizedColor> colors = ColorHistogram.fromSampledPixels(
+                pixels, 8, 8, 4, 4, 0, 1, 2, 3).quantize(16, null);
+
+        assertColors(colors, RED, 4);
+    }
+
+    @Test
+    public void testPixelsQuantizedInPlace() {
+        final int[] pixels = new int[] {RED, GREEN, BLUE};
+
+        ColorHistogram.fromPixels(pixels).quantize(16, null);
+
+        assertEquals(31 << 10, pixels[0]);
+        assertEquals(31 << 5, pixels[1]);
+        assertEquals(31, pixels[2]);
+    }
+
+    private static int[] createRandomPixels(int count) {
+        final Random random = new Random(0);
+        final int[] pixels = new int[count];
+        for (int i = 0; i < count; i++) {
+            pixels[i] = 0xFF000000 | random.nextInt(0x1000000);
+        }
+        return pixels;
+    }
+
+    /**
+     * Asserts that the given colors are exactly the expected ones, given as pairs of RGB and
+     * population.
+     */
+    private static void assertColors(List<ColorHistogram.QuantizedColor> colors,
+            int... expected) {
+        assertEquals(expected.length / 2, colors.size());
+        for (int i = 0; i < expected.length; i += 2) {
+            boolean found = false;
+            for (ColorHistogram.QuantizedColor color : colors) {
+                if (color.mRgb == expected[i]) {
+                    assertEquals(expected[i + 1], color.mPopulation);
+                    found = true;
+                }
+            }
+            assertTrue(String.format("#%08X not found", expected[i]), found);
+        }
+    }
+}
@@ -0,0 +1,104 @@
+/*
+ * Copyright 2017 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package androidx.recyclerview.selection;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import android.support.test.filters.SmallTest;
+import android.support.test.runner.AndroidJUnit4;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.Set;
+
+@RunWith(AndroidJUnit4.class)
+@SmallTest
+public final class LongSetTest {
+
+    @Test
+    public void testAddContainsRemove() {
+        LongSet set = new LongSet();
+        assertTrue(set.add(5L));
+        assertFalse(set.add(5L));
+        assertTrue(set.contains(5L));
+        assertFalse(set.contains(6L));
+        assertFalse(set.contains("5"));
+        assertTrue(set.remove(5L));
+        assertFalse(set.remove(5L));
+        assertTrue(set.isEmpty());
+    }
+
+    @Test
+    public void testGrowth() {
+        LongSet set = new LongSet();
+        for (long key = -1000; key < 1000; key++) {
+            set.add(key * 31);
+        }
+        assertEquals(2000, set.size());
+        for (long key = -1000; key < 1000; key++) {
+            assertTrue(set.contains(key * 31));
+        }
+    }
+
+    @Test
+    public void testRemoveAndReAdd() {
+        LongSet set = new LongSet();
+        for (int round = 0; round < 100; round++) {
+            for (long key = 0; key < 20; key++) {
+                set.add(key);
+            }
+            for (long key = 0; key < 20; key++) {
+                set.remove(key);
+            }
+        }
+        assertTrue(set.isEmpty());
+    }
+
+    @Test
+    public void testIteratorRemove() {
+        LongSet set = new LongSet();
+        for (long key = 0; key < 10; key++) {
+            set.add(key);
+        }
+        Iterator<Long> it = set.iterator();
+        while (it.hasNext()) {
+            if (it.next() % 2 == 0) {
+                it.remove();
+            }
+        }
+        assertArrayEquals(new long[] {1, 3, 5, 7, 9}, set.toSortedArray());
+    }
+
+    @Test
+    public void testEqualsAndHashCodeMatchHashSet() {
+        LongSet set = new LongSet();
+        Set<Long> expected = new HashSet<>();
+        for (long key = 0; key < 100; key++) {
+            set.add(key << 33);
+            expected.add(key << 33);
+        }
+        assertEquals(expected, set);
+        assertEquals(set, expected);
+        assertEquals(expected.hashCode(), set.hashCode());
+    }
+}
@@ -29,6 +29,7 @@ import org.junit.runner.RunWith;
 
 import java.util.Collections;
 import java.util.HashSet;
+import java.util.Map;
 import java.util.Set;
 
 @RunWith(AndroidJUnit4.class)
@@ -140,6 +141,19 @@ public class SelectionTest {
         assertFalse(mSelection.equals(other));
     }
 
+    @Test
+    public void testProvisionalSelection_DeltaExcludesPrimary() {
+        Map<String, Boolean> delta = mSelection.setProvisionalSelection(newSet("poodles"));
+        assertEquals(Collections.singletonMap("poodles", true), delta);
+
+        delta = mSelection.setProvisionalSelection(newSet(mIds[0], "cats"));
+        assertEquals(2, delta.size());
+        assertEquals(false, delta.get("poodles"));
+        assertEquals(true, delta.get("cats"));
+        assertContains(mIds[1]);
+        assertContains(mIds[2]);
+    }
+
     private void assertContains(String id) {
         String err = String.format("Selection %s does not contain %s", mSelection, id);
         assertTrue(err, mSelection.contains(id));
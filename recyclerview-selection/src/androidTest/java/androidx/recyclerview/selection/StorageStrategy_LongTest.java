@@ -17,6 +17,8 @@
 package androidx.recyclerview.selection;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
 
 import android.os.Bundle;
 import android.support.test.filters.SmallTest;
@@ -51,4 +53,34 @@ public final class StorageStrategy_LongTest {
 
         assertEquals(orig, restored);
     }
+
+    @Test
+    public void testReadWrite_ConsecutiveKeysStoredAsRanges() {
+        MutableSelection<Long> orig = new MutableSelection<>();
+        for (long key = 0; key < 50000; key++) {
+            orig.add(key);
+        }
+        orig.add(60000L);
+        orig.add(60001L);
+
+        Bundle bundle = mStorage.asBundle(orig);
+        assertNull(bundle.getLongArray(StorageStrategy.SELECTION_ENTRIES));
+        assertEquals(4, bundle.getLongArray(StorageStrategy.SELECTION_RANGES).length);
+
+        Selection<Long> restored = mStorage.asSelection(Bundles.forceParceling(bundle));
+        assertEquals(orig, restored);
+    }
+
+    @Test
+    public void testAsBundle_ExcludesProvisionalSelection() {
+        Selection<Long> orig = mStorage.createSelection();
+        orig.add(5L);
+        orig.setProvisionalSelection(SelectionTest.newSet(7L));
+
+        Selection<Long> restored = mStorage.asSelection(
+                Bundles.forceParceling(mStorage.asBundle(orig)));
+
+        assertEquals(1, restored.size());
+        assertTrue(restored.contains(5L));
+    }
 }
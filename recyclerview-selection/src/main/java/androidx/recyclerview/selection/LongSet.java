@@ -0,0 +1,274 @@
+/*
+ * Copyright 2018 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package androidx.recyclerview.selection;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import java.util.AbstractSet;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.ConcurrentModificationException;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * A {@link java.util.Set} of {@code long} values backed by an open addressing hash table of
+ * primitives, used to store {@code Long} selection keys without allocating an entry object per
+ * key. The boxed {@link java.util.Set} methods are supported, but the primitive overloads avoid
+ * auto-boxing entirely.
+ */
+final class LongSet extends AbstractSet<Long> {
+
+    private static final int MIN_CAPACITY = 16;
+
+    private static final byte EMPTY = 0;
+    private static final byte FULL = 1;
+    private static final byte DELETED = 2;
+
+    private long[] mKeys;
+    private byte[] mStates;
+    private int mSize;
+    // Number of FULL and DELETED slots. Kept below 3/4 of the capacity.
+    private int mUsed;
+    private int mModCount;
+
+    LongSet() {
+        this(MIN_CAPACITY);
+    }
+
+    LongSet(int expectedSize) {
+        allocate(capacityFor(expectedSize));
+    }
+
+    boolean add(long key) {
+        int slot = findSlot(key);
+        if (mStates[slot] == FULL) {
+            return false;
+        }
+        if (mStates[slot] == EMPTY) {
+            mUsed++;
+        }
+        mKeys[slot] = key;
+        mStates[slot] = FULL;
+        mSize++;
+        mModCount++;
+        if (mUsed > mKeys.length / 4 * 3) {
+            rehash(capacityFor(mSize));
+        }
+        return true;
+    }
+
+    boolean contains(long key) {
+        return mStates[findSlot(key)] == FULL;
+    }
+
+    boolean remove(long key) {
+        int slot = findSlot(key);
+        if (mStates[slot] != FULL) {
+            return false;
+        }
+        mStates[slot] = DELETED;
+        mSize--;
+        mModCount++;
+        return true;
+    }
+
+    /**
+     * @return the values in this set, in ascending order.
+     */
+    @NonNull long[] toSortedArray() {
+        long[] values = new long[mSize];
+        int i = 0;
+        for (int slot = 0; slot < mKeys.length; slot++) {
+            if (mStates[slot] == FULL) {
+                values[i++] = mKeys[slot];
+            }
+        }
+        Arrays.sort(values);
+        return values;
+    }
+
+    @Override
+    public boolean add(@NonNull Long key) {
+        return add(key.longValue());
+    }
+
+    @Override
+    public boolean contains(@Nullable Object key) {
+        return key instanceof Long && contains(((Long) key).longValue());
+    }
+
+    @Override
+    public boolean remove(@Nullable Object key) {
+        return key instanceof Long && remove(((Long) key).longValue());
+    }
+
+    @Override
+    public boolean addAll(@NonNull Collection<? extends Long> keys) {
+        if (!(keys instanceof LongSet)) {
+            return super.addAll(keys);
+        }
+        LongSet other = (LongSet) keys;
+        boolean modified = false;
+        for (int slot = 0; slot < other.mKeys.length; slot++) {
+            if (other.mStates[slot] == FULL) {
+                modified |= add(other.mKeys[slot]);
+            }
+        }
+        return modified;
+    }
+
+    @Override
+    public int size() {
+        return mSize;
+    }
+
+    @Override
+    public void clear() {
+        if (mUsed == 0) {
+            return;
+        }
+        Arrays.fill(mStates, EMPTY);
+        mSize = 0;
+        mUsed = 0;
+        mModCount++;
+    }
+
+    @Override
+    public @NonNull Iterator<Long> iterator() {
+        return new KeyIterator();
+    }
+
+    @Override
+    public int hashCode() {
+        // Same as AbstractSet.hashCode(), without boxing.
+        int hash = 0;
+        for (int slot = 0; slot < mKeys.length; slot++) {
+            if (mStates[slot] == FULL) {
+                long key = mKeys[slot];
+                hash += (int) (key ^ (key >>> 32));
+            }
+        }
+        return hash;
+    }
+
+    /**
+     * @return the slot holding the key, or else the slot where it should be inserted.
+     */
+    private int findSlot(long key) {
+        int mask = mKeys.length - 1;
+        int slot = hash(key) & mask;
+        int firstDeleted = -1;
+        while (true) {
+            byte state = mStates[slot];
+            if (state == EMPTY) {
+                return firstDeleted != -1 ? firstDeleted : slot;
+            }
+            if (state == FULL && mKeys[slot] == key) {
+                return slot;
+            }
+            if (state == DELETED && firstDeleted == -1) {
+                firstDeleted = slot;
+            }
+            slot = (slot + 1) & mask;
+        }
+    }
+
+    private void rehash(int capacity) {
+        long[] keys = mKeys;
+        byte[] states = mStates;
+        allocate(capacity);
+        for (int slot = 0; slot < keys.length; slot++) {
+            if (states[slot] == FULL) {
+                int newSlot = findSlot(keys[slot]);
+                mKeys[newSlot] = keys[slot];
+                mStates[newSlot] = FULL;
+            }
+        }
+        mUsed = mSize;
+    }
+
+    private void allocate(int capacity) {
+        mKeys = new long[capacity];
+        mStates = new byte[capacity];
+    }
+
+    private static int capacityFor(int size) {
+        int capacity = MIN_CAPACITY;
+        // Leave the table at most half full after resizing.
+        while (capacity < size * 2) {
+            capacity <<= 1;
+        }
+        return capacity;
+    }
+
+    private static int hash(long key) {
+        int hash = (int) (key ^ (key >>> 32)) * 0x9E3779B9;
+        return hash ^ (hash >>> 16);
+    }
+
+    private final class KeyIterator implements Iterator<Long> {
+        private int mNext = -1;
+        private int mLast = -1;
+        private int mExpectedModCount = mModCount;
+
+        KeyIterator() {
+            advance();
+        }
+
+        private void advance() {
+            do {
+                mNext++;
+            } while (mNext < mKeys.length && mStates[mNext] != FULL);
+        }
+
+        @Override
+        public boolean hasNext() {
+            return mNext < mKeys.length;
+        }
+
+        @Override
+        public Long next() {
+            if (mExpectedModCount != mModCount) {
+                throw new ConcurrentModificationException();
+            }
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            mLast = mNext;
+            advance();
+            return mKeys[mLast];
+        }
+
+        @Override
+        public void remove() {
+            if (mLast == -1) {
+                throw new IllegalStateException();
+            }
+            if (mExpectedModCount != mModCount) {
+                throw new ConcurrentModificationException();
+            }
+            // Marking the slot as deleted never moves other keys, so iteration can continue.
+            mStates[mLast] = DELETED;
+            mSize--;
+            mModCount++;
+            mExpectedModCount = mModCount;
+            mLast = -1;
+        }
+    }
+}
@@ -77,6 +77,14 @@ public class Selection<K> implements Iterable<K> {
         mProvisionalSelection = new HashSet<>();
     }
 
+    /**
+     * Used by {@link StorageStrategy} to back the selection with key type specific sets.
+     */
+    Selection(@NonNull Set<K> selection, @NonNull Set<K> provisionalSelection) {
+        mSelection = selection;
+        mProvisionalSelection = provisionalSelection;
+    }
+
     /**
      * @param key
      * @return true if the position is currently selected.
@@ -114,6 +122,12 @@ public class Selection<K> implements Iterable<K> {
      * Sets the provisional selection, which is a temporary selection that can be saved,
      * canceled, or adjusted at a later time. When a new provision selection is applied, the old
      * one (if it exists) is abandoned.
+     *
+     * <p>
+     * Only the old and new provisional selections are visited, so the cost of each update
+     * does not depend on the size of the primary selection. Items in the primary selection stay
+     * selected no matter what the provisional selection is, and are never part of the delta.
+     *
      * @return Map of ids added or removed. Added ids have a value of true, removed are false.
      */
     Map<K, Boolean> setProvisionalSelection(@NonNull Set<K> newSelection) {
@@ -127,14 +141,6 @@ public class Selection<K> implements Iterable<K> {
             }
         }
 
-        for (K key: mSelection) {
-            // Mark each item that used to be in the selection but is unsaved and not in the new
-            // provisional selection.
-            if (!newSelection.contains(key)) {
-                delta.put(key, false);
-            }
-        }
-
         for (K key: newSelection) {
             // Mark each item that was not previously in the selection but is in the new
             // provisional selection.
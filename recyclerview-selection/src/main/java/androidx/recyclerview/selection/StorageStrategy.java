@@ -26,6 +26,8 @@ import androidx.annotation.Nullable;
 import androidx.annotation.VisibleForTesting;
 
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Set;
 
 /**
  * Strategy for storing keys in saved state. Extend this class when using custom
@@ -50,6 +52,9 @@ public abstract class StorageStrategy<K> {
     @VisibleForTesting
     static final String SELECTION_ENTRIES = "androidx.recyclerview.selection.entries";
 
+    @VisibleForTesting
+    static final String SELECTION_RANGES = "androidx.recyclerview.selection.ranges";
+
     @VisibleForTesting
     static final String SELECTION_KEY_TYPE = "androidx.recyclerview.selection.type";
 
@@ -85,6 +90,13 @@ public abstract class StorageStrategy<K> {
         return mType.getCanonicalName();
     }
 
+    /**
+     * @return A new, empty {@link Selection} backed by storage suited to the key type.
+     */
+    @NonNull Selection<K> createSelection() {
+        return new Selection<>();
+    }
+
     /**
      * @return StorageStrategy suitable for use with {@link Parcelable} keys
      * (like {@link android.net.Uri}).
@@ -159,14 +171,20 @@ public abstract class StorageStrategy<K> {
                 return null;
             }
 
+            @Nullable long[] ranges = state.getLongArray(SELECTION_RANGES);
+            if (ranges != null) {
+                return fromRanges(ranges);
+            }
+
             @Nullable long[] stored = state.getLongArray(SELECTION_ENTRIES);
             if (stored == null) {
                 return null;
             }
 
-            Selection<Long> selection = new Selection<>();
+            Selection<Long> selection = createSelection();
+            LongSet keys = (LongSet) selection.mSelection;
             for (long key : stored) {
-                selection.mSelection.add(key);
+                keys.add(key);
             }
             return selection;
         }
@@ -177,15 +195,75 @@ public abstract class StorageStrategy<K> {
             Bundle bundle = new Bundle();
             bundle.putString(SELECTION_KEY_TYPE, getKeyTypeName());
 
-            long[] value = new long[selection.size()];
-            int i = 0;
-            for (Long key : selection) {
-                value[i++] = key;
+            long[] keys = sortedKeys(selection.mSelection);
+            int rangeCount = countRanges(keys);
+            if (rangeCount * 2 < keys.length) {
+                // Runs of consecutive ids, as produced by select-all or band selection over
+                // sequential ids, are stored as [first, last] pairs.
+                bundle.putLongArray(SELECTION_RANGES, toRanges(keys, rangeCount));
+            } else {
+                bundle.putLongArray(SELECTION_ENTRIES, keys);
             }
-            bundle.putLongArray(SELECTION_ENTRIES, value);
 
             return bundle;
         }
+
+        @Override
+        @NonNull Selection<Long> createSelection() {
+            return new Selection<Long>(new LongSet(), new LongSet());
+        }
+
+        private Selection<Long> fromRanges(long[] ranges) {
+            Selection<Long> selection = createSelection();
+            LongSet keys = (LongSet) selection.mSelection;
+            for (int i = 0; i + 1 < ranges.length; i += 2) {
+                for (long key = ranges[i]; key <= ranges[i + 1]; key++) {
+                    keys.add(key);
+                    if (key == Long.MAX_VALUE) {
+                        break;
+                    }
+                }
+            }
+            return selection;
+        }
+
+        private static long[] sortedKeys(Set<Long> keys) {
+            if (keys instanceof LongSet) {
+                return ((LongSet) keys).toSortedArray();
+            }
+            long[] sorted = new long[keys.size()];
+            int i = 0;
+            for (Long key : keys) {
+                sorted[i++] = key;
+            }
+            Arrays.sort(sorted);
+            return sorted;
+        }
+
+        private static int countRanges(long[] sortedKeys) {
+            int count = sortedKeys.length > 0 ? 1 : 0;
+            for (int i = 1; i < sortedKeys.length; i++) {
+                if (sortedKeys[i] != sortedKeys[i - 1] + 1) {
+                    count++;
+                }
+            }
+            return count;
+        }
+
+        private static long[] toRanges(long[] sortedKeys, int rangeCount) {
+            long[] ranges = new long[rangeCount * 2];
+            int r = 0;
+            ranges[0] = sortedKeys[0];
+            for (int i = 1; i < sortedKeys.length; i++) {
+                if (sortedKeys[i] != sortedKeys[i - 1] + 1) {
+                    ranges[r + 1] = sortedKeys[i - 1];
+                    r += 2;
+                    ranges[r] = sortedKeys[i];
+                }
+            }
+            ranges[r + 1] = sortedKeys[sortedKeys.length - 1];
+            return ranges;
+        }
     }
 
     private static class ParcelableStorageStrategy<K extends Parcelable>
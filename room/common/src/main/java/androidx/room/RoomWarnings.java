@@ -134,6 +134,27 @@ public class RoomWarnings {
     public static final String RELATION_QUERY_WITHOUT_TRANSACTION =
             "ROOM_RELATION_QUERY_WITHOUT_TRANSACTION";
 
+    /**
+     * Reported when SQLite would scan a whole table without using an index to run a @Query.
+     * <p>
+     * Query plan warnings are only reported if the {@code room.queryPlanWarnings} annotation
+     * processor argument is set to {@code true}.
+     */
+    public static final String QUERY_PLAN_FULL_TABLE_SCAN = "ROOM_QUERY_PLAN_FULL_TABLE_SCAN";
+
+    /**
+     * Reported when SQLite would have to sort the results of a @Query in a temporary B-tree for
+     * its ORDER BY, GROUP BY or DISTINCT clause, because no index provides the order.
+     */
+    public static final String QUERY_PLAN_TEMP_B_TREE = "ROOM_QUERY_PLAN_TEMP_B_TREE";
+
+    /**
+     * Reported when a @Query has a correlated subquery, which SQLite runs again for every row of
+     * the outer query.
+     */
+    public static final String QUERY_PLAN_CORRELATED_SUBQUERY =
+            "ROOM_QUERY_PLAN_CORRELATED_SUBQUERY";
+
     /** @deprecated This type should not be instantiated as it contains only static methods. */
     @Deprecated
     @SuppressWarnings("PrivateConstructorForUtilityClass")
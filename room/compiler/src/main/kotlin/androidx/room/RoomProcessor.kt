@@ -34,13 +34,43 @@ import javax.lang.model.element.Element
  * The annotation processor for Room.
  */
 class RoomProcessor : BasicAnnotationProcessor() {
+    companion object {
+        /**
+         * Option Gradle checks to find out what kind of incremental processor this is. The
+         * processor is registered as "dynamic" in META-INF/gradle/incremental.annotation.processors.
+         */
+        const val ISOLATING_ANNOTATION_PROCESSORS_INDICATOR =
+                "org.gradle.annotation.processing.isolating"
+    }
+
+    private lateinit var databaseProcessingStep: DatabaseProcessingStep
+
     override fun initSteps(): MutableIterable<ProcessingStep>? {
         val context = Context(processingEnv)
-        return arrayListOf(DatabaseProcessingStep(context))
+        databaseProcessingStep = DatabaseProcessingStep(context)
+        return arrayListOf(databaseProcessingStep)
+    }
+
+    override fun postProcess() {
+        // The verifier connections are kept for as long as the rounds process databases. The final
+        // round never does, so they are closed at the latest then instead of leaking in long lived
+        // compiler processes such as the Gradle daemon.
+        if (!databaseProcessingStep.processedDatabases) {
+            databaseProcessingStep.context.cache.verifierConnections.clear()
+        }
+        databaseProcessingStep.processedDatabases = false
     }
 
     override fun getSupportedOptions(): MutableSet<String> {
-        return Context.ARG_OPTIONS.toMutableSet()
+        val supportedOptions = Context.ARG_OPTIONS.toMutableSet()
+        // Every generated file originates from a single @Database element, which makes Room an
+        // isolating processor. It stays opt-in as the Dao and Entity classes the database refers
+        // to are then read from class files, so their method parameter names are only available
+        // if they are compiled with -parameters.
+        if (Context.isIncremental(processingEnv)) {
+            supportedOptions.add(ISOLATING_ANNOTATION_PROCESSORS_INDICATOR)
+        }
+        return supportedOptions
     }
 
     override fun getSupportedSourceVersion(): SourceVersion {
@@ -48,6 +78,9 @@ class RoomProcessor : BasicAnnotationProcessor() {
     }
 
     class DatabaseProcessingStep(context: Context) : ContextBoundProcessingStep(context) {
+        /** Whether any database was processed in the current round. */
+        var processedDatabases = false
+
         override fun process(
                 elementsByAnnotation: SetMultimap<Class<out Annotation>, Element>
         ): MutableSet<Element> {
@@ -56,11 +89,17 @@ class RoomProcessor : BasicAnnotationProcessor() {
                     ?.map {
                         DatabaseProcessor(context, MoreElements.asType(it)).process()
                     }
+            if (databases?.isNotEmpty() == true) {
+                processedDatabases = true
+            }
             val allDaoMethods = databases?.flatMap { it.daoMethods }
             allDaoMethods?.let {
                 prepareDaosForWriting(databases, it)
-                it.forEach {
-                    DaoWriter(it.dao, context.processingEnv).write(context.processingEnv)
+                databases.forEach { db ->
+                    db.daoMethods.forEach {
+                        DaoWriter(it.dao, db.element, context.processingEnv)
+                                .write(context.processingEnv)
+                    }
                 }
             }
 
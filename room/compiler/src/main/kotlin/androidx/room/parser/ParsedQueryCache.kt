@@ -0,0 +1,85 @@
+/*
+ * Copyright (C) 2018 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package androidx.room.parser
+
+import java.util.concurrent.Callable
+import java.util.concurrent.ConcurrentHashMap
+import java.util.concurrent.ExecutionException
+import java.util.concurrent.Executors
+import java.util.concurrent.atomic.AtomicInteger
+
+/**
+ * Keeps the results of [SqlParser.parse] so that a query is parsed only once, no matter how many
+ * methods or databases use it.
+ * <p>
+ * Parsing is free of the annotation processing environment, so [prepare] can parse all queries of
+ * a database in parallel before its DAOs are processed, which are then served from this cache.
+ * Each call to [parse] returns a new copy of the cached query since the processor assigns
+ * verification results to it.
+ */
+class ParsedQueryCache {
+    private val entries = ConcurrentHashMap<String, ParsedQuery>()
+
+    private val hits = AtomicInteger()
+
+    private val misses = AtomicInteger()
+
+    val hitCount: Int
+        get() = hits.get()
+
+    val missCount: Int
+        get() = misses.get()
+
+    fun parse(input: String): ParsedQuery {
+        val cached = entries[input]
+        if (cached != null) {
+            hits.incrementAndGet()
+            return cached.copy()
+        }
+        misses.incrementAndGet()
+        val parsed = SqlParser.parse(input)
+        return (entries.putIfAbsent(input, parsed) ?: parsed).copy()
+    }
+
+    /**
+     * Parses the given queries using up to [parallelism] threads. The results are identical to
+     * parsing them one by one since each query is parsed independently.
+     */
+    fun prepare(inputs: Collection<String>, parallelism: Int) {
+        val missing = inputs.filterNot { entries.containsKey(it) }.distinct()
+        val threadCount = Math.min(parallelism, missing.size)
+        if (threadCount <= 1) {
+            missing.forEach { entries.putIfAbsent(it, SqlParser.parse(it)) }
+            return
+        }
+        val executor = Executors.newFixedThreadPool(threadCount)
+        try {
+            val futures = executor.invokeAll(missing.map { input ->
+                Callable { entries.putIfAbsent(input, SqlParser.parse(input)) }
+            })
+            futures.forEach {
+                try {
+                    it.get()
+                } catch (e: ExecutionException) {
+                    throw e.cause ?: e
+                }
+            }
+        } finally {
+            executor.shutdownNow()
+        }
+    }
+}
@@ -51,6 +51,14 @@ class Context private constructor(
         val ARG_OPTIONS by lazy {
             ProcessorOptions.values().map { it.argName }
         }
+
+        /**
+         * Whether the processor should tell Gradle that it supports incremental processing.
+         */
+        fun isIncremental(processingEnv: ProcessingEnvironment): Boolean {
+            return processingEnv.options[ProcessorOptions.OPTION_INCREMENTAL.argName]
+                    ?.toBoolean() ?: false
+        }
     }
 
     constructor(processingEnv: ProcessingEnvironment) : this(
@@ -66,6 +74,25 @@ class Context private constructor(
         }
     }
 
+    val queryPlanWarningsEnabled by lazy {
+        processingEnv.options[ProcessorOptions.OPTION_QUERY_PLAN_WARNINGS.argName]
+                ?.toBoolean() ?: false
+    }
+
+    /**
+     * The number of threads that can be used for work that does not touch the processing
+     * environment, such as parsing queries.
+     */
+    val parallelism by lazy {
+        val arg = processingEnv.options[ProcessorOptions.OPTION_PARALLELISM.argName]
+                ?.toIntOrNull()
+        if (arg != null && arg > 0) {
+            arg
+        } else {
+            Runtime.getRuntime().availableProcessors()
+        }
+    }
+
     val schemaOutFolder by lazy {
         val arg = processingEnv.options[ProcessorOptions.OPTION_SCHEMA_FOLDER.argName]
         if (arg?.isNotEmpty() ?: false) {
@@ -110,6 +137,9 @@ class Context private constructor(
     }
 
     enum class ProcessorOptions(val argName: String) {
-        OPTION_SCHEMA_FOLDER("room.schemaLocation")
+        OPTION_SCHEMA_FOLDER("room.schemaLocation"),
+        OPTION_INCREMENTAL("room.incremental"),
+        OPTION_QUERY_PLAN_WARNINGS("room.queryPlanWarnings"),
+        OPTION_PARALLELISM("room.parallelism")
     }
 }
@@ -16,6 +16,7 @@
 
 package androidx.room.processor
 
+import androidx.room.Query
 import androidx.room.SkipQueryVerification
 import androidx.room.ext.RoomTypeNames
 import androidx.room.ext.getAsBoolean
@@ -35,9 +36,12 @@ import com.squareup.javapoet.TypeName
 import javax.lang.model.element.AnnotationMirror
 import javax.lang.model.element.Element
 import javax.lang.model.element.ElementKind
+import javax.lang.model.element.ExecutableElement
 import javax.lang.model.element.Modifier
 import javax.lang.model.element.TypeElement
+import javax.lang.model.type.TypeKind
 import javax.lang.model.type.TypeMirror
+import javax.lang.model.util.ElementFilter
 
 class DatabaseProcessor(baseContext: Context, val element: TypeElement) {
     val context = baseContext.fork(element)
@@ -52,7 +56,7 @@ class DatabaseProcessor(baseContext: Context, val element: TypeElement) {
         try {
             return doProcess()
         } finally {
-            context.databaseVerifier?.closeConnection(context)
+            context.databaseVerifier?.release(context)
         }
     }
 
@@ -78,7 +82,7 @@ class DatabaseProcessor(baseContext: Context, val element: TypeElement) {
         context.databaseVerifier = dbVerifier
 
         val declaredType = MoreTypes.asDeclared(element.asType())
-        val daoMethods = allMembers.filter {
+        val daoExecutables = allMembers.filter {
             it.hasAnyOf(Modifier.ABSTRACT) && it.kind == ElementKind.METHOD
         }.filterNot {
             // remove methods that belong to room
@@ -86,7 +90,11 @@ class DatabaseProcessor(baseContext: Context, val element: TypeElement) {
             MoreElements.isType(containing) &&
                     TypeName.get(containing.asType()) == RoomTypeNames.ROOM_DB
         }.map {
-            val executable = MoreElements.asExecutable(it)
+            MoreElements.asExecutable(it)
+        }
+        prepareQueries(daoExecutables)
+        // DAOs are processed one by one since the processing environment is not thread safe.
+        val daoMethods = daoExecutables.map { executable ->
             // TODO when we add support for non Dao return types (e.g. database), this code needs
             // to change
             val daoType = MoreTypes.asTypeElement(executable.returnType)
@@ -173,6 +181,24 @@ class DatabaseProcessor(baseContext: Context, val element: TypeElement) {
                 }
     }
 
+    /**
+     * Parses the queries of all DAOs in parallel so that processing the DAOs, which has to happen
+     * on this thread, finds them in the cache.
+     */
+    private fun prepareQueries(daoExecutables: List<ExecutableElement>) {
+        val queries = daoExecutables.filter {
+            it.returnType.kind == TypeKind.DECLARED
+        }.flatMap {
+            val daoType = MoreTypes.asTypeElement(it.returnType)
+            ElementFilter.methodsIn(context.processingEnv.elementUtils.getAllMembers(daoType))
+        }.mapNotNull {
+            MoreElements.getAnnotationMirror(it, Query::class.java).orNull()
+        }.map {
+            AnnotationMirrors.getAnnotationValue(it, "value").value.toString()
+        }
+        context.cache.parsedQueries.prepare(queries, context.parallelism)
+    }
+
     private fun validateUniqueDaoClasses(dbElement: TypeElement, daoMethods: List<DaoMethod>,
                                          entities: List<Entity>) {
         val entityTypeNames = entities.map { it.typeName }.toSet()
@@ -23,7 +23,6 @@ import androidx.room.ext.KotlinMetadataProcessor
 import androidx.room.ext.hasAnnotation
 import androidx.room.parser.ParsedQuery
 import androidx.room.parser.QueryType
-import androidx.room.parser.SqlParser
 import androidx.room.solver.query.result.LiveDataQueryResultBinder
 import androidx.room.solver.query.result.PojoRowAdapter
 import androidx.room.verifier.DatabaseVerificaitonErrors
@@ -72,7 +71,7 @@ class QueryMethodProcessor(
                 ProcessorErrors.MISSING_QUERY_ANNOTATION)
 
         val query = if (annotation != null) {
-            val query = SqlParser.parse(
+            val query = context.cache.parsedQueries.parse(
                     AnnotationMirrors.getAnnotationValue(annotation, "value").value.toString())
             context.checker.check(query.errors.isEmpty(), executableElement,
                     query.errors.joinToString("\n"))
@@ -82,6 +81,9 @@ class QueryMethodProcessor(
             if (query.resultInfo?.error != null) {
                 context.logger.e(executableElement,
                         DatabaseVerificaitonErrors.cannotVerifyQuery(query.resultInfo!!.error!!))
+            } else if (query.resultInfo != null && dbVerifier != null &&
+                    context.queryPlanWarningsEnabled) {
+                checkQueryPlan(query, dbVerifier)
             }
 
             context.checker.check(executableType.returnType.kind != TypeKind.ERROR,
@@ -163,4 +165,52 @@ class QueryMethodProcessor(
         }
         return queryMethod
     }
+
+    /**
+     * Explains the query against the verification database and warns about the steps that are
+     * likely to be slow, together with the indices that would avoid them.
+     */
+    private fun checkQueryPlan(query: ParsedQuery, dbVerifier: DatabaseVerifier) {
+        val plan = dbVerifier.explain(query.original) ?: return
+        val suppressedWarnings = context.logger.suppressedWarnings
+        val tableNames = query.tables.map { it.name }
+        fun isQueryTable(name: String) = tableNames.any { it.equals(name, ignoreCase = true) }
+
+        if (!suppressedWarnings.contains(Warning.QUERY_PLAN_FULL_TABLE_SCAN)) {
+            plan.fullTableScans.filter { isQueryTable(it) }.forEach { tableName ->
+                val columnsToIndex = dbVerifier.findColumnsToIndex(query.original, tableName) {
+                    newPlan -> newPlan.fullTableScans.none { it.equals(tableName, true) }
+                }
+                // reading a whole table is expected if the query does not filter it
+                if (columnsToIndex.isNotEmpty() || WHERE_PATTERN.containsMatchIn(query.original)) {
+                    context.logger.w(Warning.QUERY_PLAN_FULL_TABLE_SCAN, executableElement,
+                            DatabaseVerificaitonErrors.fullTableScan(tableName, columnsToIndex))
+                }
+            }
+        }
+
+        if (!suppressedWarnings.contains(Warning.QUERY_PLAN_TEMP_B_TREE)) {
+            plan.tempBTrees.forEach { clause ->
+                val suggestion = tableNames.asSequence()
+                        .map { tableName ->
+                            tableName to dbVerifier.findColumnsToIndex(query.original, tableName) {
+                                !it.tempBTrees.contains(clause)
+                            }
+                        }
+                        .firstOrNull { it.second.isNotEmpty() }
+                context.logger.w(Warning.QUERY_PLAN_TEMP_B_TREE, executableElement,
+                        DatabaseVerificaitonErrors.tempBTree(clause, suggestion?.first,
+                                suggestion?.second ?: emptyList()))
+            }
+        }
+
+        if (plan.hasCorrelatedSubquery) {
+            context.logger.w(Warning.QUERY_PLAN_CORRELATED_SUBQUERY, executableElement,
+                    DatabaseVerificaitonErrors.CORRELATED_SUBQUERY)
+        }
+    }
+
+    companion object {
+        private val WHERE_PATTERN = Regex("\\bWHERE\\b", RegexOption.IGNORE_CASE)
+    }
 }
@@ -18,12 +18,16 @@
 
 package androidx.room.processor.cache
 
+import androidx.room.parser.ParsedQueryCache
 import androidx.room.processor.FieldProcessor
+import androidx.room.verifier.VerifierConnectionCache
 import androidx.room.vo.EmbeddedField
 import androidx.room.vo.Entity
 import androidx.room.vo.Pojo
 import androidx.room.vo.Warning
 import java.util.LinkedHashSet
+import java.util.concurrent.ConcurrentHashMap
+import java.util.concurrent.ConcurrentMap
 import javax.lang.model.element.Element
 import javax.lang.model.type.TypeMirror
 
@@ -32,16 +36,26 @@ import javax.lang.model.type.TypeMirror
  * <p>
  * Each context has a cache variable that uses the same backing storage as the Root Context but
  * adds current adapters and warning suppression list to the key.
+ * <p>
+ * The backing storage is safe to be accessed from multiple threads.
  */
 class Cache(val parent: Cache?, val converters: LinkedHashSet<TypeMirror>,
             val suppressedWarnings: Set<Warning>) {
     val entities: Bucket<EntityKey, Entity> = Bucket(parent?.entities)
     val pojos: Bucket<PojoKey, Pojo> = Bucket(parent?.pojos)
+    // verification databases do not depend on the converters or warnings so they are shared as is.
+    val verifierConnections: VerifierConnectionCache =
+            parent?.verifierConnections ?: VerifierConnectionCache()
+    // parsing does not depend on the converters or warnings either.
+    val parsedQueries: ParsedQueryCache = parent?.parsedQueries ?: ParsedQueryCache()
 
-    inner class Bucket<K, T>(source: Bucket<K, T>?) {
-        private val entries: MutableMap<FullKey<K>, T> = source?.entries ?: mutableMapOf()
+    inner class Bucket<K, T : Any>(source: Bucket<K, T>?) {
+        private val entries: ConcurrentMap<FullKey<K>, T> = source?.entries ?: ConcurrentHashMap()
         fun get(key: K, calculate: () -> T): T {
             val fullKey = FullKey(converters, suppressedWarnings, key)
+            // calculate might be called concurrently for the same key, in which case the value
+            // that is put first wins. It is not called under a lock since calculating a value may
+            // need to calculate others (e.g. embedded pojos).
             return entries.getOrPut(fullKey, {
                 calculate()
             })
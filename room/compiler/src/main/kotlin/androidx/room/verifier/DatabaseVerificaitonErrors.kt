@@ -29,4 +29,27 @@ object DatabaseVerificaitonErrors {
     fun cannotCreateConnection(exception: Exception): String {
         return CANNOT_CREATE_SQLITE_CONNECTION.format(exception.message)
     }
+
+    fun fullTableScan(tableName: String, columnsToIndex: List<String>): String {
+        return "The query scans the whole $tableName table as none of its indices can be used." +
+                indexSuggestion(tableName, columnsToIndex)
+    }
+
+    fun tempBTree(clause: String, tableName: String?, columnsToIndex: List<String>): String {
+        return "The query uses a temporary B-tree for its $clause clause as none of the indices" +
+                " provide the required order." +
+                if (tableName != null) indexSuggestion(tableName, columnsToIndex) else ""
+    }
+
+    val CORRELATED_SUBQUERY = "The query has a correlated subquery, which is run again for" +
+            " every row of the outer query. Consider rewriting it as a JOIN."
+
+    private fun indexSuggestion(tableName: String, columnsToIndex: List<String>): String {
+        if (columnsToIndex.isEmpty()) {
+            return ""
+        }
+        return " Consider adding " + columnsToIndex.joinToString(" or ") {
+            "@Index(\"$it\")"
+        } + " to the $tableName entity."
+    }
 }
@@ -25,6 +25,7 @@ import java.io.File
 import java.sql.Connection
 import java.sql.DriverManager
 import java.sql.SQLException
+import java.sql.Types
 import java.util.UUID
 import java.util.regex.Pattern
 import javax.lang.model.element.Element
@@ -32,9 +33,13 @@ import javax.lang.model.element.Element
 /**
  * Builds an in-memory version of the database and verifies the queries against it.
  * This class is also used to resolve the return types.
+ * <p>
+ * The in-memory databases are kept in the [VerifierConnectionCache] of the context once the
+ * verifier is closed, so a database with the same schema can re-use it.
  */
 class DatabaseVerifier private constructor(
-        val connection: Connection, val context: Context, val entities: List<Entity>) {
+        val connection: Connection, val context: Context, val entities: List<Entity>,
+        private val schema: List<String>) {
     companion object {
         private const val CONNECTION_URL = "jdbc:sqlite::memory:"
         /**
@@ -49,6 +54,9 @@ class DatabaseVerifier private constructor(
         private val COLLATE_LOCALIZED_UNICODE_PATTERN = Pattern.compile(
                 "\\s+COLLATE\\s+(LOCALIZED|UNICODE)", Pattern.CASE_INSENSITIVE)
 
+        private const val WHAT_IF_SAVEPOINT = "room_what_if"
+        private const val WHAT_IF_INDEX = "room_what_if_index"
+
         init {
             // see: https://github.com/xerial/sqlite-jdbc/issues/97
             val tmpDir = System.getProperty("java.io.tmpdir")
@@ -68,8 +76,15 @@ class DatabaseVerifier private constructor(
          */
         fun create(context: Context, element: Element, entities: List<Entity>): DatabaseVerifier? {
             return try {
-                val connection = JDBC.createConnection(CONNECTION_URL, java.util.Properties())
-                DatabaseVerifier(connection, context, entities)
+                val schema = entities
+                        .flatMap { entity ->
+                            listOf(entity.createTableQuery) +
+                                    entity.indices.map { it.createQuery(entity.tableName) }
+                        }
+                        .map { stripLocalizeCollations(it) }
+                val connection = context.cache.verifierConnections.acquire(schema)
+                        ?: createConnection(schema)
+                DatabaseVerifier(connection, context, entities, schema)
             } catch (ex: Exception) {
                 context.logger.w(Warning.CANNOT_CREATE_VERIFICATION_DATABASE, element,
                         DatabaseVerificaitonErrors.cannotCreateConnection(ex))
@@ -77,6 +92,18 @@ class DatabaseVerifier private constructor(
             }
         }
 
+        private fun createConnection(schema: List<String>): Connection {
+            val connection = JDBC.createConnection(CONNECTION_URL, java.util.Properties())
+            schema.forEach { createQuery ->
+                val stmt = connection.createStatement()
+                stmt.executeUpdate(createQuery)
+            }
+            return connection
+        }
+
+        private fun stripLocalizeCollations(sql: String) =
+            COLLATE_LOCALIZED_UNICODE_PATTERN.matcher(sql).replaceAll(" COLLATE NOCASE")
+
         /**
          * Unregisters the JDBC driver. If we don't do this, we'll leak the driver which leaks a
          * whole class loader.
@@ -93,13 +120,6 @@ class DatabaseVerifier private constructor(
             }
         }
     }
-    init {
-        entities.forEach { entity ->
-            val stmt = connection.createStatement()
-            stmt.executeUpdate(stripLocalizeCollations(entity.createTableQuery))
-        }
-    }
-
     fun analyze(sql: String): QueryResultInfo {
         return try {
             val stmt = connection.prepareStatement(stripLocalizeCollations(sql))
@@ -109,17 +129,83 @@ class DatabaseVerifier private constructor(
         }
     }
 
-    private fun stripLocalizeCollations(sql: String) =
-        COLLATE_LOCALIZED_UNICODE_PATTERN.matcher(sql).replaceAll(" COLLATE NOCASE")
+    /**
+     * Returns the plan SQLite would use to run the query or null if it cannot be explained.
+     */
+    fun explain(sql: String): QueryPlan? {
+        return try {
+            explainQuery(stripLocalizeCollations(sql))
+        } catch (ex: SQLException) {
+            null
+        }
+    }
 
-    fun closeConnection(context: Context) {
-        if (!connection.isClosed) {
-            try {
-                connection.close()
-            } catch (t: Throwable) {
-                //ignore.
-                context.logger.d("failed to close the database connection ${t.message}")
+    /**
+     * Tries an index on each of the columns of the given table that are not indexed yet and
+     * returns the ones whose index gives the query a plan that passes [isImproved].
+     * <p>
+     * The indices are only created within a savepoint that is rolled back, so the database is
+     * left unchanged.
+     */
+    fun findColumnsToIndex(
+            sql: String,
+            tableName: String,
+            isImproved: (QueryPlan) -> Boolean): List<String> {
+        val entity = entities.firstOrNull { it.tableName.equals(tableName, ignoreCase = true) }
+                ?: return emptyList()
+        val indexedColumns = entity.indices.map { it.columnNames.first() } +
+                entity.primaryKey.columnNames.take(1)
+        val strippedSql = stripLocalizeCollations(sql)
+        // kotlin-stdlib only has use {} for Closeable, which Statement is not.
+        val stmt = connection.createStatement()
+        try {
+            return entity.fields
+                    .map { it.columnName }
+                    .filterNot { indexedColumns.contains(it) }
+                    .filter { columnName ->
+                        stmt.execute("SAVEPOINT $WHAT_IF_SAVEPOINT")
+                        try {
+                            stmt.execute("CREATE INDEX `$WHAT_IF_INDEX` ON `${entity.tableName}`" +
+                                    " (`$columnName`)")
+                            isImproved(explainQuery(strippedSql))
+                        } catch (ex: SQLException) {
+                            false
+                        } finally {
+                            stmt.execute("ROLLBACK TO $WHAT_IF_SAVEPOINT")
+                            stmt.execute("RELEASE $WHAT_IF_SAVEPOINT")
+                        }
+                    }
+        } finally {
+            stmt.close()
+        }
+    }
+
+    private fun explainQuery(sql: String): QueryPlan {
+        val stmt = connection.prepareStatement("EXPLAIN QUERY PLAN $sql")
+        // bind arguments are not known at compile time.
+        for (index in 1..stmt.parameterMetaData.parameterCount) {
+            stmt.setNull(index, Types.NULL)
+        }
+        val details = arrayListOf<String>()
+        val resultSet = stmt.executeQuery()
+        try {
+            while (resultSet.next()) {
+                details.add(resultSet.getString("detail"))
             }
+        } finally {
+            resultSet.close()
+            stmt.close()
+        }
+        return QueryPlan(details)
+    }
+
+    /**
+     * Hands the connection back to the [VerifierConnectionCache]. Must be called once the
+     * verifier is not used anymore.
+     */
+    fun release(context: Context) {
+        if (!connection.isClosed) {
+            context.cache.verifierConnections.release(schema, connection)
         }
     }
 }
@@ -0,0 +1,63 @@
+/*
+ * Copyright (C) 2018 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package androidx.room.verifier
+
+/**
+ * The steps SQLite takes to run a query, as reported by EXPLAIN QUERY PLAN.
+ * <p>
+ * This information is obtained by explaining the query against the in memory database at compile
+ * time, so it does not know about the amount of data the tables will have at runtime.
+ */
+data class QueryPlan(val details: List<String>) {
+    companion object {
+        // e.g. SCAN TABLE User, SCAN TABLE User AS u USING INDEX index_User_name
+        private val SCAN_PATTERN = Regex("^SCAN (?:TABLE )?(\\S+)(?: AS \\S+)?(.*)$")
+        private val TEMP_B_TREE_PATTERN = Regex("^USE TEMP B-TREE FOR (.+)$")
+        private val CORRELATED_SUBQUERY_PATTERN = Regex("^EXECUTE CORRELATED .*SUBQUERY.*$")
+    }
+
+    /**
+     * Names of the tables that are scanned without using any index.
+     */
+    val fullTableScans: List<String> by lazy {
+        details.mapNotNull {
+            SCAN_PATTERN.matchEntire(it)?.let { match ->
+                if (match.groupValues[2].contains("USING")) {
+                    null
+                } else {
+                    match.groupValues[1]
+                }
+            }
+        }.distinct()
+    }
+
+    /**
+     * Clauses (e.g. ORDER BY, GROUP BY) that are computed via a temporary B-tree.
+     */
+    val tempBTrees: List<String> by lazy {
+        details.mapNotNull {
+            TEMP_B_TREE_PATTERN.matchEntire(it)?.groupValues?.get(1)
+        }.distinct()
+    }
+
+    /**
+     * Whether the query has subqueries that are run again for every row of the outer query.
+     */
+    val hasCorrelatedSubquery: Boolean by lazy {
+        details.any { CORRELATED_SUBQUERY_PATTERN.matches(it) }
+    }
+}
@@ -0,0 +1,91 @@
+/*
+ * Copyright (C) 2018 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package androidx.room.verifier
+
+import java.sql.Connection
+
+/**
+ * Keeps the connections of [DatabaseVerifier]s that are done, so that a database with the same
+ * schema does not have to create it again, e.g. when it is processed again in a later round.
+ * <p>
+ * A connection is only handed out to a single verifier at a time. Once there are more than
+ * [maxSize] schemas, the least recently used connections are closed.
+ */
+class VerifierConnectionCache(private val maxSize: Int = DEFAULT_MAX_SIZE) {
+    companion object {
+        const val DEFAULT_MAX_SIZE = 4
+    }
+
+    // schema (create table queries in order) to connection, in access order.
+    private val connections = LinkedHashMap<List<String>, Connection>(16, 0.75f, true)
+
+    var hitCount = 0
+        private set
+
+    var missCount = 0
+        private set
+
+    /**
+     * Returns a connection with the given schema, which is then owned by the caller, or null if
+     * there is none.
+     */
+    @Synchronized
+    fun acquire(schema: List<String>): Connection? {
+        val connection = connections.remove(schema)
+        if (connection == null || connection.isClosed) {
+            missCount++
+            return null
+        }
+        hitCount++
+        return connection
+    }
+
+    /**
+     * Takes back a connection with the given schema. The connection is closed if another one with
+     * the same schema is already kept.
+     */
+    @Synchronized
+    fun release(schema: List<String>, connection: Connection) {
+        if (connections.containsKey(schema)) {
+            closeQuietly(connection)
+            return
+        }
+        connections[schema] = connection
+        while (connections.size > maxSize) {
+            val eldest = connections.entries.iterator().next()
+            connections.remove(eldest.key)
+            closeQuietly(eldest.value)
+        }
+    }
+
+    /**
+     * Closes all the kept connections.
+     */
+    @Synchronized
+    fun clear() {
+        connections.values.forEach { closeQuietly(it) }
+        connections.clear()
+    }
+
+    private fun closeQuietly(connection: Connection) {
+        try {
+            connection.close()
+        } catch (t: Throwable) {
+            // ignore.
+        }
+    }
+}
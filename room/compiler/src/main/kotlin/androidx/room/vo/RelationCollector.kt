@@ -24,7 +24,6 @@ import androidx.room.ext.T
 import androidx.room.ext.typeName
 import androidx.room.parser.ParsedQuery
 import androidx.room.parser.SQLTypeAffinity
-import androidx.room.parser.SqlParser
 import androidx.room.processor.Context
 import androidx.room.processor.ProcessorErrors.CANNOT_FIND_QUERY_RESULT_ADAPTER
 import androidx.room.processor.ProcessorErrors.relationAffinityMismatch
@@ -173,7 +172,7 @@ data class RelationCollector(val relation: Relation,
                 val set = context.processingEnv.elementUtils.getTypeElement("java.util.Set")
                 val keySet = context.processingEnv.typeUtils.getDeclaredType(set, keyTypeMirror)
                 val loadAllQuery = relation.createLoadAllSql()
-                val parsedQuery = SqlParser.parse(loadAllQuery)
+                val parsedQuery = context.cache.parsedQueries.parse(loadAllQuery)
                 context.checker.check(parsedQuery.errors.isEmpty(), relation.field.element,
                         parsedQuery.errors.joinToString("\n"))
                 if (parsedQuery.errors.isEmpty()) {
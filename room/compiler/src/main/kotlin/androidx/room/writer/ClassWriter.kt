@@ -28,6 +28,7 @@ import com.squareup.javapoet.MethodSpec
 import com.squareup.javapoet.TypeName
 import com.squareup.javapoet.TypeSpec
 import javax.annotation.processing.ProcessingEnvironment
+import javax.lang.model.element.Element
 
 /**
  * Base class for all writers that can produce a class.
@@ -40,8 +41,15 @@ abstract class ClassWriter(private val className: ClassName) {
 
     abstract fun createTypeSpecBuilder(): TypeSpec.Builder
 
+    /**
+     * The element the generated class is created for. It is reported to the Filer so that
+     * incremental builds know which generated file to re-create when a source file changes.
+     */
+    abstract val originatingElement: Element
+
     fun write(processingEnv: ProcessingEnvironment) {
         val builder = createTypeSpecBuilder()
+        builder.addOriginatingElement(originatingElement)
         sharedFieldSpecs.values.forEach { builder.addField(it) }
         sharedMethodSpecs.values.forEach { builder.addMethod(it) }
         addGeneratedAnnotationIfAvailable(builder, processingEnv)
@@ -43,6 +43,7 @@ import com.squareup.javapoet.TypeSpec
 import me.eugeniomarletti.kotlin.metadata.shadow.load.java.JvmAbi
 import stripNonJava
 import javax.annotation.processing.ProcessingEnvironment
+import javax.lang.model.element.Element
 import javax.lang.model.element.ElementKind
 import javax.lang.model.element.ExecutableElement
 import javax.lang.model.element.Modifier.FINAL
@@ -53,8 +54,12 @@ import javax.lang.model.type.TypeKind
 
 /**
  * Creates the implementation for a class annotated with Dao.
+ * <p>
+ * The implementation is generated while processing the database that uses the Dao, so the
+ * database element is its originating element.
  */
-class DaoWriter(val dao: Dao, val processingEnv: ProcessingEnvironment)
+class DaoWriter(val dao: Dao, private val dbElement: Element,
+                val processingEnv: ProcessingEnvironment)
     : ClassWriter(dao.typeName) {
     private val declaredDao = MoreTypes.asDeclared(dao.element.asType())
 
@@ -73,6 +78,9 @@ class DaoWriter(val dao: Dao, val processingEnv: ProcessingEnvironment)
         }
     }
 
+    override val originatingElement: Element
+        get() = dbElement
+
     override fun createTypeSpecBuilder(): TypeSpec.Builder {
         val builder = TypeSpec.classBuilder(dao.implTypeName)
         /**
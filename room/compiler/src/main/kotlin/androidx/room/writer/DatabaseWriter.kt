@@ -33,6 +33,7 @@ import com.squareup.javapoet.ParameterSpec
 import com.squareup.javapoet.TypeName
 import com.squareup.javapoet.TypeSpec
 import stripNonJava
+import javax.lang.model.element.Element
 import javax.lang.model.element.Modifier
 import javax.lang.model.element.Modifier.PRIVATE
 import javax.lang.model.element.Modifier.PROTECTED
@@ -43,6 +44,9 @@ import javax.lang.model.element.Modifier.VOLATILE
  * Writes implementation of classes that were annotated with @Database.
  */
 class DatabaseWriter(val database: Database) : ClassWriter(database.implTypeName) {
+    override val originatingElement: Element
+        get() = database.element
+
     override fun createTypeSpecBuilder(): TypeSpec.Builder {
         val builder = TypeSpec.classBuilder(database.implTypeName)
         builder.apply {
@@ -0,0 +1,76 @@
+/*
+ * Copyright (C) 2018 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package androidx.room.parser
+
+import androidx.room.verifier.QueryResultInfo
+import org.hamcrest.CoreMatchers.`is`
+import org.hamcrest.CoreMatchers.not
+import org.hamcrest.CoreMatchers.nullValue
+import org.hamcrest.CoreMatchers.sameInstance
+import org.hamcrest.MatcherAssert.assertThat
+import org.junit.Test
+import org.junit.runner.RunWith
+import org.junit.runners.JUnit4
+
+@RunWith(JUnit4::class)
+class ParsedQueryCacheTest {
+    @Test
+    fun parseOnce() {
+        val cache = ParsedQueryCache()
+        val first = cache.parse("SELECT * FROM users WHERE id = :id")
+        val second = cache.parse("SELECT * FROM users WHERE id = :id")
+        assertThat(cache.missCount, `is`(1))
+        assertThat(cache.hitCount, `is`(1))
+        assertThat(second, `is`(first))
+        assertThat(second, not(sameInstance(first)))
+    }
+
+    @Test
+    fun resultInfoIsNotShared() {
+        val cache = ParsedQueryCache()
+        val first = cache.parse("SELECT * FROM users")
+        first.resultInfo = QueryResultInfo(emptyList())
+        assertThat(cache.parse("SELECT * FROM users").resultInfo, nullValue())
+    }
+
+    @Test
+    fun syntaxErrors() {
+        val cache = ParsedQueryCache()
+        cache.prepare(listOf("SELECT FROM"), 2)
+        assertThat(cache.parse("SELECT FROM").errors,
+                `is`(SqlParser.parse("SELECT FROM").errors))
+    }
+
+    @Test
+    fun prepareInParallel() {
+        val queries = (0 until 200).map {
+            "SELECT * FROM users u$it JOIN books b ON u$it.id = b.uid WHERE b.id > :arg$it"
+        }
+        val cache = ParsedQueryCache()
+        cache.prepare(queries + queries, 4)
+        queries.forEach { query ->
+            val expected = SqlParser.parse(query)
+            val parsed = cache.parse(query)
+            assertThat(parsed.type, `is`(expected.type))
+            assertThat(parsed.tables, `is`(expected.tables))
+            assertThat(parsed.inputs.map { it.text }, `is`(expected.inputs.map { it.text }))
+            assertThat(parsed.errors, `is`(expected.errors))
+        }
+        assertThat(cache.missCount, `is`(0))
+        assertThat(cache.hitCount, `is`(queries.size))
+    }
+}
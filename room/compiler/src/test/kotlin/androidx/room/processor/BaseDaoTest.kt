@@ -163,7 +163,8 @@ class BaseDaoTest {
                     .getTypeElement(RoomTypeNames.ROOM_DB.toString()).asType())
             val processedDao = DaoProcessor(invocation.context, daoElm, dbType, null).process()
             handler(processedDao)
-            DaoWriter(processedDao, invocation.processingEnv).write(invocation.processingEnv)
+            DaoWriter(processedDao, dbType.asElement(), invocation.processingEnv)
+                    .write(invocation.processingEnv)
         }.compilesWithoutError()
     }
 }
\ No newline at end of file
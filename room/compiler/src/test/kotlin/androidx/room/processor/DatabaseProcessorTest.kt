@@ -36,6 +36,7 @@ import org.hamcrest.CoreMatchers.not
 import org.hamcrest.CoreMatchers.notNullValue
 import org.hamcrest.CoreMatchers.sameInstance
 import org.hamcrest.MatcherAssert.assertThat
+import org.junit.Ignore
 import org.junit.Test
 import org.junit.runner.RunWith
 import org.junit.runners.JUnit4
@@ -175,6 +176,38 @@ class DatabaseProcessorTest {
         }.compilesWithoutError()
     }
 
+    @Test
+    fun queriesAreParsedBeforeDaos() {
+        singleDb("""
+            @Database(entities = {User.class}, version = 42)
+            public abstract class MyDb extends RoomDatabase {
+                abstract UserDao userDao();
+            }
+            """, USER, USER_DAO) { _, invocation ->
+            val parsedQueries = invocation.context.cache.parsedQueries
+            assertThat(parsedQueries.missCount, `is`(0))
+            assertThat(parsedQueries.hitCount, `is`(6))
+        }.compilesWithoutError()
+    }
+
+    @Ignore("benchmark")
+    @Test
+    fun benchmark_manyQueries() {
+        val sources = manyQueriesDb(2000)
+        val parallelism = Runtime.getRuntime().availableProcessors()
+        // the first compilation warms up the compiler and the processor
+        val (_, serialNanos, parallelNanos) = listOf(parallelism, 1, parallelism).map {
+            val start = System.nanoTime()
+            Truth.assertAbout(JavaSourcesSubjectFactory.javaSources())
+                    .that(sources)
+                    .withCompilerOptions("-Aroom.parallelism=$it")
+                    .processedWith(RoomProcessor())
+                    .compilesWithoutError()
+            System.nanoTime() - start
+        }
+        assertThat(parallelNanos < serialNanos, `is`(true))
+    }
+
     @Test
     fun detectMissingBaseClass() {
         singleDb("""
@@ -687,6 +720,39 @@ class DatabaseProcessorTest {
                 .processedWith(RoomProcessor())
     }
 
+    private fun manyQueriesDb(queryCount: Int): List<JavaFileObject> {
+        val methods = (0 until queryCount).joinToString("\n") {
+            """
+            @Query("SELECT * FROM Item WHERE value > :min + $it ORDER BY id")
+            java.util.List<Item> query$it(int min);
+            """
+        }
+        return listOf(
+                JavaFileObjects.forSourceString("foo.bar.Item", """
+                    $DATABASE_PREFIX
+                    @Entity
+                    public class Item {
+                        @PrimaryKey
+                        public int id;
+                        public int value;
+                    }
+                    """),
+                JavaFileObjects.forSourceString("foo.bar.ItemDao", """
+                    $DATABASE_PREFIX
+                    @Dao
+                    public interface ItemDao {
+                        $methods
+                    }
+                    """),
+                JavaFileObjects.forSourceString("foo.bar.ItemDb", """
+                    $DATABASE_PREFIX
+                    @Database(entities = {Item.class}, version = 1, exportSchema = false)
+                    public abstract class ItemDb extends RoomDatabase {
+                        abstract ItemDao itemDao();
+                    }
+                    """))
+    }
+
     fun singleDb(input: String, vararg otherFiles: JavaFileObject,
                  handler: (Database, TestInvocation) -> Unit): CompileTester {
         return Truth.assertAbout(JavaSourcesSubjectFactory.javaSources())
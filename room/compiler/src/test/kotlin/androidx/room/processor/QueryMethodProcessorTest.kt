@@ -38,6 +38,7 @@ import androidx.room.solver.query.result.PojoRowAdapter
 import androidx.room.solver.query.result.SingleEntityQueryResultAdapter
 import androidx.room.testing.TestInvocation
 import androidx.room.testing.TestProcessor
+import androidx.room.verifier.DatabaseVerificaitonErrors
 import androidx.room.vo.Field
 import androidx.room.vo.QueryMethod
 import androidx.room.vo.Warning
@@ -578,6 +579,27 @@ class QueryMethodProcessorTest(val enableVerification: Boolean) {
         }.compilesWithoutError()
     }
 
+    @Test
+    fun queryPlanWarnings() {
+        if (!enableVerification) {
+            return
+        }
+        val query = """
+                @Query("SELECT * FROM User WHERE name = :name")
+                abstract java.util.List<User> loadByName(String name);
+                """
+        val enabled = listOf("-Aroom.queryPlanWarnings=true")
+        singleQueryMethod(query, options = enabled) { _, _ ->
+        }.compilesWithoutError().withWarningContaining(
+                DatabaseVerificaitonErrors.fullTableScan("User", listOf("name")))
+        // the query plan is not checked by default
+        singleQueryMethod(query) { _, _ ->
+        }.compilesWithoutError().withWarningCount(0)
+        singleQueryMethod("@SuppressWarnings(RoomWarnings.QUERY_PLAN_FULL_TABLE_SCAN)", query,
+                options = enabled) { _, _ ->
+        }.compilesWithoutError().withWarningCount(0)
+    }
+
     @Test
     fun relationWithExtendsBounds() {
         if (!enableVerification) {
@@ -811,6 +833,7 @@ class QueryMethodProcessorTest(val enableVerification: Boolean) {
 
     private fun singleQueryMethod(
         vararg input: String,
+        options: List<String> = emptyList(),
         handler: (QueryMethod, TestInvocation) -> Unit
     ): CompileTester {
         return assertAbout(JavaSourcesSubjectFactory.javaSources())
@@ -822,6 +845,7 @@ class QueryMethodProcessorTest(val enableVerification: Boolean) {
                     ), COMMON.LIVE_DATA, COMMON.COMPUTABLE_LIVE_DATA, COMMON.USER, COMMON.BOOK
                 )
             )
+            .withCompilerOptions(options)
             .processedWith(TestProcessor.builder()
                 .forAnnotations(
                     Query::class, Dao::class, ColumnInfo::class,
@@ -27,12 +27,15 @@ import androidx.room.vo.Entity
 import androidx.room.vo.Field
 import androidx.room.vo.FieldGetter
 import androidx.room.vo.FieldSetter
+import androidx.room.vo.Index
 import androidx.room.vo.PrimaryKey
 import collect
 import columnNames
 import org.hamcrest.CoreMatchers.`is`
 import org.hamcrest.CoreMatchers.hasItem
+import org.hamcrest.CoreMatchers.not
 import org.hamcrest.CoreMatchers.notNullValue
+import org.hamcrest.CoreMatchers.sameInstance
 import org.hamcrest.MatcherAssert.assertThat
 import org.junit.Test
 import org.junit.runner.RunWith
@@ -66,6 +69,26 @@ class DatabaseVerifierTest(private val useLocalizedCollation: Boolean) {
         }.compilesWithoutError()
     }
 
+    @Test
+    fun testConnectionReusedForSameSchema() {
+        simpleRun { invocation ->
+            val connections = invocation.context.cache.verifierConnections
+            val hitCount = connections.hitCount
+            val first = createVerifier(invocation)
+            first.release(invocation.context)
+            val second = createVerifier(invocation)
+            assertThat(second.connection, sameInstance(first.connection))
+            assertThat(connections.hitCount, `is`(hitCount + 1))
+
+            // the connection is not shared until it is released
+            val third = createVerifier(invocation)
+            assertThat(third.connection, not(sameInstance(second.connection)))
+            second.release(invocation.context)
+            third.release(invocation.context)
+            assertThat(third.connection.isClosed, `is`(true))
+        }.compilesWithoutError()
+    }
+
     private fun createVerifier(invocation: TestInvocation): DatabaseVerifier {
         return DatabaseVerifier.create(invocation.context, mock(Element::class.java),
                 userDb(invocation.context).entities)!!
@@ -185,6 +208,68 @@ class DatabaseVerifierTest(private val useLocalizedCollation: Boolean) {
         }.compilesWithoutError()
     }
 
+    @Test
+    fun testQueryPlan_fullTableScan() {
+        simpleRun { invocation ->
+            val verifier = createVerifier(invocation)
+            val sql = "select * from User where name = ?"
+            val plan = verifier.explain(sql)!!
+            assertThat(plan.fullTableScans, `is`(listOf("User")))
+            val columns = verifier.findColumnsToIndex(sql, "User") {
+                !it.fullTableScans.contains("User")
+            }
+            assertThat(columns, `is`(listOf("name")))
+            // the tried indices are rolled back
+            val rs = verifier.connection.createStatement()
+                    .executeQuery("select * from sqlite_master WHERE type='index'")
+            assertThat(rs.collect { set -> set.getString("name") }, `is`(emptyList<String>()))
+        }.compilesWithoutError()
+    }
+
+    @Test
+    fun testQueryPlan_primaryKey() {
+        simpleRun { invocation ->
+            val verifier = createVerifier(invocation)
+            val plan = verifier.explain("select * from User where id = ?")!!
+            assertThat(plan.fullTableScans, `is`(emptyList<String>()))
+        }.compilesWithoutError()
+    }
+
+    @Test
+    fun testQueryPlan_orderBy() {
+        simpleRun { invocation ->
+            val verifier = createVerifier(invocation)
+            val sql = "select * from User order by lastName"
+            val plan = verifier.explain(sql)!!
+            assertThat(plan.tempBTrees, `is`(listOf("ORDER BY")))
+            val columns = verifier.findColumnsToIndex(sql, "User") {
+                !it.tempBTrees.contains("ORDER BY")
+            }
+            assertThat(columns, `is`(listOf("lastName")))
+        }.compilesWithoutError()
+    }
+
+    @Test
+    fun testQueryPlan_entityIndex() {
+        simpleRun { invocation ->
+            val entities = indexedUserDb(invocation.context).entities
+            val verifier = DatabaseVerifier.create(invocation.context,
+                    mock(Element::class.java), entities)!!
+            val rs = verifier.connection.createStatement()
+                    .executeQuery("select * from sqlite_master WHERE type='index'")
+            assertThat(rs.collect { set -> set.getString("name") },
+                    `is`(listOf("index_User_name")))
+            val plan = verifier.explain("select * from User where name = ?")!!
+            assertThat(plan.fullTableScans, `is`(emptyList<String>()))
+            assertThat(plan.tempBTrees, `is`(emptyList<String>()))
+            verifier.release(invocation.context)
+            // the index is part of the schema, so the index-less connection is not reused
+            val unindexed = createVerifier(invocation)
+            assertThat(unindexed.connection, not(sameInstance(verifier.connection)))
+            unindexed.release(invocation.context)
+        }.compilesWithoutError()
+    }
+
     private fun validQueryTest(sql: String, cb: (QueryResultInfo) -> Unit) {
         simpleRun { invocation ->
             val verifier = createVerifier(invocation)
@@ -201,6 +286,15 @@ class DatabaseVerifierTest(private val useLocalizedCollation: Boolean) {
                 field("ratio", primitive(context, TypeKind.FLOAT), SQLTypeAffinity.REAL)))
     }
 
+    private fun indexedUserDb(context: Context): Database {
+        val name = field("name", context.COMMON_TYPES.STRING, SQLTypeAffinity.TEXT)
+        return database(entity("User",
+                listOf(Index("index_User_name", false, listOf(name))),
+                field("id", primitive(context, TypeKind.INT), SQLTypeAffinity.INTEGER),
+                name,
+                field("lastName", context.COMMON_TYPES.STRING, SQLTypeAffinity.TEXT)))
+    }
+
     private fun database(vararg entities: Entity): Database {
         return Database(
                 element = mock(TypeElement::class.java),
@@ -213,13 +307,17 @@ class DatabaseVerifierTest(private val useLocalizedCollation: Boolean) {
     }
 
     private fun entity(tableName: String, vararg fields: Field): Entity {
+        return entity(tableName, emptyList(), *fields)
+    }
+
+    private fun entity(tableName: String, indices: List<Index>, vararg fields: Field): Entity {
         return Entity(
                 element = mock(TypeElement::class.java),
                 tableName = tableName,
                 type = mock(DeclaredType::class.java),
                 fields = fields.toList(),
                 embeddedFields = emptyList(),
-                indices = emptyList(),
+                indices = indices,
                 primaryKey = PrimaryKey(null, fields.take(1), false),
                 foreignKeys = emptyList(),
                 constructor = Constructor(mock(ExecutableElement::class.java), emptyList())
@@ -0,0 +1,62 @@
+/*
+ * Copyright (C) 2018 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package androidx.room.verifier
+
+import org.hamcrest.CoreMatchers.`is`
+import org.hamcrest.MatcherAssert.assertThat
+import org.junit.Test
+import org.junit.runner.RunWith
+import org.junit.runners.JUnit4
+
+@RunWith(JUnit4::class)
+class QueryPlanTest {
+    @Test
+    fun fullTableScans() {
+        val plan = QueryPlan(listOf(
+                "SCAN TABLE User",
+                "SCAN TABLE Pet AS p",
+                "SCAN TABLE Book USING INDEX index_Book_title",
+                "SCAN TABLE Toy AS t USING COVERING INDEX index_Toy_name",
+                "SEARCH TABLE Owner USING INTEGER PRIMARY KEY (rowid=?)"))
+        assertThat(plan.fullTableScans, `is`(listOf("User", "Pet")))
+    }
+
+    @Test
+    fun fullTableScans_newFormat() {
+        val plan = QueryPlan(listOf("SCAN User", "SCAN Book USING INDEX index_Book_title"))
+        assertThat(plan.fullTableScans, `is`(listOf("User")))
+    }
+
+    @Test
+    fun tempBTrees() {
+        val plan = QueryPlan(listOf(
+                "SCAN TABLE User",
+                "USE TEMP B-TREE FOR GROUP BY",
+                "USE TEMP B-TREE FOR ORDER BY"))
+        assertThat(plan.tempBTrees, `is`(listOf("GROUP BY", "ORDER BY")))
+        assertThat(plan.hasCorrelatedSubquery, `is`(false))
+    }
+
+    @Test
+    fun correlatedSubquery() {
+        val plan = QueryPlan(listOf(
+                "SCAN TABLE User",
+                "EXECUTE CORRELATED SCALAR SUBQUERY 1",
+                "SEARCH TABLE Pet USING INDEX index_Pet_userId (userId=?)"))
+        assertThat(plan.hasCorrelatedSubquery, `is`(true))
+    }
+}
@@ -99,7 +99,7 @@ class DaoWriterTest {
                                     dbType = dbType,
                                     dbVerifier = createVerifierFromEntities(invocation))
                             val parsedDao = parser.process()
-                            DaoWriter(parsedDao, invocation.processingEnv)
+                            DaoWriter(parsedDao, dbType.asElement(), invocation.processingEnv)
                                     .write(invocation.processingEnv)
                             true
                         }
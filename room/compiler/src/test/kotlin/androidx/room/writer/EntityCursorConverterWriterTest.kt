@@ -24,6 +24,7 @@ import com.squareup.javapoet.TypeSpec
 import org.junit.Test
 import org.junit.runner.RunWith
 import org.junit.runners.JUnit4
+import javax.lang.model.element.Element
 import javax.lang.model.element.Modifier
 
 @RunWith(JUnit4::class)
@@ -94,6 +95,9 @@ class EntityCursorConverterWriterTest : BaseEntityParserTest() {
         return singleEntity(input, attributes) { entity, invocation ->
             val className = ClassName.get("foo.bar", "MyContainerClass")
             val writer = object : ClassWriter(className) {
+                override val originatingElement: Element
+                    get() = entity.element
+
                 override fun createTypeSpecBuilder(): TypeSpec.Builder {
                     getOrCreateMethod(EntityCursorConverterWriter(entity))
                     return TypeSpec.classBuilder(className).apply {
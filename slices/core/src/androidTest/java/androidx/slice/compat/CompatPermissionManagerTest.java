@@ -16,6 +16,8 @@
 
 package androidx.slice.compat;
 
+import static android.content.Context.MODE_PRIVATE;
+
 import static androidx.core.content.PermissionChecker.PERMISSION_DENIED;
 import static androidx.core.content.PermissionChecker.PERMISSION_GRANTED;
 
@@ -91,4 +93,44 @@ public class CompatPermissionManagerTest {
 
     }
 
+    @Test
+    public void testPersist() {
+        final Uri uri = new Uri.Builder()
+                .scheme(ContentResolver.SCHEME_CONTENT)
+                .authority("my.authority")
+                .path("my_path")
+                .build();
+        final int pid = Process.myPid() + 1;
+        final int uid = Process.myUid() + 1;
+
+        Context pkgContext = new ContextWrapper(mContext) {
+            @Override
+            public PackageManager getPackageManager() {
+                PackageManager pm = spy(super.getPackageManager());
+                when(pm.getPackagesForUid(uid)).thenReturn(new String[] { "other_pkg"});
+                return pm;
+            }
+        };
+        try {
+            CompatPermissionManager manager = new CompatPermissionManager(pkgContext,
+                    "test_permissions", 0, new String[0]);
+            assertEquals(PERMISSION_DENIED, manager.checkSlicePermission(uri, pid, uid));
+            manager.grantSlicePermission(uri, "other_pkg");
+            assertEquals(PERMISSION_GRANTED, manager.checkSlicePermission(uri, pid, uid));
+            manager.persist();
+
+            CompatPermissionManager other = new CompatPermissionManager(pkgContext,
+                    "test_permissions", 0, new String[0]);
+            assertEquals(PERMISSION_GRANTED, other.checkSlicePermission(uri, pid, uid));
+            // Revocations are written before returning, without waiting for persist().
+            other.revokeSlicePermission(uri, "other_pkg");
+            assertEquals(PERMISSION_DENIED, other.checkSlicePermission(uri, pid, uid));
+
+            CompatPermissionManager reloaded = new CompatPermissionManager(pkgContext,
+                    "test_permissions", 0, new String[0]);
+            assertEquals(PERMISSION_DENIED, reloaded.checkSlicePermission(uri, pid, uid));
+        } finally {
+            mContext.getSharedPreferences("test_permissions", MODE_PRIVATE).edit().clear().commit();
+        }
+    }
 }
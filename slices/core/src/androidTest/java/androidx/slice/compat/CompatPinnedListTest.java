@@ -25,8 +25,10 @@ import static junit.framework.Assert.assertTrue;
 import android.content.Context;
 import android.net.Uri;
 import android.support.test.InstrumentationRegistry;
+import android.support.test.filters.LargeTest;
 import android.support.test.filters.SmallTest;
 import android.support.test.runner.AndroidJUnit4;
+import android.util.Log;
 
 import androidx.collection.ArraySet;
 import androidx.slice.SliceSpec;
@@ -40,12 +42,21 @@ import org.junit.runner.RunWith;
 
 import java.util.Arrays;
 import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
 import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
 
 @RunWith(AndroidJUnit4.class)
 @SmallTest
 public class CompatPinnedListTest {
 
+    private static final String TAG = "CompatPinnedListTest";
+    private static final int THREAD_COUNT = 8;
+    private static final int CALLS_PER_THREAD = 2000;
+    private static final int URI_COUNT = 50;
+
     private final Context mContext = InstrumentationRegistry.getContext();
     private CompatPinnedList mCompatPinnedList;
     private Set<SliceSpec> mSpecs;
@@ -72,6 +83,8 @@ public class CompatPinnedListTest {
 
     @After
     public void tearDown() {
+        // Wait for any pending write, so that it doesn't land after the file is cleared.
+        mCompatPinnedList.persist();
         mContext.getSharedPreferences("test_file", MODE_PRIVATE).edit().clear().commit();
     }
 
@@ -127,6 +140,64 @@ public class CompatPinnedListTest {
         })), mCompatPinnedList.getSpecs(uri));
     }
 
+    @Test
+    public void testPersist() {
+        Uri uri = Uri.parse("content://something/something");
+        mCompatPinnedList.addPin(uri, "my_pkg", new ArraySet<>(Arrays.asList(FIRST_SPECS)));
+        mCompatPinnedList.addPin(uri, "my_pkg2", new ArraySet<>(Arrays.asList(SECOND_SPECS)));
+        mCompatPinnedList.removePin(uri, "my_pkg");
+        mCompatPinnedList.persist();
+
+        CompatPinnedList pinnedList = new CompatPinnedList(mContext, "test_file");
+        assertEquals(Collections.singletonList(uri), pinnedList.getPinnedSlices());
+        assertSetEquals(mCompatPinnedList.getSpecs(uri), pinnedList.getSpecs(uri));
+    }
+
+    @Test
+    @LargeTest
+    public void testConcurrentPinLatency() throws Exception {
+        final Set<SliceSpec> specs = new ArraySet<>(Arrays.asList(FIRST_SPECS));
+        final long[][] latencies = new long[THREAD_COUNT][CALLS_PER_THREAD];
+        final CountDownLatch done = new CountDownLatch(THREAD_COUNT);
+        for (int t = 0; t < THREAD_COUNT; t++) {
+            final int thread = t;
+            new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    String pkg = "pkg" + thread;
+                    for (int i = 0; i < CALLS_PER_THREAD; i++) {
+                        Uri uri = Uri.parse("content://something/" + (i % URI_COUNT));
+                        // The last round over the uris leaves its pins in place.
+                        long start = System.nanoTime();
+                        mCompatPinnedList.addPin(uri, pkg, specs);
+                        if (i < CALLS_PER_THREAD - URI_COUNT) {
+                            mCompatPinnedList.removePin(uri, pkg);
+                        }
+                        mCompatPinnedList.getSpecs(uri);
+                        latencies[thread][i] = System.nanoTime() - start;
+                    }
+                    done.countDown();
+                }
+            }).start();
+        }
+        assertTrue(done.await(60, TimeUnit.SECONDS));
+
+        List<Uri> pinned = mCompatPinnedList.getPinnedSlices();
+        assertEquals(URI_COUNT, pinned.size());
+        mCompatPinnedList.persist();
+        CompatPinnedList pinnedList = new CompatPinnedList(mContext, "test_file");
+        assertEquals(new HashSet<>(pinned), new HashSet<>(pinnedList.getPinnedSlices()));
+
+        long[] all = new long[THREAD_COUNT * CALLS_PER_THREAD];
+        for (int t = 0; t < THREAD_COUNT; t++) {
+            System.arraycopy(latencies[t], 0, all, t * CALLS_PER_THREAD, CALLS_PER_THREAD);
+        }
+        Arrays.sort(all);
+        Log.d(TAG, String.format("%d threads, %d calls: p50 %d us, p99 %d us, max %d us",
+                THREAD_COUNT, all.length, all[all.length / 2] / 1000,
+                all[all.length * 99 / 100] / 1000, all[all.length - 1] / 1000));
+    }
+
     private <T> void assertSetEquals(Set<T> a, Set<T> b) {
         if (a.size() != b.size()) {
             throw new AssertionFailedError("Wanted " + a + " but received " + b);
@@ -27,14 +27,22 @@ import android.text.TextUtils;
 import android.util.Log;
 
 import androidx.annotation.RestrictTo;
+import androidx.annotation.VisibleForTesting;
 import androidx.collection.ArraySet;
 
 import java.util.Collections;
 import java.util.List;
 import java.util.Objects;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
+ * Tracks the slice permissions granted to other packages.
+ * <p>
+ * The permissions are held in memory once read, where they are checked without locking, and
+ * grants are written to {@link SharedPreferences} in the background. Grants made while a write is
+ * pending are coalesced into it. Revocations are written before they return, so that they are
+ * never lost if the process dies.
  * @hide
  */
 @RestrictTo(RestrictTo.Scope.LIBRARY)
@@ -48,6 +56,14 @@ public class CompatPermissionManager {
     private final int mMyUid;
     private final String[] mAutoGrantPermissions;
 
+    // The permissions of every package and authority which has been read. States are never
+    // modified, but replaced while holding the lock of this manager.
+    private final ConcurrentHashMap<String, PermissionState> mStates =
+            new ConcurrentHashMap<>();
+    private final Object mPersistLock = new Object();
+    // The keys whose states have changed since they were last persisted. Guarded by this.
+    private final Set<String> mDirtyKeys = new ArraySet<>();
+
     public CompatPermissionManager(Context context, String prefsName, int myUid,
             String[] autoGrantPermissions) {
         mContext = context;
@@ -87,34 +103,81 @@ public class CompatPermissionManager {
         return state.hasAccess(uri.getPathSegments()) ? PERMISSION_GRANTED : PERMISSION_DENIED;
     }
 
-    public void grantSlicePermission(Uri uri, String toPkg) {
-        PermissionState state = getPermissionState(toPkg, uri.getAuthority());
+    public synchronized void grantSlicePermission(Uri uri, String toPkg) {
+        PermissionState state = new PermissionState(
+                getPermissionState(toPkg, uri.getAuthority()));
         if (state.addPath(uri.getPathSegments())) {
-            persist(state);
+            mStates.put(state.getKey(), state);
+            schedulePersist(state.getKey());
         }
     }
 
     public void revokeSlicePermission(Uri uri, String toPkg) {
-        PermissionState state = getPermissionState(toPkg, uri.getAuthority());
-        if (state.removePath(uri.getPathSegments())) {
-            persist(state);
+        synchronized (this) {
+            PermissionState state = new PermissionState(
+                    getPermissionState(toPkg, uri.getAuthority()));
+            if (!state.removePath(uri.getPathSegments())) {
+                return;
+            }
+            mStates.put(state.getKey(), state);
+            schedulePersist(state.getKey());
         }
+        // Outside of the lock of this manager, which persist() takes after its own.
+        persist();
     }
 
-    private synchronized void persist(PermissionState state) {
-        if (!getPrefs().edit()
-                .putStringSet(state.getKey(), state.toPersistable())
-                .putBoolean(state.getKey() + ALL_SUFFIX, state.hasAllPermissions())
-                .commit()) {
-            Log.e(TAG, "Unable to persist permissions");
+    private void schedulePersist(String key) {
+        // Called while holding the lock of this manager. A write is already pending unless this is
+        // the first change since the last one.
+        boolean persistPending = !mDirtyKeys.isEmpty();
+        mDirtyKeys.add(key);
+        if (!persistPending) {
+            CompatPinnedList.sPersistExecutor.execute(new Runnable() {
+                @Override
+                public void run() {
+                    persist();
+                }
+            });
+        }
+    }
+
+    /**
+     * Writes the permissions which have changed since they were last persisted.
+     */
+    @VisibleForTesting
+    void persist() {
+        // Only one thread writes at a time, so that older states never overwrite newer ones.
+        synchronized (mPersistLock) {
+            SharedPreferences.Editor editor = getPrefs().edit();
+            synchronized (this) {
+                if (mDirtyKeys.isEmpty()) {
+                    return;
+                }
+                for (String key : mDirtyKeys) {
+                    PermissionState state = mStates.get(key);
+                    editor.putStringSet(key, state.toPersistable())
+                            .putBoolean(key + ALL_SUFFIX, state.hasAllPermissions());
+                }
+                mDirtyKeys.clear();
+            }
+            if (!editor.commit()) {
+                Log.e(TAG, "Unable to persist permissions");
+            }
         }
     }
 
     private PermissionState getPermissionState(String pkg, String authority) {
         String key = pkg + "_" + authority;
+        PermissionState state = mStates.get(key);
+        if (state != null) {
+            return state;
+        }
         Set<String> grant = getPrefs().getStringSet(key, Collections.<String>emptySet());
         boolean hasAllPermissions = getPrefs().getBoolean(key + ALL_SUFFIX, false);
-        return new PermissionState(grant, key, hasAllPermissions);
+        state = new PermissionState(grant, key, hasAllPermissions);
+        // A grant made while reading has the newer state.
+        PermissionState existing = mStates.putIfAbsent(key, state);
+        return existing != null ? existing : state;
     }
 
     public static class PermissionState {
@@ -133,6 +196,11 @@ public class CompatPermissionManager {
             mKey = key;
         }
 
+        PermissionState(PermissionState other) {
+            mPaths.addAll(other.mPaths);
+            mKey = other.mKey;
+        }
+
         public boolean hasAllPermissions() {
             return hasAccess(Collections.<String>emptyList());
         }
@@ -21,6 +21,7 @@ import android.content.SharedPreferences;
 import android.net.Uri;
 import android.os.SystemClock;
 import android.text.TextUtils;
+import android.util.Log;
 
 import androidx.annotation.RestrictTo;
 import androidx.annotation.VisibleForTesting;
@@ -29,17 +30,29 @@ import androidx.core.util.ObjectsCompat;
 import androidx.slice.SliceSpec;
 
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
 
 /**
  * Tracks the current packages requesting pinning of any given slice. It will clear the
  * list after a reboot since the packages are no longer requesting pinning.
+ * <p>
+ * The pins are held in memory, where they are read without locking, and changes to them are
+ * written to {@link SharedPreferences} on a background thread of this package. Changes made while
+ * a write is pending are coalesced into it, so that pinning never waits on the disk.
  * @hide
  */
 @RestrictTo(RestrictTo.Scope.LIBRARY)
 public class CompatPinnedList {
 
+    private static final String TAG = "CompatPinnedList";
     private static final String LAST_BOOT = "last_boot";
     private static final String PIN_PREFIX = "pinned_";
     private static final String SPEC_NAME_PREFIX = "spec_names_";
@@ -51,9 +64,28 @@ public class CompatPinnedList {
     // Its probably safe to assume the device can't boot twice within 2 secs.
     private static final long BOOT_THRESHOLD = 2000;
 
+    // The lists with changes which have not been committed yet.
+    private static final Set<CompatPinnedList> sPendingLists = new ArraySet<>();
+
+    /**
+     * Runs the writes of pins and permissions in order, on a thread of its own that stops when
+     * idle, so that they are not queued behind unrelated work of the app.
+     */
+    static final Executor sPersistExecutor = new ThreadPoolExecutor(0, 1, 10, TimeUnit.SECONDS,
+            new LinkedBlockingQueue<Runnable>());
+
     private final Context mContext;
     private final String mPrefsName;
 
+    // The pin of every uri which has been pinned since the last reboot. Pins are never modified,
+    // but replaced while holding the lock of this list.
+    private final Map<Uri, Pin> mPins = new ConcurrentHashMap<>();
+    private volatile boolean mLoaded;
+
+    private final Object mPersistLock = new Object();
+    // The uris whose pins have changed since they were last persisted. Guarded by this.
+    private final Set<Uri> mDirtyUris = new ArraySet<>();
+
     public CompatPinnedList(Context context, String prefsName) {
         mContext = context;
         mPrefsName = prefsName;
@@ -72,32 +104,53 @@ public class CompatPinnedList {
         return prefs;
     }
 
+    private void ensureLoaded() {
+        if (mLoaded) {
+            return;
+        }
+        synchronized (this) {
+            if (mLoaded) {
+                return;
+            }
+            SharedPreferences prefs = getPrefs();
+            for (Map.Entry<String, ?> entry : prefs.getAll().entrySet()) {
+                String key = entry.getKey();
+                if (key.startsWith(PIN_PREFIX) && entry.getValue() instanceof Set) {
+                    Uri uri = Uri.parse(key.substring(PIN_PREFIX.length()));
+                    @SuppressWarnings("unchecked")
+                    Set<String> pkgs = (Set<String>) entry.getValue();
+                    mPins.put(uri, new Pin(new ArraySet<>(pkgs), readSpecs(prefs, uri)));
+                }
+            }
+            mLoaded = true;
+        }
+    }
+
     /**
      * Get pinned specs
      */
     public List<Uri> getPinnedSlices() {
+        ensureLoaded();
         List<Uri> pinned = new ArrayList<>();
-        for (String key : getPrefs().getAll().keySet()) {
-            if (key.startsWith(PIN_PREFIX)) {
-                Uri uri = Uri.parse(key.substring(PIN_PREFIX.length()));
-                if (!getPins(uri).isEmpty()) {
-                    pinned.add(uri);
-                }
+        for (Map.Entry<Uri, Pin> entry : mPins.entrySet()) {
+            if (!entry.getValue().mPkgs.isEmpty()) {
+                pinned.add(entry.getKey());
             }
         }
         return pinned;
     }
 
-    private Set<String> getPins(Uri uri) {
-        return getPrefs().getStringSet(PIN_PREFIX + uri.toString(), new ArraySet<String>());
-    }
-
     /**
      * Get the list of specs for a pinned Uri.
      */
-    public synchronized ArraySet<SliceSpec> getSpecs(Uri uri) {
+    public ArraySet<SliceSpec> getSpecs(Uri uri) {
+        ensureLoaded();
+        Pin pin = mPins.get(uri);
+        return pin != null ? new ArraySet<>(pin.mSpecs) : new ArraySet<SliceSpec>();
+    }
+
+    private static ArraySet<SliceSpec> readSpecs(SharedPreferences prefs, Uri uri) {
         ArraySet<SliceSpec> specs = new ArraySet<>();
-        SharedPreferences prefs = getPrefs();
         String specNamesStr = prefs.getString(SPEC_NAME_PREFIX + uri.toString(), null);
         String specRevsStr = prefs.getString(SPEC_REV_PREFIX + uri.toString(), null);
         if (TextUtils.isEmpty(specNamesStr) || TextUtils.isEmpty(specRevsStr)) {
@@ -114,23 +167,16 @@ public class CompatPinnedList {
         return specs;
     }
 
-    private void setPins(Uri uri, Set<String> pins) {
-        getPrefs().edit()
-                .putStringSet(PIN_PREFIX + uri.toString(), pins)
-                .commit();
-    }
-
-    private void setSpecs(Uri uri, ArraySet<SliceSpec> specs) {
+    private static void writeSpecs(SharedPreferences.Editor editor, Uri uri,
+            ArraySet<SliceSpec> specs) {
         String[] specNames = new String[specs.size()];
         String[] specRevs = new String[specs.size()];
         for (int i = 0; i < specs.size(); i++) {
             specNames[i] = specs.valueAt(i).getType();
             specRevs[i] = String.valueOf(specs.valueAt(i).getRevision());
         }
-        getPrefs().edit()
-                .putString(SPEC_NAME_PREFIX + uri.toString(), TextUtils.join(",", specNames))
-                .putString(SPEC_REV_PREFIX + uri.toString(), TextUtils.join(",", specRevs))
-                .commit();
+        editor.putString(SPEC_NAME_PREFIX + uri.toString(), TextUtils.join(",", specNames))
+                .putString(SPEC_REV_PREFIX + uri.toString(), TextUtils.join(",", specRevs));
     }
 
     @VisibleForTesting
@@ -143,15 +189,20 @@ public class CompatPinnedList {
      * uri was not previously pinned.
      */
     public synchronized boolean addPin(Uri uri, String pkg, Set<SliceSpec> specs) {
-        Set<String> pins = getPins(uri);
-        boolean wasNotPinned = pins.isEmpty();
-        pins.add(pkg);
-        setPins(uri, pins);
-        if (wasNotPinned) {
-            setSpecs(uri, new ArraySet<>(specs));
-        } else {
-            setSpecs(uri, mergeSpecs(getSpecs(uri), specs));
+        ensureLoaded();
+        Pin pin = mPins.get(uri);
+        boolean wasNotPinned = pin == null || pin.mPkgs.isEmpty();
+        ArraySet<SliceSpec> newSpecs = wasNotPinned
+                ? new ArraySet<>(specs)
+                : mergeSpecs(new ArraySet<>(pin.mSpecs), specs);
+        if (!wasNotPinned && pin.mPkgs.contains(pkg) && newSpecs.equals(pin.mSpecs)) {
+            // Nothing changed, so there is nothing to persist.
+            return false;
         }
+        ArraySet<String> pkgs = wasNotPinned ? new ArraySet<String>() : new ArraySet<>(pin.mPkgs);
+        pkgs.add(pkg);
+        mPins.put(uri, new Pin(pkgs, newSpecs));
+        schedulePersist(uri);
         return wasNotPinned;
     }
 
@@ -160,13 +211,82 @@ public class CompatPinnedList {
      * uri is no longer pinned (but was).
      */
     public synchronized boolean removePin(Uri uri, String pkg) {
-        Set<String> pins = getPins(uri);
-        if (pins.isEmpty() || !pins.contains(pkg)) {
+        ensureLoaded();
+        Pin pin = mPins.get(uri);
+        if (pin == null || !pin.mPkgs.contains(pkg)) {
             return false;
         }
-        pins.remove(pkg);
-        setPins(uri, pins);
-        return pins.size() == 0;
+        ArraySet<String> pkgs = new ArraySet<>(pin.mPkgs);
+        pkgs.remove(pkg);
+        mPins.put(uri, new Pin(pkgs, pin.mSpecs));
+        schedulePersist(uri);
+        return pkgs.size() == 0;
+    }
+
+    private void schedulePersist(Uri uri) {
+        // Called while holding the lock of this list. A write is already pending unless this is
+        // the first change since the last one.
+        boolean persistPending = !mDirtyUris.isEmpty();
+        mDirtyUris.add(uri);
+        if (!persistPending) {
+            synchronized (sPendingLists) {
+                sPendingLists.add(this);
+            }
+            sPersistExecutor.execute(new Runnable() {
+                @Override
+                public void run() {
+                    persist();
+                }
+            });
+        }
+    }
+
+    /**
+     * Synchronously writes the pending changes of every list in this process, so that they can
+     * be read back from {@link SharedPreferences} by other instances.
+     */
+    static void persistPending() {
+        List<CompatPinnedList> lists;
+        synchronized (sPendingLists) {
+            lists = new ArrayList<>(sPendingLists);
+        }
+        for (CompatPinnedList list : lists) {
+            list.persist();
+        }
+    }
+
+    /**
+     * Writes the pins which have changed since they were last persisted.
+     */
+    @VisibleForTesting
+    void persist() {
+        // Only one thread writes at a time, so that older pins never overwrite newer ones.
+        synchronized (mPersistLock) {
+            SharedPreferences.Editor editor = getPrefs().edit();
+            synchronized (this) {
+                if (mDirtyUris.isEmpty()) {
+                    return;
+                }
+                for (Uri uri : mDirtyUris) {
+                    Pin pin = mPins.get(uri);
+                    editor.putStringSet(PIN_PREFIX + uri.toString(), pin.mPkgs);
+                    writeSpecs(editor, uri, pin.mSpecs);
+                }
+                mDirtyUris.clear();
+            }
+            if (!editor.commit()) {
+                Log.e(TAG, "Unable to persist pinned slices");
+            }
+            synchronized (this) {
+                // Stay registered if there were changes during the commit, so that
+                // persistPending() still finds them.
+                if (mDirtyUris.isEmpty()) {
+                    synchronized (sPendingLists) {
+                        sPendingLists.remove(this);
+                    }
+                }
+            }
+        }
     }
 
     private static ArraySet<SliceSpec> mergeSpecs(ArraySet<SliceSpec> specs,
@@ -192,4 +312,17 @@ public class CompatPinnedList {
         }
         return null;
     }
+
+    /**
+     * The packages pinning a uri, and the specs they all support.
+     */
+    private static final class Pin {
+        final Set<String> mPkgs;
+        final ArraySet<SliceSpec> mSpecs;
+
+        Pin(ArraySet<String> pkgs, ArraySet<SliceSpec> specs) {
+            mPkgs = Collections.unmodifiableSet(pkgs);
+            mSpecs = specs;
+        }
+    }
 }
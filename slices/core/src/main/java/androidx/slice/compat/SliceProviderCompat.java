@@ -593,6 +593,8 @@ public class SliceProviderCompat {
      * Compat version of {@link android.app.slice.SliceManager#getPinnedSlices}.
      */
     public static List<Uri> getPinnedSlices(Context context) {
+        // Pins made in this process may not have been written to their files yet.
+        CompatPinnedList.persistPending();
         ArrayList<Uri> pinnedSlices = new ArrayList<>();
         SharedPreferences prefs = context.getSharedPreferences(ALL_FILES, 0);
         Set<String> prefSet = prefs.getStringSet(ALL_FILES, Collections.<String>emptySet());
@@ -0,0 +1,282 @@
+/*
+ * Copyright 2018 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package androidx.slice;
+
+import static android.app.slice.SliceItem.FORMAT_ACTION;
+import static android.app.slice.SliceItem.FORMAT_SLICE;
+import static android.app.slice.SliceItem.FORMAT_TEXT;
+
+import static junit.framework.Assert.assertEquals;
+import static junit.framework.Assert.assertTrue;
+
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+
+import android.app.PendingIntent;
+import android.content.Context;
+import android.graphics.Bitmap;
+import android.graphics.Canvas;
+import android.net.Uri;
+import android.support.test.InstrumentationRegistry;
+import android.support.test.filters.LargeTest;
+import android.support.test.filters.SmallTest;
+import android.support.test.runner.AndroidJUnit4;
+import android.util.Log;
+
+import androidx.core.graphics.drawable.IconCompat;
+import androidx.slice.core.SliceQuery;
+import androidx.slice.view.R;
+
+import org.junit.Ignore;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+
+@RunWith(AndroidJUnit4.class)
+public class SliceBinaryTest {
+
+    private static final String TAG = "SliceBinaryTest";
+    private static final int BENCHMARK_ROWS = 20;
+    private static final int BENCHMARK_ITERATIONS = 200;
+
+    private final Context mContext = InstrumentationRegistry.getContext();
+    private final SliceUtils.SliceActionListener mListener =
+            mock(SliceUtils.SliceActionListener.class);
+
+    @Test(expected = IllegalArgumentException.class)
+    @SmallTest
+    public void testThrowForAction() throws IOException {
+        Slice s = new Slice.Builder(Uri.parse("content://pkg/slice"))
+                .addAction((PendingIntent) null, null, null)
+                .build();
+        SliceUtils.serializeSliceBinary(s, mContext, new ByteArrayOutputStream(),
+                new SliceUtils.SerializeOptions());
+    }
+
+    @Test
+    @SmallTest
+    public void testRemoveAction() throws Exception {
+        Slice s = new Slice.Builder(Uri.parse("content://pkg/slice"))
+                .addAction((PendingIntent) null,
+                        new Slice.Builder(Uri.parse("content://pkg/slice/action")).build(), null)
+                .addText("Some text", null)
+                .build();
+        Slice after = roundTrip(s, new SliceUtils.SerializeOptions()
+                .setActionMode(SliceUtils.SerializeOptions.MODE_REMOVE), false);
+
+        assertEquals(1, after.getItems().size());
+        assertEquals(FORMAT_TEXT, after.getItems().get(0).getFormat());
+    }
+
+    @Test
+    @SmallTest
+    public void testSerialization() throws Exception {
+        Slice before = createSlice();
+        Slice after = roundTrip(before, convertOptions(), false);
+
+        assertEquivalent(before, after);
+
+        SliceItem action = SliceQuery.find(after, FORMAT_ACTION);
+        action.fireAction(null, null);
+        verify(mListener).onSliceAction(eq(Uri.parse("content://pkg/slice/action")));
+    }
+
+    @Test
+    @SmallTest
+    public void testLazySubSlices() throws Exception {
+        Slice before = createSlice();
+        Slice after = roundTrip(before, convertOptions(), true);
+
+        assertEquivalent(before, after);
+        // Lazily decoded sub-slices can be converted to bundles like any other item.
+        SliceItem subSlice = after.getItems().get(0);
+        assertEquivalent(before.getItems().get(0), new SliceItem(subSlice.toBundle()));
+    }
+
+    @Test
+    @SmallTest
+    public void testRepeatedStringsAreStoredOnce() throws IOException {
+        String text = "A text which is repeated in every row of the slice";
+        Slice.Builder oneRow = new Slice.Builder(Uri.parse("content://pkg/slice"));
+        Slice.Builder twoRows = new Slice.Builder(Uri.parse("content://pkg/slice"));
+        oneRow.addText(text, null, "title");
+        twoRows.addText(text, null, "title").addText(text, null, "title");
+
+        int oneRowSize = serialize(oneRow.build(), convertOptions()).length;
+        int twoRowsSize = serialize(twoRows.build(), convertOptions()).length;
+        assertTrue(twoRowsSize - oneRowSize < text.length());
+    }
+
+    @Test(expected = SliceUtils.SliceParseException.class)
+    @SmallTest
+    public void testThrowForXml() throws Exception {
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        SliceUtils.serializeSlice(createSlice(), mContext, outputStream, "UTF-8",
+                convertOptions());
+        SliceUtils.parseSliceBinary(mContext,
+                new ByteArrayInputStream(outputStream.toByteArray()), mListener);
+    }
+
+    @Test(expected = SliceUtils.SliceParseException.class)
+    @SmallTest
+    public void testThrowForTruncatedSlice() throws Exception {
+        byte[] bytes = serialize(createSlice(), convertOptions());
+        SliceUtils.parseSliceBinary(mContext,
+                new ByteArrayInputStream(Arrays.copyOf(bytes, bytes.length / 2)), mListener);
+    }
+
+    @Ignore("benchmark")
+    @Test
+    @LargeTest
+    public void benchmark_serialization() throws Exception {
+        Slice.Builder b = new Slice.Builder(Uri.parse("content://pkg/slice"))
+                .addHints(android.app.slice.Slice.HINT_LIST);
+        for (int i = 0; i < BENCHMARK_ROWS; i++) {
+            b.addSubSlice(new Slice.Builder(Uri.parse("content://pkg/slice/row/" + i))
+                    .addHints(android.app.slice.Slice.HINT_LIST_ITEM)
+                    .addText("Row " + i, null, android.app.slice.Slice.HINT_TITLE)
+                    .addText("Subtitle of row " + i, null)
+                    .addTimestamp(System.currentTimeMillis(), null)
+                    .addInt(0xff00ff00, "color")
+                    .addIcon(IconCompat.createWithResource(mContext,
+                            R.drawable.abc_slice_see_more_bg), null)
+                    .build(), null);
+        }
+        Slice slice = b.build();
+        SliceUtils.SerializeOptions options = convertOptions();
+
+        ByteArrayOutputStream xmlOutput = new ByteArrayOutputStream();
+        long start = System.nanoTime();
+        for (int i = 0; i < BENCHMARK_ITERATIONS; i++) {
+            xmlOutput.reset();
+            SliceUtils.serializeSlice(slice, mContext, xmlOutput, "UTF-8", options);
+        }
+        long xmlEncodeNanos = (System.nanoTime() - start) / BENCHMARK_ITERATIONS;
+        byte[] xml = xmlOutput.toByteArray();
+
+        ByteArrayOutputStream binaryOutput = new ByteArrayOutputStream();
+        start = System.nanoTime();
+        for (int i = 0; i < BENCHMARK_ITERATIONS; i++) {
+            binaryOutput.reset();
+            SliceUtils.serializeSliceBinary(slice, mContext, binaryOutput, options);
+        }
+        long binaryEncodeNanos = (System.nanoTime() - start) / BENCHMARK_ITERATIONS;
+        byte[] binary = binaryOutput.toByteArray();
+
+        start = System.nanoTime();
+        for (int i = 0; i < BENCHMARK_ITERATIONS; i++) {
+            SliceUtils.parseSlice(mContext, new ByteArrayInputStream(xml), "UTF-8", mListener);
+        }
+        long xmlDecodeNanos = (System.nanoTime() - start) / BENCHMARK_ITERATIONS;
+
+        start = System.nanoTime();
+        for (int i = 0; i < BENCHMARK_ITERATIONS; i++) {
+            SliceUtils.parseSliceBinary(mContext, new ByteArrayInputStream(binary), mListener);
+        }
+        long binaryDecodeNanos = (System.nanoTime() - start) / BENCHMARK_ITERATIONS;
+
+        start = System.nanoTime();
+        for (int i = 0; i < BENCHMARK_ITERATIONS; i++) {
+            SliceUtils.parseSliceBinary(mContext, new ByteArrayInputStream(binary), mListener,
+                    true);
+        }
+        long lazyDecodeNanos = (System.nanoTime() - start) / BENCHMARK_ITERATIONS;
+
+        Log.d(TAG, String.format("%d rows: XML %d bytes, encode %d us, decode %d us; "
+                        + "binary %d bytes, encode %d us, decode %d us, lazy decode %d us",
+                BENCHMARK_ROWS, xml.length, xmlEncodeNanos / 1000, xmlDecodeNanos / 1000,
+                binary.length, binaryEncodeNanos / 1000, binaryDecodeNanos / 1000,
+                lazyDecodeNanos / 1000));
+    }
+
+    private Slice createSlice() {
+        Bitmap b = Bitmap.createBitmap(50, 25, Bitmap.Config.ARGB_8888);
+        new Canvas(b).drawColor(0xffff0000);
+        // Create a slice containing all the types in a hierarchy.
+        return new Slice.Builder(Uri.parse("content://pkg/slice"))
+                .addSubSlice(new Slice.Builder(Uri.parse("content://pkg/slice/sub"))
+                        .addTimestamp(System.currentTimeMillis(), null, "Hint")
+                        .build())
+                .addIcon(IconCompat.createWithBitmap(b), null)
+                .addText("Some text", null)
+                .addAction((PendingIntent) null,
+                        new Slice.Builder(Uri.parse("content://pkg/slice/action"))
+                        .addText("Action text", null)
+                        .build(), null)
+                .addInt(0xff00ff00, "subtype")
+                .addIcon(IconCompat.createWithResource(mContext, R.drawable.abc_slice_see_more_bg),
+                        null)
+                .addHints("Hint 1", "Hint 2")
+                .build();
+    }
+
+    private static SliceUtils.SerializeOptions convertOptions() {
+        return new SliceUtils.SerializeOptions()
+                .setImageMode(SliceUtils.SerializeOptions.MODE_CONVERT)
+                .setActionMode(SliceUtils.SerializeOptions.MODE_CONVERT);
+    }
+
+    private byte[] serialize(Slice s, SliceUtils.SerializeOptions options) throws IOException {
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        SliceUtils.serializeSliceBinary(s, mContext, outputStream, options);
+        return outputStream.toByteArray();
+    }
+
+    private Slice roundTrip(Slice s, SliceUtils.SerializeOptions options, boolean lazy)
+            throws Exception {
+        return SliceUtils.parseSliceBinary(mContext,
+                new ByteArrayInputStream(serialize(s, options)), mListener, lazy);
+    }
+
+    private void assertEquivalent(Slice desired, Slice actual) {
+        assertEquals(desired.getUri(), actual.getUri());
+        assertEquals(desired.getHints(), actual.getHints());
+        assertEquals(desired.getItems().size(), actual.getItems().size());
+
+        for (int i = 0; i < desired.getItems().size(); i++) {
+            assertEquivalent(desired.getItems().get(i), actual.getItems().get(i));
+        }
+    }
+
+    private void assertEquivalent(SliceItem desired, SliceItem actual) {
+        assertEquals(desired.getFormat(), actual.getFormat());
+        assertEquals(desired.getSubType(), actual.getSubType());
+        assertEquals(desired.getHints(), actual.getHints());
+        switch (desired.getFormat()) {
+            case FORMAT_SLICE:
+            case FORMAT_ACTION:
+                assertEquivalent(desired.getSlice(), actual.getSlice());
+                break;
+            case FORMAT_TEXT:
+                assertEquals(String.valueOf(desired.getText()), String.valueOf(actual.getText()));
+                break;
+            case android.app.slice.SliceItem.FORMAT_INT:
+                assertEquals(desired.getInt(), actual.getInt());
+                break;
+            case android.app.slice.SliceItem.FORMAT_LONG:
+                assertEquals(desired.getLong(), actual.getLong());
+                break;
+            default:
+                break;
+        }
+    }
+}
@@ -0,0 +1,553 @@
+/*
+ * Copyright 2018 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package androidx.slice;
+
+import static android.app.slice.SliceItem.FORMAT_ACTION;
+import static android.app.slice.SliceItem.FORMAT_IMAGE;
+import static android.app.slice.SliceItem.FORMAT_INT;
+import static android.app.slice.SliceItem.FORMAT_LONG;
+import static android.app.slice.SliceItem.FORMAT_REMOTE_INPUT;
+import static android.app.slice.SliceItem.FORMAT_SLICE;
+import static android.app.slice.SliceItem.FORMAT_TEXT;
+
+import android.annotation.SuppressLint;
+import android.content.ContentResolver;
+import android.content.Context;
+import android.content.pm.PackageManager;
+import android.content.res.Resources;
+import android.graphics.Bitmap;
+import android.graphics.BitmapFactory;
+import android.graphics.drawable.Icon;
+import android.net.Uri;
+import android.os.Bundle;
+import android.text.Html;
+import android.text.Spanned;
+
+import androidx.annotation.RestrictTo;
+import androidx.core.graphics.drawable.IconCompat;
+import androidx.core.util.Consumer;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A compact binary encoding of slices, as an alternative to {@link SliceXml}.
+ * <p>
+ * The encoding starts with a magic number and a version, followed by a table of all of the
+ * strings of the slice, such as its uris, hints and texts. Strings are referenced by their index
+ * in the table, so that repeated strings are only stored and decoded once. Each slice is prefixed
+ * by its length, which lets sub-slices be skipped and decoded lazily.
+ *
+ * @hide
+ */
+@RestrictTo(RestrictTo.Scope.LIBRARY)
+class SliceBinary {
+
+    // "SLCB"
+    private static final int MAGIC = 0x534c4342;
+    static final int VERSION = 1;
+
+    private static final int ITEM_SLICE = 0;
+    private static final int ITEM_ACTION = 1;
+    private static final int ITEM_TEXT = 2;
+    private static final int ITEM_HTML = 3;
+    private static final int ITEM_INT = 4;
+    private static final int ITEM_LONG = 5;
+    private static final int ITEM_RES_ICON = 6;
+    private static final int ITEM_URI_ICON = 7;
+    private static final int ITEM_BITMAP_ICON = 8;
+
+    public static Slice parseSlice(Context context, InputStream input,
+            SliceUtils.SliceActionListener listener, boolean lazy)
+            throws IOException, SliceUtils.SliceParseException {
+        byte[] data = readFully(input);
+        try {
+            Reader reader = new Reader(data, 0);
+            if (reader.readFixedInt() != MAGIC) {
+                throw new SliceUtils.SliceParseException("Not a binary slice");
+            }
+            int version = reader.readByte();
+            if (version != VERSION) {
+                throw new SliceUtils.SliceParseException("Unsupported version " + version);
+            }
+            String[] strings = new String[reader.readVarInt()];
+            for (int i = 0; i < strings.length; i++) {
+                int length = reader.readVarInt();
+                reader.checkAvailable(length);
+                strings[i] = new String(data, reader.mPosition, length, StandardCharsets.UTF_8);
+                reader.mPosition += length;
+            }
+            return new Decoder(context, listener, lazy, data, strings).readSlice(reader);
+        } catch (IllegalArgumentException e) {
+            throw new SliceUtils.SliceParseException("Malformed slice", e);
+        }
+    }
+
+    public static void serializeSlice(Slice s, Context context, OutputStream output,
+            SliceUtils.SerializeOptions options) throws IOException {
+        Encoder encoder = new Encoder(context, options);
+        encoder.writeSlice(s);
+
+        Writer header = new Writer();
+        header.writeFixedInt(MAGIC);
+        header.writeByte(VERSION);
+        header.writeVarInt(encoder.mStrings.size());
+        for (String string : encoder.mStrings) {
+            byte[] bytes = string.getBytes(StandardCharsets.UTF_8);
+            header.writeVarInt(bytes.length);
+            header.writeBytes(bytes, 0, bytes.length);
+        }
+        output.write(header.mData, 0, header.mSize);
+        output.write(encoder.mBody.mData, 0, encoder.mBody.mSize);
+    }
+
+    private static byte[] readFully(InputStream input) throws IOException {
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        byte[] buffer = new byte[8192];
+        int count;
+        while ((count = input.read(buffer)) != -1) {
+            output.write(buffer, 0, count);
+        }
+        return output.toByteArray();
+    }
+
+    private static final class Encoder {
+        final Context mContext;
+        final SliceUtils.SerializeOptions mOptions;
+        final Writer mBody = new Writer();
+        final List<String> mStrings = new ArrayList<>();
+        final Map<String, Integer> mStringIndices = new HashMap<>();
+
+        Encoder(Context context, SliceUtils.SerializeOptions options) {
+            mContext = context;
+            mOptions = options;
+        }
+
+        void writeSlice(Slice s) {
+            // The length of the slice is filled in once its items have been written
+            int lengthPosition = mBody.mSize;
+            mBody.writeFixedInt(0);
+            writeString(s.getUri().toString());
+            writeHints(s.getHints());
+            for (SliceItem item : s.getItems()) {
+                writeItem(item);
+            }
+            mBody.setFixedInt(lengthPosition, mBody.mSize - lengthPosition - 4);
+        }
+
+        private void writeItem(SliceItem item) {
+            String format = item.getFormat();
+            mOptions.checkThrow(format);
+
+            switch (format) {
+                case FORMAT_ACTION:
+                    if (mOptions.getActionMode() == SliceUtils.SerializeOptions.MODE_CONVERT) {
+                        writeItemHeader(ITEM_ACTION, item);
+                        writeSlice(item.getSlice());
+                    }
+                    break;
+                case FORMAT_REMOTE_INPUT:
+                    // Nothing for now.
+                    break;
+                case FORMAT_IMAGE:
+                    if (mOptions.getImageMode() == SliceUtils.SerializeOptions.MODE_CONVERT) {
+                        writeIcon(item);
+                    }
+                    break;
+                case FORMAT_INT:
+                    writeItemHeader(ITEM_INT, item);
+                    mBody.writeVarInt(item.getInt());
+                    break;
+                case FORMAT_SLICE:
+                    writeItemHeader(ITEM_SLICE, item);
+                    writeSlice(item.getSlice());
+                    break;
+                case FORMAT_TEXT:
+                    if (item.getText() instanceof Spanned) {
+                        writeItemHeader(ITEM_HTML, item);
+                        writeString(Html.toHtml((Spanned) item.getText()));
+                    } else {
+                        writeItemHeader(ITEM_TEXT, item);
+                        writeString(String.valueOf(item.getText()));
+                    }
+                    break;
+                case FORMAT_LONG:
+                    writeItemHeader(ITEM_LONG, item);
+                    mBody.writeVarLong(item.getLong());
+                    break;
+                default:
+                    throw new IllegalArgumentException("Unrecognized format " + format);
+            }
+        }
+
+        private void writeIcon(SliceItem item) {
+            IconCompat icon = item.getIcon();
+            switch (icon.getType()) {
+                case Icon.TYPE_RESOURCE:
+                    try {
+                        Resources res = mContext.getPackageManager().getResourcesForApplication(
+                                icon.getResPackage());
+                        int id = icon.getResId();
+                        writeItemHeader(ITEM_RES_ICON, item);
+                        writeString(res.getResourcePackageName(id));
+                        writeString(res.getResourceTypeName(id));
+                        writeString(res.getResourceEntryName(id));
+                    } catch (PackageManager.NameNotFoundException e) {
+                        throw new IllegalArgumentException("Slice contains invalid icon", e);
+                    }
+                    return;
+                case Icon.TYPE_URI:
+                    Uri uri = icon.getUri();
+                    if (ContentResolver.SCHEME_FILE.equals(uri.getScheme())) {
+                        writeItemHeader(ITEM_URI_ICON, item);
+                        writeString(uri.toString());
+                        return;
+                    }
+                    break;
+                default:
+                    break;
+            }
+            byte[] png = SliceXml.convertToPng(icon, mContext, mOptions);
+            writeItemHeader(ITEM_BITMAP_ICON, item);
+            mBody.writeVarInt(png.length);
+            mBody.writeBytes(png, 0, png.length);
+        }
+
+        private void writeItemHeader(int type, SliceItem item) {
+            mBody.writeByte(type);
+            writeString(item.getSubType());
+            writeHints(item.getHints());
+        }
+
+        private void writeHints(List<String> hints) {
+            mBody.writeVarInt(hints.size());
+            for (String hint : hints) {
+                writeString(hint);
+            }
+        }
+
+        private void writeString(String string) {
+            if (string == null) {
+                mBody.writeVarInt(0);
+                return;
+            }
+            Integer index = mStringIndices.get(string);
+            if (index == null) {
+                index = mStrings.size();
+                mStrings.add(string);
+                mStringIndices.put(string, index);
+            }
+            mBody.writeVarInt(index + 1);
+        }
+    }
+
+    private static final class Decoder {
+        final Context mContext;
+        final SliceUtils.SliceActionListener mListener;
+        final boolean mLazy;
+        final byte[] mData;
+        final String[] mStrings;
+
+        Decoder(Context context, SliceUtils.SliceActionListener listener, boolean lazy,
+                byte[] data, String[] strings) {
+            mContext = context;
+            mListener = listener;
+            mLazy = lazy;
+            mData = data;
+            mStrings = strings;
+        }
+
+        Slice readSlice(Reader reader) throws SliceUtils.SliceParseException {
+            int end = reader.readSliceEnd();
+            Slice.Builder b = new Slice.Builder(Uri.parse(readNonNullString(reader)));
+            b.addHints(readHints(reader));
+            while (reader.mPosition < end) {
+                readItem(b, reader);
+            }
+            if (reader.mPosition != end) {
+                throw new IllegalArgumentException("Item overflows its slice");
+            }
+            return b.build();
+        }
+
+        @SuppressLint("WrongConstant")
+        private void readItem(Slice.Builder b, Reader reader)
+                throws SliceUtils.SliceParseException {
+            int type = reader.readByte();
+            String subtype = readString(reader);
+            @Slice.SliceHint String[] hints = readHints(reader);
+            switch (type) {
+                case ITEM_SLICE:
+                    if (mLazy) {
+                        int position = reader.mPosition;
+                        reader.mPosition = reader.readSliceEnd();
+                        b.addItem(new LazySliceItem(this, position, subtype, hints));
+                    } else {
+                        b.addItem(new SliceItem(readSlice(reader), FORMAT_SLICE, subtype, hints));
+                    }
+                    break;
+                case ITEM_ACTION:
+                    b.addItem(new SliceItem(new Consumer<Uri>() {
+                        @Override
+                        public void accept(Uri uri) {
+                            mListener.onSliceAction(uri);
+                        }
+                    }, readSlice(reader), FORMAT_ACTION, subtype, hints));
+                    break;
+                case ITEM_TEXT:
+                    b.addText(readString(reader), subtype, hints);
+                    break;
+                case ITEM_HTML:
+                    b.addText(Html.fromHtml(readNonNullString(reader)), subtype, hints);
+                    break;
+                case ITEM_INT:
+                    b.addInt(reader.readVarInt(), subtype, hints);
+                    break;
+                case ITEM_LONG:
+                    b.addLong(reader.readVarLong(), subtype, hints);
+                    break;
+                case ITEM_RES_ICON:
+                    String pkg = readNonNullString(reader);
+                    String resType = readNonNullString(reader);
+                    String resName = readNonNullString(reader);
+                    try {
+                        Resources r = mContext.getPackageManager().getResourcesForApplication(pkg);
+                        int id = r.getIdentifier(resName, resType, pkg);
+                        if (id == 0) {
+                            throw new SliceUtils.SliceParseException("Cannot find resource "
+                                    + pkg + ":" + resType + "/" + resName);
+                        }
+                        b.addIcon(IconCompat.createWithResource(
+                                mContext.createPackageContext(pkg, 0), id), subtype, hints);
+                    } catch (PackageManager.NameNotFoundException e) {
+                        throw new SliceUtils.SliceParseException("Invalid icon package " + pkg, e);
+                    }
+                    break;
+                case ITEM_URI_ICON:
+                    b.addIcon(IconCompat.createWithContentUri(readNonNullString(reader)), subtype,
+                            hints);
+                    break;
+                case ITEM_BITMAP_ICON:
+                    int length = reader.readVarInt();
+                    reader.checkAvailable(length);
+                    Bitmap image = BitmapFactory.decodeByteArray(mData, reader.mPosition, length);
+                    reader.mPosition += length;
+                    b.addIcon(IconCompat.createWithBitmap(image), subtype, hints);
+                    break;
+                default:
+                    throw new IllegalArgumentException("Unrecognized item type " + type);
+            }
+        }
+
+        @Slice.SliceHint
+        private String[] readHints(Reader reader) {
+            int count = reader.readVarInt();
+            if (count == 0) {
+                return new String[0];
+            }
+            // Each hint takes at least one byte
+            reader.checkAvailable(count);
+            String[] hints = new String[count];
+            for (int i = 0; i < count; i++) {
+                hints[i] = readString(reader);
+            }
+            return hints;
+        }
+
+        private String readString(Reader reader) {
+            int index = reader.readVarInt();
+            if (index == 0) {
+                return null;
+            }
+            if (index < 0 || index > mStrings.length) {
+                throw new IllegalArgumentException("Invalid string index " + index);
+            }
+            return mStrings[index - 1];
+        }
+
+        private String readNonNullString(Reader reader) {
+            String string = readString(reader);
+            if (string == null) {
+                throw new IllegalArgumentException("Missing string");
+            }
+            return string;
+        }
+    }
+
+    /**
+     * A {@link android.app.slice.SliceItem#FORMAT_SLICE} item whose slice is only decoded when it
+     * is first requested.
+     */
+    private static final class LazySliceItem extends SliceItem {
+        private final Decoder mDecoder;
+        private final int mPosition;
+        private Slice mSlice;
+
+        LazySliceItem(Decoder decoder, int position, String subType,
+                @Slice.SliceHint String[] hints) {
+            super(null, FORMAT_SLICE, subType, hints);
+            mDecoder = decoder;
+            mPosition = position;
+        }
+
+        @Override
+        public synchronized Slice getSlice() {
+            if (mSlice == null) {
+                try {
+                    mSlice = mDecoder.readSlice(new Reader(mDecoder.mData, mPosition));
+                } catch (SliceUtils.SliceParseException | IllegalArgumentException e) {
+                    throw new IllegalStateException("Unable to decode slice", e);
+                }
+            }
+            return mSlice;
+        }
+
+        @Override
+        public Bundle toBundle() {
+            return new SliceItem(getSlice(), FORMAT_SLICE, getSubType(), mHints).toBundle();
+        }
+    }
+
+    /**
+     * Reads the primitive values of the encoding. Malformed data is reported with an
+     * {@link IllegalArgumentException}.
+     */
+    private static final class Reader {
+        final byte[] mData;
+        int mPosition;
+
+        Reader(byte[] data, int position) {
+            mData = data;
+            mPosition = position;
+        }
+
+        void checkAvailable(int count) {
+            if (count < 0 || count > mData.length - mPosition) {
+                throw new IllegalArgumentException("Unexpected end of data");
+            }
+        }
+
+        int readByte() {
+            checkAvailable(1);
+            return mData[mPosition++] & 0xff;
+        }
+
+        int readFixedInt() {
+            return (readByte() << 24) | (readByte() << 16) | (readByte() << 8) | readByte();
+        }
+
+        int readVarInt() {
+            int value = 0;
+            for (int shift = 0; shift < 32; shift += 7) {
+                int b = readByte();
+                value |= (b & 0x7f) << shift;
+                if ((b & 0x80) == 0) {
+                    return value;
+                }
+            }
+            throw new IllegalArgumentException("Malformed varint");
+        }
+
+        long readVarLong() {
+            long value = 0;
+            for (int shift = 0; shift < 64; shift += 7) {
+                int b = readByte();
+                value |= (long) (b & 0x7f) << shift;
+                if ((b & 0x80) == 0) {
+                    return value;
+                }
+            }
+            throw new IllegalArgumentException("Malformed varint");
+        }
+
+        /**
+         * Reads the length prefix of a slice, and returns the position of its end.
+         */
+        int readSliceEnd() {
+            int length = readFixedInt();
+            checkAvailable(length);
+            return mPosition + length;
+        }
+    }
+
+    /**
+     * Writes the primitive values of the encoding into a growable array.
+     */
+    private static final class Writer {
+        byte[] mData = new byte[1024];
+        int mSize;
+
+        private void ensureCapacity(int count) {
+            if (mSize + count > mData.length) {
+                mData = Arrays.copyOf(mData, Math.max(mData.length * 2, mSize + count));
+            }
+        }
+
+        void writeByte(int value) {
+            ensureCapacity(1);
+            mData[mSize++] = (byte) value;
+        }
+
+        void writeBytes(byte[] bytes, int offset, int count) {
+            ensureCapacity(count);
+            System.arraycopy(bytes, offset, mData, mSize, count);
+            mSize += count;
+        }
+
+        void writeFixedInt(int value) {
+            ensureCapacity(4);
+            setFixedInt(mSize, value);
+            mSize += 4;
+        }
+
+        void setFixedInt(int position, int value) {
+            mData[position] = (byte) (value >>> 24);
+            mData[position + 1] = (byte) (value >>> 16);
+            mData[position + 2] = (byte) (value >>> 8);
+            mData[position + 3] = (byte) value;
+        }
+
+        void writeVarInt(int value) {
+            int remaining = value;
+            while ((remaining & ~0x7f) != 0) {
+                writeByte((remaining & 0x7f) | 0x80);
+                remaining >>>= 7;
+            }
+            writeByte(remaining);
+        }
+
+        void writeVarLong(long value) {
+            long remaining = value;
+            while ((remaining & ~0x7fL) != 0) {
+                writeByte((int) (remaining & 0x7f) | 0x80);
+                remaining >>>= 7;
+            }
+            writeByte((int) remaining);
+        }
+    }
+
+    private SliceBinary() {
+    }
+}
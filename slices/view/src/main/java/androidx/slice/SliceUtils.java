@@ -95,6 +95,66 @@ public class SliceUtils {
         return SliceXml.parseSlice(context, input, encoding, listener);
     }
 
+    /**
+     * Serialize a slice to an OutputStream in a compact binary form.
+     * <p>
+     * The slice can later be read into slice form again with {@link #parseSliceBinary}. The binary
+     * form is smaller and faster to read and write than the XML of {@link #serializeSlice}, and
+     * is versioned so that slices stored by older versions of this library can still be read.
+     * Some slice types cannot be serialized, their handling is controlled by
+     * {@link SerializeOptions}.
+     *
+     * @param s The slice to serialize.
+     * @param context Context used to load any resources in the slice.
+     * @param output The output of the serialization.
+     * @param options Options defining how to handle non-serializable items.
+     * @throws IllegalArgumentException if the slice cannot be serialized using the given options.
+     */
+    public static void serializeSliceBinary(@NonNull Slice s, @NonNull Context context,
+            @NonNull OutputStream output, @NonNull SerializeOptions options)
+            throws IOException, IllegalArgumentException {
+        SliceBinary.serializeSlice(s, context, output, options);
+    }
+
+    /**
+     * Parse a slice that has been previously serialized in binary form.
+     * <p>
+     * Parses a slice that was serialized with {@link #serializeSliceBinary}.
+     * <p>
+     * Note: Slices returned by this cannot be passed to {@link SliceConvert#unwrap(Slice)}.
+     *
+     * @param input The input stream to read from.
+     * @param listener Listener used to handle actions when reconstructing the slice.
+     * @throws SliceParseException if the InputStream cannot be parsed.
+     */
+    public static @NonNull Slice parseSliceBinary(@NonNull Context context,
+            @NonNull InputStream input, @NonNull SliceActionListener listener)
+            throws IOException, SliceParseException {
+        return SliceBinary.parseSlice(context, input, listener, false);
+    }
+
+    /**
+     * Parse a slice that has been previously serialized in binary form.
+     * <p>
+     * Parses a slice that was serialized with {@link #serializeSliceBinary}. When
+     * {@code lazySubSlices} is true, sub-slices are only decoded once they are first accessed,
+     * which makes it cheaper to parse slices of which only a part is displayed. Lazily decoded
+     * sub-slices keep the whole serialized slice in memory, and throw an
+     * {@link IllegalStateException} when accessed if they are malformed.
+     * <p>
+     * Note: Slices returned by this cannot be passed to {@link SliceConvert#unwrap(Slice)}.
+     *
+     * @param input The input stream to read from.
+     * @param listener Listener used to handle actions when reconstructing the slice.
+     * @param lazySubSlices Whether to decode sub-slices when they are first accessed.
+     * @throws SliceParseException if the InputStream cannot be parsed.
+     */
+    public static @NonNull Slice parseSliceBinary(@NonNull Context context,
+            @NonNull InputStream input, @NonNull SliceActionListener listener,
+            boolean lazySubSlices) throws IOException, SliceParseException {
+        return SliceBinary.parseSlice(context, input, listener, lazySubSlices);
+    }
+
     /**
      * Holds options for how to handle SliceItems that cannot be serialized.
      */
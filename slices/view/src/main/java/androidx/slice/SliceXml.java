@@ -353,6 +353,16 @@ class SliceXml {
     @SuppressWarnings("DefaultCharset")
     private static void serializeIcon(XmlSerializer serializer, IconCompat icon,
             Context context, SliceUtils.SerializeOptions options) throws IOException {
+        byte[] png = convertToPng(icon, context, options);
+        serializer.attribute(NAMESPACE, ATTR_ICON_TYPE, ICON_TYPE_DEFAULT);
+        serializer.text(new String(Base64.encode(png, Base64.NO_WRAP)));
+    }
+
+    /**
+     * Draws an icon into a PNG, scaled down to the maximum size of the given options.
+     */
+    static byte[] convertToPng(IconCompat icon, Context context,
+            SliceUtils.SerializeOptions options) {
         Drawable d = icon.loadDrawable(context);
         int width = d.getIntrinsicWidth();
         int height = d.getIntrinsicHeight();
@@ -372,9 +382,7 @@ class SliceXml {
         ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
         b.compress(Bitmap.CompressFormat.PNG, 100, outputStream);
         b.recycle();
-
-        serializer.attribute(NAMESPACE, ATTR_ICON_TYPE, ICON_TYPE_DEFAULT);
-        serializer.text(new String(Base64.encode(outputStream.toByteArray(), Base64.NO_WRAP)));
+        return outputStream.toByteArray();
     }
 
     private static String hintStr(List<String> hints) {
@@ -0,0 +1,183 @@
+/*
+ * Copyright 2018 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package androidx.recyclerview.widget;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import android.os.SystemClock;
+import android.support.test.filters.LargeTest;
+import android.support.test.filters.MediumTest;
+import android.support.test.rule.ActivityTestRule;
+import android.util.Log;
+
+import org.junit.After;
+import org.junit.Ignore;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+@MediumTest
+@RunWith(JUnit4.class)
+public class AsyncListUtilExecutorTest {
+    private static final String TAG = "AsyncListUtilExecutor";
+
+    @Rule
+    public ActivityTestRule<TestActivity> mActivityRule =
+            new ActivityTestRule<>(TestActivity.class);
+
+    private static final int TILE_SIZE = 10;
+    private static final int ITEM_COUNT = 1000;
+    private static final int VIEWPORT_SIZE = 40;
+    private static final long FILL_DELAY_MS = 50;
+
+    private ExecutorService mExecutor;
+    AsyncListUtil<String> mAsyncListUtil;
+
+    @After
+    public void tearDown() {
+        if (mExecutor != null) {
+            mExecutor.shutdownNow();
+        }
+    }
+
+    @Test
+    public void loadsVisibleRangeWithExecutor() throws Throwable {
+        mExecutor = Executors.newFixedThreadPool(4);
+        SlowDataCallback dataCallback = new SlowDataCallback();
+        VisibleRangeCallback viewCallback = new VisibleRangeCallback(0);
+        createOnUiThread(dataCallback, viewCallback);
+        assertTrue(viewCallback.mVisibleLoadedLatch.await(5, TimeUnit.SECONDS));
+        assertEquals(VIEWPORT_SIZE / TILE_SIZE, dataCallback.mFilledTiles.get());
+    }
+
+    @Test
+    public void scrollAwayCancelsPendingTiles() throws Throwable {
+        mExecutor = Executors.newSingleThreadExecutor();
+        SlowDataCallback dataCallback = new SlowDataCallback();
+        final VisibleRangeCallback viewCallback = new VisibleRangeCallback(0);
+        createOnUiThread(dataCallback, viewCallback);
+        // The first tile is being filled, the others are queued on the executor.
+        mActivityRule.runOnUiThread(new Runnable() {
+            @Override
+            public void run() {
+                viewCallback.scrollTo(ITEM_COUNT - VIEWPORT_SIZE);
+            }
+        });
+        assertTrue(viewCallback.mVisibleLoadedLatch.await(5, TimeUnit.SECONDS));
+        // The tiles queued for the first range are dropped instead of being filled.
+        assertTrue(dataCallback.mFilledTiles.get() < 2 * VIEWPORT_SIZE / TILE_SIZE);
+    }
+
+    @Ignore("benchmark")
+    @LargeTest
+    @Test
+    public void benchmark_timeToVisibleContent() throws Throwable {
+        long serialMs = measureTimeToVisibleContent(null);
+        mExecutor = Executors.newFixedThreadPool(4);
+        long parallelMs = measureTimeToVisibleContent(mExecutor);
+        Log.d(TAG, String.format("%d visible items, %d ms/tile: serial %d ms, 4 threads %d ms",
+                VIEWPORT_SIZE, FILL_DELAY_MS, serialMs, parallelMs));
+    }
+
+    private long measureTimeToVisibleContent(ExecutorService executor) throws Throwable {
+        mExecutor = executor;
+        VisibleRangeCallback viewCallback = new VisibleRangeCallback(0);
+        long start = SystemClock.elapsedRealtime();
+        createOnUiThread(new SlowDataCallback(), viewCallback);
+        assertTrue(viewCallback.mVisibleLoadedLatch.await(10, TimeUnit.SECONDS));
+        return SystemClock.elapsedRealtime() - start;
+    }
+
+    private void createOnUiThread(final SlowDataCallback dataCallback,
+            final VisibleRangeCallback viewCallback) throws Throwable {
+        mActivityRule.runOnUiThread(new Runnable() {
+            @Override
+            public void run() {
+                mAsyncListUtil = new AsyncListUtil<>(String.class, TILE_SIZE, dataCallback,
+                        viewCallback, mExecutor);
+            }
+        });
+    }
+
+    private static class SlowDataCallback extends AsyncListUtil.DataCallback<String> {
+        final AtomicInteger mFilledTiles = new AtomicInteger();
+
+        @Override
+        public int refreshData() {
+            return ITEM_COUNT;
+        }
+
+        @Override
+        public void fillData(String[] data, int startPosition, int itemCount) {
+            SystemClock.sleep(FILL_DELAY_MS);
+            for (int i = 0; i < itemCount; i++) {
+                data[i] = "item #" + (startPosition + i);
+            }
+            mFilledTiles.incrementAndGet();
+        }
+    }
+
+    private class VisibleRangeCallback extends AsyncListUtil.ViewCallback {
+        final CountDownLatch mVisibleLoadedLatch = new CountDownLatch(1);
+        int mFirstVisibleItem;
+
+        VisibleRangeCallback(int firstVisibleItem) {
+            mFirstVisibleItem = firstVisibleItem;
+        }
+
+        void scrollTo(int position) {
+            mFirstVisibleItem = position;
+            mAsyncListUtil.onRangeChanged();
+        }
+
+        @Override
+        public void getItemRangeInto(int[] outRange) {
+            outRange[0] = mFirstVisibleItem;
+            outRange[1] = mFirstVisibleItem + VIEWPORT_SIZE - 1;
+        }
+
+        @Override
+        public void extendRangeInto(int[] range, int[] outRange, int scrollHint) {
+            // No preloading, so that only the visible tiles are loaded.
+            outRange[0] = range[0];
+            outRange[1] = range[1];
+        }
+
+        @Override
+        public void onDataRefresh() {
+        }
+
+        @Override
+        public void onItemLoaded(int position) {
+            for (int i = mFirstVisibleItem; i < mFirstVisibleItem + VIEWPORT_SIZE; i++) {
+                if (mAsyncListUtil.getItem(i) == null) {
+                    return;
+                }
+            }
+            mVisibleLoadedLatch.countDown();
+        }
+    }
+}
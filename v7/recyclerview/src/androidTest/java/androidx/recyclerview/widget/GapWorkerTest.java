@@ -27,6 +27,7 @@ import android.support.test.InstrumentationRegistry;
 import android.support.test.filters.SdkSuppress;
 import android.support.test.filters.SmallTest;
 import android.support.test.runner.AndroidJUnit4;
+import android.view.View;
 
 import org.junit.Test;
 import org.junit.runner.RunWith;
@@ -169,6 +170,72 @@ public class GapWorkerTest {
         assertEquals(900, list.get(3).distanceToItem);
     }
 
+    @Test
+    public void taskOrderPriorityCost() {
+        ArrayList<GapWorker.Task> list = new ArrayList<>();
+        list.add(new GapWorker.Task());
+        list.add(new GapWorker.Task());
+        list.add(new GapWorker.Task());
+        list.add(new GapWorker.Task());
+
+        list.get(0).view = new RecyclerView(getContext());
+        list.get(0).priority = 0.5f;
+        list.get(0).costNs = 300;
+
+        list.get(1).view = new RecyclerView(getContext());
+        list.get(1).priority = 1f;
+        list.get(1).costNs = 900;
+
+        list.get(2).view = null;
+        list.get(2).priority = 2f;
+        list.get(2).costNs = 0;
+
+        list.get(3).view = new RecyclerView(getContext());
+        list.get(3).priority = 0.5f;
+        list.get(3).costNs = 100;
+
+        Collections.sort(list, GapWorker.sPriorityComparator);
+
+        assertEquals(900, list.get(0).costNs);
+        assertEquals(100, list.get(1).costNs);
+        assertEquals(300, list.get(2).costNs);
+        assertNull(list.get(3).view);
+    }
+
+    @Test
+    public void velocitySchedulerPriority() {
+        RecyclerView.PrefetchScheduler scheduler = new RecyclerView.VelocityPrefetchScheduler();
+        // needed in the next frame
+        assertEquals(0.5f, scheduler.getPrefetchPriority(100, 100, 0, false), 0.001f);
+        // needed in 4 frames
+        assertEquals(0.2f, scheduler.getPrefetchPriority(400, 100, 0, false), 0.001f);
+        // not scrolling
+        assertEquals(1f / 401, scheduler.getPrefetchPriority(400, 0, 0, false), 0.001f);
+        // nested items are ordered by distance
+        assertEquals(1f, scheduler.getPrefetchPriority(0, 0, 0, true), 0.001f);
+        assertEquals(1f / 101, scheduler.getPrefetchPriority(100, 0, 0, true), 0.001f);
+
+        RecyclerView.PrefetchScheduler noNested = new RecyclerView.VelocityPrefetchScheduler(false);
+        assertEquals(0f, noNested.getPrefetchPriority(0, 0, 0, true), 0.001f);
+        assertEquals(0.5f, noNested.getPrefetchPriority(100, 100, 0, false), 0.001f);
+    }
+
+    @Test
+    public void estimateObtainAndBind() {
+        RecyclerView.RecycledViewPool pool = new RecyclerView.RecycledViewPool();
+        assertEquals(0, pool.estimateObtainAndBindNs(1));
+
+        pool.factorInCreateTime(1, 1000);
+        pool.factorInBindTime(1, 200);
+        assertEquals(1200, pool.estimateObtainAndBindNs(1));
+
+        // no need to create if the pool has one
+        RecyclerView.ViewHolder holder = new RecyclerView.ViewHolder(new View(getContext())) {};
+        holder.mItemViewType = 1;
+        pool.putRecycledView(holder);
+        assertEquals(200, pool.estimateObtainAndBindNs(1));
+    }
+
     @SdkSuppress(minSdkVersion = Build.VERSION_CODES.LOLLIPOP)
     @Test
     public void gapWorkerWithoutLayout() {
@@ -90,6 +90,124 @@ public class RecycledViewPoolTest {
         assertEquals(0, pool.getRecycledViewCount(3));
     }
 
+    @Test
+    public void counters() {
+        RecyclerView.RecycledViewPool pool = new RecyclerView.RecycledViewPool();
+        pool.factorInCreateTime(1, 10);
+        pool.factorInBindTime(1, 10);
+        pool.putRecycledView(makeHolder(1));
+        assertNotNull(pool.getRecycledView(1));
+        pool.factorInBindTime(1, 10);
+
+        assertEquals(1, pool.getCreatedViewCount(1));
+        assertEquals(2, pool.getBoundViewCount(1));
+        assertEquals(1, pool.getRecycledViewHitCount(1));
+        assertEquals(0, pool.getCreatedViewCount(2));
+    }
+
+    @Test
+    public void adaptiveSizing_growsAfterOverflow() {
+        RecyclerView.RecycledViewPool pool = new RecyclerView.RecycledViewPool();
+        pool.setAdaptiveSizingEnabled(true);
+        for (int i = 0; i < 7; i++) {
+            pool.putRecycledView(makeHolder(1));
+        }
+        assertEquals(5, pool.getRecycledViewCount(1));
+        assertEquals(5, pool.getMaxRecycledViews(1));
+
+        // both discarded holders have to be created again
+        for (int i = 0; i < 3; i++) {
+            pool.factorInCreateTime(1, 10);
+        }
+        assertEquals(7, pool.getMaxRecycledViews(1));
+    }
+
+    @Test
+    public void adaptiveSizing_disabled() {
+        RecyclerView.RecycledViewPool pool = new RecyclerView.RecycledViewPool();
+        for (int i = 0; i < 7; i++) {
+            pool.putRecycledView(makeHolder(1));
+        }
+        pool.factorInCreateTime(1, 10);
+        assertEquals(5, pool.getMaxRecycledViews(1));
+    }
+
+    @Test
+    public void adaptiveSizing_ignoresExplicitMax() {
+        RecyclerView.RecycledViewPool pool = new RecyclerView.RecycledViewPool();
+        pool.setAdaptiveSizingEnabled(true);
+        pool.setMaxRecycledViews(1, 2);
+        for (int i = 0; i < 4; i++) {
+            pool.putRecycledView(makeHolder(1));
+        }
+        pool.factorInCreateTime(1, 10);
+        assertEquals(2, pool.getMaxRecycledViews(1));
+    }
+
+    @Test
+    public void adaptiveSizing_budgetTakesFromCheapestType() {
+        RecyclerView.RecycledViewPool pool = new RecyclerView.RecycledViewPool();
+        pool.setAdaptiveSizingEnabled(true);
+        pool.setAdaptiveSizingBudget(10);
+        pool.factorInCreateTime(1, 1000);
+        pool.factorInCreateTime(2, 10);
+        for (int i = 0; i < 6; i++) {
+            pool.putRecycledView(makeHolder(1));
+            pool.putRecycledView(makeHolder(2));
+        }
+        pool.factorInCreateTime(1, 1000);
+        assertEquals(6, pool.getMaxRecycledViews(1));
+        assertEquals(4, pool.getMaxRecycledViews(2));
+        assertEquals(4, pool.getRecycledViewCount(2));
+
+        // the cheap type may not take space back from the expensive one
+        pool.factorInCreateTime(2, 10);
+        assertEquals(6, pool.getMaxRecycledViews(1));
+        assertEquals(4, pool.getMaxRecycledViews(2));
+    }
+
+    @Test
+    public void adaptiveSizing_newTypeLimitedToBudget() {
+        RecyclerView.RecycledViewPool pool = new RecyclerView.RecycledViewPool();
+        pool.setAdaptiveSizingEnabled(true);
+        pool.setAdaptiveSizingBudget(7);
+        pool.putRecycledView(makeHolder(1));
+        pool.putRecycledView(makeHolder(2));
+        pool.putRecycledView(makeHolder(3));
+        assertEquals(5, pool.getMaxRecycledViews(1));
+        assertEquals(2, pool.getMaxRecycledViews(2));
+        assertEquals(1, pool.getMaxRecycledViews(3));
+    }
+
+    @Test
+    public void adaptiveSizing_gettersDoNotTakeBudget() {
+        RecyclerView.RecycledViewPool pool = new RecyclerView.RecycledViewPool();
+        pool.setAdaptiveSizingEnabled(true);
+        pool.setAdaptiveSizingBudget(5);
+        for (int viewType = 2; viewType < 10; viewType++) {
+            pool.getMaxRecycledViews(viewType);
+            pool.getCreatedViewCount(viewType);
+            pool.getBoundViewCount(viewType);
+            pool.getRecycledViewHitCount(viewType);
+        }
+        pool.putRecycledView(makeHolder(1));
+        assertEquals(5, pool.getMaxRecycledViews(1));
+    }
+
+    @Test
+    public void adaptiveSizing_disablingRestoresDefault() {
+        RecyclerView.RecycledViewPool pool = new RecyclerView.RecycledViewPool();
+        pool.setAdaptiveSizingEnabled(true);
+        for (int i = 0; i < 6; i++) {
+            pool.putRecycledView(makeHolder(1));
+        }
+        pool.factorInCreateTime(1, 10);
+        assertEquals(6, pool.getMaxRecycledViews(1));
+
+        pool.setAdaptiveSizingEnabled(false);
+        assertEquals(5, pool.getMaxRecycledViews(1));
+    }
+
     @Test
     public void onAdapterChanged_attachedToOneOldAdapterNotNullNotCompatWithPrev_clears() {
         onAdapterChanged(1, true, true, true);
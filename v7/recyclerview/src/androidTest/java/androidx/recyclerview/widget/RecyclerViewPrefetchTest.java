@@ -37,6 +37,7 @@ import java.util.concurrent.TimeUnit;
 public class RecyclerViewPrefetchTest extends BaseRecyclerViewInstrumentationTest {
     private class PrefetchLayoutManager extends TestLayoutManager {
         CountDownLatch prefetchLatch = new CountDownLatch(1);
+        int layoutEnd = 5;
 
         @Override
         public boolean canScrollVertically() {
@@ -47,7 +48,7 @@ public class RecyclerViewPrefetchTest extends BaseRecyclerViewInstrumentationTes
         public void onLayoutChildren(RecyclerView.Recycler recycler, RecyclerView.State state) {
             super.onLayoutChildren(recycler, state);
             detachAndScrapAttachedViews(recycler);
-            layoutRange(recycler, 0, 5);
+            layoutRange(recycler, 0, layoutEnd);
         }
 
         @Override
@@ -99,4 +100,30 @@ public class RecyclerViewPrefetchTest extends BaseRecyclerViewInstrumentationTes
         assertThat(cachedViews().size(), is(1));
         assertThat(cachedViews().get(0).getAdapterPosition(), is(6));
     }
-}
\ No newline at end of file
+
+    @Test
+    public void prefetchHitCount() throws Throwable {
+        final RecyclerView recyclerView = new RecyclerView(getActivity());
+        recyclerView.setAdapter(new TestAdapter(50));
+        recyclerView.setPrefetchScheduler(new RecyclerView.VelocityPrefetchScheduler());
+        PrefetchLayoutManager layout = new PrefetchLayoutManager();
+        recyclerView.setLayoutManager(layout);
+
+        layout.expectLayouts(1);
+        setRecyclerView(recyclerView);
+        layout.waitForLayout(10);
+
+        smoothScrollBy(50);
+        layout.waitForPrefetch(10);
+        assertThat(cachedViews().size(), is(1));
+        assertThat(recyclerView.getPrefetchedViewCount(), is(1));
+        assertThat(recyclerView.getPrefetchHitCount(), is(0));
+
+        // the prefetched item is laid out without binding it again
+        layout.layoutEnd = 7;
+        layout.expectLayouts(1);
+        requestLayoutOnUIThread(recyclerView);
+        layout.waitForLayout(10);
+        assertThat(recyclerView.getPrefetchHitCount(), is(1));
+    }
+}
@@ -104,6 +104,12 @@ public class ThreadUtilTest {
                                 assertBackgroundThread();
                                 setResultData("recycleTile", data);
                             }
+
+                            @Override
+                            public void onTileLoaded(TileList.Tile<Integer> data) {
+                                assertBackgroundThread();
+                                setResultData("onTileLoaded", data);
+                            }
                         });
             }
         });
@@ -0,0 +1,260 @@
+/*
+ * Copyright 2018 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package androidx.recyclerview.widget;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+
+import android.app.Activity;
+import android.os.SystemClock;
+import android.support.test.InstrumentationRegistry;
+import android.support.test.filters.LargeTest;
+import android.support.test.filters.MediumTest;
+import android.support.test.rule.ActivityTestRule;
+import android.support.test.runner.AndroidJUnit4;
+import android.util.Log;
+import android.util.SparseIntArray;
+import android.view.LayoutInflater;
+import android.view.View;
+import android.view.ViewGroup;
+import android.widget.FrameLayout;
+import android.widget.LinearLayout;
+import android.widget.TextView;
+
+import androidx.annotation.NonNull;
+import androidx.recyclerview.test.R;
+
+import org.junit.Ignore;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+@MediumTest
+@RunWith(AndroidJUnit4.class)
+public class ViewHolderWarmerTest {
+    private static final String TAG = "ViewHolderWarmerTest";
+    private static final int ITEM_COUNT = 200;
+    private static final int VIEW_TYPE_COUNT = 4;
+
+    @Rule
+    public ActivityTestRule<TestActivity> mActivityRule =
+            new ActivityTestRule<>(TestActivity.class);
+
+    private RecyclerView mRecyclerView;
+    private WarmerTestAdapter mAdapter;
+
+    private void setUpRecyclerView() throws Throwable {
+        mActivityRule.runOnUiThread(new Runnable() {
+            @Override
+            public void run() {
+                Activity activity = mActivityRule.getActivity();
+                mRecyclerView = new RecyclerView(activity);
+                mRecyclerView.setLayoutManager(new LinearLayoutManager(activity));
+                mRecyclerView.setItemViewCacheSize(0);
+                mAdapter = new WarmerTestAdapter();
+                mRecyclerView.setAdapter(mAdapter);
+                mActivityRule.getActivity().getContainer().addView(mRecyclerView);
+            }
+        });
+        InstrumentationRegistry.getInstrumentation().waitForIdleSync();
+    }
+
+    private void warm(final ViewHolderWarmer warmer, final int viewType, final int count)
+            throws Throwable {
+        mActivityRule.runOnUiThread(new Runnable() {
+            @Override
+            public void run() {
+                warmer.warm(viewType, count);
+            }
+        });
+    }
+
+    private void waitForWarmer(final ViewHolderWarmer warmer) throws Throwable {
+        long deadline = SystemClock.uptimeMillis() + 5000;
+        while (SystemClock.uptimeMillis() < deadline) {
+            InstrumentationRegistry.getInstrumentation().waitForIdleSync();
+            final int[] pending = new int[1];
+            mActivityRule.runOnUiThread(new Runnable() {
+                @Override
+                public void run() {
+                    pending[0] = warmer.getPendingCount();
+                }
+            });
+            if (pending[0] == 0) {
+                return;
+            }
+            Thread.sleep(10);
+        }
+    }
+
+    @Test
+    public void warmWithAdapter() throws Throwable {
+        setUpRecyclerView();
+        ViewHolderWarmer warmer = new ViewHolderWarmer(mRecyclerView);
+        int createdBefore = mAdapter.mCreateCount;
+        warm(warmer, 1, 3);
+        waitForWarmer(warmer);
+        assertEquals(3, mRecyclerView.getRecycledViewPool().getRecycledViewCount(1));
+        assertEquals(createdBefore + 3, mAdapter.mCreateCount);
+
+        // warming again only creates the missing ones
+        warm(warmer, 1, 4);
+        waitForWarmer(warmer);
+        assertEquals(4, mRecyclerView.getRecycledViewPool().getRecycledViewCount(1));
+        assertEquals(createdBefore + 4, mAdapter.mCreateCount);
+    }
+
+    @Test
+    public void warmIsLimitedByPoolSize() throws Throwable {
+        setUpRecyclerView();
+        mRecyclerView.getRecycledViewPool().setMaxRecycledViews(2, 2);
+        ViewHolderWarmer warmer = new ViewHolderWarmer(mRecyclerView);
+        warm(warmer, 2, 10);
+        waitForWarmer(warmer);
+        assertEquals(2, mRecyclerView.getRecycledViewPool().getRecycledViewCount(2));
+    }
+
+    @Test
+    public void cancel() throws Throwable {
+        setUpRecyclerView();
+        final ViewHolderWarmer warmer = new ViewHolderWarmer(mRecyclerView);
+        mActivityRule.runOnUiThread(new Runnable() {
+            @Override
+            public void run() {
+                warmer.warm(3, 5);
+                warmer.cancel();
+            }
+        });
+        waitForWarmer(warmer);
+        assertEquals(0, mRecyclerView.getRecycledViewPool().getRecycledViewCount(3));
+    }
+
+    @Test
+    public void warmWithAsyncInflater() throws Throwable {
+        setUpRecyclerView();
+        SparseIntArray layouts = new SparseIntArray();
+        layouts.put(1, R.layout.item_view);
+        final int[] wrapped = new int[1];
+        ViewHolderWarmer warmer = new ViewHolderWarmer(mRecyclerView,
+                ViewHolderWarmer.asyncInflaterCreator(mActivityRule.getActivity(), layouts,
+                        new ViewHolderWarmer.ViewHolderFactory() {
+                            @NonNull
+                            @Override
+                            public RecyclerView.ViewHolder createViewHolder(
+                                    @NonNull View itemView, int viewType) {
+                                wrapped[0]++;
+                                return new RecyclerView.ViewHolder(itemView) {
+                                };
+                            }
+                        }));
+        int createdBefore = mAdapter.mCreateCount;
+        warm(warmer, 1, 2);
+        waitForWarmer(warmer);
+        RecyclerView.ViewHolder holder = mRecyclerView.getRecycledViewPool().getRecycledView(1);
+        assertNotNull(holder);
+        assertEquals(1, holder.getItemViewType());
+        assertNotNull(holder.itemView.findViewById(R.id.item_view));
+        assertEquals(2, wrapped[0]);
+        assertEquals(createdBefore, mAdapter.mCreateCount);
+    }
+
+    @Ignore("benchmark")
+    @LargeTest
+    @Test
+    public void benchmark_firstScroll() throws Throwable {
+        long coldNs = measureFirstScroll(false);
+        long warmNs = measureFirstScroll(true);
+        Log.d(TAG, String.format("first scroll: %d us cold, %d us warm",
+                coldNs / 1000, warmNs / 1000));
+    }
+
+    /**
+     * Returns the time spent on the UI thread to scroll through the list once, which is what
+     * drops frames on the first scroll of a new screen.
+     */
+    private long measureFirstScroll(boolean warm) throws Throwable {
+        mActivityRule.runOnUiThread(new Runnable() {
+            @Override
+            public void run() {
+                mActivityRule.getActivity().getContainer().removeAllViews();
+            }
+        });
+        setUpRecyclerView();
+        if (warm) {
+            ViewHolderWarmer warmer = new ViewHolderWarmer(mRecyclerView);
+            for (int viewType = 0; viewType < VIEW_TYPE_COUNT; viewType++) {
+                warm(warmer, viewType, 5);
+            }
+            waitForWarmer(warmer);
+        }
+        final long[] elapsed = new long[1];
+        for (int i = 0; i < 20; i++) {
+            mActivityRule.runOnUiThread(new Runnable() {
+                @Override
+                public void run() {
+                    long start = System.nanoTime();
+                    mRecyclerView.scrollBy(0, mRecyclerView.getHeight() / 4);
+                    elapsed[0] += System.nanoTime() - start;
+                }
+            });
+        }
+        return elapsed[0];
+    }
+
+    private static class WarmerTestAdapter
+            extends RecyclerView.Adapter<RecyclerView.ViewHolder> {
+        int mCreateCount;
+
+        @NonNull
+        @Override
+        public RecyclerView.ViewHolder onCreateViewHolder(@NonNull ViewGroup parent,
+                int viewType) {
+            mCreateCount++;
+            // a somewhat deep hierarchy, to make inflation cost show up
+            LinearLayout root = new LinearLayout(parent.getContext());
+            root.setOrientation(LinearLayout.VERTICAL);
+            for (int i = 0; i < 4; i++) {
+                FrameLayout frame = new FrameLayout(parent.getContext());
+                View child = LayoutInflater.from(parent.getContext())
+                        .inflate(R.layout.item_view, frame, false);
+                frame.addView(child, new FrameLayout.LayoutParams(
+                        ViewGroup.LayoutParams.MATCH_PARENT, 20));
+                root.addView(frame);
+            }
+            TextView text = new TextView(parent.getContext());
+            root.addView(text);
+            return new RecyclerView.ViewHolder(root) {
+            };
+        }
+
+        @Override
+        public void onBindViewHolder(@NonNull RecyclerView.ViewHolder holder, int position) {
+            ViewGroup root = (ViewGroup) holder.itemView;
+            ((TextView) root.getChildAt(root.getChildCount() - 1)).setText("item " + position);
+        }
+
+        @Override
+        public int getItemViewType(int position) {
+            return position % VIEW_TYPE_COUNT;
+        }
+
+        @Override
+        public int getItemCount() {
+            return ITEM_COUNT;
+        }
+    }
+}
@@ -17,6 +17,7 @@
 package androidx.recyclerview.widget;
 
 import android.util.Log;
+import android.util.SparseArray;
 import android.util.SparseBooleanArray;
 import android.util.SparseIntArray;
 
@@ -25,6 +26,8 @@ import androidx.annotation.Nullable;
 import androidx.annotation.UiThread;
 import androidx.annotation.WorkerThread;
 
+import java.util.concurrent.Executor;
+
 /**
  * A utility class that supports asynchronous content loading.
  * <p>
@@ -39,8 +42,11 @@ import androidx.annotation.WorkerThread;
  * {@link ViewCallback} when the data is loaded. It may load some extra items for smoother
  * scrolling.
  * <p>
- * Note that this class uses a single thread to load the data, so it suitable to load data from
- * secondary storage such as disk, but not from network.
+ * Note that by default this class uses a single thread to load the data, so it suitable to load
+ * data from secondary storage such as disk, but not from network. If loading a tile is bound by
+ * latency rather than throughput, pass an {@link Executor} to
+ * {@link #AsyncListUtil(Class, int, DataCallback, ViewCallback, Executor)} to load several tiles
+ * in parallel. Tiles that leave the range to load while they are being loaded are cancelled.
  * <p>
  * This class is designed to work with {@link RecyclerView}, but it does
  * not depend on it and can be used with other list views.
@@ -55,6 +61,8 @@ public class AsyncListUtil<T> {
     final int mTileSize;
     final DataCallback<T> mDataCallback;
     final ViewCallback mViewCallback;
+    @Nullable
+    final Executor mLoadExecutor;
 
     final TileList<T> mTileList;
 
@@ -89,10 +97,31 @@ public class AsyncListUtil<T> {
      */
     public AsyncListUtil(@NonNull Class<T> klass, int tileSize,
             @NonNull DataCallback<T> dataCallback, @NonNull ViewCallback viewCallback) {
+        this(klass, tileSize, dataCallback, viewCallback, null);
+    }
+
+    /**
+     * Creates an AsyncListUtil that loads tiles in parallel on the given executor.
+     * <p>
+     * {@link DataCallback#fillData(Object[], int, int)} is called on the threads of the executor
+     * and may be called for several tiles at the same time, so it must be thread safe. All other
+     * {@link DataCallback} methods are still called on a single background thread.
+     *
+     * @param klass Class of the data item.
+     * @param tileSize Number of item per chunk loaded at once.
+     * @param dataCallback Data access callback.
+     * @param viewCallback Callback for querying visible item range and update notifications.
+     * @param loadExecutor Executor to load tiles on, or null to load them one by one on the
+     *                     background thread.
+     */
+    public AsyncListUtil(@NonNull Class<T> klass, int tileSize,
+            @NonNull DataCallback<T> dataCallback, @NonNull ViewCallback viewCallback,
+            @Nullable Executor loadExecutor) {
         mTClass = klass;
         mTileSize = tileSize;
         mDataCallback = dataCallback;
         mViewCallback = viewCallback;
+        mLoadExecutor = loadExecutor;
 
         mTileList = new TileList<T>(mTileSize);
 
@@ -297,16 +326,23 @@ public class AsyncListUtil<T> {
 
         final SparseBooleanArray mLoadedTiles = new SparseBooleanArray();
 
+        // Tiles being filled on mLoadExecutor, keyed by start position.
+        final SparseArray<TileList.Tile<T>> mLoadingTiles = new SparseArray<>();
+
         private int mGeneration;
         private int mItemCount;
 
+        private int mFirstVisibleTileStart;
+        private int mLastVisibleTileStart;
         private int mFirstRequiredTileStart;
         private int mLastRequiredTileStart;
+        private int mScrollHint = ViewCallback.HINT_SCROLL_NONE;
 
         @Override
         public void refresh(int generation) {
             mGeneration = generation;
             mLoadedTiles.clear();
+            cancelLoadingTiles(Integer.MAX_VALUE, Integer.MIN_VALUE);
             mItemCount = mDataCallback.refreshData();
             mMainThreadProxy.updateItemCount(mGeneration, mItemCount);
         }
@@ -326,12 +362,16 @@ public class AsyncListUtil<T> {
             final int firstVisibleTileStart = getTileStart(rangeStart);
             final int lastVisibleTileStart = getTileStart(rangeEnd);
 
+            mFirstVisibleTileStart = firstVisibleTileStart;
+            mLastVisibleTileStart = lastVisibleTileStart;
             mFirstRequiredTileStart = getTileStart(extRangeStart);
             mLastRequiredTileStart = getTileStart(extRangeEnd);
+            mScrollHint = scrollHint;
             if (DEBUG) {
                 log("requesting tile range: %d..%d",
                         mFirstRequiredTileStart, mLastRequiredTileStart);
             }
+            cancelLoadingTiles(mFirstRequiredTileStart, mLastRequiredTileStart);
 
             // All pending tile requests are removed by ThreadUtil at this point.
             // Re-request all required tiles in the most optimal order.
@@ -363,17 +403,51 @@ public class AsyncListUtil<T> {
 
         @Override
         public void loadTile(int position, int scrollHint) {
-            if (isTileLoaded(position)) {
+            if (isTileLoaded(position) || mLoadingTiles.get(position) != null) {
                 if (DEBUG) {
                     log("already loaded tile @%d", position);
                 }
                 return;
             }
-            TileList.Tile<T> tile = acquireTile();
+            final TileList.Tile<T> tile = acquireTile();
             tile.mStartPosition = position;
             tile.mItemCount = Math.min(mTileSize, mItemCount - tile.mStartPosition);
-            mDataCallback.fillData(tile.mItems, tile.mStartPosition, tile.mItemCount);
-            flushTileCache(scrollHint);
+            if (mLoadExecutor == null) {
+                mDataCallback.fillData(tile.mItems, tile.mStartPosition, tile.mItemCount);
+                flushTileCache(scrollHint);
+                addTile(tile);
+                return;
+            }
+            tile.mCancelled = false;
+            tile.mFilled = false;
+            mLoadingTiles.put(position, tile);
+            mLoadExecutor.execute(new Runnable() {
+                @Override
+                public void run() {
+                    if (!tile.mCancelled) {
+                        mDataCallback.fillData(tile.mItems, tile.mStartPosition, tile.mItemCount);
+                        tile.mFilled = true;
+                    }
+                    mBackgroundProxy.onTileLoaded(tile);
+                }
+            });
+        }
+
+        @Override
+        public void onTileLoaded(TileList.Tile<T> tile) {
+            if (tile.mCancelled) {
+                if (DEBUG) {
+                    log("cancelled tile @%d", tile.mStartPosition);
+                }
+                if (tile.mFilled) {
+                    recycleTile(tile);
+                } else {
+                    releaseTile(tile);
+                }
+                return;
+            }
+            mLoadingTiles.remove(tile.mStartPosition);
+            flushTileCache(mScrollHint);
             addTile(tile);
         }
 
@@ -383,11 +457,27 @@ public class AsyncListUtil<T> {
                 log("recycling tile @%d", tile.mStartPosition);
             }
             mDataCallback.recycleData(tile.mItems, tile.mItemCount);
+            releaseTile(tile);
+        }
 
+        private void releaseTile(TileList.Tile<T> tile) {
             tile.mNext = mRecycledRoot;
             mRecycledRoot = tile;
         }
 
+        /**
+         * Cancels the tiles being loaded that start outside of the given range.
+         */
+        private void cancelLoadingTiles(int firstTileStart, int lastTileStart) {
+            for (int i = mLoadingTiles.size() - 1; i >= 0; i--) {
+                final int tileStart = mLoadingTiles.keyAt(i);
+                if (tileStart < firstTileStart || tileStart > lastTileStart) {
+                    mLoadingTiles.valueAt(i).mCancelled = true;
+                    mLoadingTiles.removeAt(i);
+                }
+            }
+        }
+
         private TileList.Tile<T> acquireTile() {
             if (mRecycledRoot != null) {
                 TileList.Tile<T> result = mRecycledRoot;
@@ -417,23 +507,35 @@ public class AsyncListUtil<T> {
             }
         }
 
+        /**
+         * Flushes the loaded tiles outside of the required range that are the farthest from the
+         * visible range, until there is space for a new tile. Tiles behind the scroll direction
+         * are flushed first if they are as far as the ones ahead.
+         */
         private void flushTileCache(int scrollHint) {
             final int cacheSizeLimit = mDataCallback.getMaxCachedTiles();
             while (mLoadedTiles.size() >= cacheSizeLimit) {
                 int firstLoadedTileStart = mLoadedTiles.keyAt(0);
                 int lastLoadedTileStart = mLoadedTiles.keyAt(mLoadedTiles.size() - 1);
-                int startMargin = mFirstRequiredTileStart - firstLoadedTileStart;
-                int endMargin = lastLoadedTileStart - mLastRequiredTileStart;
-                if (startMargin > 0 && (startMargin >= endMargin ||
-                        (scrollHint == ViewCallback.HINT_SCROLL_ASC))) {
-                    removeTile(firstLoadedTileStart);
-                } else if (endMargin > 0 && (startMargin < endMargin ||
-                        (scrollHint == ViewCallback.HINT_SCROLL_DESC))){
-                    removeTile(lastLoadedTileStart);
-                } else {
+                boolean canFlushFirst = firstLoadedTileStart < mFirstRequiredTileStart;
+                boolean canFlushLast = lastLoadedTileStart > mLastRequiredTileStart;
+                if (!canFlushFirst && !canFlushLast) {
                     // Could not flush on either side, bail out.
                     return;
                 }
+                int startDistance = mFirstVisibleTileStart - firstLoadedTileStart;
+                int endDistance = lastLoadedTileStart - mLastVisibleTileStart;
+                final boolean flushFirst;
+                if (!canFlushLast) {
+                    flushFirst = true;
+                } else if (!canFlushFirst) {
+                    flushFirst = false;
+                } else if (startDistance != endDistance) {
+                    flushFirst = startDistance > endDistance;
+                } else {
+                    flushFirst = scrollHint != ViewCallback.HINT_SCROLL_DESC;
+                }
+                removeTile(flushFirst ? firstLoadedTileStart : lastLoadedTileStart);
             }
         }
 
@@ -468,6 +570,9 @@ public class AsyncListUtil<T> {
          * <p>
          * The provided tile might be a recycled tile, in which case it will already have objects.
          * It is suggested to re-use these objects if possible in your use case.
+         * <p>
+         * If the AsyncListUtil was created with a load executor, this method is called on the
+         * threads of that executor and may run for several tiles concurrently.
          *
          * @param startPosition The start position in the list.
          * @param itemCount The data item count.
@@ -40,6 +40,9 @@ final class GapWorker implements Runnable {
         public int distanceToItem;
         public RecyclerView view;
         public int position;
+        // only set when prefetching is budgeted by PrefetchSchedulers.
+        public float priority;
+        public long costNs;
 
         public void clear() {
             immediate = false;
@@ -47,9 +50,17 @@ final class GapWorker implements Runnable {
             distanceToItem = 0;
             view = null;
             position = 0;
+            priority = 0;
+            costNs = 0;
         }
     }
 
+    /**
+     * Used for the RecyclerViews without a scheduler, once any RecyclerView has one.
+     */
+    private static final RecyclerView.PrefetchScheduler sDefaultScheduler =
+            new RecyclerView.VelocityPrefetchScheduler();
+
     /**
      * Temporary storage for prefetch Tasks that execute in {@link #prefetch(long)}. Task objects
      * are pooled in the ArrayList, and never removed to avoid allocations, but always cleared
@@ -57,6 +68,18 @@ final class GapWorker implements Runnable {
      */
     private ArrayList<Task> mTasks = new ArrayList<>();
 
+    /**
+     * Temporary storage for the prefetch Tasks of a nested RecyclerView, pooled like
+     * {@link #mTasks}. Only used when prefetching is budgeted.
+     */
+    private ArrayList<Task> mNestedTasks = new ArrayList<>();
+
+    /**
+     * True if any RecyclerView had a {@link RecyclerView.PrefetchScheduler} when the task list was
+     * built, in which case prefetching is budgeted by the measured cost of each item.
+     */
+    private boolean mBudgeted;
+
     /**
      * Prefetch information associated with a specific RecyclerView.
      */
@@ -210,16 +233,62 @@ final class GapWorker implements Runnable {
         }
     };
 
+    static Comparator<Task> sPriorityComparator = new Comparator<Task>() {
+        @Override
+        public int compare(Task lhs, Task rhs) {
+            // first, prioritize non-cleared tasks
+            if ((lhs.view == null) != (rhs.view == null)) {
+                return lhs.view == null ? 1 : -1;
+            }
+
+            // then prioritize _highest_ priority
+            int deltaPriority = Float.compare(rhs.priority, lhs.priority);
+            if (deltaPriority != 0) return deltaPriority;
+
+            // then prioritize _lowest_ cost
+            if (lhs.costNs != rhs.costNs) {
+                return lhs.costNs < rhs.costNs ? -1 : 1;
+            }
+
+            return 0;
+        }
+    };
+
+    static RecyclerView.PrefetchScheduler getScheduler(RecyclerView view) {
+        return view.mPrefetchScheduler != null ? view.mPrefetchScheduler : sDefaultScheduler;
+    }
+
+    /**
+     * Estimates the time to prefetch the item at the given position, which is 0 if it is already
+     * in the view cache.
+     */
+    static long estimatePrefetchCostNs(RecyclerView view, int position) {
+        if (view.mAdapter == null || position >= view.mAdapter.getItemCount()) {
+            return 0;
+        }
+        final ArrayList<RecyclerView.ViewHolder> cachedViews = view.mRecycler.mCachedViews;
+        for (int i = 0; i < cachedViews.size(); i++) {
+            RecyclerView.ViewHolder holder = cachedViews.get(i);
+            if (holder.mPosition == position && !holder.isInvalid()) {
+                return 0;
+            }
+        }
+        final int viewType = view.mAdapter.getItemViewType(position);
+        return view.getRecycledViewPool().estimateObtainAndBindNs(viewType);
+    }
+
     private void buildTaskList() {
         // Update PrefetchRegistry in each view
         final int viewCount = mRecyclerViews.size();
         int totalTaskCount = 0;
+        mBudgeted = false;
         for (int i = 0; i < viewCount; i++) {
             RecyclerView view = mRecyclerViews.get(i);
             if (view.getWindowVisibility() == View.VISIBLE) {
                 view.mPrefetchRegistry.collectPrefetchPositionsFromView(view, false);
                 totalTaskCount += view.mPrefetchRegistry.mCount;
             }
+            mBudgeted |= view.mPrefetchScheduler != null;
         }
 
         // Populate task list from prefetch data...
@@ -250,13 +319,18 @@ final class GapWorker implements Runnable {
                 task.distanceToItem = distanceToItem;
                 task.view = view;
                 task.position = prefetchRegistry.mPrefetchArray[j];
+                if (mBudgeted) {
+                    task.costNs = estimatePrefetchCostNs(view, task.position);
+                    task.priority = getScheduler(view).getPrefetchPriority(distanceToItem,
+                            viewVelocity, task.costNs, false);
+                }
 
                 totalTaskIndex++;
             }
         }
 
         // ... and priority sort
-        Collections.sort(mTasks, sTaskComparator);
+        Collections.sort(mTasks, mBudgeted ? sPriorityComparator : sTaskComparator);
     }
 
     static boolean isPrefetchPositionAttached(RecyclerView view, int position) {
@@ -283,6 +357,7 @@ final class GapWorker implements Runnable {
         RecyclerView.ViewHolder holder;
         try {
             view.onEnterLayoutOrScroll();
+            view.mPrefetching = true;
             holder = recycler.tryGetViewHolderForPositionByDeadline(
                     position, false, deadlineNs);
 
@@ -300,6 +375,7 @@ final class GapWorker implements Runnable {
                 }
             }
         } finally {
+            view.mPrefetching = false;
             view.onExitLayoutOrScroll(false);
         }
         return holder;
@@ -326,6 +402,10 @@ final class GapWorker implements Runnable {
             try {
                 TraceCompat.beginSection(RecyclerView.TRACE_NESTED_PREFETCH_TAG);
                 innerView.mState.prepareForNestedPrefetch(innerView.mAdapter);
+                if (mBudgeted) {
+                    prefetchInnerTasksWithBudget(innerView, deadlineNs);
+                    return;
+                }
                 for (int i = 0; i < innerPrefetchRegistry.mCount * 2; i += 2) {
                     // Note that we ignore immediate flag for inner items because
                     // we have lower confidence they're needed next frame.
@@ -338,6 +418,44 @@ final class GapWorker implements Runnable {
         }
     }
 
+    /**
+     * Prefetches the items of a nested RecyclerView in the order of its scheduler, skipping the
+     * ones that are not expected to be done before the deadline.
+     */
+    private void prefetchInnerTasksWithBudget(RecyclerView innerView, long deadlineNs) {
+        final LayoutPrefetchRegistryImpl innerPrefetchRegistry = innerView.mPrefetchRegistry;
+        final RecyclerView.PrefetchScheduler scheduler = getScheduler(innerView);
+        final int count = innerPrefetchRegistry.mCount;
+        mNestedTasks.ensureCapacity(count);
+        for (int i = 0; i < count; i++) {
+            final Task task;
+            if (i >= mNestedTasks.size()) {
+                task = new Task();
+                mNestedTasks.add(task);
+            } else {
+                task = mNestedTasks.get(i);
+            }
+            task.view = innerView;
+            task.position = innerPrefetchRegistry.mPrefetchArray[i * 2];
+            task.distanceToItem = innerPrefetchRegistry.mPrefetchArray[i * 2 + 1];
+            task.costNs = estimatePrefetchCostNs(innerView, task.position);
+            task.priority = scheduler.getPrefetchPriority(task.distanceToItem, 0, task.costNs,
+                    true);
+        }
+        Collections.sort(mNestedTasks, sPriorityComparator);
+        for (int i = 0; i < mNestedTasks.size(); i++) {
+            final Task task = mNestedTasks.get(i);
+            if (task.view == null) {
+                break; // done with populated tasks
+            }
+            if (task.priority > 0
+                    && innerView.getNanoTime() + task.costNs < deadlineNs) {
+                prefetchPositionWithDeadline(innerView, task.position, deadlineNs);
+            }
+            task.clear();
+        }
+    }
+
     private void flushTaskWithDeadline(Task task, long deadlineNs) {
         long taskDeadlineNs = task.immediate ? RecyclerView.FOREVER_NS : deadlineNs;
         RecyclerView.ViewHolder holder = prefetchPositionWithDeadline(task.view,
@@ -351,6 +469,10 @@ final class GapWorker implements Runnable {
     }
 
     private void flushTasksWithDeadline(long deadlineNs) {
+        if (mBudgeted) {
+            flushTasksWithBudget(deadlineNs);
+            return;
+        }
         for (int i = 0; i < mTasks.size(); i++) {
             final Task task = mTasks.get(i);
             if (task.view == null) {
@@ -361,6 +483,38 @@ final class GapWorker implements Runnable {
         }
     }
 
+    /**
+     * Runs the tasks in priority order. Immediate tasks always run, since their items are needed
+     * for the next frame anyway, and the time they are expected to take is reserved for them. Other
+     * tasks, including nested prefetch, only run if they are expected to fit into the rest.
+     */
+    private void flushTasksWithBudget(long deadlineNs) {
+        long reservedNs = 0;
+        for (int i = 0; i < mTasks.size(); i++) {
+            final Task task = mTasks.get(i);
+            if (task.view == null) {
+                break;
+            }
+            if (task.immediate) {
+                reservedNs += task.costNs;
+            }
+        }
+        for (int i = 0; i < mTasks.size(); i++) {
+            final Task task = mTasks.get(i);
+            if (task.view == null) {
+                break; // done with populated tasks
+            }
+            if (task.immediate) {
+                reservedNs -= task.costNs;
+                flushTaskWithDeadline(task, deadlineNs - reservedNs);
+            } else if (task.priority > 0
+                    && task.view.getNanoTime() + reservedNs + task.costNs < deadlineNs) {
+                flushTaskWithDeadline(task, deadlineNs - reservedNs);
+            }
+            task.clear();
+        }
+    }
+
     void prefetch(long deadlineNs) {
         buildTaskList();
         flushTasksWithDeadline(deadlineNs);
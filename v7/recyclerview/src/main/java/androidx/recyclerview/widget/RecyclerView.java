@@ -506,6 +506,12 @@ public class RecyclerView extends ViewGroup implements ScrollingView, NestedScro
     GapWorker mGapWorker;
     GapWorker.LayoutPrefetchRegistryImpl mPrefetchRegistry =
             ALLOW_THREAD_GAP_WORK ? new GapWorker.LayoutPrefetchRegistryImpl() : null;
+    @Nullable
+    PrefetchScheduler mPrefetchScheduler;
+    // true while the GapWorker obtains a ViewHolder for this RecyclerView.
+    boolean mPrefetching;
+    private int mPrefetchedViewCount;
+    private int mPrefetchHitCount;
 
     final State mState = new State();
 
@@ -2513,6 +2519,54 @@ public class RecyclerView extends ViewGroup implements ScrollingView, NestedScro
         return mEdgeEffectFactory;
     }
 
+    /**
+     * Sets the {@link PrefetchScheduler} that prioritizes the items this RecyclerView prefetches
+     * in between frames.
+     * <p>
+     * Once any RecyclerView on the UI thread has a scheduler, prefetching is budgeted by the
+     * measured create and bind time of each view type: items that are not expected to be ready
+     * before the next frame are skipped in favor of cheaper ones, and nested RecyclerViews only
+     * prefetch into the time that is left after the items the outer lists need for the next frame.
+     * RecyclerViews without a scheduler are then scheduled with a
+     * {@link VelocityPrefetchScheduler}.
+     *
+     * @param scheduler The scheduler, or null to use the default prefetch order
+     * @see #getPrefetchedViewCount()
+     * @see #getPrefetchHitCount()
+     */
+    public void setPrefetchScheduler(@Nullable PrefetchScheduler scheduler) {
+        mPrefetchScheduler = scheduler;
+    }
+
+    /**
+     * Returns the {@link PrefetchScheduler} set via
+     * {@link #setPrefetchScheduler(PrefetchScheduler)}.
+     *
+     * @return The scheduler, or null if the default prefetch order is used
+     */
+    @Nullable
+    public PrefetchScheduler getPrefetchScheduler() {
+        return mPrefetchScheduler;
+    }
+
+    /**
+     * Returns the number of ViewHolders that were bound by prefetching in between frames.
+     *
+     * @see #getPrefetchHitCount()
+     */
+    public int getPrefetchedViewCount() {
+        return mPrefetchedViewCount;
+    }
+
+    /**
+     * Returns the number of ViewHolders bound by prefetching that were later used by a layout
+     * without binding them again. Together with {@link #getPrefetchedViewCount()}, this gives the
+     * hit rate of prefetching.
+     */
+    public int getPrefetchHitCount() {
+        return mPrefetchHitCount;
+    }
+
     /**
      * Since RecyclerView is a collection ViewGroup that includes virtual children (items that are
      * in the Adapter but not visible in the UI), it employs a more involved focus search strategy
@@ -5415,6 +5469,66 @@ public class RecyclerView extends ViewGroup implements ScrollingView, NestedScro
         }
     }
 
+    /**
+     * Prioritizes the items that a RecyclerView prefetches in between frames.
+     * <p>
+     * The prefetch work of all RecyclerViews on the UI thread is sorted by the priorities returned
+     * by their schedulers, and then done in that order as long as the measured cost of each item
+     * fits into the time left before the next frame.
+     *
+     * @see RecyclerView#setPrefetchScheduler(PrefetchScheduler)
+     */
+    public abstract static class PrefetchScheduler {
+        /**
+         * Returns the priority of prefetching an item. Items with a higher priority are prefetched
+         * first, and items with a priority of 0 or less are not prefetched.
+         *
+         * @param distanceToItem  The distance of the item to the viewport in pixels
+         * @param scrollVelocity  The distance the RecyclerView scrolled in the last frame in
+         *                        pixels, or 0 for the items of nested RecyclerViews
+         * @param estimatedCostNs The estimated time to create and bind the item, or 0 if unknown
+         * @param nested          True if the item belongs to a RecyclerView nested in an item of
+         *                        another RecyclerView that is being prefetched. These items are
+         *                        prefetched right after that item, in the order of their
+         *                        priorities among each other.
+         * @return The priority of the item
+         */
+        public abstract float getPrefetchPriority(int distanceToItem, int scrollVelocity,
+                long estimatedCostNs, boolean nested);
+    }
+
+    /**
+     * A {@link PrefetchScheduler} that prioritizes items by the number of frames until they are
+     * expected to scroll into the viewport at the current velocity.
+     * <p>
+     * The items of a nested RecyclerView are prefetched right after the item of the parent that
+     * contains it, so they are only ordered among each other, by their distance to the viewport.
+     */
+    public static class VelocityPrefetchScheduler extends PrefetchScheduler {
+        private final boolean mPrefetchNested;
+
+        public VelocityPrefetchScheduler() {
+            this(true);
+        }
+
+        /**
+         * @param prefetchNested False to not prefetch the items of nested RecyclerViews
+         */
+        public VelocityPrefetchScheduler(boolean prefetchNested) {
+            mPrefetchNested = prefetchNested;
+        }
+
+        @Override
+        public float getPrefetchPriority(int distanceToItem, int scrollVelocity,
+                long estimatedCostNs, boolean nested) {
+            if (nested && !mPrefetchNested) {
+                return 0;
+            }
+            final float framesUntilVisible = (float) distanceToItem / Math.max(scrollVelocity, 1);
+            return 1f / (1f + framesUntilVisible);
+        }
+    }
+
     /**
      * RecycledViewPool lets you share Views between multiple RecyclerViews.
      * <p>
@@ -5422,9 +5536,17 @@ public class RecyclerView extends ViewGroup implements ScrollingView, NestedScro
      * and use {@link RecyclerView#setRecycledViewPool(RecycledViewPool)}.
      * <p>
      * RecyclerView automatically creates a pool for itself if you don't provide one.
+     * <p>
+     * By default, the pool holds up to 5 ViewHolders of each type, unless a different maximum is
+     * set via {@link #setMaxRecycledViews(int, int)}. If adaptive sizing is enabled via
+     * {@link #setAdaptiveSizingEnabled(boolean)}, the pool grows the maximum of a type whenever it
+     * has to create a ViewHolder of that type after discarding one because the type was full. The
+     * total of these maximums is kept within {@link #setAdaptiveSizingBudget(int)} by taking away
+     * space from the types that are the cheapest to create.
      */
     public static class RecycledViewPool {
         private static final int DEFAULT_MAX_SCRAP = 5;
+        private static final int DEFAULT_ADAPTIVE_SIZING_BUDGET = 20 * DEFAULT_MAX_SCRAP;
 
         /**
          * Tracks both pooled holders, as well as create/bind timing metadata for the given type.
@@ -5443,13 +5565,28 @@ public class RecyclerView extends ViewGroup implements ScrollingView, NestedScro
         static class ScrapData {
             final ArrayList<ViewHolder> mScrapHeap = new ArrayList<>();
             int mMaxScrap = DEFAULT_MAX_SCRAP;
+            // true if mMaxScrap was set by the developer, in which case adaptive sizing leaves it
+            boolean mMaxScrapSetExplicitly = false;
             long mCreateRunningAverageNs = 0;
             long mBindRunningAverageNs = 0;
+            // ViewHolders discarded because the heap was full, which were not made up for by
+            // growing mMaxScrap yet.
+            int mOverflowCount = 0;
+            int mCreateCount = 0;
+            int mBindCount = 0;
+            int mHitCount = 0;
+
+            boolean isAdaptive() {
+                return !mMaxScrapSetExplicitly;
+            }
         }
         SparseArray<ScrapData> mScrap = new SparseArray<>();
 
         private int mAttachCount = 0;
 
+        private boolean mAdaptiveSizingEnabled = false;
+        private int mAdaptiveSizingBudget = DEFAULT_ADAPTIVE_SIZING_BUDGET;
+
         /**
          * Discard all ViewHolders.
          */
@@ -5468,10 +5605,89 @@ public class RecyclerView extends ViewGroup implements ScrollingView, NestedScro
          */
         public void setMaxRecycledViews(int viewType, int max) {
             ScrapData scrapData = getScrapDataForType(viewType);
-            scrapData.mMaxScrap = max;
-            final ArrayList<ViewHolder> scrapHeap = scrapData.mScrapHeap;
-            while (scrapHeap.size() > max) {
-                scrapHeap.remove(scrapHeap.size() - 1);
+            scrapData.mMaxScrapSetExplicitly = true;
+            setMaxScrap(scrapData, max);
+        }
+
+        /**
+         * Returns the maximum number of ViewHolders of the given type to hold in the pool before
+         * discarding.
+         *
+         * @param viewType ViewHolder Type
+         * @return The maximum number, which changes over time for types without an explicit
+         * maximum if adaptive sizing is enabled.
+         * @see #setMaxRecycledViews(int, int)
+         * @see #setAdaptiveSizingEnabled(boolean)
+         */
+        public int getMaxRecycledViews(int viewType) {
+            ScrapData scrapData = mScrap.get(viewType);
+            return scrapData != null ? scrapData.mMaxScrap : DEFAULT_MAX_SCRAP;
+        }
+
+        /**
+         * Enables or disables adaptive sizing of the pool.
+         * <p>
+         * When enabled, the maximum number of ViewHolders held for a type grows each time a
+         * ViewHolder of that type has to be created after one was discarded because the pool was
+         * full for that type. Types whose maximum was set via
+         * {@link #setMaxRecycledViews(int, int)} are not affected.
+         * <p>
+         * When disabled, which is the default, the maximum of every type that does not have an
+         * explicit maximum goes back to 5.
+         *
+         * @param enabled True to size the pool by the observed demand for each type
+         * @see #setAdaptiveSizingBudget(int)
+         */
+        public void setAdaptiveSizingEnabled(boolean enabled) {
+            if (mAdaptiveSizingEnabled == enabled) {
+                return;
+            }
+            mAdaptiveSizingEnabled = enabled;
+            for (int i = 0; i < mScrap.size(); i++) {
+                ScrapData scrapData = mScrap.valueAt(i);
+                scrapData.mOverflowCount = 0;
+                if (!enabled && scrapData.isAdaptive()) {
+                    setMaxScrap(scrapData, DEFAULT_MAX_SCRAP);
+                }
+            }
+            if (enabled) {
+                trimToAdaptiveSizingBudget();
+            }
+        }
+
+        /**
+         * Returns whether the pool sizes each type by its observed demand.
+         *
+         * @see #setAdaptiveSizingEnabled(boolean)
+         */
+        public boolean isAdaptiveSizingEnabled() {
+            return mAdaptiveSizingEnabled;
+        }
+
+        /**
+         * Sets the total number of ViewHolders that adaptive sizing may distribute among the types
+         * without an explicit maximum. The default is 100.
+         * <p>
+         * Once the budget is used up, a type only grows if there is another type that is cheaper
+         * to create, whose maximum is then reduced instead.
+         *
+         * @param maxTotalRecycledViews The total maximum number of ViewHolders
+         * @see #setAdaptiveSizingEnabled(boolean)
+         */
+        public void setAdaptiveSizingBudget(int maxTotalRecycledViews) {
+            mAdaptiveSizingBudget = maxTotalRecycledViews;
+            if (mAdaptiveSizingEnabled) {
+                trimToAdaptiveSizingBudget();
+            }
+        }
+
+        private void trimToAdaptiveSizingBudget() {
+            while (getAdaptiveMaxScrapTotal() > mAdaptiveSizingBudget) {
+                ScrapData cheapest = findCheapestAdaptiveScrapData(null);
+                if (cheapest == null) {
+                    break;
+                }
+                setMaxScrap(cheapest, cheapest.mMaxScrap - 1);
             }
         }
 
@@ -5482,6 +5698,33 @@ public class RecyclerView extends ViewGroup implements ScrollingView, NestedScro
             return getScrapDataForType(viewType).mScrapHeap.size();
         }
 
+        /**
+         * Returns the number of ViewHolders of the given type that were created by RecyclerViews
+         * using this pool.
+         */
+        public int getCreatedViewCount(int viewType) {
+            ScrapData scrapData = mScrap.get(viewType);
+            return scrapData != null ? scrapData.mCreateCount : 0;
+        }
+
+        /**
+         * Returns the number of times a ViewHolder of the given type was bound by RecyclerViews
+         * using this pool.
+         */
+        public int getBoundViewCount(int viewType) {
+            ScrapData scrapData = mScrap.get(viewType);
+            return scrapData != null ? scrapData.mBindCount : 0;
+        }
+
+        /**
+         * Returns the number of times a ViewHolder of the given type was acquired from the pool
+         * instead of being created.
+         */
+        public int getRecycledViewHitCount(int viewType) {
+            ScrapData scrapData = mScrap.get(viewType);
+            return scrapData != null ? scrapData.mHitCount : 0;
+        }
+
         /**
          * Acquire a ViewHolder of the specified type from the pool, or {@code null} if none are
          * present.
@@ -5495,6 +5738,7 @@ public class RecyclerView extends ViewGroup implements ScrollingView, NestedScro
             final ScrapData scrapData = mScrap.get(viewType);
             if (scrapData != null && !scrapData.mScrapHeap.isEmpty()) {
                 final ArrayList<ViewHolder> scrapHeap = scrapData.mScrapHeap;
+                scrapData.mHitCount++;
                 return scrapHeap.remove(scrapHeap.size() - 1);
             }
             return null;
@@ -5525,8 +5769,13 @@ public class RecyclerView extends ViewGroup implements ScrollingView, NestedScro
          */
         public void putRecycledView(ViewHolder scrap) {
             final int viewType = scrap.getItemViewType();
-            final ArrayList<ViewHolder> scrapHeap = getScrapDataForType(viewType).mScrapHeap;
-            if (mScrap.get(viewType).mMaxScrap <= scrapHeap.size()) {
+            final ScrapData scrapData = getScrapDataForType(viewType);
+            final ArrayList<ViewHolder> scrapHeap = scrapData.mScrapHeap;
+            if (scrapData.mMaxScrap <= scrapHeap.size()) {
+                if (mAdaptiveSizingEnabled && scrapData.isAdaptive()
+                        && scrapData.mOverflowCount < scrapData.mMaxScrap) {
+                    scrapData.mOverflowCount++;
+                }
                 return;
             }
             if (DEBUG && scrapHeap.contains(scrap)) {
@@ -5547,12 +5796,70 @@ public class RecyclerView extends ViewGroup implements ScrollingView, NestedScro
             ScrapData scrapData = getScrapDataForType(viewType);
             scrapData.mCreateRunningAverageNs = runningAverage(
                     scrapData.mCreateRunningAverageNs, createTimeNs);
+            scrapData.mCreateCount++;
+            if (mAdaptiveSizingEnabled && scrapData.isAdaptive() && scrapData.mOverflowCount > 0) {
+                // this ViewHolder would not have been created had the pool been larger
+                scrapData.mOverflowCount--;
+                growMaxScrap(scrapData);
+            }
         }
 
         void factorInBindTime(int viewType, long bindTimeNs) {
             ScrapData scrapData = getScrapDataForType(viewType);
             scrapData.mBindRunningAverageNs = runningAverage(
                     scrapData.mBindRunningAverageNs, bindTimeNs);
+            scrapData.mBindCount++;
+        }
+
+        private void growMaxScrap(ScrapData scrapData) {
+            if (getAdaptiveMaxScrapTotal() >= mAdaptiveSizingBudget) {
+                ScrapData cheapest = findCheapestAdaptiveScrapData(scrapData);
+                if (cheapest == null
+                        || cheapest.mCreateRunningAverageNs > scrapData.mCreateRunningAverageNs) {
+                    return;
+                }
+                setMaxScrap(cheapest, cheapest.mMaxScrap - 1);
+            }
+            scrapData.mMaxScrap++;
+        }
+
+        private int getAdaptiveMaxScrapTotal() {
+            int total = 0;
+            for (int i = 0; i < mScrap.size(); i++) {
+                ScrapData scrapData = mScrap.valueAt(i);
+                if (scrapData.isAdaptive()) {
+                    total += scrapData.mMaxScrap;
+                }
+            }
+            return total;
+        }
+
+        /**
+         * Finds the type without an explicit maximum whose ViewHolders are the cheapest to create,
+         * among the ones that can still give up space.
+         */
+        @Nullable
+        private ScrapData findCheapestAdaptiveScrapData(@Nullable ScrapData exclude) {
+            ScrapData cheapest = null;
+            for (int i = 0; i < mScrap.size(); i++) {
+                ScrapData scrapData = mScrap.valueAt(i);
+                if (scrapData == exclude || !scrapData.isAdaptive() || scrapData.mMaxScrap <= 1) {
+                    continue;
+                }
+                if (cheapest == null
+                        || scrapData.mCreateRunningAverageNs < cheapest.mCreateRunningAverageNs) {
+                    cheapest = scrapData;
+                }
+            }
+            return cheapest;
+        }
+
+        private static void setMaxScrap(ScrapData scrapData, int max) {
+            scrapData.mMaxScrap = max;
+            final ArrayList<ViewHolder> scrapHeap = scrapData.mScrapHeap;
+            while (scrapHeap.size() > max) {
+                scrapHeap.remove(scrapHeap.size() - 1);
+            }
         }
 
         boolean willCreateInTime(int viewType, long approxCurrentNs, long deadlineNs) {
@@ -5565,6 +5872,22 @@ public class RecyclerView extends ViewGroup implements ScrollingView, NestedScro
             return expectedDurationNs == 0 || (approxCurrentNs + expectedDurationNs < deadlineNs);
         }
 
+        /**
+         * Estimates the time to obtain and bind a ViewHolder of the given type, which includes
+         * creating it if there is none in the pool. Returns 0 if nothing was measured yet.
+         */
+        long estimateObtainAndBindNs(int viewType) {
+            final ScrapData scrapData = mScrap.get(viewType);
+            if (scrapData == null) {
+                return 0;
+            }
+            long estimateNs = scrapData.mBindRunningAverageNs;
+            if (scrapData.mScrapHeap.isEmpty()) {
+                estimateNs += scrapData.mCreateRunningAverageNs;
+            }
+            return estimateNs;
+        }
+
         void attach() {
             mAttachCount++;
         }
@@ -5602,6 +5925,11 @@ public class RecyclerView extends ViewGroup implements ScrollingView, NestedScro
             ScrapData scrapData = mScrap.get(viewType);
             if (scrapData == null) {
                 scrapData = new ScrapData();
+                if (mAdaptiveSizingEnabled) {
+                    // a new type only gets what is left of the budget, but always holds one
+                    int available = mAdaptiveSizingBudget - getAdaptiveMaxScrapTotal();
+                    scrapData.mMaxScrap = Math.max(1, Math.min(DEFAULT_MAX_SCRAP, available));
+                }
                 mScrap.put(viewType, scrapData);
             }
             return scrapData;
@@ -6064,6 +6392,17 @@ public class RecyclerView extends ViewGroup implements ScrollingView, NestedScro
                 final int offsetPosition = mAdapterHelper.findPositionOffset(position);
                 bound = tryBindViewHolderByDeadline(holder, offsetPosition, position, deadlineNs);
             }
+            if (mPrefetching) {
+                if (bound) {
+                    holder.addFlags(ViewHolder.FLAG_PREFETCHED);
+                    mPrefetchedViewCount++;
+                }
+            } else if (holder.hasAnyOfTheFlags(ViewHolder.FLAG_PREFETCHED)) {
+                if (!bound) {
+                    mPrefetchHitCount++;
+                }
+                holder.setFlags(0, ViewHolder.FLAG_PREFETCHED);
+            }
 
             final ViewGroup.LayoutParams lp = holder.itemView.getLayoutParams();
             final LayoutParams rvLayoutParams;
@@ -10845,6 +11184,11 @@ public class RecyclerView extends ViewGroup implements ScrollingView, NestedScro
          */
         static final int FLAG_SET_A11Y_ITEM_DELEGATE = 1 << 14;
 
+        /**
+         * This ViewHolder was bound by the {@link GapWorker} and has not been used by a layout yet.
+         */
+        static final int FLAG_PREFETCHED = 1 << 15;
+
         private int mFlags;
 
         private static final List<Object> FULLUPDATE_PAYLOADS = Collections.EMPTY_LIST;
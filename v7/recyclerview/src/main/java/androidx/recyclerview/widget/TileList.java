@@ -88,6 +88,9 @@ class TileList<T> {
         public int mStartPosition;
         public int mItemCount;
         Tile<T> mNext;  // Used only for pooling recycled tiles.
+        // Used only when tiles are loaded on a separate executor.
+        volatile boolean mCancelled;
+        boolean mFilled;
 
         public Tile(Class<T> klass, int size) {
             //noinspection unchecked
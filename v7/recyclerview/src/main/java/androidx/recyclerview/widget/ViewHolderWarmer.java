@@ -0,0 +1,278 @@
+/*
+ * Copyright 2018 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package androidx.recyclerview.widget;
+
+import android.content.Context;
+import android.os.Handler;
+import android.os.Looper;
+import android.util.SparseIntArray;
+import android.view.View;
+import android.view.ViewGroup;
+
+import androidx.annotation.LayoutRes;
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import androidx.annotation.UiThread;
+import androidx.asynclayoutinflater.view.AsyncLayoutInflater;
+
+import java.util.ArrayDeque;
+
+/**
+ * Creates ViewHolders ahead of time and deposits them into the
+ * {@link RecyclerView.RecycledViewPool} of a RecyclerView, so that the first scroll through a new
+ * screen can take them from the pool instead of inflating its item views within a frame.
+ * <p>
+ * ViewHolders are created a few at a time by a {@link Creator}. The default creator calls
+ * {@link RecyclerView.Adapter#createViewHolder(ViewGroup, int)} on the UI thread, one ViewHolder
+ * per message so that frames can be drawn in between. The creator returned by
+ * {@link #asyncInflaterCreator(Context, SparseIntArray, ViewHolderFactory)} inflates item views
+ * on a background thread with {@link AsyncLayoutInflater} instead.
+ * <pre>
+ * ViewHolderWarmer warmer = new ViewHolderWarmer(recyclerView);
+ * warmer.warm(TYPE_HEADER, 1);
+ * warmer.warm(TYPE_CARD, 6);
+ * </pre>
+ * ViewHolders created after the adapter of the RecyclerView changed are dropped.
+ */
+public final class ViewHolderWarmer {
+
+    /**
+     * Creates the ViewHolders for a {@link ViewHolderWarmer}.
+     */
+    public interface Creator {
+        /**
+         * Creates a ViewHolder of the given type, which may happen asynchronously.
+         * <p>
+         * The callback must be called on the UI thread exactly once, with null if the ViewHolder
+         * cannot be created.
+         *
+         * @param parent   The RecyclerView the ViewHolder is created for
+         * @param viewType The view type of the new ViewHolder
+         * @param callback The callback to pass the new ViewHolder to
+         */
+        @UiThread
+        void createViewHolder(@NonNull RecyclerView parent, int viewType,
+                @NonNull Callback callback);
+    }
+
+    /**
+     * Receives the ViewHolders created by a {@link Creator}.
+     */
+    public interface Callback {
+        /**
+         * @param holder The new ViewHolder or null if it could not be created
+         */
+        @UiThread
+        void onViewHolderCreated(@Nullable RecyclerView.ViewHolder holder);
+    }
+
+    /**
+     * Wraps an item view inflated by {@link #asyncInflaterCreator(Context, SparseIntArray,
+     * ViewHolderFactory)} into a ViewHolder.
+     */
+    public interface ViewHolderFactory {
+        /**
+         * @param itemView The inflated item view
+         * @param viewType The view type the item view was inflated for
+         * @return A ViewHolder holding the item view, equivalent to what the adapter would create
+         * for the view type
+         */
+        @UiThread
+        @NonNull
+        RecyclerView.ViewHolder createViewHolder(@NonNull View itemView, int viewType);
+    }
+
+    // Limits the requests handed to the creator at once. AsyncLayoutInflater blocks the UI thread
+    // once more than 10 inflations are queued.
+    private static final int MAX_IN_FLIGHT = 4;
+
+    private final RecyclerView mRecyclerView;
+    private final Creator mCreator;
+    // view types waiting to be handed to the creator.
+    private final ArrayDeque<Integer> mQueue = new ArrayDeque<>();
+    // number of ViewHolders queued or in flight per view type.
+    private final SparseIntArray mPendingCounts = new SparseIntArray();
+    private int mInFlightCount = 0;
+    // incremented when the warmer is cancelled, to drop the results of older requests.
+    private int mGeneration = 0;
+
+    /**
+     * Creates a warmer that creates ViewHolders with the adapter of the RecyclerView on the UI
+     * thread.
+     *
+     * @param recyclerView The RecyclerView to warm the pool of
+     */
+    public ViewHolderWarmer(@NonNull RecyclerView recyclerView) {
+        this(recyclerView, adapterCreator());
+    }
+
+    /**
+     * @param recyclerView The RecyclerView to warm the pool of
+     * @param creator      The creator of the ViewHolders
+     */
+    public ViewHolderWarmer(@NonNull RecyclerView recyclerView, @NonNull Creator creator) {
+        mRecyclerView = recyclerView;
+        mCreator = creator;
+    }
+
+    /**
+     * Creates ViewHolders of the given type until the pool holds {@code count} of them, or as many
+     * as {@link RecyclerView.RecycledViewPool#getMaxRecycledViews(int)} allows.
+     *
+     * @param viewType The view type
+     * @param count    The number of ViewHolders of the type to have in the pool
+     */
+    @UiThread
+    public void warm(int viewType, int count) {
+        RecyclerView.RecycledViewPool pool = mRecyclerView.getRecycledViewPool();
+        int target = Math.min(count, pool.getMaxRecycledViews(viewType));
+        int missing = target - pool.getRecycledViewCount(viewType)
+                - mPendingCounts.get(viewType, 0);
+        for (int i = 0; i < missing; i++) {
+            mQueue.add(viewType);
+            mPendingCounts.put(viewType, mPendingCounts.get(viewType, 0) + 1);
+        }
+        dispatch();
+    }
+
+    /**
+     * Stops creating ViewHolders. ViewHolders that are being created when this is called are
+     * dropped.
+     */
+    @UiThread
+    public void cancel() {
+        mGeneration++;
+        mQueue.clear();
+        mPendingCounts.clear();
+        mInFlightCount = 0;
+    }
+
+    /**
+     * @return The number of ViewHolders that are waiting to be created or being created
+     */
+    public int getPendingCount() {
+        return mQueue.size() + mInFlightCount;
+    }
+
+    private void dispatch() {
+        while (mInFlightCount < MAX_IN_FLIGHT && !mQueue.isEmpty()) {
+            final int viewType = mQueue.poll();
+            final int generation = mGeneration;
+            final RecyclerView.Adapter adapter = mRecyclerView.getAdapter();
+            mInFlightCount++;
+            mCreator.createViewHolder(mRecyclerView, viewType, new Callback() {
+                @Override
+                public void onViewHolderCreated(@Nullable RecyclerView.ViewHolder holder) {
+                    if (generation != mGeneration) {
+                        return;
+                    }
+                    mInFlightCount--;
+                    mPendingCounts.put(viewType, mPendingCounts.get(viewType) - 1);
+                    if (holder != null && adapter == mRecyclerView.getAdapter()) {
+                        holder.mItemViewType = viewType;
+                        mRecyclerView.getRecycledViewPool().putRecycledView(holder);
+                    }
+                    dispatch();
+                }
+            });
+        }
+    }
+
+    /**
+     * Returns a creator that calls {@link RecyclerView.Adapter#createViewHolder(ViewGroup, int)}
+     * of the adapter of the RecyclerView on the UI thread, one ViewHolder per message.
+     */
+    @NonNull
+    public static Creator adapterCreator() {
+        return new AdapterCreator();
+    }
+
+    /**
+     * Returns a creator that inflates item views on a background thread with
+     * {@link AsyncLayoutInflater}, and wraps them with the given factory on the UI thread.
+     * <p>
+     * The same restrictions as for {@link AsyncLayoutInflater} apply: the item layouts must be
+     * safe to inflate on a background thread, or they are inflated on the UI thread. View types
+     * without a layout are created with the adapter, like {@link #adapterCreator()} does.
+     *
+     * @param context   The context to inflate item views with
+     * @param layoutIds The layout resource of the item view of each view type
+     * @param factory   The factory that wraps the inflated item views into ViewHolders
+     */
+    @NonNull
+    public static Creator asyncInflaterCreator(@NonNull Context context,
+            @NonNull SparseIntArray layoutIds, @NonNull ViewHolderFactory factory) {
+        return new AsyncInflaterCreator(context, layoutIds, factory);
+    }
+
+    private static class AdapterCreator implements Creator {
+        private final Handler mHandler = new Handler(Looper.getMainLooper());
+
+        AdapterCreator() {
+        }
+
+        @Override
+        public void createViewHolder(@NonNull final RecyclerView parent, final int viewType,
+                @NonNull final Callback callback) {
+            mHandler.post(new Runnable() {
+                @Override
+                public void run() {
+                    RecyclerView.Adapter adapter = parent.getAdapter();
+                    callback.onViewHolderCreated(adapter == null
+                            ? null : adapter.createViewHolder(parent, viewType));
+                }
+            });
+        }
+    }
+
+    private static class AsyncInflaterCreator implements Creator {
+        private final Context mContext;
+        private final SparseIntArray mLayoutIds;
+        private final ViewHolderFactory mFactory;
+        private final AdapterCreator mFallback = new AdapterCreator();
+        private AsyncLayoutInflater mInflater;
+
+        AsyncInflaterCreator(Context context, SparseIntArray layoutIds,
+                ViewHolderFactory factory) {
+            mContext = context;
+            mLayoutIds = layoutIds.clone();
+            mFactory = factory;
+        }
+
+        @Override
+        public void createViewHolder(@NonNull RecyclerView parent, final int viewType,
+                @NonNull final Callback callback) {
+            @LayoutRes int layoutId = mLayoutIds.get(viewType, 0);
+            if (layoutId == 0) {
+                mFallback.createViewHolder(parent, viewType, callback);
+                return;
+            }
+            if (mInflater == null) {
+                // AsyncLayoutInflater has to be created on the UI thread.
+                mInflater = new AsyncLayoutInflater(mContext);
+            }
+            mInflater.inflate(layoutId, parent,
+                    new AsyncLayoutInflater.OnInflateFinishedListener() {
+                        @Override
+                        public void onInflateFinished(@NonNull View view, int resid,
+                                @Nullable ViewGroup parent) {
+                            callback.onViewHolderCreated(mFactory.createViewHolder(view, viewType));
+                        }
+                    });
+        }
+    }
+}
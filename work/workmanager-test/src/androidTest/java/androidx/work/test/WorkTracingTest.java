@@ -0,0 +1,100 @@
+/*
+ * Copyright 2018 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package androidx.work.test;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.not;
+import static org.hamcrest.MatcherAssert.assertThat;
+
+import android.content.Context;
+import android.support.test.InstrumentationRegistry;
+import android.support.test.filters.SmallTest;
+import android.support.test.runner.AndroidJUnit4;
+
+import androidx.work.Configuration;
+import androidx.work.Constraints;
+import androidx.work.NetworkType;
+import androidx.work.OneTimeWorkRequest;
+import androidx.work.WorkManager;
+import androidx.work.WorkTimelineRecorder;
+import androidx.work.test.workers.TestWorker;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+@RunWith(AndroidJUnit4.class)
+@SmallTest
+public class WorkTracingTest {
+
+    private WorkTimelineRecorder mRecorder;
+    private TestDriver mTestDriver;
+
+    @Before
+    public void setUp() {
+        Context context = InstrumentationRegistry.getTargetContext();
+        mRecorder = new WorkTimelineRecorder();
+        Configuration configuration = new Configuration.Builder()
+                .setExecutor(new SynchronousExecutor())
+                .setTracingListener(mRecorder)
+                .build();
+        WorkManagerTestInitHelper.initializeTestWorkManager(context, configuration);
+        mTestDriver = WorkManagerTestInitHelper.getTestDriver();
+    }
+
+    @Test
+    public void testTimeline_recordsAllPhases() {
+        OneTimeWorkRequest request = new OneTimeWorkRequest.Builder(TestWorker.class).build();
+        WorkManager.getInstance().synchronous().enqueueSync(request);
+
+        WorkTimelineRecorder.Timeline timeline = mRecorder.getTimeline(request.getId());
+        assertThat(timeline.getEnqueuedNanos(), is(not(WorkTimelineRecorder.Timeline.NOT_SET)));
+        assertThat(timeline.getScheduledNanos() >= timeline.getEnqueuedNanos(), is(true));
+        assertThat(timeline.getConstraintsMetNanos() >= timeline.getScheduledNanos(), is(true));
+        assertThat(timeline.getExecutionStartedNanos() >= timeline.getConstraintsMetNanos(),
+                is(true));
+        assertThat(timeline.getExecutionFinishedNanos() >= timeline.getExecutionStartedNanos(),
+                is(true));
+        assertThat(timeline.getDatabaseNanos() > 0, is(true));
+
+        assertThat(mRecorder.getQueueingDelay().getCount(), is(1L));
+        assertThat(mRecorder.getConstraintWait().getCount(), is(1L));
+        assertThat(mRecorder.getDatabaseTime().getCount(), is(1L));
+        assertThat(mRecorder.getExecutionTime().getCount(), is(1L));
+    }
+
+    @Test
+    public void testTimeline_recordsConstraintWait() {
+        OneTimeWorkRequest request = new OneTimeWorkRequest.Builder(TestWorker.class)
+                .setConstraints(new Constraints.Builder()
+                        .setRequiredNetworkType(NetworkType.CONNECTED).build())
+                .build();
+        WorkManager.getInstance().synchronous().enqueueSync(request);
+
+        WorkTimelineRecorder.Timeline timeline = mRecorder.getTimeline(request.getId());
+        assertThat(timeline.getScheduledNanos(), is(not(WorkTimelineRecorder.Timeline.NOT_SET)));
+        assertThat(timeline.getConstraintsMetNanos(), is(WorkTimelineRecorder.Timeline.NOT_SET));
+
+        mTestDriver.setAllConstraintsMet(request.getId());
+
+        timeline = mRecorder.getTimeline(request.getId());
+        assertThat(timeline.getConstraintsMetNanos() >= timeline.getScheduledNanos(), is(true));
+        assertThat(timeline.getExecutionFinishedNanos(),
+                is(not(WorkTimelineRecorder.Timeline.NOT_SET)));
+        assertThat(mRecorder.getConstraintWait().getCount(), is(1L));
+    }
+}
@@ -0,0 +1,235 @@
+/*
+ * Copyright 2018 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package androidx.work.impl;
+
+import static androidx.work.State.ENQUEUED;
+import static androidx.work.State.RUNNING;
+import static androidx.work.State.SUCCEEDED;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.MatcherAssert.assertThat;
+
+import android.arch.core.executor.ArchTaskExecutor;
+import android.arch.core.executor.TaskExecutor;
+import android.arch.lifecycle.LiveData;
+import android.arch.lifecycle.Observer;
+import android.content.Context;
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+import android.support.test.InstrumentationRegistry;
+import android.support.test.filters.LargeTest;
+import android.support.test.filters.SmallTest;
+import android.support.test.runner.AndroidJUnit4;
+import android.util.Log;
+
+import androidx.work.Configuration;
+import androidx.work.Data;
+import androidx.work.OneTimeWorkRequest;
+import androidx.work.TestLifecycleOwner;
+import androidx.work.WorkRequest;
+import androidx.work.WorkStatus;
+import androidx.work.impl.model.WorkTag;
+import androidx.work.impl.utils.taskexecutor.InstantTaskExecutorRule;
+import androidx.work.worker.TestWorker;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+
+@RunWith(AndroidJUnit4.class)
+public class WorkStatusTrackerTest {
+
+    private static final String TAG = "WorkStatusTrackerTest";
+    private static final int OBSERVED_WORK_COUNT = 200;
+
+    private WorkDatabase mDatabase;
+    private WorkManagerImpl mWorkManagerImpl;
+    private WorkStatusTracker mTracker;
+    private TestLifecycleOwner mLifecycleOwner;
+
+    @Rule
+    public InstantTaskExecutorRule mRule = new InstantTaskExecutorRule();
+
+    @Before
+    public void setUp() {
+        ArchTaskExecutor.getInstance().setDelegate(new TaskExecutor() {
+            @Override
+            public void executeOnDiskIO(@NonNull Runnable runnable) {
+                runnable.run();
+            }
+
+            @Override
+            public void postToMainThread(@NonNull Runnable runnable) {
+                runnable.run();
+            }
+
+            @Override
+            public boolean isMainThread() {
+                return true;
+            }
+        });
+
+        Context context = InstrumentationRegistry.getTargetContext();
+        Configuration configuration = new Configuration.Builder()
+                .setExecutor(Executors.newSingleThreadExecutor())
+                .build();
+        mWorkManagerImpl = new WorkManagerImpl(context, configuration, true);
+        WorkManagerImpl.setDelegate(mWorkManagerImpl);
+        mDatabase = mWorkManagerImpl.getWorkDatabase();
+        mTracker = mWorkManagerImpl.getWorkStatusTracker();
+        mLifecycleOwner = new TestLifecycleOwner();
+    }
+
+    @After
+    public void tearDown() {
+        WorkManagerImpl.setDelegate(null);
+        ArchTaskExecutor.getInstance().setDelegate(null);
+    }
+
+    @Test
+    @SmallTest
+    public void testStateChange_isPushedWithoutRefresh() {
+        OneTimeWorkRequest work = new OneTimeWorkRequest.Builder(TestWorker.class).build();
+        insertWorkSpecAndTags(work);
+
+        RecordingObserver<WorkStatus> observer = new RecordingObserver<>();
+        mWorkManagerImpl.getStatusById(work.getId()).observe(mLifecycleOwner, observer);
+        assertThat(observer.mLastValue.getState(), is(ENQUEUED));
+
+        int refreshCount = mTracker.getRefreshCount();
+        Data output = new Data.Builder().putInt("key", 1).build();
+        mTracker.onStateChanged(work.getStringId(), SUCCEEDED, output);
+
+        assertThat(observer.mLastValue.getState(), is(SUCCEEDED));
+        assertThat(observer.mLastValue.getOutputData(), is(output));
+        assertThat(mTracker.getRefreshCount(), is(refreshCount));
+    }
+
+    @Test
+    @SmallTest
+    public void testTagMembership_isRefreshed() {
+        OneTimeWorkRequest work0 = new OneTimeWorkRequest.Builder(TestWorker.class)
+                .addTag("tag")
+                .build();
+        OneTimeWorkRequest work1 = new OneTimeWorkRequest.Builder(TestWorker.class)
+                .addTag("tag")
+                .build();
+        insertWorkSpecAndTags(work0);
+
+        RecordingObserver<List<WorkStatus>> observer = new RecordingObserver<>();
+        mWorkManagerImpl.getStatusesByTag("tag").observe(mLifecycleOwner, observer);
+        assertThat(observer.mLastValue.size(), is(1));
+
+        insertWorkSpecAndTags(work1);
+        assertThat(observer.mLastValue.size(), is(2));
+
+        mTracker.onStateChanged(work1.getStringId(), RUNNING, null);
+        for (WorkStatus workStatus : observer.mLastValue) {
+            assertThat(workStatus.getState(),
+                    is(workStatus.getId().equals(work1.getId()) ? RUNNING : ENQUEUED));
+        }
+    }
+
+    @Test
+    @LargeTest
+    public void testQueriesPerTransition() {
+        List<OneTimeWorkRequest> work = new ArrayList<>(OBSERVED_WORK_COUNT);
+        Map<String, RecordingObserver<WorkStatus>> observers = new HashMap<>();
+        for (int i = 0; i < OBSERVED_WORK_COUNT; i++) {
+            OneTimeWorkRequest request = new OneTimeWorkRequest.Builder(TestWorker.class).build();
+            insertWorkSpecAndTags(request);
+            work.add(request);
+        }
+        for (OneTimeWorkRequest request : work) {
+            RecordingObserver<WorkStatus> observer = new RecordingObserver<>();
+            LiveData<WorkStatus> liveData = mWorkManagerImpl.getStatusById(request.getId());
+            liveData.observe(mLifecycleOwner, observer);
+            observers.put(request.getStringId(), observer);
+        }
+
+        // A burst of database transitions committed together is served by a single batched
+        // refresh, rather than one query per transition and observed LiveData.
+        int transitions = 50;
+        int refreshCount = mTracker.getRefreshCount();
+        long start = System.nanoTime();
+        mDatabase.beginTransaction();
+        try {
+            for (int i = 0; i < transitions; i++) {
+                mDatabase.workSpecDao().setState(RUNNING, work.get(i).getStringId());
+            }
+            mDatabase.setTransactionSuccessful();
+        } finally {
+            mDatabase.endTransaction();
+        }
+        long databaseNanos = System.nanoTime() - start;
+        int refreshes = mTracker.getRefreshCount() - refreshCount;
+        assertThat(refreshes, is(1));
+        for (int i = 0; i < transitions; i++) {
+            assertThat(observers.get(work.get(i).getStringId()).mLastValue.getState(),
+                    is(RUNNING));
+        }
+
+        // Transitions pushed from the WorkerWrapper never hit the database.
+        refreshCount = mTracker.getRefreshCount();
+        start = System.nanoTime();
+        for (int i = 0; i < transitions; i++) {
+            mTracker.onStateChanged(work.get(i).getStringId(), SUCCEEDED, Data.EMPTY);
+        }
+        long pushedNanos = System.nanoTime() - start;
+        assertThat(mTracker.getRefreshCount(), is(refreshCount));
+        for (int i = 0; i < transitions; i++) {
+            assertThat(observers.get(work.get(i).getStringId()).mLastValue.getState(),
+                    is(SUCCEEDED));
+        }
+
+        Log.d(TAG, String.format(
+                "%d observers: %d refreshes for %d database transitions (%d us/transition), "
+                        + "%d us/pushed transition",
+                OBSERVED_WORK_COUNT, refreshes, transitions,
+                databaseNanos / transitions / 1000, pushedNanos / transitions / 1000));
+    }
+
+    private void insertWorkSpecAndTags(WorkRequest work) {
+        mDatabase.beginTransaction();
+        try {
+            mDatabase.workSpecDao().insertWorkSpec(work.getWorkSpec());
+            for (String tag : work.getTags()) {
+                mDatabase.workTagDao().insert(new WorkTag(tag, work.getStringId()));
+            }
+            mDatabase.setTransactionSuccessful();
+        } finally {
+            mDatabase.endTransaction();
+        }
+    }
+
+    private static class RecordingObserver<T> implements Observer<T> {
+        T mLastValue;
+
+        @Override
+        public void onChanged(@Nullable T value) {
+            mLastValue = value;
+        }
+    }
+}
@@ -20,6 +20,7 @@ import static androidx.work.impl.Scheduler.MAX_SCHEDULER_LIMIT;
 
 import android.os.Build;
 import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
 import android.support.annotation.RestrictTo;
 
 import androidx.work.impl.utils.IdGenerator;
@@ -42,6 +43,7 @@ public final class Configuration {
     private final int mMinJobSchedulerId;
     private final int mMaxJobSchedulerId;
     private final int mMaxSchedulerLimit;
+    private final @Nullable WorkTracingListener mTracingListener;
 
     private Configuration(@NonNull Configuration.Builder builder) {
         if (builder.mExecutor == null) {
@@ -52,6 +54,7 @@ public final class Configuration {
         mMinJobSchedulerId = builder.mMinJobSchedulerId;
         mMaxJobSchedulerId = builder.mMaxJobSchedulerId;
         mMaxSchedulerLimit = builder.mMaxSchedulerLimit;
+        mTracingListener = builder.mTracingListener;
     }
 
     /**
@@ -103,6 +106,14 @@ public final class Configuration {
         }
     }
 
+    /**
+     * @return The {@link WorkTracingListener} notified of execution phases, or {@code null} if
+     * tracing is disabled.
+     */
+    public @Nullable WorkTracingListener getTracingListener() {
+        return mTracingListener;
+    }
+
     private @NonNull Executor createDefaultExecutor() {
         return Executors.newFixedThreadPool(
                 // This value is the same as the core pool size for AsyncTask#THREAD_POOL_EXECUTOR.
@@ -118,6 +129,7 @@ public final class Configuration {
         int mMaxJobSchedulerId = Integer.MAX_VALUE;
         int mMaxSchedulerLimit = MIN_SCHEDULER_LIMIT;
         Executor mExecutor;
+        WorkTracingListener mTracingListener;
 
         /**
          * Specifies a custom {@link Executor} for WorkManager.
@@ -179,6 +191,20 @@ public final class Configuration {
             return this;
         }
 
+        /**
+         * Specifies a {@link WorkTracingListener} which is notified as work moves through the
+         * phases of its execution.
+         *
+         * @param tracingListener The {@link WorkTracingListener}, or {@code null} to disable
+         *                        tracing
+         * @return This {@link Builder} instance
+         */
+        public @NonNull Builder setTracingListener(
+                @Nullable WorkTracingListener tracingListener) {
+            mTracingListener = tracingListener;
+            return this;
+        }
+
         /**
          * Specifies a custom {@link Executor} for WorkManager.
          *
@@ -0,0 +1,397 @@
+/*
+ * Copyright 2018 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package androidx.work;
+
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A {@link WorkTracingListener} which records a {@link Timeline} of phase timestamps for each
+ * {@link WorkRequest}, and aggregates {@link Histogram}s of queueing delay, constraint wait,
+ * database time and execution time over all finished executions.
+ * <p>
+ * The phases are aggregated as follows:
+ * <ul>
+ *     <li>Constraint wait: from being scheduled to constraints being met</li>
+ *     <li>Queueing delay: from constraints being met (or being scheduled, if no constraint
+ *     notification was seen) to the start of execution</li>
+ *     <li>Database time: time spent in database transactions around the execution</li>
+ *     <li>Execution time: time spent in {@link Worker#doWork()}</li>
+ * </ul>
+ */
+public class WorkTimelineRecorder extends WorkTracingListener {
+
+    private static final int DEFAULT_MAX_TIMELINES = 1000;
+
+    private final int mMaxTimelines;
+    private final Map<UUID, Timeline> mTimelines;
+    private final Histogram mQueueingDelay = new Histogram();
+    private final Histogram mConstraintWait = new Histogram();
+    private final Histogram mDatabaseTime = new Histogram();
+    private final Histogram mExecutionTime = new Histogram();
+
+    public WorkTimelineRecorder() {
+        this(DEFAULT_MAX_TIMELINES);
+    }
+
+    /**
+     * @param maxTimelines The maximum number of {@link Timeline}s to keep; once exceeded, the
+     *                     least recently updated {@link Timeline} is dropped
+     */
+    public WorkTimelineRecorder(int maxTimelines) {
+        if (maxTimelines <= 0) {
+            throw new IllegalArgumentException("maxTimelines needs to be positive.");
+        }
+        mMaxTimelines = maxTimelines;
+        mTimelines = new LinkedHashMap<UUID, Timeline>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<UUID, Timeline> eldest) {
+                return size() > mMaxTimelines;
+            }
+        };
+    }
+
+    @Override
+    public synchronized void onEnqueued(@NonNull UUID id, long timestampNanos) {
+        timelineFor(id).mEnqueuedNanos = timestampNanos;
+    }
+
+    @Override
+    public synchronized void onScheduled(@NonNull UUID id, long timestampNanos) {
+        Timeline timeline = timelineFor(id);
+        timeline.mScheduledNanos = timestampNanos;
+        // A new attempt (e.g. a retry or the next period) starts over.
+        timeline.mConstraintsMetNanos = Timeline.NOT_SET;
+    }
+
+    @Override
+    public synchronized void onConstraintsMet(@NonNull UUID id, long timestampNanos) {
+        Timeline timeline = timelineFor(id);
+        if (timeline.mConstraintsMetNanos == Timeline.NOT_SET) {
+            timeline.mConstraintsMetNanos = timestampNanos;
+        }
+    }
+
+    @Override
+    public synchronized void onExecutionStarted(@NonNull UUID id, long timestampNanos) {
+        timelineFor(id).mExecutionStartedNanos = timestampNanos;
+    }
+
+    @Override
+    public synchronized void onExecutionFinished(
+            @NonNull UUID id,
+            long timestampNanos,
+            long databaseNanos) {
+        Timeline timeline = timelineFor(id);
+        timeline.mExecutionFinishedNanos = timestampNanos;
+        timeline.mDatabaseNanos = databaseNanos;
+
+        if (timeline.mScheduledNanos != Timeline.NOT_SET
+                && timeline.mConstraintsMetNanos != Timeline.NOT_SET) {
+            mConstraintWait.record(timeline.mConstraintsMetNanos - timeline.mScheduledNanos);
+        }
+        long readyNanos = timeline.mConstraintsMetNanos != Timeline.NOT_SET
+                ? timeline.mConstraintsMetNanos
+                : timeline.mScheduledNanos;
+        if (readyNanos != Timeline.NOT_SET && timeline.mExecutionStartedNanos != Timeline.NOT_SET) {
+            mQueueingDelay.record(timeline.mExecutionStartedNanos - readyNanos);
+        }
+        if (timeline.mExecutionStartedNanos != Timeline.NOT_SET) {
+            mExecutionTime.record(timestampNanos - timeline.mExecutionStartedNanos);
+        }
+        mDatabaseTime.record(databaseNanos);
+    }
+
+    /**
+     * @param id The id of the {@link WorkRequest}
+     * @return A copy of the {@link Timeline} recorded for the {@link WorkRequest}, or {@code null}
+     * if nothing was recorded
+     */
+    public synchronized @Nullable Timeline getTimeline(@NonNull UUID id) {
+        Timeline timeline = mTimelines.get(id);
+        return timeline != null ? new Timeline(timeline) : null;
+    }
+
+    /**
+     * @return A copy of all of the recorded {@link Timeline}s
+     */
+    public synchronized @NonNull List<Timeline> getTimelines() {
+        List<Timeline> timelines = new ArrayList<>(mTimelines.size());
+        for (Timeline timeline : mTimelines.values()) {
+            timelines.add(new Timeline(timeline));
+        }
+        return timelines;
+    }
+
+    /**
+     * @return A snapshot of the queueing delay {@link Histogram}
+     */
+    public synchronized @NonNull Histogram getQueueingDelay() {
+        return new Histogram(mQueueingDelay);
+    }
+
+    /**
+     * @return A snapshot of the constraint wait {@link Histogram}
+     */
+    public synchronized @NonNull Histogram getConstraintWait() {
+        return new Histogram(mConstraintWait);
+    }
+
+    /**
+     * @return A snapshot of the database time {@link Histogram}
+     */
+    public synchronized @NonNull Histogram getDatabaseTime() {
+        return new Histogram(mDatabaseTime);
+    }
+
+    /**
+     * @return A snapshot of the execution time {@link Histogram}
+     */
+    public synchronized @NonNull Histogram getExecutionTime() {
+        return new Histogram(mExecutionTime);
+    }
+
+    /**
+     * Clears all recorded {@link Timeline}s and {@link Histogram}s.
+     */
+    public synchronized void reset() {
+        mTimelines.clear();
+        mQueueingDelay.clear();
+        mConstraintWait.clear();
+        mDatabaseTime.clear();
+        mExecutionTime.clear();
+    }
+
+    /**
+     * @return A human readable summary of all {@link Histogram}s
+     */
+    public synchronized @NonNull String export() {
+        return "WorkTimelineRecorder{"
+                + "queueingDelay=" + mQueueingDelay
+                + ", constraintWait=" + mConstraintWait
+                + ", databaseTime=" + mDatabaseTime
+                + ", executionTime=" + mExecutionTime
+                + '}';
+    }
+
+    private Timeline timelineFor(UUID id) {
+        Timeline timeline = mTimelines.get(id);
+        if (timeline == null) {
+            timeline = new Timeline(id);
+            mTimelines.put(id, timeline);
+        }
+        return timeline;
+    }
+
+    /**
+     * The phase timestamps recorded for a single {@link WorkRequest}.  Timestamps which were not
+     * recorded are reported as {@link #NOT_SET}.
+     */
+    public static final class Timeline {
+
+        public static final long NOT_SET = Long.MIN_VALUE;
+
+        private final @NonNull UUID mId;
+        long mEnqueuedNanos = NOT_SET;
+        long mScheduledNanos = NOT_SET;
+        long mConstraintsMetNanos = NOT_SET;
+        long mExecutionStartedNanos = NOT_SET;
+        long mExecutionFinishedNanos = NOT_SET;
+        long mDatabaseNanos = NOT_SET;
+
+        Timeline(@NonNull UUID id) {
+            mId = id;
+        }
+
+        Timeline(@NonNull Timeline other) {
+            mId = other.mId;
+            mEnqueuedNanos = other.mEnqueuedNanos;
+            mScheduledNanos = other.mScheduledNanos;
+            mConstraintsMetNanos = other.mConstraintsMetNanos;
+            mExecutionStartedNanos = other.mExecutionStartedNanos;
+            mExecutionFinishedNanos = other.mExecutionFinishedNanos;
+            mDatabaseNanos = other.mDatabaseNanos;
+        }
+
+        public @NonNull UUID getId() {
+            return mId;
+        }
+
+        public long getEnqueuedNanos() {
+            return mEnqueuedNanos;
+        }
+
+        public long getScheduledNanos() {
+            return mScheduledNanos;
+        }
+
+        public long getConstraintsMetNanos() {
+            return mConstraintsMetNanos;
+        }
+
+        public long getExecutionStartedNanos() {
+            return mExecutionStartedNanos;
+        }
+
+        public long getExecutionFinishedNanos() {
+            return mExecutionFinishedNanos;
+        }
+
+        public long getDatabaseNanos() {
+            return mDatabaseNanos;
+        }
+
+        @Override
+        public String toString() {
+            return "Timeline{"
+                    +   "mId=" + mId
+                    +   ", mEnqueuedNanos=" + mEnqueuedNanos
+                    +   ", mScheduledNanos=" + mScheduledNanos
+                    +   ", mConstraintsMetNanos=" + mConstraintsMetNanos
+                    +   ", mExecutionStartedNanos=" + mExecutionStartedNanos
+                    +   ", mExecutionFinishedNanos=" + mExecutionFinishedNanos
+                    +   ", mDatabaseNanos=" + mDatabaseNanos
+                    + '}';
+        }
+    }
+
+    /**
+     * A histogram of durations with power-of-two microsecond buckets.  Bucket {@code 0} holds
+     * durations below {@code 1us}, and bucket {@code i} holds durations in
+     * {@code [2^(i-1)us, 2^i us)}.
+     */
+    public static final class Histogram {
+
+        static final int BUCKET_COUNT = 40;
+
+        private final long[] mBuckets;
+        private long mCount;
+        private long mSumNanos;
+        private long mMinNanos;
+        private long mMaxNanos;
+
+        Histogram() {
+            mBuckets = new long[BUCKET_COUNT];
+            clear();
+        }
+
+        Histogram(@NonNull Histogram other) {
+            mBuckets = other.mBuckets.clone();
+            mCount = other.mCount;
+            mSumNanos = other.mSumNanos;
+            mMinNanos = other.mMinNanos;
+            mMaxNanos = other.mMaxNanos;
+        }
+
+        void record(long durationNanos) {
+            long nanos = Math.max(0, durationNanos);
+            long micros = TimeUnit.NANOSECONDS.toMicros(nanos);
+            int bucket = micros == 0 ? 0 : 64 - Long.numberOfLeadingZeros(micros);
+            mBuckets[Math.min(bucket, BUCKET_COUNT - 1)]++;
+            mCount++;
+            mSumNanos += nanos;
+            mMinNanos = Math.min(mMinNanos, nanos);
+            mMaxNanos = Math.max(mMaxNanos, nanos);
+        }
+
+        void clear() {
+            for (int i = 0; i < mBuckets.length; i++) {
+                mBuckets[i] = 0;
+            }
+            mCount = 0;
+            mSumNanos = 0;
+            mMinNanos = Long.MAX_VALUE;
+            mMaxNanos = 0;
+        }
+
+        /**
+         * @return The number of recorded durations
+         */
+        public long getCount() {
+            return mCount;
+        }
+
+        /**
+         * @return The smallest recorded duration, or {@code 0} if nothing was recorded
+         */
+        public long getMinNanos() {
+            return mCount == 0 ? 0 : mMinNanos;
+        }
+
+        /**
+         * @return The largest recorded duration
+         */
+        public long getMaxNanos() {
+            return mMaxNanos;
+        }
+
+        /**
+         * @return The mean of all recorded durations, or {@code 0} if nothing was recorded
+         */
+        public long getMeanNanos() {
+            return mCount == 0 ? 0 : mSumNanos / mCount;
+        }
+
+        /**
+         * @return A copy of the bucket counts
+         */
+        public @NonNull long[] getBuckets() {
+            return mBuckets.clone();
+        }
+
+        /**
+         * @param percentile A percentile in {@code [0, 100]}
+         * @return The upper bound of the bucket containing the given percentile, capped at the
+         * largest recorded duration
+         */
+        public long getPercentileNanos(double percentile) {
+            if (mCount == 0) {
+                return 0;
+            }
+            long rank = (long) Math.ceil(mCount * Math.max(0, Math.min(100, percentile)) / 100);
+            long seen = 0;
+            for (int i = 0; i < mBuckets.length; i++) {
+                seen += mBuckets[i];
+                if (seen >= rank && seen > 0) {
+                    long upperBoundNanos = TimeUnit.MICROSECONDS.toNanos(1L << i);
+                    return Math.min(upperBoundNanos, mMaxNanos);
+                }
+            }
+            return mMaxNanos;
+        }
+
+        @Override
+        public String toString() {
+            return "Histogram{"
+                    +   "count=" + mCount
+                    +   ", minNanos=" + getMinNanos()
+                    +   ", meanNanos=" + getMeanNanos()
+                    +   ", p50Nanos=" + getPercentileNanos(50)
+                    +   ", p90Nanos=" + getPercentileNanos(90)
+                    +   ", p99Nanos=" + getPercentileNanos(99)
+                    +   ", maxNanos=" + mMaxNanos
+                    + '}';
+        }
+    }
+}
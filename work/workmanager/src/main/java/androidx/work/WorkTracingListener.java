@@ -0,0 +1,84 @@
+/*
+ * Copyright 2018 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package androidx.work;
+
+import android.support.annotation.NonNull;
+
+import java.util.UUID;
+
+/**
+ * A listener which is notified as a {@link WorkRequest} moves through the phases of its execution.
+ * <p>
+ * All timestamps are in nanoseconds, as reported by {@link System#nanoTime()}.  Callbacks can be
+ * made on any thread, including {@link WorkManager}'s internal threads and the
+ * {@link Configuration#getExecutor()} threads, so implementations must be thread-safe and should
+ * return quickly.
+ * <p>
+ * Set a listener using {@link Configuration.Builder#setTracingListener(WorkTracingListener)}.  See
+ * {@link WorkTimelineRecorder} for an implementation which records timelines and aggregates
+ * histograms.
+ */
+public abstract class WorkTracingListener {
+
+    /**
+     * Called when a {@link WorkRequest} has been inserted into the database.
+     *
+     * @param id             The id of the {@link WorkRequest}
+     * @param timestampNanos The time of the event
+     */
+    public void onEnqueued(@NonNull UUID id, long timestampNanos) {
+    }
+
+    /**
+     * Called when a {@link WorkRequest} has been handed off to the schedulers.
+     *
+     * @param id             The id of the {@link WorkRequest}
+     * @param timestampNanos The time of the event
+     */
+    public void onScheduled(@NonNull UUID id, long timestampNanos) {
+    }
+
+    /**
+     * Called when a scheduler has determined that all of the {@link Constraints} and delays of a
+     * {@link WorkRequest} are met, and has asked for it to be executed.
+     *
+     * @param id             The id of the {@link WorkRequest}
+     * @param timestampNanos The time of the event
+     */
+    public void onConstraintsMet(@NonNull UUID id, long timestampNanos) {
+    }
+
+    /**
+     * Called right before {@link Worker#doWork()} is invoked.
+     *
+     * @param id             The id of the {@link WorkRequest}
+     * @param timestampNanos The time of the event
+     */
+    public void onExecutionStarted(@NonNull UUID id, long timestampNanos) {
+    }
+
+    /**
+     * Called once the result of {@link Worker#doWork()} has been persisted.
+     *
+     * @param id             The id of the {@link WorkRequest}
+     * @param timestampNanos The time at which {@link Worker#doWork()} returned
+     * @param databaseNanos  The time spent in database transactions while setting up and
+     *                       finishing the execution
+     */
+    public void onExecutionFinished(@NonNull UUID id, long timestampNanos, long databaseNanos) {
+    }
+}
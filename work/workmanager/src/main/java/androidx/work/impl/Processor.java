@@ -17,10 +17,12 @@ package androidx.work.impl;
 
 import android.content.Context;
 import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
 import android.support.annotation.RestrictTo;
 import android.util.Log;
 
 import androidx.work.Configuration;
+import androidx.work.WorkTracingListener;
 
 import java.util.ArrayList;
 import java.util.HashMap;
@@ -28,6 +30,7 @@ import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.UUID;
 import java.util.concurrent.Executor;
 
 /**
@@ -45,6 +48,7 @@ public class Processor implements ExecutionListener {
     private Map<String, WorkerWrapper> mEnqueuedWorkMap;
     private List<Scheduler> mSchedulers;
     private Executor mExecutor;
+    private WorkStatusTracker mWorkStatusTracker;
 
     private Set<String> mCancelledIds;
 
@@ -56,12 +60,23 @@ public class Processor implements ExecutionListener {
             WorkDatabase workDatabase,
             List<Scheduler> schedulers,
             Executor executor) {
+        this(appContext, configuration, workDatabase, schedulers, executor, null);
+    }
+
+    public Processor(
+            Context appContext,
+            Configuration configuration,
+            WorkDatabase workDatabase,
+            List<Scheduler> schedulers,
+            Executor executor,
+            @Nullable WorkStatusTracker workStatusTracker) {
         mAppContext = appContext;
         mConfiguration = configuration;
         mWorkDatabase = workDatabase;
         mEnqueuedWorkMap = new HashMap<>();
         mSchedulers = schedulers;
         mExecutor = executor;
+        mWorkStatusTracker = workStatusTracker;
         mCancelledIds = new HashSet<>();
         mOuterListeners = new ArrayList<>();
     }
@@ -91,11 +106,17 @@ public class Processor implements ExecutionListener {
             return false;
         }
 
+        WorkTracingListener tracingListener = mConfiguration.getTracingListener();
+        if (tracingListener != null) {
+            tracingListener.onConstraintsMet(UUID.fromString(id), System.nanoTime());
+        }
+
         WorkerWrapper workWrapper =
                 new WorkerWrapper.Builder(mAppContext, mConfiguration, mWorkDatabase, id)
                         .withListener(this)
                         .withSchedulers(mSchedulers)
                         .withRuntimeExtras(runtimeExtras)
+                        .withWorkStatusTracker(mWorkStatusTracker)
                         .build();
         mEnqueuedWorkMap.put(id, workWrapper);
         mExecutor.execute(workWrapper);
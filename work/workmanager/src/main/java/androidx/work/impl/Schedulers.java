@@ -26,6 +26,7 @@ import android.support.annotation.VisibleForTesting;
 import android.util.Log;
 
 import androidx.work.Configuration;
+import androidx.work.WorkTracingListener;
 import androidx.work.impl.background.systemalarm.SystemAlarmScheduler;
 import androidx.work.impl.background.systemalarm.SystemAlarmService;
 import androidx.work.impl.background.systemjob.SystemJobScheduler;
@@ -35,6 +36,7 @@ import androidx.work.impl.model.WorkSpecDao;
 
 import java.lang.reflect.InvocationTargetException;
 import java.util.List;
+import java.util.UUID;
 
 /**
  * Helper methods for {@link Scheduler}s.
@@ -92,6 +94,14 @@ public class Schedulers {
         }
 
         if (eligibleWorkSpecs != null && eligibleWorkSpecs.size() > 0) {
+            WorkTracingListener tracingListener = configuration.getTracingListener();
+            if (tracingListener != null) {
+                long now = System.nanoTime();
+                for (WorkSpec workSpec : eligibleWorkSpecs) {
+                    tracingListener.onScheduled(UUID.fromString(workSpec.id), now);
+                }
+            }
+
             WorkSpec[] eligibleWorkSpecsArray = eligibleWorkSpecs.toArray(new WorkSpec[0]);
             // Delegate to the underlying scheduler.
             for (Scheduler scheduler : schedulers) {
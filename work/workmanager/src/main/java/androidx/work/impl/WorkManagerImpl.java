@@ -18,6 +18,7 @@ package androidx.work.impl;
 
 import android.arch.core.util.Function;
 import android.arch.lifecycle.LiveData;
+import android.arch.lifecycle.Transformations;
 import android.content.BroadcastReceiver;
 import android.content.Context;
 import android.os.Build;
@@ -44,7 +45,6 @@ import androidx.work.impl.model.WorkSpec;
 import androidx.work.impl.model.WorkSpecDao;
 import androidx.work.impl.utils.CancelWorkRunnable;
 import androidx.work.impl.utils.ForceStopRunnable;
-import androidx.work.impl.utils.LiveDataUtils;
 import androidx.work.impl.utils.Preferences;
 import androidx.work.impl.utils.PruneWorkRunnable;
 import androidx.work.impl.utils.StartWorkRunnable;
@@ -74,6 +74,7 @@ public class WorkManagerImpl extends WorkManager implements SynchronousWorkManag
     private TaskExecutor mTaskExecutor;
     private List<Scheduler> mSchedulers;
     private Processor mProcessor;
+    private WorkStatusTracker mWorkStatusTracker;
     private Preferences mPreferences;
     private boolean mForceStopRunnableCompleted;
     private BroadcastReceiver.PendingResult mRescheduleReceiverResult;
@@ -170,12 +171,14 @@ public class WorkManagerImpl extends WorkManager implements SynchronousWorkManag
         mConfiguration = configuration;
         mWorkDatabase = WorkDatabase.create(context, useTestDatabase);
         mTaskExecutor = WorkManagerTaskExecutor.getInstance();
+        mWorkStatusTracker = new WorkStatusTracker(mWorkDatabase, mTaskExecutor);
         mProcessor = new Processor(
                 context,
                 mConfiguration,
                 mWorkDatabase,
                 getSchedulers(),
-                configuration.getExecutor());
+                configuration.getExecutor(),
+                mWorkStatusTracker);
         mPreferences = new Preferences(mContext);
         mForceStopRunnableCompleted = false;
 
@@ -236,6 +239,15 @@ public class WorkManagerImpl extends WorkManager implements SynchronousWorkManag
         return mProcessor;
     }
 
+    /**
+     * @return The {@link WorkStatusTracker} which serves all {@link WorkStatus} observers.
+     * @hide
+     */
+    @RestrictTo(RestrictTo.Scope.LIBRARY_GROUP)
+    public @NonNull WorkStatusTracker getWorkStatusTracker() {
+        return mWorkStatusTracker;
+    }
+
     /**
      * @return the {@link TaskExecutor} used by the instance of {@link WorkManager}.
      * @hide
@@ -399,16 +411,15 @@ public class WorkManagerImpl extends WorkManager implements SynchronousWorkManag
 
     @Override
     public @NonNull LiveData<WorkStatus> getStatusById(@NonNull UUID id) {
-        WorkSpecDao dao = mWorkDatabase.workSpecDao();
-        LiveData<List<WorkSpec.WorkStatusPojo>> inputLiveData =
-                dao.getWorkStatusPojoLiveDataForIds(Collections.singletonList(id.toString()));
-        return LiveDataUtils.dedupedMappedLiveDataFor(inputLiveData,
-                new Function<List<WorkSpec.WorkStatusPojo>, WorkStatus>() {
+        LiveData<List<WorkStatus>> inputLiveData =
+                mWorkStatusTracker.getStatusesForIds(Collections.singletonList(id.toString()));
+        return Transformations.map(inputLiveData,
+                new Function<List<WorkStatus>, WorkStatus>() {
                     @Override
-                    public WorkStatus apply(List<WorkSpec.WorkStatusPojo> input) {
+                    public WorkStatus apply(List<WorkStatus> input) {
                         WorkStatus workStatus = null;
                         if (input != null && input.size() > 0) {
-                            workStatus = input.get(0).toWorkStatus();
+                            workStatus = input.get(0);
                         }
                         return workStatus;
                     }
@@ -430,10 +441,7 @@ public class WorkManagerImpl extends WorkManager implements SynchronousWorkManag
 
     @Override
     public @NonNull LiveData<List<WorkStatus>> getStatusesByTag(@NonNull String tag) {
-        WorkSpecDao workSpecDao = mWorkDatabase.workSpecDao();
-        LiveData<List<WorkSpec.WorkStatusPojo>> inputLiveData =
-                workSpecDao.getWorkStatusPojoLiveDataForTag(tag);
-        return LiveDataUtils.dedupedMappedLiveDataFor(inputLiveData, WorkSpec.WORK_STATUS_MAPPER);
+        return mWorkStatusTracker.getStatusesForTag(tag);
     }
 
     @Override
@@ -447,10 +455,7 @@ public class WorkManagerImpl extends WorkManager implements SynchronousWorkManag
     @Override
     public @NonNull LiveData<List<WorkStatus>> getStatusesForUniqueWork(
             @NonNull String uniqueWorkName) {
-        WorkSpecDao workSpecDao = mWorkDatabase.workSpecDao();
-        LiveData<List<WorkSpec.WorkStatusPojo>> inputLiveData =
-                workSpecDao.getWorkStatusPojoLiveDataForName(uniqueWorkName);
-        return LiveDataUtils.dedupedMappedLiveDataFor(inputLiveData, WorkSpec.WORK_STATUS_MAPPER);
+        return mWorkStatusTracker.getStatusesForName(uniqueWorkName);
     }
 
     @Override
@@ -467,10 +472,7 @@ public class WorkManagerImpl extends WorkManager implements SynchronousWorkManag
     }
 
     LiveData<List<WorkStatus>> getStatusesById(@NonNull List<String> workSpecIds) {
-        WorkSpecDao dao = mWorkDatabase.workSpecDao();
-        LiveData<List<WorkSpec.WorkStatusPojo>> inputLiveData =
-                dao.getWorkStatusPojoLiveDataForIds(workSpecIds);
-        return LiveDataUtils.dedupedMappedLiveDataFor(inputLiveData, WorkSpec.WORK_STATUS_MAPPER);
+        return mWorkStatusTracker.getStatusesForIds(workSpecIds);
     }
 
     List<WorkStatus> getStatusesByIdSync(@NonNull List<String> workSpecIds) {
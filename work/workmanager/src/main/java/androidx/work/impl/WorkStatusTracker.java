@@ -0,0 +1,367 @@
+/*
+ * Copyright 2018 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package androidx.work.impl;
+
+import android.arch.lifecycle.LiveData;
+import android.arch.persistence.room.InvalidationTracker;
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+import android.support.annotation.RestrictTo;
+import android.support.annotation.VisibleForTesting;
+import android.support.annotation.WorkerThread;
+
+import androidx.work.Data;
+import androidx.work.State;
+import androidx.work.WorkStatus;
+import androidx.work.impl.model.WorkName;
+import androidx.work.impl.model.WorkSpec;
+import androidx.work.impl.model.WorkTag;
+import androidx.work.impl.utils.taskexecutor.TaskExecutor;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * A shared cache of {@link WorkStatus}es backing all of the {@link LiveData} returned by
+ * {@link WorkManagerImpl}.
+ * <p>
+ * Instead of having Room observe one query per {@link LiveData}, the tracker registers a single
+ * {@link InvalidationTracker.Observer} and refreshes every active {@link LiveData} with a constant
+ * number of batched queries, no matter how many ids, tags or names are being observed.  State
+ * transitions made by {@link WorkerWrapper} are also pushed into the cache directly, so observers
+ * see them without waiting for the database round-trip.
+ *
+ * @hide
+ */
+@RestrictTo(RestrictTo.Scope.LIBRARY_GROUP)
+public class WorkStatusTracker {
+
+    // SQLite limits the number of bind arguments in a single statement to 999.
+    private static final int MAX_BIND_ARGUMENTS = 900;
+
+    private final WorkDatabase mWorkDatabase;
+    private final TaskExecutor mTaskExecutor;
+    private final InvalidationTracker.Observer mObserver;
+
+    private final Object mLock = new Object();
+    // All of the following are guarded by mLock.
+    private final Set<StatusLiveData> mActiveLiveData;
+    private final Map<String, WorkStatus> mStatuses;
+    private boolean mObserving;
+    private boolean mRefreshPending;
+    private int mRefreshCount;
+
+    public WorkStatusTracker(
+            @NonNull WorkDatabase workDatabase,
+            @NonNull TaskExecutor taskExecutor) {
+        mWorkDatabase = workDatabase;
+        mTaskExecutor = taskExecutor;
+        mActiveLiveData = new HashSet<>();
+        mStatuses = new HashMap<>();
+        mObserver = new InvalidationTracker.Observer("workspec", "worktag", "workname") {
+            @Override
+            public void onInvalidated(@NonNull Set<String> tables) {
+                scheduleRefresh();
+            }
+        };
+    }
+
+    /**
+     * @param ids The {@link WorkSpec} ids to observe
+     * @return A {@link LiveData} list of {@link WorkStatus}es for the given ids
+     */
+    public @NonNull LiveData<List<WorkStatus>> getStatusesForIds(@NonNull List<String> ids) {
+        return new StatusLiveData(StatusLiveData.KIND_IDS, null, ids);
+    }
+
+    /**
+     * @param tag The tag to observe
+     * @return A {@link LiveData} list of {@link WorkStatus}es for all work with the given tag
+     */
+    public @NonNull LiveData<List<WorkStatus>> getStatusesForTag(@NonNull String tag) {
+        return new StatusLiveData(StatusLiveData.KIND_TAG, tag, null);
+    }
+
+    /**
+     * @param name The unique work name to observe
+     * @return A {@link LiveData} list of {@link WorkStatus}es for all work with the given name
+     */
+    public @NonNull LiveData<List<WorkStatus>> getStatusesForName(@NonNull String name) {
+        return new StatusLiveData(StatusLiveData.KIND_NAME, name, null);
+    }
+
+    /**
+     * Updates the cached {@link WorkStatus} for a {@link WorkSpec} whose state was changed, and
+     * notifies all active {@link LiveData} that contain it.  This should only be called after the
+     * transaction making the change has been committed.
+     *
+     * @param workSpecId The {@link WorkSpec} id
+     * @param state      The new {@link State}
+     * @param output     The new output {@link Data}, or {@code null} if it has not changed
+     */
+    public void onStateChanged(
+            @NonNull String workSpecId,
+            @NonNull State state,
+            @Nullable Data output) {
+        synchronized (mLock) {
+            WorkStatus previous = mStatuses.get(workSpecId);
+            if (previous == null) {
+                // Nobody is observing this id.
+                return;
+            }
+            WorkStatus current = new WorkStatus(
+                    previous.getId(),
+                    state,
+                    output != null ? output : previous.getOutputData(),
+                    new ArrayList<>(previous.getTags()));
+            mStatuses.put(workSpecId, current);
+            for (StatusLiveData liveData : mActiveLiveData) {
+                if (liveData.mMemberIds.contains(workSpecId)) {
+                    liveData.dispatch(mStatuses);
+                }
+            }
+        }
+    }
+
+    /**
+     * @return The number of times the cache was refreshed from the database
+     */
+    @VisibleForTesting
+    public int getRefreshCount() {
+        synchronized (mLock) {
+            return mRefreshCount;
+        }
+    }
+
+    void onActive(final StatusLiveData liveData) {
+        boolean startObserving = false;
+        synchronized (mLock) {
+            mActiveLiveData.add(liveData);
+            if (!mObserving) {
+                mObserving = true;
+                startObserving = true;
+            }
+        }
+        if (startObserving) {
+            mTaskExecutor.executeOnBackgroundThread(new Runnable() {
+                @Override
+                public void run() {
+                    mWorkDatabase.getInvalidationTracker().addObserver(mObserver);
+                }
+            });
+        }
+        scheduleRefresh();
+    }
+
+    void onInactive(StatusLiveData liveData) {
+        boolean stopObserving = false;
+        synchronized (mLock) {
+            mActiveLiveData.remove(liveData);
+            if (mActiveLiveData.isEmpty() && mObserving) {
+                mObserving = false;
+                stopObserving = true;
+                mStatuses.clear();
+            }
+        }
+        if (stopObserving) {
+            mTaskExecutor.executeOnBackgroundThread(new Runnable() {
+                @Override
+                public void run() {
+                    mWorkDatabase.getInvalidationTracker().removeObserver(mObserver);
+                }
+            });
+        }
+    }
+
+    void scheduleRefresh() {
+        synchronized (mLock) {
+            if (mRefreshPending || mActiveLiveData.isEmpty()) {
+                return;
+            }
+            mRefreshPending = true;
+        }
+        mTaskExecutor.executeOnBackgroundThread(new Runnable() {
+            @Override
+            public void run() {
+                refresh();
+            }
+        });
+    }
+
+    @WorkerThread
+    private void refresh() {
+        List<StatusLiveData> activeLiveData;
+        synchronized (mLock) {
+            // Any invalidation from here on needs another refresh.
+            mRefreshPending = false;
+            mRefreshCount++;
+            activeLiveData = new ArrayList<>(mActiveLiveData);
+        }
+        if (activeLiveData.isEmpty()) {
+            return;
+        }
+
+        Set<String> tags = new HashSet<>();
+        Set<String> names = new HashSet<>();
+        for (StatusLiveData liveData : activeLiveData) {
+            if (liveData.mKind == StatusLiveData.KIND_TAG) {
+                tags.add(liveData.mKey);
+            } else if (liveData.mKind == StatusLiveData.KIND_NAME) {
+                names.add(liveData.mKey);
+            }
+        }
+
+        Map<String, Set<String>> membership = new HashMap<>();
+        Map<String, WorkStatus> statuses = new HashMap<>();
+        mWorkDatabase.beginTransaction();
+        try {
+            for (List<String> batch : batches(tags)) {
+                for (WorkTag workTag : mWorkDatabase.workTagDao().getWorkTagsForTags(batch)) {
+                    addMember(membership, tagKey(workTag.tag), workTag.workSpecId);
+                }
+            }
+            for (List<String> batch : batches(names)) {
+                for (WorkName workName : mWorkDatabase.workNameDao().getWorkNamesForNames(batch)) {
+                    addMember(membership, nameKey(workName.name), workName.workSpecId);
+                }
+            }
+
+            Set<String> ids = new HashSet<>();
+            for (StatusLiveData liveData : activeLiveData) {
+                if (liveData.mKind == StatusLiveData.KIND_IDS) {
+                    ids.addAll(liveData.mMemberIds);
+                }
+            }
+            for (Set<String> members : membership.values()) {
+                ids.addAll(members);
+            }
+            for (List<String> batch : batches(ids)) {
+                List<WorkSpec.WorkStatusPojo> pojos =
+                        mWorkDatabase.workSpecDao().getWorkStatusPojoForIds(batch);
+                for (WorkSpec.WorkStatusPojo pojo : pojos) {
+                    statuses.put(pojo.id, pojo.toWorkStatus());
+                }
+            }
+            mWorkDatabase.setTransactionSuccessful();
+        } finally {
+            mWorkDatabase.endTransaction();
+        }
+
+        synchronized (mLock) {
+            mStatuses.clear();
+            mStatuses.putAll(statuses);
+            for (StatusLiveData liveData : activeLiveData) {
+                if (!mActiveLiveData.contains(liveData)) {
+                    continue;
+                }
+                if (liveData.mKind == StatusLiveData.KIND_TAG) {
+                    liveData.setMemberIds(membership.get(tagKey(liveData.mKey)));
+                } else if (liveData.mKind == StatusLiveData.KIND_NAME) {
+                    liveData.setMemberIds(membership.get(nameKey(liveData.mKey)));
+                }
+                liveData.dispatch(mStatuses);
+            }
+        }
+    }
+
+    private static void addMember(Map<String, Set<String>> membership, String key, String id) {
+        Set<String> members = membership.get(key);
+        if (members == null) {
+            members = new LinkedHashSet<>();
+            membership.put(key, members);
+        }
+        members.add(id);
+    }
+
+    private static String tagKey(String tag) {
+        return "tag:" + tag;
+    }
+
+    private static String nameKey(String name) {
+        return "name:" + name;
+    }
+
+    private static List<List<String>> batches(Set<String> values) {
+        if (values.isEmpty()) {
+            return Collections.emptyList();
+        }
+        List<String> all = new ArrayList<>(values);
+        List<List<String>> batches = new ArrayList<>();
+        for (int i = 0; i < all.size(); i += MAX_BIND_ARGUMENTS) {
+            batches.add(all.subList(i, Math.min(all.size(), i + MAX_BIND_ARGUMENTS)));
+        }
+        return batches;
+    }
+
+    /**
+     * A {@link LiveData} served from the {@link WorkStatusTracker} cache.
+     */
+    final class StatusLiveData extends LiveData<List<WorkStatus>> {
+
+        static final int KIND_IDS = 0;
+        static final int KIND_TAG = 1;
+        static final int KIND_NAME = 2;
+
+        final int mKind;
+        final String mKey;
+        // Guarded by mLock.
+        Set<String> mMemberIds;
+        private List<WorkStatus> mLastDispatched;
+
+        StatusLiveData(int kind, @Nullable String key, @Nullable List<String> ids) {
+            mKind = kind;
+            mKey = key;
+            mMemberIds = ids != null
+                    ? new LinkedHashSet<>(ids)
+                    : Collections.<String>emptySet();
+        }
+
+        void setMemberIds(@Nullable Set<String> memberIds) {
+            mMemberIds = memberIds != null ? memberIds : Collections.<String>emptySet();
+        }
+
+        void dispatch(Map<String, WorkStatus> statuses) {
+            List<WorkStatus> output = new ArrayList<>(mMemberIds.size());
+            for (String id : mMemberIds) {
+                WorkStatus status = statuses.get(id);
+                if (status != null) {
+                    output.add(status);
+                }
+            }
+            if (!output.equals(mLastDispatched)) {
+                mLastDispatched = output;
+                postValue(output);
+            }
+        }
+
+        @Override
+        protected void onActive() {
+            WorkStatusTracker.this.onActive(this);
+        }
+
+        @Override
+        protected void onInactive() {
+            WorkStatusTracker.this.onInactive(this);
+        }
+    }
+}
@@ -36,6 +36,7 @@ import androidx.work.Configuration;
 import androidx.work.Data;
 import androidx.work.InputMerger;
 import androidx.work.State;
+import androidx.work.WorkTracingListener;
 import androidx.work.Worker;
 import androidx.work.impl.model.DependencyDao;
 import androidx.work.impl.model.WorkSpec;
@@ -63,6 +64,8 @@ public class WorkerWrapper implements Runnable {
     private ExecutionListener mListener;
     private List<Scheduler> mSchedulers;
     private Extras.RuntimeExtras mRuntimeExtras;
+    private WorkStatusTracker mWorkStatusTracker;
+    private final List<StateChange> mPendingStateChanges = new ArrayList<>();
     private WorkSpec mWorkSpec;
     Worker mWorker;
 
@@ -74,12 +77,16 @@ public class WorkerWrapper implements Runnable {
 
     private volatile boolean mInterrupted;
 
+    // Time spent in database transactions, reported to the WorkTracingListener.
+    private long mDatabaseNanos;
+
     private WorkerWrapper(Builder builder) {
         mAppContext = builder.mAppContext;
         mWorkSpecId = builder.mWorkSpecId;
         mListener = builder.mListener;
         mSchedulers = builder.mSchedulers;
         mRuntimeExtras = builder.mRuntimeExtras;
+        mWorkStatusTracker = builder.mWorkStatusTracker;
         mWorker = builder.mWorker;
 
         mConfiguration = builder.mConfiguration;
@@ -96,6 +103,7 @@ public class WorkerWrapper implements Runnable {
             return;
         }
 
+        long databaseStartNanos = System.nanoTime();
         mWorkDatabase.beginTransaction();
         try {
             mWorkSpec = mWorkSpecDao.getWorkSpec(mWorkSpecId);
@@ -118,6 +126,7 @@ public class WorkerWrapper implements Runnable {
             mWorkDatabase.setTransactionSuccessful();
         } finally {
             mWorkDatabase.endTransaction();
+            mDatabaseNanos += System.nanoTime() - databaseStartNanos;
         }
 
         // Merge inputs.  This can be potentially expensive code, so this should not be done inside
@@ -164,6 +173,11 @@ public class WorkerWrapper implements Runnable {
                 return;
             }
 
+            WorkTracingListener tracingListener = mConfiguration.getTracingListener();
+            if (tracingListener != null) {
+                tracingListener.onExecutionStarted(mWorker.getId(), System.nanoTime());
+            }
+
             Worker.Result result;
             try {
                 result = mWorker.doWork();
@@ -175,7 +189,9 @@ public class WorkerWrapper implements Runnable {
                                 mWorkSpecId),
                         e);
             }
+            long executionFinishedNanos = System.nanoTime();
 
+            boolean committed = false;
             try {
                 mWorkDatabase.beginTransaction();
                 if (!tryCheckForInterruptionAndNotify()) {
@@ -192,9 +208,20 @@ public class WorkerWrapper implements Runnable {
                         rescheduleAndNotify();
                     }
                     mWorkDatabase.setTransactionSuccessful();
+                    committed = true;
                 }
             } finally {
                 mWorkDatabase.endTransaction();
+                mDatabaseNanos += System.nanoTime() - executionFinishedNanos;
+            }
+            if (tracingListener != null) {
+                tracingListener.onExecutionFinished(
+                        mWorker.getId(), executionFinishedNanos, mDatabaseNanos);
+            }
+            if (!committed) {
+                mPendingStateChanges.clear();
+            } else if (!mWorkDatabase.inTransaction()) {
+                dispatchPendingStateChanges();
             }
         } else {
             notifyIncorrectStatus();
@@ -254,6 +281,30 @@ public class WorkerWrapper implements Runnable {
         });
     }
 
+    private void notifyStateChanged(
+            @NonNull String workSpecId,
+            @NonNull State state,
+            @Nullable Data output) {
+        if (mWorkStatusTracker == null) {
+            return;
+        }
+        mPendingStateChanges.add(new StateChange(workSpecId, state, output));
+        // Changes made inside an outer transaction are only pushed once it has been committed.
+        if (!mWorkDatabase.inTransaction()) {
+            dispatchPendingStateChanges();
+        }
+    }
+
+    private void dispatchPendingStateChanges() {
+        for (StateChange stateChange : mPendingStateChanges) {
+            mWorkStatusTracker.onStateChanged(
+                    stateChange.mWorkSpecId,
+                    stateChange.mState,
+                    stateChange.mOutput);
+        }
+        mPendingStateChanges.clear();
+    }
+
     private void handleResult(Worker.Result result) {
         switch (result) {
             case SUCCESS: {
@@ -286,6 +337,7 @@ public class WorkerWrapper implements Runnable {
 
     private boolean trySetRunning() {
         boolean setToRunning = false;
+        long databaseStartNanos = System.nanoTime();
         mWorkDatabase.beginTransaction();
         try {
             State currentState = mWorkSpecDao.getState(mWorkSpecId);
@@ -297,20 +349,26 @@ public class WorkerWrapper implements Runnable {
             mWorkDatabase.setTransactionSuccessful();
         } finally {
             mWorkDatabase.endTransaction();
+            mDatabaseNanos += System.nanoTime() - databaseStartNanos;
+        }
+        if (setToRunning) {
+            notifyStateChanged(mWorkSpecId, RUNNING, null);
         }
         return setToRunning;
     }
 
     private void setFailedAndNotify() {
+        List<String> failedIds = new ArrayList<>();
+        Data output = null;
         mWorkDatabase.beginTransaction();
         try {
-            recursivelyFailWorkAndDependents(mWorkSpecId);
+            recursivelyFailWorkAndDependents(mWorkSpecId, failedIds);
 
             // Try to set the output for the failed work but check if the worker exists; this could
             // be a permanent error where we couldn't find or create the worker class.
             if (mWorker != null) {
                 // Update Data as necessary.
-                Data output = mWorker.getOutputData();
+                output = mWorker.getOutputData();
                 mWorkSpecDao.setOutput(mWorkSpecId, output);
             }
 
@@ -320,18 +378,23 @@ public class WorkerWrapper implements Runnable {
             notifyListener(false, false);
         }
 
+        for (String failedId : failedIds) {
+            notifyStateChanged(failedId, FAILED, failedId.equals(mWorkSpecId) ? output : null);
+        }
+
         Schedulers.schedule(mConfiguration, mWorkDatabase, mSchedulers);
     }
 
-    private void recursivelyFailWorkAndDependents(String workSpecId) {
+    private void recursivelyFailWorkAndDependents(String workSpecId, List<String> failedIds) {
         List<String> dependentIds = mDependencyDao.getDependentWorkIds(workSpecId);
         for (String id : dependentIds) {
-            recursivelyFailWorkAndDependents(id);
+            recursivelyFailWorkAndDependents(id, failedIds);
         }
 
         // Don't fail already cancelled work.
         if (mWorkSpecDao.getState(workSpecId) != CANCELLED) {
             mWorkSpecDao.setState(FAILED, workSpecId);
+            failedIds.add(workSpecId);
         }
     }
 
@@ -346,6 +409,7 @@ public class WorkerWrapper implements Runnable {
             mWorkDatabase.endTransaction();
             notifyListener(false, true);
         }
+        notifyStateChanged(mWorkSpecId, ENQUEUED, null);
     }
 
     private void resetPeriodicAndNotify(boolean isSuccessful) {
@@ -372,6 +436,7 @@ public class WorkerWrapper implements Runnable {
             mWorkDatabase.endTransaction();
             notifyListener(isSuccessful, false);
         }
+        notifyStateChanged(mWorkSpecId, ENQUEUED, null);
 
         // We need to tell the Schedulers to pick up this newly ENQUEUED Worker.
         // TODO (rahulrav@) Move this into the Scheduler itself.
@@ -382,12 +447,14 @@ public class WorkerWrapper implements Runnable {
     }
 
     private void setSucceededAndNotify() {
+        List<String> unblockedIds = new ArrayList<>();
+        Data output;
         mWorkDatabase.beginTransaction();
         try {
             mWorkSpecDao.setState(SUCCEEDED, mWorkSpecId);
 
             // Update Data as necessary.
-            Data output = mWorker.getOutputData();
+            output = mWorker.getOutputData();
             mWorkSpecDao.setOutput(mWorkSpecId, output);
 
             // Unblock Dependencies and set Period Start Time
@@ -398,6 +465,7 @@ public class WorkerWrapper implements Runnable {
                     Log.d(TAG, String.format("Setting status to enqueued for %s", dependentWorkId));
                     mWorkSpecDao.setState(ENQUEUED, dependentWorkId);
                     mWorkSpecDao.setPeriodStartTime(dependentWorkId, currentTimeMillis);
+                    unblockedIds.add(dependentWorkId);
                 }
             }
 
@@ -407,6 +475,11 @@ public class WorkerWrapper implements Runnable {
             notifyListener(true, false);
         }
 
+        notifyStateChanged(mWorkSpecId, SUCCEEDED, output);
+        for (String unblockedId : unblockedIds) {
+            notifyStateChanged(unblockedId, ENQUEUED, null);
+        }
+
         // This takes of scheduling the dependent workers as they have been marked ENQUEUED.
         Schedulers.schedule(mConfiguration, mWorkDatabase, mSchedulers);
     }
@@ -463,6 +536,21 @@ public class WorkerWrapper implements Runnable {
         return null;
     }
 
+    /**
+     * A state transition which is waiting to be pushed to the {@link WorkStatusTracker}.
+     */
+    private static class StateChange {
+        final String mWorkSpecId;
+        final State mState;
+        final Data mOutput;
+
+        StateChange(String workSpecId, State state, Data output) {
+            mWorkSpecId = workSpecId;
+            mState = state;
+            mOutput = output;
+        }
+    }
+
     /**
      * Builder class for {@link WorkerWrapper}
      * @hide
@@ -478,6 +566,7 @@ public class WorkerWrapper implements Runnable {
         private ExecutionListener mListener;
         private List<Scheduler> mSchedulers;
         private Extras.RuntimeExtras mRuntimeExtras;
+        private WorkStatusTracker mWorkStatusTracker;
 
         public Builder(@NonNull Context context,
                 @NonNull Configuration configuration,
@@ -517,6 +606,16 @@ public class WorkerWrapper implements Runnable {
             return this;
         }
 
+        /**
+         * @param workStatusTracker The {@link WorkStatusTracker} which is notified of state
+         *                          transitions made by the {@link WorkerWrapper}.
+         * @return The instance of {@link Builder} for chaining.
+         */
+        public Builder withWorkStatusTracker(WorkStatusTracker workStatusTracker) {
+            mWorkStatusTracker = workStatusTracker;
+            return this;
+        }
+
         /**
          * @param worker The instance of {@link Worker} to be executed by {@link WorkerWrapper}.
          *               Useful in the context of testing.
@@ -46,4 +46,13 @@ public interface WorkNameDao {
      */
     @Query("SELECT work_spec_id FROM workname WHERE name=:name")
     List<String> getWorkSpecIdsWithName(String name);
+
+    /**
+     * Retrieves all {@link WorkName}s for the given names.
+     *
+     * @param names The matching names
+     * @return All {@link WorkName}s in one of the given named graphs
+     */
+    @Query("SELECT * FROM workname WHERE name IN (:names)")
+    List<WorkName> getWorkNamesForNames(List<String> names);
 }
@@ -55,4 +55,13 @@ public interface WorkTagDao {
      */
     @Query("SELECT DISTINCT tag FROM worktag WHERE work_spec_id=:id")
     List<String> getTagsForWorkSpecId(String id);
+
+    /**
+     * Retrieves all {@link WorkTag}s for the given tags.
+     *
+     * @param tags The matching tags
+     * @return All {@link WorkTag}s labelled with one of the given tags
+     */
+    @Query("SELECT * FROM worktag WHERE tag IN (:tags)")
+    List<WorkTag> getWorkTagsForTags(List<String> tags);
 }
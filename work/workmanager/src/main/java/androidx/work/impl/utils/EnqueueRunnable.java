@@ -38,6 +38,7 @@ import androidx.work.Data;
 import androidx.work.ExistingWorkPolicy;
 import androidx.work.State;
 import androidx.work.WorkRequest;
+import androidx.work.WorkTracingListener;
 import androidx.work.impl.Schedulers;
 import androidx.work.impl.WorkContinuationImpl;
 import androidx.work.impl.WorkDatabase;
@@ -159,6 +160,8 @@ public class EnqueueRunnable implements Runnable {
 
         long currentTimeMillis = System.currentTimeMillis();
         WorkDatabase workDatabase = workManagerImpl.getWorkDatabase();
+        WorkTracingListener tracingListener =
+                workManagerImpl.getConfiguration().getTracingListener();
 
         boolean hasPrerequisite = (prerequisiteIds != null && prerequisiteIds.length > 0);
         boolean hasCompletedAllPrerequisites = true;
@@ -279,6 +282,10 @@ public class EnqueueRunnable implements Runnable {
             if (isNamed) {
                 workDatabase.workNameDao().insert(new WorkName(name, work.getStringId()));
             }
+
+            if (tracingListener != null) {
+                tracingListener.onEnqueued(work.getId(), System.nanoTime());
+            }
         }
         return needsScheduling;
     }
@@ -0,0 +1,115 @@
+/*
+ * Copyright 2018 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package androidx.work;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.notNullValue;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.hamcrest.MatcherAssert.assertThat;
+
+import org.junit.Test;
+
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+public class WorkTimelineRecorderTest {
+
+    @Test
+    public void testTimeline_recordsAllPhases() {
+        WorkTimelineRecorder recorder = new WorkTimelineRecorder();
+        UUID id = UUID.randomUUID();
+        recorder.onEnqueued(id, 10);
+        recorder.onScheduled(id, 20);
+        recorder.onConstraintsMet(id, 50);
+        recorder.onExecutionStarted(id, 80);
+        recorder.onExecutionFinished(id, 200, 15);
+
+        WorkTimelineRecorder.Timeline timeline = recorder.getTimeline(id);
+        assertThat(timeline, is(notNullValue()));
+        assertThat(timeline.getEnqueuedNanos(), is(10L));
+        assertThat(timeline.getScheduledNanos(), is(20L));
+        assertThat(timeline.getConstraintsMetNanos(), is(50L));
+        assertThat(timeline.getExecutionStartedNanos(), is(80L));
+        assertThat(timeline.getExecutionFinishedNanos(), is(200L));
+        assertThat(timeline.getDatabaseNanos(), is(15L));
+
+        assertThat(recorder.getConstraintWait().getMeanNanos(), is(30L));
+        assertThat(recorder.getQueueingDelay().getMeanNanos(), is(30L));
+        assertThat(recorder.getExecutionTime().getMeanNanos(), is(120L));
+        assertThat(recorder.getDatabaseTime().getMeanNanos(), is(15L));
+    }
+
+    @Test
+    public void testQueueingDelay_withoutConstraintNotification() {
+        WorkTimelineRecorder recorder = new WorkTimelineRecorder();
+        UUID id = UUID.randomUUID();
+        recorder.onScheduled(id, 20);
+        recorder.onExecutionStarted(id, 70);
+        recorder.onExecutionFinished(id, 100, 0);
+
+        assertThat(recorder.getConstraintWait().getCount(), is(0L));
+        assertThat(recorder.getQueueingDelay().getMeanNanos(), is(50L));
+    }
+
+    @Test
+    public void testMaxTimelines_dropsLeastRecentlyUpdated() {
+        WorkTimelineRecorder recorder = new WorkTimelineRecorder(2);
+        UUID id0 = UUID.randomUUID();
+        UUID id1 = UUID.randomUUID();
+        UUID id2 = UUID.randomUUID();
+        recorder.onEnqueued(id0, 0);
+        recorder.onEnqueued(id1, 0);
+        recorder.onScheduled(id0, 1);
+        recorder.onEnqueued(id2, 2);
+
+        assertThat(recorder.getTimelines().size(), is(2));
+        assertThat(recorder.getTimeline(id0), is(notNullValue()));
+        assertThat(recorder.getTimeline(id1), is(nullValue()));
+    }
+
+    @Test
+    public void testHistogram_percentiles() {
+        WorkTimelineRecorder recorder = new WorkTimelineRecorder();
+        for (int i = 0; i < 100; i++) {
+            UUID id = UUID.randomUUID();
+            long durationNanos = TimeUnit.MILLISECONDS.toNanos(i < 90 ? 1 : 100);
+            recorder.onExecutionStarted(id, 0);
+            recorder.onExecutionFinished(id, durationNanos, 0);
+        }
+
+        WorkTimelineRecorder.Histogram histogram = recorder.getExecutionTime();
+        assertThat(histogram.getCount(), is(100L));
+        assertThat(histogram.getMinNanos(), is(TimeUnit.MILLISECONDS.toNanos(1)));
+        assertThat(histogram.getMaxNanos(), is(TimeUnit.MILLISECONDS.toNanos(100)));
+        // 1ms lands in the [512us, 1024us) bucket.
+        assertThat(histogram.getPercentileNanos(50), is(TimeUnit.MICROSECONDS.toNanos(1024)));
+        assertThat(histogram.getPercentileNanos(99), is(TimeUnit.MILLISECONDS.toNanos(100)));
+    }
+
+    @Test
+    public void testReset() {
+        WorkTimelineRecorder recorder = new WorkTimelineRecorder();
+        UUID id = UUID.randomUUID();
+        recorder.onExecutionStarted(id, 0);
+        recorder.onExecutionFinished(id, 10, 1);
+        recorder.reset();
+
+        assertThat(recorder.getTimelines().size(), is(0));
+        assertThat(recorder.getExecutionTime().getCount(), is(0L));
+        assertThat(recorder.getDatabaseTime().getCount(), is(0L));
+    }
+}